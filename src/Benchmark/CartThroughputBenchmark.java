@@ -0,0 +1,149 @@
+package Benchmark;
+
+import Model.Customer;
+import Model.Game;
+import Model.GameGenre;
+import Model.Order;
+import Model.ShoppingCart;
+import Repository.IRepository;
+import Repository.InMemoryRepository;
+import Service.OrderPipeline;
+import Service.PricingEngine;
+import Service.PurchaseEventStore;
+import Service.ShoppingCartService;
+import Service.WalletLedger;
+import Exception.BusinessLogicException;
+import Exception.EntityNotFoundException;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures ShoppingCartService throughput under concurrent customers for 1 to 64 threads.
+ * Each operation picks a random customer and adds a random game to their cart, then either
+ * removes it again or, every sixteenth operation, checks the cart out.
+ *
+ * Usage: java Benchmark.CartThroughputBenchmark [customers] [games] [secondsPerLevel]
+ */
+public class CartThroughputBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws InterruptedException {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        PrintStream out = System.out;
+        out.println("customers=" + customers + ", games=" + games + ", seconds/level=" + seconds);
+        out.printf("%8s %14s %14s%n", "threads", "ops/sec", "ops/sec/thread");
+
+        for (int threads : THREAD_COUNTS) {
+            ShoppingCartService service = newService(customers, games);
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                run(service, threads, customers, games, 1);
+                double opsPerSecond = run(service, threads, customers, games, seconds);
+                out.printf("%8d %14.0f %14.0f%n", threads, opsPerSecond, opsPerSecond / threads);
+            } finally {
+                System.setOut(out);
+            }
+        }
+    }
+
+    /**
+     * Builds a service over in-memory repositories holding the given number of customers and games.
+     */
+    private static ShoppingCartService newService(int customers, int games) {
+        IRepository<Game> gameRepository = new InMemoryRepository<>();
+        IRepository<Customer> customerRepository = new InMemoryRepository<>();
+        IRepository<ShoppingCart> shoppingCartRepository = new InMemoryRepository<>();
+        IRepository<Order> orderRepository = new InMemoryRepository<>();
+
+        GameGenre[] genres = GameGenre.values();
+        List<Game> gameList = new ArrayList<>(games);
+        for (int i = 1; i <= games; i++) {
+            gameList.add(new Game(i, "Game " + i, "Benchmark game", genres[i % genres.length], 1.0f + i % 60, new ArrayList<>()));
+        }
+        gameRepository.createAll(gameList);
+
+        List<Customer> customerList = new ArrayList<>(customers);
+        List<ShoppingCart> cartList = new ArrayList<>(customers);
+        for (int i = 1; i <= customers; i++) {
+            Customer customer = new Customer(i, "customer" + i, "customer" + i + "@gmail.com", "pass", "Customer",
+                    1_000_000_000f, new ArrayList<>(), new ArrayList<>(), null);
+            ShoppingCart cart = new ShoppingCart(i, customer);
+            customer.setShoppingCart(cart);
+            customerList.add(customer);
+            cartList.add(cart);
+        }
+        customerRepository.createAll(customerList);
+        shoppingCartRepository.createAll(cartList);
+
+        WalletLedger walletLedger = new WalletLedger(new InMemoryRepository<>(), new InMemoryRepository<>(), customerRepository,
+                WalletLedger.DEFAULT_SNAPSHOT_INTERVAL);
+        return new ShoppingCartService(shoppingCartRepository, gameRepository, orderRepository, customerRepository, walletLedger, new PricingEngine(),
+                new OrderPipeline(OrderPipeline.DEFAULT_QUEUE_CAPACITY, OrderPipeline.DEFAULT_BATCH_SIZE, false)
+                        .addStage("orders", orderRepository::createAll),
+                new PurchaseEventStore(new InMemoryRepository<>(), Clock.systemUTC()));
+    }
+
+    /**
+     * Runs the operation mix on the given number of threads for a fixed time.
+     *
+     * @return The measured throughput in operations per second.
+     */
+    private static double run(ShoppingCartService service, int threads, int customers, int games, int seconds)
+            throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(threads);
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                while (running.get()) {
+                    int cartId = 1 + random.nextInt(customers);
+                    int gameId = 1 + random.nextInt(games);
+                    try {
+                        service.addGameToCart(cartId, gameId);
+                        if (count % 16 == 0) {
+                            service.checkout(cartId);
+                        } else {
+                            service.removeGameFromCart(cartId, gameId);
+                        }
+                    } catch (BusinessLogicException | EntityNotFoundException e) {
+                        // The game was already owned or in the cart; counts as a completed operation.
+                    }
+                    count++;
+                }
+                operations.add(count);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsedSeconds = (System.nanoTime() - begin) / 1e9;
+        return operations.sum() / elapsedSeconds;
+    }
+}
@@ -0,0 +1,280 @@
+package Benchmark;
+
+import Server.Json;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * A small JMH-style harness for single-threaded throughput benchmarks.
+ * Each benchmark runs warmup iterations and then timed measurement iterations. It reports
+ * the mean throughput with a 99.9% confidence interval, plus the bytes allocated per
+ * operation and the GC activity during measurement, like JMH's gc profiler. Results can
+ * be written as JSON so they can be tracked over time.
+ *
+ * Operations return a value, which the harness folds into a sink so the JIT cannot
+ * eliminate the work.
+ */
+public class MicroBenchmark {
+
+    /**
+     * Work run before or after each iteration, outside the timed region.
+     */
+    @FunctionalInterface
+    public interface IterationHook {
+        void run();
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final List<Result> results = new ArrayList<>();
+    private final PrintStream log;
+    private int sink;
+
+    /**
+     * Constructs a MicroBenchmark.
+     *
+     * @param warmupIterations      The number of untimed iterations before measuring.
+     * @param measurementIterations The number of measured iterations.
+     * @param iterationMillis       The length of each iteration.
+     * @param log                   Stream that receives one line per finished benchmark, or null.
+     */
+    public MicroBenchmark(int warmupIterations, int measurementIterations, long iterationMillis, PrintStream log) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.log = log;
+    }
+
+    /**
+     * Measures an operation that can run any number of times per iteration.
+     *
+     * @param name      The benchmark name.
+     * @param params    The parameters of this run, such as the repository type and dataset size.
+     * @param operation The operation; receives its invocation index within the iteration.
+     * @return The result, which is also kept for writeJson.
+     */
+    public Result measure(String name, Map<String, Object> params, IntFunction<Object> operation) {
+        return measure(name, params, operation, Integer.MAX_VALUE, null, null);
+    }
+
+    /**
+     * Measures an operation that can only run a bounded number of times per iteration,
+     * with untimed hooks before and after each iteration. This fits benchmarks that consume
+     * prepared state, such as deleting objects the setup created.
+     *
+     * @param name            The benchmark name.
+     * @param params          The parameters of this run.
+     * @param operation       The operation; receives its invocation index within the iteration.
+     * @param maxOpsPerIteration The most invocations per iteration.
+     * @param setup           Runs before each iteration, or null.
+     * @param teardown        Runs after each iteration, or null.
+     * @return The result, which is also kept for writeJson.
+     */
+    public Result measure(String name, Map<String, Object> params, IntFunction<Object> operation,
+                          int maxOpsPerIteration, IterationHook setup, IterationHook teardown) {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(operation, maxOpsPerIteration, setup, teardown);
+        }
+
+        long[] gcBefore = gcTotals();
+        long totalOps = 0;
+        long allocated = 0;
+        double[] throughputs = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] iteration = runIteration(operation, maxOpsPerIteration, setup, teardown);
+            totalOps += iteration[0];
+            throughputs[i] = iteration[0] / (iteration[1] / 1e9);
+            allocated += iteration[2];
+        }
+        long[] gcAfter = gcTotals();
+
+        Result result = new Result(name, params, throughputs,
+                totalOps == 0 ? 0 : (double) allocated / totalOps, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+        results.add(result);
+        if (log != null) {
+            log.println(result);
+        }
+        return result;
+    }
+
+    /**
+     * Runs one iteration.
+     *
+     * @return The number of operations, the timed nanoseconds and the bytes allocated while timed.
+     */
+    private long[] runIteration(IntFunction<Object> operation, int maxOps, IterationHook setup, IterationHook teardown) {
+        if (setup != null) {
+            setup.run();
+        }
+        int ops = 0;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long now = start;
+        while (ops < maxOps && now < deadline) {
+            Object value = operation.apply(ops);
+            sink += value == null ? 0 : value.hashCode();
+            ops++;
+            if ((ops & 15) == 0 || ops < 16) {
+                now = System.nanoTime();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        if (teardown != null) {
+            teardown.run();
+        }
+        return new long[]{ops, elapsed, allocated};
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * Writes every result measured so far as a JSON document, creating parent directories as needed.
+     *
+     * @param suite The name of the benchmark suite.
+     * @param file  The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeJson(String suite, Path file) throws IOException {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("suite", suite);
+        document.put("timestamp", Instant.now().toString());
+        document.put("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        document.put("processors", Runtime.getRuntime().availableProcessors());
+        document.put("warmupIterations", warmupIterations);
+        document.put("measurementIterations", measurementIterations);
+        document.put("iterationMillis", iterationNanos / 1_000_000L);
+        List<Object> entries = new ArrayList<>();
+        for (Result result : results) {
+            entries.add(result.toJson());
+        }
+        document.put("results", entries);
+        // Folding the sink into the output keeps it observable.
+        document.put("sink", sink);
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, Json.write(document));
+    }
+
+    /**
+     * The measurements of one benchmark with one set of parameters.
+     */
+    public static class Result {
+        private static final double Z_999 = 3.29;
+
+        private final String name;
+        private final Map<String, Object> params;
+        private final double[] throughputs;
+        private final double allocatedBytesPerOp;
+        private final long gcCount;
+        private final long gcMillis;
+
+        Result(String name, Map<String, Object> params, double[] throughputs, double allocatedBytesPerOp, long gcCount, long gcMillis) {
+            this.name = name;
+            this.params = new LinkedHashMap<>(params);
+            this.throughputs = throughputs;
+            this.allocatedBytesPerOp = allocatedBytesPerOp;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Map<String, Object> getParams() {
+            return params;
+        }
+
+        public double getOpsPerSecond() {
+            double total = 0;
+            for (double throughput : throughputs) {
+                total += throughput;
+            }
+            return throughputs.length == 0 ? 0 : total / throughputs.length;
+        }
+
+        /**
+         * Gets the half-width of the 99.9% confidence interval of the throughput.
+         *
+         * @return The error in operations per second.
+         */
+        public double getError() {
+            if (throughputs.length < 2) {
+                return Double.NaN;
+            }
+            double mean = getOpsPerSecond();
+            double squares = 0;
+            for (double throughput : throughputs) {
+                squares += (throughput - mean) * (throughput - mean);
+            }
+            double stdDev = Math.sqrt(squares / (throughputs.length - 1));
+            return Z_999 * stdDev / Math.sqrt(throughputs.length);
+        }
+
+        public double getAllocatedBytesPerOp() {
+            return allocatedBytesPerOp;
+        }
+
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        public long getGcMillis() {
+            return gcMillis;
+        }
+
+        private Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("benchmark", name);
+            json.put("params", params);
+            json.put("opsPerSecond", getOpsPerSecond());
+            json.put("error", getError());
+            json.put("allocatedBytesPerOp", allocatedBytesPerOp);
+            json.put("gcCount", gcCount);
+            json.put("gcMillis", gcMillis);
+            return json;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s %-36s %14.1f +- %10.1f ops/s %12.0f B/op %4d gc (%d ms)",
+                    name, params, getOpsPerSecond(), getError(), allocatedBytesPerOp, gcCount, gcMillis);
+        }
+    }
+}
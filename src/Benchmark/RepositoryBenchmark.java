@@ -0,0 +1,143 @@
+package Benchmark;
+
+import Model.Game;
+import Model.GameGenre;
+import Repository.FileRepository;
+import Repository.IRepository;
+import Repository.InMemoryRepository;
+import Repository.IndexedRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Throughput and allocation benchmarks of the repository implementations. Each run is
+ * parameterized by implementation ("memory", "indexed" for the IndexedRepository setup the
+ * store uses, or "file") and by dataset size. It measures get, getAll, create, update
+ * and delete.
+ *
+ * Every FileRepository operation reads or rewrites the whole file, so its large sizes take
+ * a long time to set up and complete only a few operations per iteration.
+ *
+ * Usage: java Benchmark.RepositoryBenchmark [key=value ...]
+ *   impls=memory,indexed,file sizes=1000,100000,1000000 warmup=2 iterations=5 millis=1000
+ *   out=benchmark-results/repository.json
+ */
+public class RepositoryBenchmark {
+    private static final int ID_SAMPLES = 4096;
+    private static final int MAX_MUTATIONS_PER_ITERATION = 20_000;
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        options.put("impls", "memory,indexed,file");
+        options.put("sizes", "1000,100000,1000000");
+        options.put("warmup", "2");
+        options.put("iterations", "5");
+        options.put("millis", "1000");
+        options.put("out", "benchmark-results/repository.json");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !options.containsKey(arg.substring(0, eq))) {
+                System.out.println("Unknown option: " + arg + " (expected one of " + options.keySet() + ")");
+                return;
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        MicroBenchmark bench = new MicroBenchmark(Integer.parseInt(options.get("warmup")),
+                Integer.parseInt(options.get("iterations")), Long.parseLong(options.get("millis")), System.out);
+        for (String impl : options.get("impls").split(",")) {
+            for (String size : options.get("sizes").split(",")) {
+                run(bench, impl.trim(), Integer.parseInt(size.trim()));
+            }
+        }
+
+        Path out = Path.of(options.get("out"));
+        bench.writeJson("repository", out);
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    /**
+     * Runs every repository benchmark for one implementation and dataset size.
+     */
+    private static void run(MicroBenchmark bench, String impl, int size) throws IOException {
+        Path file = null;
+        IRepository<Game> repository;
+        switch (impl) {
+            case "memory" -> repository = new InMemoryRepository<>();
+            case "indexed" -> repository = new IndexedRepository<>(new InMemoryRepository<Game>())
+                    .addIndex("gameGenre", Game::getGameGenre, false)
+                    .addSortedIndex("price", Game::getPrice, false)
+                    .addIndex("gameNameLower", game -> game.getGameName().toLowerCase(), false);
+            case "file" -> {
+                file = Files.createTempFile("repository-benchmark", ".dat");
+                Files.delete(file);
+                repository = new FileRepository<>(file.toString());
+            }
+            default -> throw new IllegalArgumentException("Unknown repository implementation: " + impl);
+        }
+
+        try {
+            List<Game> games = new ArrayList<>(size);
+            for (int i = 1; i <= size; i++) {
+                games.add(newGame(i));
+            }
+            repository.createAll(games);
+
+            Random random = new Random(42);
+            int[] ids = new int[ID_SAMPLES];
+            Game[] replacements = new Game[ID_SAMPLES];
+            for (int i = 0; i < ID_SAMPLES; i++) {
+                ids[i] = 1 + random.nextInt(size);
+                replacements[i] = newGame(ids[i]);
+                replacements[i].setPrice(replacements[i].getPrice() + 1);
+            }
+
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("impl", impl);
+            params.put("size", size);
+
+            bench.measure("get", params, i -> repository.get(ids[i & (ID_SAMPLES - 1)]));
+            bench.measure("getAll", params, i -> repository.getAll().size());
+            bench.measure("update", params, i -> {
+                repository.update(replacements[i & (ID_SAMPLES - 1)]);
+                return null;
+            });
+
+            int firstNewId = size + 1;
+            List<Integer> mutationIds = new ArrayList<>(MAX_MUTATIONS_PER_ITERATION);
+            List<Game> mutationGames = new ArrayList<>(MAX_MUTATIONS_PER_ITERATION);
+            for (int i = 0; i < MAX_MUTATIONS_PER_ITERATION; i++) {
+                mutationIds.add(firstNewId + i);
+                mutationGames.add(newGame(firstNewId + i));
+            }
+
+            bench.measure("create", params, i -> {
+                repository.create(mutationGames.get(i));
+                return null;
+            }, MAX_MUTATIONS_PER_ITERATION, null, () -> repository.deleteAll(mutationIds));
+
+            bench.measure("delete", params, i -> {
+                repository.delete(firstNewId + i);
+                return null;
+            }, MAX_MUTATIONS_PER_ITERATION, () -> repository.createAll(mutationGames), () -> repository.deleteAll(mutationIds));
+        } finally {
+            if (file != null) {
+                new File(file.toString()).delete();
+            }
+        }
+    }
+
+    private static Game newGame(int id) {
+        GameGenre[] genres = GameGenre.values();
+        return new Game(id, "Game " + id, "Benchmark game " + id, genres[id % genres.length], 1.0f + id % 60, new ArrayList<>());
+    }
+}
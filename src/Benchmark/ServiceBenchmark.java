@@ -0,0 +1,213 @@
+package Benchmark;
+
+import Model.*;
+import Presentation.StoreContext;
+import Service.AccountService;
+import Service.CustomerService;
+import Service.ReviewService;
+import Service.Session;
+import Service.ShoppingCartService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Throughput benchmarks of the service hot paths at realistic catalog and user sizes:
+ * - the name and price sorts in CustomerService
+ * - leaveReview, with its duplicate-review check and review ID generation
+ * - AccountService.logIn, which searches the four user repositories
+ * - ShoppingCartService.checkout, with its order ID generation
+ *
+ * Each (catalog, users) pair gets one shared fixture. It is generated by StoreLoadTest.populate,
+ * so these numbers describe the same data the load test drives. The fixture is built once and
+ * reused by every benchmark. Benchmarks that consume state undo their changes after each
+ * iteration, outside the timed region.
+ *
+ * Usage: java Benchmark.ServiceBenchmark [key=value ...]
+ *   catalogs=1000,10000 users=1000,100000 warmup=2 iterations=5 millis=1000
+ *   out=benchmark-results/service.json
+ */
+public class ServiceBenchmark {
+    private static final int MAX_MUTATIONS_PER_ITERATION = 5_000;
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        options.put("catalogs", "1000,10000");
+        options.put("users", "1000,100000");
+        options.put("warmup", "2");
+        options.put("iterations", "5");
+        options.put("millis", "1000");
+        options.put("out", "benchmark-results/service.json");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !options.containsKey(arg.substring(0, eq))) {
+                System.out.println("Unknown option: " + arg + " (expected one of " + options.keySet() + ")");
+                return;
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        PrintStream out = System.out;
+        MicroBenchmark bench = new MicroBenchmark(Integer.parseInt(options.get("warmup")),
+                Integer.parseInt(options.get("iterations")), Long.parseLong(options.get("millis")), out);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (String catalog : options.get("catalogs").split(",")) {
+                for (String users : options.get("users").split(",")) {
+                    run(bench, Integer.parseInt(catalog.trim()), Integer.parseInt(users.trim()));
+                }
+            }
+        } finally {
+            System.setOut(out);
+        }
+
+        Path file = Path.of(options.get("out"));
+        bench.writeJson("service", file);
+        out.println("Results written to " + file.toAbsolutePath());
+    }
+
+    /**
+     * Builds the fixture for one catalog and user size and runs every service benchmark on it.
+     */
+    public static void run(MicroBenchmark bench, int catalog, int users) {
+        StoreLoadTest fixture = new StoreLoadTest(catalog, users, 0.99, Map.of(StoreLoadTest.Operation.BROWSE, 1));
+        fixture.populate(42);
+        StoreContext context = fixture.getContext();
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("catalog", catalog);
+        params.put("users", users);
+
+        CustomerService customerService = context.getCustomerService();
+        bench.measure("sortGamesByNameAscending", params, i -> customerService.sortGamesByNameAscending().size());
+        bench.measure("sortGamesByPriceDescending", params, i -> customerService.sortGamesByPriceDescending().size());
+
+        measureLeaveReview(bench, params, context);
+        measureLogIn(bench, params, context, users);
+        measureCheckout(bench, params, context, catalog, users);
+    }
+
+    /**
+     * Leaves reviews for owned but unreviewed games, then deletes them after each iteration.
+     */
+    private static void measureLeaveReview(MicroBenchmark bench, Map<String, Object> params, StoreContext context) {
+        ReviewService reviewService = context.getReviewService();
+        Set<Long> reviewed = new HashSet<>();
+        int baseReviewId = 0;
+        for (Review review : context.getReviewRepository().getAll()) {
+            reviewed.add(pair(review.getCustomer().getId(), review.getGame().getGameId()));
+            baseReviewId = Math.max(baseReviewId, review.getId());
+        }
+        List<Customer> reviewers = new ArrayList<>();
+        List<Integer> reviewGames = new ArrayList<>();
+        for (Customer customer : context.getCustomerRepository().getAll()) {
+            for (Game game : customer.getGamesLibrary()) {
+                if (reviewers.size() < MAX_MUTATIONS_PER_ITERATION && !reviewed.contains(pair(customer.getId(), game.getGameId()))) {
+                    reviewers.add(customer);
+                    reviewGames.add(game.getGameId());
+                }
+            }
+        }
+        if (reviewers.isEmpty()) {
+            return;
+        }
+
+        final int firstNewReviewId = baseReviewId + 1;
+        bench.measure("leaveReview", params, i -> {
+            reviewService.leaveReview(reviewers.get(i), reviewGames.get(i), 4);
+            return null;
+        }, reviewers.size(), null, () -> {
+            List<Integer> created = new ArrayList<>();
+            for (Review review : context.getReviewRepository().getAll()) {
+                if (review.getId() >= firstNewReviewId) {
+                    created.add(review.getId());
+                    review.getGame().getReviews().removeIf(r -> r.getId() >= firstNewReviewId);
+                }
+            }
+            context.getReviewRepository().deleteAll(created);
+        });
+    }
+
+    /**
+     * Logs customers in, closing the opened sessions after each iteration.
+     */
+    private static void measureLogIn(MicroBenchmark bench, Map<String, Object> params, StoreContext context, int users) {
+        AccountService accountService = context.getAccountService();
+        List<Session> opened = new ArrayList<>();
+        bench.measure("logIn", params, i -> {
+            int customerId = 1 + (int) ((i * 7919L) % users);
+            Session session = accountService.logIn("customer" + customerId + "@gmail.com", "pass" + customerId);
+            opened.add(session);
+            return session;
+        }, MAX_MUTATIONS_PER_ITERATION, null, () -> {
+            for (Session session : opened) {
+                accountService.logOut(session);
+            }
+            opened.clear();
+        });
+    }
+
+    /**
+     * Checks out carts holding one unowned game each. Before each iteration the carts are filled
+     * directly in the repository. Afterwards the purchases are taken back out of the libraries
+     * and the new orders are deleted.
+     */
+    private static void measureCheckout(MicroBenchmark bench, Map<String, Object> params, StoreContext context, int catalog, int users) {
+        ShoppingCartService shoppingCartService = context.getShoppingCartService();
+        int carts = Math.min(users, MAX_MUTATIONS_PER_ITERATION);
+        int baseOrderId = 0;
+        for (Order order : context.getOrderRepository().getAll()) {
+            baseOrderId = Math.max(baseOrderId, order.getId());
+        }
+        final int firstNewOrderId = baseOrderId + 1;
+        Game[] purchases = new Game[carts];
+
+        bench.measure("checkout", params, i -> {
+            shoppingCartService.checkout(i + 1);
+            return null;
+        }, carts, () -> {
+            for (int c = 1; c <= carts; c++) {
+                Customer customer = context.getCustomerRepository().get(c);
+                Game game = null;
+                for (int gameId = catalog; gameId >= 1 && game == null; gameId--) {
+                    Game candidate = context.getGameRepository().get(gameId);
+                    if (!customer.getGamesLibrary().contains(candidate)) {
+                        game = candidate;
+                    }
+                }
+                purchases[c - 1] = game;
+                ShoppingCart cart = context.getShoppingCartRepository().get(c);
+                cart.clear();
+                cart.addGame(game, Money.of(game.getPrice()), game.getEffectivePrice());
+                cart.setStatus("ACTIVE");
+                context.getShoppingCartRepository().update(cart);
+            }
+        }, () -> {
+            for (int c = 1; c <= carts; c++) {
+                Customer customer = context.getCustomerRepository().get(c);
+                customer.getGamesLibrary().remove(purchases[c - 1]);
+                context.getCustomerRepository().update(customer);
+            }
+            List<Integer> created = new ArrayList<>();
+            for (Order order : context.getOrderRepository().getAll()) {
+                if (order.getId() >= firstNewOrderId) {
+                    created.add(order.getId());
+                }
+            }
+            context.getOrderRepository().deleteAll(created);
+        });
+    }
+
+    private static long pair(int customerId, int gameId) {
+        return ((long) customerId << 32) | (gameId & 0xffffffffL);
+    }
+}
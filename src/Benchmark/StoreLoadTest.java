@@ -0,0 +1,377 @@
+package Benchmark;
+
+import Model.*;
+import Presentation.StoreContext;
+import Service.CustomerService;
+import Service.GameService;
+import Service.ReviewService;
+import Service.ShoppingCartService;
+import Exception.BusinessLogicException;
+import Exception.EntityNotFoundException;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load-test harness for the store. It generates a realistic data set, then drives a mixed
+ * workload through the services on a thread pool.
+ *
+ * The data set holds games across every GameGenre and customers with wallets, carts and
+ * libraries. It also has past orders, and reviews of owned games. Game popularity follows
+ * a Zipfian distribution, both in the generated libraries and in the live workload.
+ *
+ * Usage: java Benchmark.StoreLoadTest [key=value ...]
+ *   games=10000 customers=5000 skew=0.99 threads=8 seconds=10 warmup=2 seed=42
+ *   mix=browse:40,search:20,add:25,checkout:10,review:5
+ */
+public class StoreLoadTest {
+
+    /**
+     * The operation types of the workload.
+     */
+    public enum Operation {
+        BROWSE, SEARCH, ADD, CHECKOUT, REVIEW
+    }
+
+    private static final String[] ADJECTIVES = {"Cyber", "Mystic", "Space", "Shadow", "Pixel", "Iron", "Crystal", "Neon", "Ancient", "Wild"};
+    private static final String[] NOUNS = {"Quest", "Warfare", "Builder", "Legends", "Racer", "Tactics", "Odyssey", "Arena", "Empire", "Puzzle"};
+
+    private final StoreContext context;
+    private final int games;
+    private final int customers;
+    private final ZipfDistribution popularity;
+    private final Map<Operation, Integer> mix;
+    private final int[] cumulativeWeights;
+    private int totalWeight;
+
+    /**
+     * Constructs a StoreLoadTest over a fresh in-memory store.
+     *
+     * @param games     The number of games to generate.
+     * @param customers The number of customers to generate.
+     * @param skew      The Zipfian skew of game popularity.
+     * @param mix       The relative weight of each operation type.
+     */
+    public StoreLoadTest(int games, int customers, double skew, Map<Operation, Integer> mix) {
+        this.context = StoreContext.inMemory();
+        this.games = games;
+        this.customers = customers;
+        this.popularity = new ZipfDistribution(games, skew);
+        this.mix = new EnumMap<>(mix);
+        this.cumulativeWeights = new int[Operation.values().length];
+        for (Operation operation : Operation.values()) {
+            totalWeight += this.mix.getOrDefault(operation, 0);
+            cumulativeWeights[operation.ordinal()] = totalWeight;
+        }
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The operation mix must have a positive weight.");
+        }
+    }
+
+    /**
+     * Generates the data set: games, customers with carts and libraries, orders and reviews.
+     *
+     * @param seed Seed for the generator, so runs are reproducible.
+     */
+    public void populate(long seed) {
+        Random random = new Random(seed);
+        GameGenre[] genres = GameGenre.values();
+
+        List<Game> gameList = new ArrayList<>(games);
+        for (int i = 1; i <= games; i++) {
+            String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)] + " " + i;
+            float price = Math.round((0.99f + random.nextFloat() * 69) * 100) / 100.0f;
+            gameList.add(new Game(i, name, "Generated game " + i, genres[random.nextInt(genres.length)], price, new ArrayList<>()));
+        }
+        context.getGameRepository().createAll(gameList);
+
+        List<Customer> customerList = new ArrayList<>(customers);
+        List<ShoppingCart> cartList = new ArrayList<>(customers);
+        List<Order> orderList = new ArrayList<>();
+        List<Review> reviewList = new ArrayList<>();
+        for (int i = 1; i <= customers; i++) {
+            Set<Game> owned = new LinkedHashSet<>();
+            int libraryCount = random.nextInt(11);
+            for (int k = 0; k < libraryCount; k++) {
+                owned.add(gameList.get(popularity.sample(random)));
+            }
+
+            Customer customer = new Customer(i, "customer" + i, "customer" + i + "@gmail.com", "pass" + i, "Customer",
+                    1_000_000f, new ArrayList<>(owned), new ArrayList<>(), null);
+            ShoppingCart cart = new ShoppingCart(i, customer);
+            customer.setShoppingCart(cart);
+            customerList.add(customer);
+            cartList.add(cart);
+
+            if (!owned.isEmpty()) {
+                orderList.add(new Order(orderList.size() + 1, customer, new ArrayList<>(owned)));
+            }
+            for (Game game : owned) {
+                if (random.nextInt(3) == 0) {
+                    Review review = new Review(reviewList.size() + 1, 1 + random.nextInt(5), customer, game);
+                    reviewList.add(review);
+                    customer.getReviews().add(review);
+                    game.getReviews().add(review);
+                }
+            }
+        }
+        context.getCustomerRepository().createAll(customerList);
+        context.getShoppingCartRepository().createAll(cartList);
+        context.getOrderRepository().createAll(orderList);
+        context.getPurchaseEventStore().backfill(orderList);
+        context.getReviewRepository().createAll(reviewList);
+    }
+
+    /**
+     * Runs the mixed workload for a fixed time.
+     *
+     * @param threads The number of worker threads.
+     * @param seconds How long to run.
+     * @return The results per operation type.
+     * @throws InterruptedException if interrupted while waiting for the workers.
+     */
+    public Result run(int threads, double seconds) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        List<Future<Result>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> work(deadline)));
+        }
+
+        Result result = new Result();
+        long begin = System.nanoTime();
+        try {
+            for (Future<Result> future : futures) {
+                result.merge(future.get());
+            }
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IllegalStateException("Load-test worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        result.elapsedNanos = System.nanoTime() - begin;
+        return result;
+    }
+
+    /**
+     * Runs operations on the calling thread until the deadline, recording their latencies.
+     */
+    private Result work(long deadline) {
+        Random random = new Random(ThreadLocalRandom.current().nextLong());
+        Result result = new Result();
+        while (System.nanoTime() < deadline) {
+            Operation operation = pickOperation(random);
+            int customerId = 1 + random.nextInt(customers);
+            long start = System.nanoTime();
+            try {
+                execute(operation, customerId, random);
+                result.histograms.get(operation).record(System.nanoTime() - start);
+            } catch (BusinessLogicException | EntityNotFoundException e) {
+                result.histograms.get(operation).record(System.nanoTime() - start);
+                result.rejected.merge(operation, 1L, Long::sum);
+            } catch (RuntimeException e) {
+                result.errors.merge(operation, 1L, Long::sum);
+                result.firstErrors.putIfAbsent(operation, e.toString());
+            }
+        }
+        return result;
+    }
+
+    private Operation pickOperation(Random random) {
+        int roll = random.nextInt(totalWeight);
+        for (Operation operation : Operation.values()) {
+            if (roll < cumulativeWeights[operation.ordinal()]) {
+                return operation;
+            }
+        }
+        return Operation.BROWSE;
+    }
+
+    /**
+     * Executes one operation of the workload for a customer.
+     */
+    private void execute(Operation operation, int customerId, Random random) {
+        GameService gameService = context.getGameService();
+        CustomerService customerService = context.getCustomerService();
+        ShoppingCartService shoppingCartService = context.getShoppingCartService();
+        ReviewService reviewService = context.getReviewService();
+        Customer customer = context.getCustomerRepository().get(customerId);
+
+        switch (operation) {
+            case BROWSE -> {
+                int gameId = 1 + popularity.sample(random);
+                gameService.getGameById(gameId);
+                reviewService.getReviewsForGame(gameId);
+            }
+            case SEARCH -> {
+                switch (random.nextInt(3)) {
+                    case 0 -> customerService.searchGameByName(customer, NOUNS[random.nextInt(NOUNS.length)]);
+                    case 1 -> customerService.filterByGenre(GameGenre.values()[random.nextInt(GameGenre.values().length)].name());
+                    default -> {
+                        float min = random.nextInt(60);
+                        customerService.filterGamesByPriceRange(min, min + 10);
+                    }
+                }
+            }
+            case ADD -> shoppingCartService.addGameToCart(customer.getShoppingCart().getShoppingCartId(), 1 + popularity.sample(random));
+            case CHECKOUT -> {
+                int cartId = customer.getShoppingCart().getShoppingCartId();
+                if (shoppingCartService.getShoppingCart(cartId).getListOfGames().isEmpty()) {
+                    shoppingCartService.addGameToCart(cartId, 1 + popularity.sample(random));
+                }
+                shoppingCartService.checkout(cartId);
+            }
+            case REVIEW -> {
+                List<Game> library = customer.getGamesLibrary();
+                if (library.isEmpty()) {
+                    throw new BusinessLogicException("Customer owns no games.");
+                }
+                Game game = library.get(random.nextInt(library.size()));
+                reviewService.leaveReview(customer, game.getGameId(), 1 + random.nextInt(5));
+            }
+        }
+    }
+
+    public StoreContext getContext() {
+        return context;
+    }
+
+    /**
+     * Latency histograms, rejections and errors per operation type.
+     * Rejections are business-rule refusals, such as adding a game the customer already owns,
+     * and are timed like successes. Errors are any other exceptions and are not timed.
+     */
+    public static class Result {
+        private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> rejected = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+        private final Map<Operation, String> firstErrors = new HashMap<>();
+        private long elapsedNanos;
+
+        Result() {
+            for (Operation operation : Operation.values()) {
+                histograms.put(operation, new LatencyHistogram());
+            }
+        }
+
+        private void merge(Result other) {
+            for (Operation operation : Operation.values()) {
+                histograms.get(operation).merge(other.histograms.get(operation));
+                rejected.merge(operation, other.rejected.getOrDefault(operation, 0L), Long::sum);
+                errors.merge(operation, other.errors.getOrDefault(operation, 0L), Long::sum);
+            }
+            other.firstErrors.forEach(firstErrors::putIfAbsent);
+        }
+
+        public LatencyHistogram getHistogram(Operation operation) {
+            return histograms.get(operation);
+        }
+
+        public long getRejected(Operation operation) {
+            return rejected.getOrDefault(operation, 0L);
+        }
+
+        public long getErrors(Operation operation) {
+            return errors.getOrDefault(operation, 0L);
+        }
+
+        /**
+         * Gets the completed operations per second of one type, rejections included.
+         *
+         * @param operation The operation type.
+         * @return The throughput.
+         */
+        public double getThroughput(Operation operation) {
+            return elapsedNanos == 0 ? 0 : histograms.get(operation).getCount() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * Prints the per-operation table and the first error seen for each type.
+         *
+         * @param out The stream to print to.
+         */
+        public void print(PrintStream out) {
+            out.printf("%-9s %10s %10s %9s %7s %10s %10s %10s %10s%n",
+                    "operation", "ops", "ops/sec", "rejected", "errors", "p50(us)", "p99(us)", "p999(us)", "max(us)");
+            long totalOps = 0;
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram h = histograms.get(operation);
+                totalOps += h.getCount();
+                out.printf("%-9s %10d %10.0f %9d %7d %10.1f %10.1f %10.1f %10.1f%n", operation, h.getCount(),
+                        getThroughput(operation), getRejected(operation), getErrors(operation),
+                        h.percentile(50) / 1e3, h.percentile(99) / 1e3, h.percentile(99.9) / 1e3, h.getMax() / 1e3);
+            }
+            out.printf("total     %10d %10.0f%n", totalOps, elapsedNanos == 0 ? 0 : totalOps / (elapsedNanos / 1e9));
+            firstErrors.forEach((operation, error) -> out.println("  first " + operation + " error: " + error));
+        }
+    }
+
+    /**
+     * Parses an operation mix such as "browse:40,search:20,add:25,checkout:10,review:5".
+     *
+     * @param spec The mix specification.
+     * @return The weight of each operation.
+     */
+    public static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Bad mix entry: " + part);
+            }
+            mix.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        options.put("games", "10000");
+        options.put("customers", "5000");
+        options.put("skew", "0.99");
+        options.put("threads", "8");
+        options.put("seconds", "10");
+        options.put("warmup", "2");
+        options.put("seed", "42");
+        options.put("mix", "browse:40,search:20,add:25,checkout:10,review:5");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !options.containsKey(arg.substring(0, eq))) {
+                System.out.println("Unknown option: " + arg + " (expected one of " + options.keySet() + ")");
+                return;
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        PrintStream out = System.out;
+        out.println("Load test " + options);
+        StoreLoadTest loadTest = new StoreLoadTest(Integer.parseInt(options.get("games")), Integer.parseInt(options.get("customers")),
+                Double.parseDouble(options.get("skew")), parseMix(options.get("mix")));
+        int threads = Integer.parseInt(options.get("threads"));
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Result result;
+        try {
+            long populateStart = System.nanoTime();
+            loadTest.populate(Long.parseLong(options.get("seed")));
+            out.printf("populated in %.0f ms%n", (System.nanoTime() - populateStart) / 1e6);
+            loadTest.run(threads, Double.parseDouble(options.get("warmup")));
+            result = loadTest.run(threads, Double.parseDouble(options.get("seconds")));
+        } finally {
+            System.setOut(out);
+        }
+        result.print(out);
+    }
+}
@@ -0,0 +1,63 @@
+package Benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Samples ranks from a Zipfian distribution, where rank k (0-based) is drawn with probability
+ * proportional to 1 / (k + 1)^skew. A skew of 0 is uniform; around 1 it resembles the
+ * popularity curve of a real catalog, with a few titles drawing most of the traffic.
+ */
+public class ZipfDistribution {
+    private final double[] cumulative;
+
+    /**
+     * Constructs a ZipfDistribution over the given number of ranks.
+     *
+     * @param size The number of ranks.
+     * @param skew The exponent; 0 for uniform, larger values for more skew.
+     */
+    public ZipfDistribution(int size, double skew) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive.");
+        }
+        if (skew < 0) {
+            throw new IllegalArgumentException("Skew must not be negative.");
+        }
+        cumulative = new double[size];
+        double total = 0;
+        for (int k = 0; k < size; k++) {
+            total += 1.0 / Math.pow(k + 1, skew);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < size; k++) {
+            cumulative[k] /= total;
+        }
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param random The source of randomness.
+     * @return A rank between 0 (most popular) and size - 1.
+     */
+    public int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+
+    /**
+     * Gets the probability of drawing a rank.
+     *
+     * @param rank The rank.
+     * @return Its probability.
+     */
+    public double probability(int rank) {
+        return rank == 0 ? cumulative[0] : cumulative[rank] - cumulative[rank - 1];
+    }
+
+    public int size() {
+        return cumulative.length;
+    }
+}
@@ -1,13 +1,34 @@
 
+import Metrics.SlowOperationLog;
+import Presentation.BatchDriver;
 import Presentation.RepoMenu;
+import Server.StoreHttpServer;
+import Tracing.Tracer;
+
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Entry point for the Gaming Platform application.
+ * Runs the interactive console by default; "--server [port] [memory|file]" starts the HTTP API instead,
+ * and "--batch &lt;script&gt; [memory|file] [--echo]" replays a command script.
+ * Setting -Dgamestore.trace.file=traces.json records a request trace for every controller call.
+ * -Dgamestore.slowlog.file=slow.log logs calls over the thresholds given in
+ * -Dgamestore.slowlog.thresholds, such as "service=100,repository=20,ShoppingCartController.checkout=250".
  */
 public class ConsoleApp {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        Tracer.configureFromSystemProperties();
+        SlowOperationLog.configureFromSystemProperties();
+        if (args.length > 0 && "--server".equals(args[0])) {
+            StoreHttpServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            BatchDriver.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         RepoMenu repoMenu = new RepoMenu();
         repoMenu.start();
     }
 }
-
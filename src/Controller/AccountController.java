@@ -1,7 +1,8 @@
 package Controller;
 
+import Metrics.ControllerEvent;
 import Service.AccountService;
-import Model.User;
+import Service.Session;
 
 /**
  * Controller for managing user accounts, including signup, login, logout, and account deletion.
@@ -25,38 +26,43 @@ public class AccountController {
      * @return true if registration is successful, false otherwise.
      */
     public boolean signUp(String username, String email, String password) {
-        return accountService.signUp(username, email, password);
+        return ControllerEvent.call("Account", "signUp", -1, () -> accountService.signUp(username, email, password));
     }
 
     /**
      * Authenticates a user with the provided email and password.
      * @param email The email of the user.
      * @param password The password of the user.
-     * @return true if login is successful, false otherwise.
+     * @return The session opened for the user.
      */
-    public boolean logIn(String email, String password) {
-        return accountService.logIn(email, password);
+    public Session logIn(String email, String password) {
+        return ControllerEvent.call("Account", "logIn", -1, () -> accountService.logIn(email, password));
     }
 
     /**
-     * Logs out the currently logged-in user.
+     * Looks up an active session by its token.
+     * @param token The session token.
+     * @return The session.
      */
-    public boolean logOut() {return accountService.logOut();}
+    public Session getSession(String token) {
+        return ControllerEvent.call("Account", "getSession", -1, () -> accountService.getSession(token));
+    }
 
     /**
-     * Retrieves the currently logged-in user.
-     * @return The logged-in user, or null if no user is logged in.
+     * Logs out the user of a session.
+     * @param session The session to close.
      */
-    public User getLoggedInUser() {
-        return accountService.getLoggedInUser();
+    public boolean logOut(Session session) {
+        return ControllerEvent.call("Account", "logOut", -1, () -> accountService.logOut(session));
     }
 
     /**
-     * Deletes the account of the currently logged-in user.
+     * Deletes the account of a session's user.
+     * @param session The session of the user to delete.
      * @return true if account deletion is successful, false otherwise.
      */
-    public boolean deleteAccount() {
-        return accountService.deleteAccount();
+    public boolean deleteAccount(Session session) {
+        return ControllerEvent.call("Account", "deleteAccount", -1, () -> accountService.deleteAccount(session));
     }
 
 }
@@ -1,7 +1,11 @@
 package Controller;
 
-import Model.Admin;
+import Metrics.ControllerEvent;
+import Model.GameSelector;
 import Service.AdminService;
+import Service.BulkDiscountResult;
+import Service.ProgressListener;
+import Service.Session;
 
 /**
  * Controller for admin actions, such as deleting games and applying discounts.
@@ -19,36 +23,41 @@ public class AdminController {
 
     /**
      * Deletes a game from the system by its ID.
+     * @param session The session of the acting user.
      * @param gameId The ID of the game to delete.
      */
-    public void deleteGame(int gameId) {
-        adminService.deleteGame(gameId);
+    public void deleteGame(Session session, int gameId) {
+        ControllerEvent.run("Admin", "deleteGame", gameId, () -> adminService.deleteGame(session.getAdmin(), gameId));
     }
 
     /**
      * Applies a discount to a game by its ID.
+     * @param session The session of the acting user.
      * @param gameId The ID of the game to apply the discount to.
      * @param discountPercentage The discount percentage to apply.
      */
-    public void applyDiscountToGame(int gameId, float discountPercentage) {
-        adminService.applyDiscountToGame(gameId, discountPercentage);
+    public void applyDiscountToGame(Session session, int gameId, float discountPercentage) {
+        ControllerEvent.run("Admin", "applyDiscountToGame", gameId, () -> adminService.applyDiscountToGame(session.getAdmin(), gameId, discountPercentage));
     }
 
     /**
-     * Deletes any account in the system by its email address.
-     * @param email The email address of the account to delete.
+     * Applies a discount to every game a selector matches.
+     * @param session The session of the acting user.
+     * @param selector The games to discount.
+     * @param discountPercentage The discount percentage to apply.
+     * @param progress Receives progress as the games are processed, or null for no reports.
+     * @return How many games were selected and how many changed.
      */
-    public boolean deleteAnyAccount(String email) {
-        return adminService.deleteAnyAccount(email);
+    public BulkDiscountResult applyBulkDiscount(Session session, GameSelector selector, float discountPercentage, ProgressListener progress) {
+        return ControllerEvent.call("Admin", "applyBulkDiscount", -1, () -> adminService.applyBulkDiscount(session.getAdmin(), selector, discountPercentage, progress));
     }
 
     /**
-     * Sets the currently logged-in admin.
-     *
-     * @param admin The admin to set as logged in.
+     * Deletes any account in the system by its email address.
+     * @param email The email address of the account to delete.
      */
-    public void setLoggedInAdmin(Admin admin) {
-        adminService.setLoggedInAdmin(admin);
+    public boolean deleteAnyAccount(String email) {
+        return ControllerEvent.call("Admin", "deleteAnyAccount", -1, () -> adminService.deleteAnyAccount(email));
     }
 }
 
@@ -0,0 +1,60 @@
+package Controller;
+
+import Metrics.ControllerEvent;
+import Model.DiscountCampaign;
+import Model.GameGenre;
+import Service.CampaignService;
+import Service.Session;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Controller for admin actions on time-boxed discount campaigns.
+ */
+public class CampaignController {
+    private final CampaignService campaignService;
+
+    /**
+     * Constructs the CampaignController with a CampaignService instance.
+     * @param campaignService The CampaignService used for campaign operations.
+     */
+    public CampaignController(CampaignService campaignService) {
+        this.campaignService = campaignService;
+    }
+
+    /**
+     * Schedules a discount campaign.
+     * @param session The session of the acting user.
+     * @param name The name of the campaign.
+     * @param discountPercentage The percentage taken off targeted games.
+     * @param genres The genres whose games are targeted.
+     * @param gameIds The IDs of further games targeted.
+     * @param startsAt When the campaign starts.
+     * @param endsAt When the campaign ends.
+     * @return The scheduled campaign.
+     */
+    public DiscountCampaign scheduleCampaign(Session session, String name, float discountPercentage, Set<GameGenre> genres,
+                                             Set<Integer> gameIds, Instant startsAt, Instant endsAt) {
+        return ControllerEvent.call("Campaign", "scheduleCampaign", -1,
+                () -> campaignService.scheduleCampaign(session.getAdmin(), name, discountPercentage, genres, gameIds, startsAt, endsAt));
+    }
+
+    /**
+     * Cancels a campaign that has not ended.
+     * @param session The session of the acting user.
+     * @param campaignId The ID of the campaign.
+     */
+    public void cancelCampaign(Session session, int campaignId) {
+        ControllerEvent.run("Campaign", "cancelCampaign", campaignId, () -> campaignService.cancelCampaign(session.getAdmin(), campaignId));
+    }
+
+    /**
+     * Retrieves every campaign, whatever its status.
+     * @return A list of all campaigns.
+     */
+    public List<DiscountCampaign> getCampaigns() {
+        return ControllerEvent.call("Campaign", "getCampaigns", -1, campaignService::getCampaigns);
+    }
+}
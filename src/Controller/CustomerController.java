@@ -1,9 +1,10 @@
 package Controller;
 
-import Model.Customer;
+import Metrics.ControllerEvent;
 import Model.Game;
-import Model.ShoppingCart;
+import Model.Money;
 import Service.CustomerService;
+import Service.Session;
 
 import java.util.List;
 
@@ -23,22 +24,14 @@ public class CustomerController {
         this.customerService = customerService;
     }
 
-    /**
-     * Sets the currently logged-in customer.
-     *
-     * @param customer The customer to set as logged in.
-     */
-    public void setLoggedInCustomer(Customer customer) {
-        customerService.setLoggedInCustomer(customer);
-    }
-
     /**
      * Searches for games by name.
      *
+     * @param session The session of the acting user.
      * @param name The name or part of the name of the games to search for.
      */
-    public List<Game> searchGameByName(String name) {
-        return customerService.searchGameByName(name);
+    public List<Game> searchGameByName(Session session, String name) {
+        return ControllerEvent.call("Customer", "searchGameByName", -1, () -> customerService.searchGameByName(session.getCustomer(), name));
     }
 
     /**
@@ -47,7 +40,7 @@ public class CustomerController {
      * @return A list of games sorted by name.
      */
     public List<Game> sortGamesByNameAscending() {
-        return customerService.sortGamesByNameAscending();
+        return ControllerEvent.call("Customer", "sortGamesByNameAscending", -1, () -> customerService.sortGamesByNameAscending());
     }
 
     /**
@@ -56,7 +49,7 @@ public class CustomerController {
      * @return A list of games sorted by price.
      */
     public List<Game> sortGamesByPriceDescending() {
-        return customerService.sortGamesByPriceDescending();
+        return ControllerEvent.call("Customer", "sortGamesByPriceDescending", -1, () -> customerService.sortGamesByPriceDescending());
     }
 
     /**
@@ -65,7 +58,7 @@ public class CustomerController {
      * @param genre The genre to filter games by.
      */
     public List<Game> filterGamesByGenre(String genre) {
-        return customerService.filterByGenre(genre);
+        return ControllerEvent.call("Customer", "filterGamesByGenre", -1, () -> customerService.filterByGenre(genre));
     }
 
 
@@ -76,52 +69,47 @@ public class CustomerController {
      * @param maxPrice The maximum price.
      */
     public List<Game> filterGamesByPriceRange(float minPrice, float maxPrice) {
-        return customerService.filterGamesByPriceRange(minPrice, maxPrice);
+        return ControllerEvent.call("Customer", "filterGamesByPriceRange", -1, () -> customerService.filterGamesByPriceRange(minPrice, maxPrice));
     }
 
     /**
      * Adds funds to the customer's wallet.
      *
+     * @param session       The session of the acting user.
      * @param paymentMethod The payment method used to add funds.
      * @param amount        The amount to add to the wallet.
      */
-    public void addFundsToWallet(String paymentMethod, float amount) {
-        customerService.addFundsToWallet(paymentMethod, amount);
+    public void addFundsToWallet(Session session, String paymentMethod, float amount) {
+        ControllerEvent.run("Customer", "addFundsToWallet", -1, () -> customerService.addFundsToWallet(session.getCustomer(), paymentMethod, amount));
     }
 
     /**
      * Retrieves the current balance of the customer's wallet.
      *
+     * @param session The session of the acting user.
      * @return The current wallet balance.
      */
-    public float getWalletBalance() {
-        return customerService.getWalletBalance();
+    public Money getWalletBalance(Session session) {
+        return ControllerEvent.call("Customer", "getWalletBalance", -1, () -> customerService.getWalletBalance(session.getCustomer()));
     }
 
     /**
      * Retrieves the games in the customer's library.
      *
+     * @param session The session of the acting user.
      * @return A list of games in the customer's library.
      */
-    public List<Game> viewGamesLibrary() {
-        return customerService.viewGamesLibrary();
+    public List<Game> viewGamesLibrary(Session session) {
+        return ControllerEvent.call("Customer", "viewGamesLibrary", -1, () -> customerService.viewGamesLibrary(session.getCustomer()));
     }
 
     /**
      * Retrieves the ID of the customer's shopping cart.
      *
+     * @param session The session of the acting user.
      * @return The shopping cart ID.
      */
-    public int getShoppingCartId() {
-        return customerService.getShoppingCartId();
-    }
-
-    /**
-     * Retrieves the currently logged-in customer.
-     *
-     * @return The logged-in customer, or null if no customer is logged in.
-     */
-    public Customer getLoggedInCustomer() {
-        return customerService.getLoggedInCustomer();
+    public int getShoppingCartId(Session session) {
+        return ControllerEvent.call("Customer", "getShoppingCartId", -1, () -> customerService.getShoppingCartId(session.getCustomer()));
     }
 }
@@ -1,8 +1,9 @@
 package Controller;
 
-import Model.Developer;
+import Metrics.ControllerEvent;
 import Model.Game;
 import Service.DeveloperService;
+import Service.Session;
 
 import java.util.List;
 import java.util.Scanner;
@@ -23,41 +24,36 @@ public class DeveloperController {
         this.scanner = new Scanner(System.in);
     }
 
-    /**
-     * Sets the currently logged-in developer.
-     * @param developer The developer to set as logged in.
-     */
-    public void setDeveloper(Developer developer){
-        this.developerService.setDeveloper(developer);
-    }
-
     /**
      * Publishes a new game.
+     * @param session The session of the acting user.
      * @param game The game to publish.
      */
-    public void publishGame(Game game) {
-        developerService.publishGame(game);
+    public void publishGame(Session session, Game game) {
+        ControllerEvent.run("Developer", "publishGame", -1, () -> developerService.publishGame(session.getDeveloper(), game));
     }
 
     /**
      * Modifies an existing game's details.
+     * @param session The session of the acting user.
      * @param gameId The ID of the game to modify.
      * @param newName The new name for the game.
      * @param newDescription The new description for the game.
      * @param newGenre The new genre for the game.
      * @param newPrice The new price for the game.
      */
-    public void modifyGame(Integer gameId, String newName, String newDescription, String newGenre, Float newPrice) {
-        developerService.modifyGame(gameId, newName, newDescription, newGenre, newPrice);
+    public void modifyGame(Session session, Integer gameId, String newName, String newDescription, String newGenre, Float newPrice) {
+        ControllerEvent.run("Developer", "modifyGame", gameId == null ? -1 : gameId, () -> developerService.modifyGame(session.getDeveloper(), gameId, newName, newDescription, newGenre, newPrice));
     }
 
     /**
      * Retrieves the list of games published by the currently logged-in developer.
      *
+     * @param session The session of the acting user.
      * @return A list of games published by the developer.
      */
-    public List<Game> getPublishedGames() {
-        return developerService.getPublishedGames();
+    public List<Game> getPublishedGames(Session session) {
+        return ControllerEvent.call("Developer", "getPublishedGames", -1, () -> developerService.getPublishedGames(session.getDeveloper()));
     }
 
 }
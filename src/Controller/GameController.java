@@ -1,5 +1,6 @@
 package Controller;
 
+import Metrics.ControllerEvent;
 import Model.Game;
 import Service.GameService;
 
@@ -25,7 +26,7 @@ public class GameController {
      * @return The game if found, or null if not.
      */
     public Game getGameById(Integer gameId) {
-        return gameService.getGameById(gameId);
+        return ControllerEvent.call("Game", "getGameById", gameId == null ? -1 : gameId, () -> gameService.getGameById(gameId));
     }
 
     /**
@@ -33,7 +34,7 @@ public class GameController {
      * @return A list of all games.
      */
     public List<Game> getAllGames() {
-        return gameService.getAllGames();
+        return ControllerEvent.call("Game", "getAllGames", -1, () -> gameService.getAllGames());
     }
 }
 
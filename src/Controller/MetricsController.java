@@ -0,0 +1,58 @@
+package Controller;
+
+import Metrics.ControllerEvent;
+import Service.MetricsService;
+import Service.Session;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Controller for viewing and exporting the repository metrics.
+ */
+public class MetricsController {
+    private final MetricsService metricsService;
+
+    /**
+     * Constructs the MetricsController with a MetricsService instance.
+     * @param metricsService The MetricsService used for metrics operations.
+     */
+    public MetricsController(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * Gets a readable table of the repository metrics.
+     * @param session The session of the acting user.
+     * @return The table.
+     */
+    public String getMetricsTable(Session session) {
+        return ControllerEvent.call("Metrics", "getMetricsTable", -1, () -> metricsService.getMetricsTable(session.getAdmin()));
+    }
+
+    /**
+     * Gets the repository metrics as nested maps.
+     * @param session The session of the acting user.
+     * @return The metrics snapshot.
+     */
+    public Map<String, Object> getMetricsSnapshot(Session session) {
+        return ControllerEvent.call("Metrics", "getMetricsSnapshot", -1, () -> metricsService.getMetricsSnapshot(session.getAdmin()));
+    }
+
+    /**
+     * Writes the repository metrics to a file in the Prometheus text format.
+     * @param session The session of the acting user.
+     * @param file The file to write.
+     */
+    public void dumpMetrics(Session session, Path file) {
+        ControllerEvent.run("Metrics", "dumpMetrics", -1, () -> metricsService.dumpMetrics(session.getAdmin(), file));
+    }
+
+    /**
+     * Clears the recorded repository metrics.
+     * @param session The session of the acting user.
+     */
+    public void resetMetrics(Session session) {
+        ControllerEvent.run("Metrics", "resetMetrics", -1, () -> metricsService.resetMetrics(session.getAdmin()));
+    }
+}
@@ -1,5 +1,6 @@
 package Controller;
 
+import Metrics.ControllerEvent;
 import Model.Order;
 import Service.OrderService;
 
@@ -13,15 +14,15 @@ public class OrderController {
     }
 
     public void createOrder(Order order) {
-        orderService.createOrder(order);
+        ControllerEvent.run("Order", "createOrder", -1, () -> orderService.createOrder(order));
     }
 
     public List<Order> getAllOrders() {
-        return orderService.getAllOrders();
+        return ControllerEvent.call("Order", "getAllOrders", -1, () -> orderService.getAllOrders());
     }
 
     public Order getOrderById(int orderId) {
-        return orderService.getOrderById(orderId);
+        return ControllerEvent.call("Order", "getOrderById", orderId, () -> orderService.getOrderById(orderId));
     }
 }
 
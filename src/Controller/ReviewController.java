@@ -1,8 +1,9 @@
 package Controller;
 
-import Model.Customer;
+import Metrics.ControllerEvent;
 import Model.Review;
 import Service.ReviewService;
+import Service.Session;
 
 import java.util.List;
 
@@ -25,11 +26,12 @@ public class ReviewController {
     /**
      * Allows a user to leave a review for a purchased game.
      *
+     * @param session The session of the acting user.
      * @param gameId The ID of the game to review.
      * @param rating The rating (1-5) given by the user.
      */
-    public void leaveReview(int gameId, int rating) {
-        reviewService.leaveReview(gameId, rating);
+    public void leaveReview(Session session, int gameId, int rating) {
+        ControllerEvent.run("Review", "leaveReview", gameId, () -> reviewService.leaveReview(session.getCustomer(), gameId, rating));
     }
 
     /**
@@ -39,7 +41,7 @@ public class ReviewController {
      * @return A list of reviews for the specified game.
      */
     public List<Review> getReviewsForGame(int gameId) {
-        return reviewService.getReviewsForGame(gameId);
+        return ControllerEvent.call("Review", "getReviewsForGame", gameId, () -> reviewService.getReviewsForGame(gameId));
     }
 
     /**
@@ -48,17 +50,7 @@ public class ReviewController {
      * @return A list of all reviews.
      */
     public List<Review> getAllReviews() {
-        return reviewService.getAllReviews();
-    }
-
-
-    /**
-     * Sets the currently logged-in customer.
-     *
-     * @param customer The customer to set as logged in.
-     */
-    public void setLoggedInCustomer(Customer customer) {
-        reviewService.setLoggedInCustomer(customer);
+        return ControllerEvent.call("Review", "getAllReviews", -1, () -> reviewService.getAllReviews());
     }
 
 }
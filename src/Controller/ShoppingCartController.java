@@ -1,7 +1,9 @@
 package Controller;
 
+import Metrics.ControllerEvent;
 import Model.Customer;
 import Model.Game;
+import Model.Money;
 import Model.Order;
 import Model.ShoppingCart;
 import Service.OrderService;
@@ -33,7 +35,7 @@ public class ShoppingCartController {
      * @return A list of all games.
      */
     public List<Game> getAllGames() {
-        return shoppingCartService.getAllGames();
+        return ControllerEvent.call("ShoppingCart", "getAllGames", -1, () -> shoppingCartService.getAllGames());
     }
 
 
@@ -44,7 +46,7 @@ public class ShoppingCartController {
      * @return The shopping cart with the specified ID.
      */
     public ShoppingCart getShoppingCart(int shoppingCartId) {
-        return shoppingCartService.getShoppingCart(shoppingCartId);
+        return ControllerEvent.call("ShoppingCart", "getShoppingCart", shoppingCartId, () -> shoppingCartService.getShoppingCart(shoppingCartId));
     }
 
     /**
@@ -54,7 +56,7 @@ public class ShoppingCartController {
      * @param gameId         The ID of the game to add.
      */
     public void addGameToCart(int shoppingCartId, int gameId) {
-        shoppingCartService.addGameToCart(shoppingCartId, gameId);
+        ControllerEvent.run("ShoppingCart", "addGameToCart", shoppingCartId, () -> shoppingCartService.addGameToCart(shoppingCartId, gameId));
     }
 
     /**
@@ -64,7 +66,7 @@ public class ShoppingCartController {
      * @param gameId         The ID of the game to remove.
      */
     public void removeGameFromCart(int shoppingCartId, int gameId) {
-        shoppingCartService.removeGameFromCart(shoppingCartId, gameId);
+        ControllerEvent.run("ShoppingCart", "removeGameFromCart", shoppingCartId, () -> shoppingCartService.removeGameFromCart(shoppingCartId, gameId));
     }
 
     /**
@@ -73,17 +75,40 @@ public class ShoppingCartController {
      * @param shoppingCartId The ID of the shopping cart.
      * @return The total price of the games in the cart.
      */
-    public float getCartTotalPrice(int shoppingCartId) {
-        return shoppingCartService.getCartTotalPrice(shoppingCartId);
+    public Money getCartTotalPrice(int shoppingCartId) {
+        return ControllerEvent.call("ShoppingCart", "getCartTotalPrice", shoppingCartId, () -> shoppingCartService.getCartTotalPrice(shoppingCartId));
+    }
+
+    /**
+     * Gets the total list price of all games in the shopping cart, before discounts.
+     *
+     * @param shoppingCartId The ID of the shopping cart.
+     * @return The subtotal of the games in the cart.
+     */
+    public Money getCartSubtotalPrice(int shoppingCartId) {
+        return ControllerEvent.call("ShoppingCart", "getCartSubtotalPrice", shoppingCartId, () -> shoppingCartService.getCartSubtotalPrice(shoppingCartId));
     }
 
     /**
      * Completes the checkout process for the shopping cart.
      *
      * @param shoppingCartId The ID of the shopping cart.
+     * @return The order placed.
+     */
+    public Order checkout(int shoppingCartId) {
+        return checkout(shoppingCartId, null);
+    }
+
+    /**
+     * Completes the checkout process for the shopping cart at most once per request ID.
+     * A retry with the same ID returns the original order.
+     *
+     * @param shoppingCartId The ID of the shopping cart.
+     * @param requestId The client's ID for this checkout, or null to skip deduplication.
+     * @return The order placed, or the one placed by the first request with this ID.
      */
-    public void checkout(int shoppingCartId) {
-        shoppingCartService.checkout(shoppingCartId);
+    public Order checkout(int shoppingCartId, String requestId) {
+        return ControllerEvent.call("ShoppingCart", "checkout", shoppingCartId, () -> shoppingCartService.checkout(shoppingCartId, requestId));
     }
 
     /**
@@ -92,7 +117,7 @@ public class ShoppingCartController {
      * @param shoppingCartId The ID of the shopping cart.
      */
     public void clearCart(int shoppingCartId) {
-        shoppingCartService.clearCart(shoppingCartId);
+        ControllerEvent.run("ShoppingCart", "clearCart", shoppingCartId, () -> shoppingCartService.clearCart(shoppingCartId));
     }
 
     /**
@@ -101,7 +126,7 @@ public class ShoppingCartController {
      * @param shoppingCartId The ID of the shopping cart.
      */
     public void resetCartForCustomer(int shoppingCartId) {
-        shoppingCartService.resetCartForCustomer(shoppingCartId);
+        ControllerEvent.run("ShoppingCart", "resetCartForCustomer", shoppingCartId, () -> shoppingCartService.resetCartForCustomer(shoppingCartId));
     }
 
     /**
@@ -110,7 +135,7 @@ public class ShoppingCartController {
      * @return A list of all orders in the system.
      */
     public List<Order> getOrderHistory() {
-        return shoppingCartService.getOrderHistory();
+        return ControllerEvent.call("ShoppingCart", "getOrderHistory", -1, () -> shoppingCartService.getOrderHistory());
     }
 
     /**
@@ -120,6 +145,6 @@ public class ShoppingCartController {
      * @return A list of orders placed by the customer.
      */
     public List<Order> getAllOrdersByCustomer(Customer customer) {
-        return orderService.getAllOrdersByCustomer(customer);
+        return ControllerEvent.call("ShoppingCart", "getAllOrdersByCustomer", -1, () -> orderService.getAllOrdersByCustomer(customer));
     }
 }
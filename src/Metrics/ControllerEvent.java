@@ -0,0 +1,116 @@
+package Metrics;
+
+import Tracing.Span;
+import Tracing.Tracer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Java Flight Recorder event emitted around a controller entry point, such as
+ * ShoppingCartController.checkout. The same wrapper opens the controller span of a request
+ * trace when tracing is on and times the call for the slow operation log when that is on.
+ * When all three are off, wrapping a call costs three enabled checks.
+ */
+@Name("gamestore.ControllerCall")
+@Label("Controller Call")
+@Category({"Game Store", "Controller"})
+@Description("A call to a controller entry point")
+@StackTrace(false)
+public class ControllerEvent extends Event {
+    @Label("Controller")
+    String controller;
+
+    @Label("Action")
+    String action;
+
+    @Label("Entity ID")
+    @Description("The ID of the entity acted on, or -1 if the action has none")
+    int entityId;
+
+    @Label("Result Size")
+    @Description("The number of objects returned, or -1 if the action does not return a collection")
+    int resultSize;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * Runs a controller action that returns a value, recording an event, a trace span and a slow operation entry around it.
+     *
+     * @param controller The controller name, such as "ShoppingCart".
+     * @param action     The action name, such as "checkout".
+     * @param entityId   The ID of the entity acted on, or -1.
+     * @param body       The action.
+     * @return The value returned by the action.
+     */
+    public static <R> R call(String controller, String action, int entityId, Supplier<R> body) {
+        ControllerEvent event = new ControllerEvent();
+        boolean recording = event.isEnabled();
+        Span span = Tracer.isEnabled() ? Tracer.start(controller + "Controller." + action, Span.Kind.CONTROLLER) : null;
+        SlowOperationLog slowLog = SlowOperationLog.active();
+        if (!recording && span == null && slowLog == null) {
+            return body.get();
+        }
+        if (recording) {
+            event.begin();
+        }
+        if (slowLog != null) {
+            slowLog.enterService();
+        }
+        R result = null;
+        boolean failed = true;
+        try {
+            result = body.get();
+            failed = false;
+            return result;
+        } finally {
+            int resultSize = result instanceof Collection<?> collection ? collection.size() : -1;
+            if (slowLog != null) {
+                slowLog.exitService(controller, action, entityId, resultSize, failed);
+            }
+            if (span != null) {
+                if (entityId != -1) {
+                    span.tag("entity.id", entityId);
+                }
+                if (resultSize != -1) {
+                    span.tag("result.size", resultSize);
+                }
+                span.tag("error", failed);
+                Tracer.end(span);
+            }
+            if (recording) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.controller = controller;
+                    event.action = action;
+                    event.entityId = entityId;
+                    event.resultSize = resultSize;
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a controller action that returns nothing, recording an event, a trace span and a slow operation entry around it.
+     *
+     * @param controller The controller name, such as "ShoppingCart".
+     * @param action     The action name, such as "checkout".
+     * @param entityId   The ID of the entity acted on, or -1.
+     * @param body       The action.
+     */
+    public static void run(String controller, String action, int entityId, Runnable body) {
+        call(controller, action, entityId, () -> {
+            body.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event emitted when a FileRepository reads or rewrites its file.
+ * Its duration covers serialization, so it separates that cost from the service
+ * logic around it.
+ */
+@Name("gamestore.FileRepositoryIo")
+@Label("File Repository I/O")
+@Category({"Game Store", "Repository"})
+@Description("A FileRepository reading or rewriting its whole file")
+@StackTrace(false)
+public class FileIoEvent extends Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Operation")
+    @Description("\"read\" or \"write\"")
+    public String operation;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Entries")
+    @Description("The number of objects in the file")
+    public int entries;
+}
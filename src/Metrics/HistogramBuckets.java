@@ -0,0 +1,51 @@
+package Metrics;
+
+/**
+ * Bucket layout shared by the latency histograms: values below 64 are counted exactly,
+ * above that each power of two is split into 32 buckets, for a relative error of about 3%
+ * over the whole range of a long.
+ */
+public final class HistogramBuckets {
+    private static final int LINEAR = 64;
+    private static final int SUB_BUCKETS = 32;
+
+    /**
+     * The number of buckets.
+     */
+    public static final int COUNT = LINEAR + (63 - 6) * SUB_BUCKETS;
+
+    private HistogramBuckets() {
+    }
+
+    /**
+     * Gets the bucket a value falls into.
+     *
+     * @param value A non-negative value.
+     * @return The bucket index.
+     */
+    public static int indexOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - 5;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR + (exponent - 6) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the largest value that falls into a bucket.
+     *
+     * @param index The bucket index.
+     * @return The bucket's upper bound.
+     */
+    public static long upperBoundOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = 6 + (index - LINEAR) / SUB_BUCKETS;
+        int sub = SUB_BUCKETS + (index - LINEAR) % SUB_BUCKETS;
+        int shift = exponent - 5;
+        return ((long) (sub + 1) << shift) - 1;
+    }
+}
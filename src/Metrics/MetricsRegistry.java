@@ -0,0 +1,161 @@
+package Metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the metrics of every instrumented repository of a store. It renders them as a
+ * table for people and as a Prometheus text-format dump for tools.
+ */
+public class MetricsRegistry {
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    private final Map<String, RepositoryMetrics> repositories = new ConcurrentHashMap<>();
+    private final List<String> order = new ArrayList<>();
+
+    /**
+     * Gets the metrics of a repository, creating them on first use.
+     *
+     * @param name The repository name.
+     * @return Its metrics.
+     */
+    public RepositoryMetrics repository(String name) {
+        return repositories.computeIfAbsent(name, key -> {
+            synchronized (order) {
+                order.add(key);
+            }
+            return new RepositoryMetrics(key);
+        });
+    }
+
+    /**
+     * Gets the metrics of every repository, in registration order.
+     *
+     * @return The repository metrics.
+     */
+    public List<RepositoryMetrics> getRepositories() {
+        List<RepositoryMetrics> result = new ArrayList<>();
+        synchronized (order) {
+            for (String name : order) {
+                result.add(repositories.get(name));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clears the statistics of every repository.
+     */
+    public void reset() {
+        for (RepositoryMetrics metrics : getRepositories()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Renders the operations that were called as a table, one row per repository and operation.
+     *
+     * @return The table.
+     */
+    public String formatTable() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-15s %-16s %9s %7s %10s %10s %10s %10s %10s%n",
+                "repository", "operation", "calls", "errors", "mean(us)", "p50(us)", "p99(us)", "p999(us)", "avg items"));
+        for (RepositoryMetrics metrics : getRepositories()) {
+            for (RepositoryMetrics.Operation operation : RepositoryMetrics.Operation.values()) {
+                OperationStats stats = metrics.get(operation);
+                long calls = stats.getCalls();
+                if (calls == 0) {
+                    continue;
+                }
+                ConcurrentHistogram latency = stats.getLatency();
+                sb.append(String.format("%-15s %-16s %9d %7d %10.1f %10.1f %10.1f %10.1f %10s%n",
+                        metrics.getName(), operation.label(), calls, stats.getErrors(), latency.getMean() / 1e3,
+                        latency.percentile(50) / 1e3, latency.percentile(99) / 1e3, latency.percentile(99.9) / 1e3,
+                        stats.getResultItems() == 0 ? "-" : String.format("%.1f", (double) stats.getResultItems() / calls)));
+            }
+            if (metrics.hasIo()) {
+                sb.append(String.format("%-15s io: %d bytes read, %d bytes written%n",
+                        metrics.getName(), metrics.getBytesRead(), metrics.getBytesWritten()));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format.
+     *
+     * @return The dump.
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# TYPE gamestore_repository_calls_total counter\n");
+        sb.append("# TYPE gamestore_repository_errors_total counter\n");
+        sb.append("# TYPE gamestore_repository_latency_seconds summary\n");
+        sb.append("# TYPE gamestore_repository_result_items_total counter\n");
+        sb.append("# TYPE gamestore_repository_bytes_read_total counter\n");
+        sb.append("# TYPE gamestore_repository_bytes_written_total counter\n");
+        for (RepositoryMetrics metrics : getRepositories()) {
+            for (RepositoryMetrics.Operation operation : RepositoryMetrics.Operation.values()) {
+                OperationStats stats = metrics.get(operation);
+                String labels = "repository=\"" + metrics.getName() + "\",operation=\"" + operation.label() + "\"";
+                ConcurrentHistogram latency = stats.getLatency();
+                sb.append("gamestore_repository_calls_total{").append(labels).append("} ").append(stats.getCalls()).append('\n');
+                sb.append("gamestore_repository_errors_total{").append(labels).append("} ").append(stats.getErrors()).append('\n');
+                for (double percentile : PERCENTILES) {
+                    sb.append("gamestore_repository_latency_seconds{").append(labels)
+                            .append(",quantile=\"").append(percentile / 100).append("\"} ")
+                            .append(latency.percentile(percentile) / 1e9).append('\n');
+                }
+                sb.append("gamestore_repository_latency_seconds_sum{").append(labels).append("} ").append(latency.getTotalNanos() / 1e9).append('\n');
+                sb.append("gamestore_repository_latency_seconds_count{").append(labels).append("} ").append(latency.getCount()).append('\n');
+                sb.append("gamestore_repository_result_items_total{").append(labels).append("} ").append(stats.getResultItems()).append('\n');
+            }
+            if (metrics.hasIo()) {
+                String labels = "repository=\"" + metrics.getName() + "\"";
+                sb.append("gamestore_repository_bytes_read_total{").append(labels).append("} ").append(metrics.getBytesRead()).append('\n');
+                sb.append("gamestore_repository_bytes_written_total{").append(labels).append("} ").append(metrics.getBytesWritten()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the metrics as nested maps, for JSON serialization.
+     *
+     * @return One entry per repository, keyed by name.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (RepositoryMetrics metrics : getRepositories()) {
+            Map<String, Object> repository = new LinkedHashMap<>();
+            for (RepositoryMetrics.Operation operation : RepositoryMetrics.Operation.values()) {
+                OperationStats stats = metrics.get(operation);
+                if (stats.getCalls() == 0) {
+                    continue;
+                }
+                ConcurrentHistogram latency = stats.getLatency();
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("calls", stats.getCalls());
+                entry.put("errors", stats.getErrors());
+                entry.put("meanNanos", latency.getMean());
+                entry.put("p50Nanos", latency.percentile(50));
+                entry.put("p99Nanos", latency.percentile(99));
+                entry.put("p999Nanos", latency.percentile(99.9));
+                entry.put("maxNanos", latency.getMax());
+                entry.put("resultItems", stats.getResultItems());
+                entry.put("maxResultSize", stats.getMaxResultSize());
+                repository.put(operation.label(), entry);
+            }
+            if (metrics.hasIo()) {
+                repository.put("bytesRead", metrics.getBytesRead());
+                repository.put("bytesWritten", metrics.getBytesWritten());
+            }
+            result.put(metrics.getName(), repository);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,70 @@
+package Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count, latency histogram and result sizes of one operation.
+ */
+public class OperationStats {
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder resultItems = new LongAdder();
+    private final AtomicLong maxResultSize = new AtomicLong();
+    private final ConcurrentHistogram latency = new ConcurrentHistogram();
+
+    /**
+     * Records a completed call.
+     *
+     * @param nanos  How long the call took.
+     * @param failed Whether it threw.
+     */
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Records the number of objects a call returned.
+     *
+     * @param size The result size.
+     */
+    public void recordResultSize(int size) {
+        resultItems.add(size);
+        long current = maxResultSize.get();
+        while (size > current && !maxResultSize.compareAndSet(current, size)) {
+            current = maxResultSize.get();
+        }
+    }
+
+    public long getCalls() {
+        return latency.getCount();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getResultItems() {
+        return resultItems.sum();
+    }
+
+    public long getMaxResultSize() {
+        return maxResultSize.get();
+    }
+
+    public ConcurrentHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Clears every recording.
+     */
+    public void reset() {
+        errors.reset();
+        resultItems.reset();
+        maxResultSize.set(0);
+        latency.reset();
+    }
+}
@@ -0,0 +1,36 @@
+package Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event emitted around an IRepository call.
+ */
+@Name("gamestore.RepositoryCall")
+@Label("Repository Call")
+@Category({"Game Store", "Repository"})
+@Description("A call to a repository operation")
+@StackTrace(false)
+public class RepositoryEvent extends Event {
+    @Label("Repository")
+    @Description("The repository name, which is also the entity type it stores")
+    public String repository;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Entity ID")
+    @Description("The ID of the entity acted on, or -1 if the operation has none")
+    public int entityId;
+
+    @Label("Result Size")
+    @Description("The number of objects returned, or -1 if the operation does not return a list")
+    public int resultSize;
+
+    @Label("Failed")
+    public boolean failed;
+}
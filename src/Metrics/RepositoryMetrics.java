@@ -0,0 +1,109 @@
+package Metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * The metrics of one repository: statistics per operation, plus the bytes read and written
+ * when the repository is backed by a file.
+ */
+public class RepositoryMetrics {
+
+    /**
+     * The repository operations that are measured.
+     */
+    public enum Operation {
+        CREATE, GET, UPDATE, DELETE, GET_ALL, FIND, CREATE_ALL, UPDATE_ALL, DELETE_ALL, GET_ALL_BY_ID, COMPARE_AND_UPDATE;
+
+        private final String label = toCamelCase(name());
+
+        /**
+         * Gets the name of the operation as used in metric labels, e.g. "getAll".
+         *
+         * @return The camel-case name.
+         */
+        public String label() {
+            return label;
+        }
+
+        private static String toCamelCase(String constant) {
+            StringBuilder sb = new StringBuilder();
+            boolean upper = false;
+            for (char c : constant.toCharArray()) {
+                if (c == '_') {
+                    upper = true;
+                } else {
+                    sb.append(upper ? c : Character.toLowerCase(c));
+                    upper = false;
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private final String name;
+    private final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+    private volatile LongSupplier bytesRead;
+    private volatile LongSupplier bytesWritten;
+
+    /**
+     * Constructs the metrics of a repository.
+     *
+     * @param name The repository name, such as "games".
+     */
+    public RepositoryMetrics(String name) {
+        this.name = name;
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationStats());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the statistics of one operation.
+     *
+     * @param operation The operation.
+     * @return Its statistics.
+     */
+    public OperationStats get(Operation operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * Reports the byte counters of the storage behind the repository.
+     *
+     * @param bytesRead    Supplies the total bytes read.
+     * @param bytesWritten Supplies the total bytes written.
+     */
+    public void trackIo(LongSupplier bytesRead, LongSupplier bytesWritten) {
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+    }
+
+    public boolean hasIo() {
+        return bytesRead != null;
+    }
+
+    public long getBytesRead() {
+        LongSupplier supplier = bytesRead;
+        return supplier == null ? 0 : supplier.getAsLong();
+    }
+
+    public long getBytesWritten() {
+        LongSupplier supplier = bytesWritten;
+        return supplier == null ? 0 : supplier.getAsLong();
+    }
+
+    /**
+     * Clears the statistics of every operation. The byte counters belong to the storage and are kept.
+     */
+    public void reset() {
+        for (OperationStats stats : operations.values()) {
+            stats.reset();
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package Metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Writes service and repository calls that exceed a time threshold to a dedicated rolling log.
+ * An entry names the operation and its entity ID and gives the result size. For service calls it
+ * also lists the time, calls and rows of each repository the call used.
+ *
+ * Thresholds are given in milliseconds and are set when the log is enabled:
+ * - "service" and "repository" are the defaults for their layer
+ * - "ShoppingCartController.checkout" names one controller entry point
+ * - "games.getAll" names one repository operation
+ *
+ * Each thread keeps its own preallocated stack of service frames, and thresholds are looked up
+ * with plain map reads. Calls that are not slow therefore allocate nothing. Formatting and
+ * writing happen only for slow calls.
+ */
+public final class SlowOperationLog {
+    /**
+     * System property naming the log file; the log is enabled when it is set.
+     */
+    public static final String FILE_PROPERTY = "gamestore.slowlog.file";
+    /**
+     * System property holding the thresholds, such as "service=100,repository=10,games.getAll=50".
+     */
+    public static final String THRESHOLDS_PROPERTY = "gamestore.slowlog.thresholds";
+    public static final long DEFAULT_SERVICE_THRESHOLD_MILLIS = 100;
+    public static final long DEFAULT_REPOSITORY_THRESHOLD_MILLIS = 20;
+    public static final int DEFAULT_MAX_FILE_BYTES = 10 * 1024 * 1024;
+    public static final int DEFAULT_FILE_COUNT = 5;
+
+    private static final int MAX_REPOSITORIES = 32;
+    private static final int MAX_DEPTH = 8;
+    private static final String[] REPOSITORY_NAMES = new String[MAX_REPOSITORIES];
+    private static int repositoryCount;
+    private static volatile SlowOperationLog active;
+
+    private final Logger logger;
+    private final Handler handler;
+    private final long serviceThresholdNanos;
+    private final long repositoryThresholdNanos;
+    private final Map<String, Map<String, Long>> serviceThresholds = new HashMap<>();
+    private final Map<String, Map<String, Long>> repositoryThresholds = new HashMap<>();
+    private final ThreadLocal<Frames> frames = ThreadLocal.withInitial(Frames::new);
+
+    private SlowOperationLog(Handler handler, Map<String, Long> thresholdMillis) {
+        this.handler = handler;
+        this.logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        logger.setLevel(Level.ALL);
+
+        Map<String, Long> thresholds = new HashMap<>(thresholdMillis);
+        serviceThresholdNanos = millisToNanos(thresholds.getOrDefault("service", DEFAULT_SERVICE_THRESHOLD_MILLIS));
+        repositoryThresholdNanos = millisToNanos(thresholds.getOrDefault("repository", DEFAULT_REPOSITORY_THRESHOLD_MILLIS));
+        thresholds.remove("service");
+        thresholds.remove("repository");
+        for (Map.Entry<String, Long> entry : thresholds.entrySet()) {
+            String key = entry.getKey();
+            int dot = key.lastIndexOf('.');
+            if (dot <= 0 || dot == key.length() - 1) {
+                throw new IllegalArgumentException("Invalid slow operation threshold: " + key);
+            }
+            String owner = key.substring(0, dot);
+            String operation = key.substring(dot + 1);
+            long nanos = millisToNanos(entry.getValue());
+            if (owner.endsWith("Controller")) {
+                serviceThresholds.computeIfAbsent(owner.substring(0, owner.length() - "Controller".length()), k -> new HashMap<>())
+                        .put(operation, nanos);
+            } else {
+                repositoryThresholds.computeIfAbsent(owner, k -> new HashMap<>()).put(operation, nanos);
+            }
+        }
+    }
+
+    /**
+     * Enables the slow operation log, replacing any log enabled before.
+     *
+     * @param file            The log file. Rolled files get the suffixes .0, .1 and so on.
+     * @param thresholdMillis The thresholds in milliseconds, keyed as described on the class.
+     * @param maxFileBytes    The size at which the log rolls over to the next file.
+     * @param fileCount       The number of files kept.
+     * @return The enabled log.
+     * @throws IllegalArgumentException if a threshold key is malformed or the file cannot be opened.
+     */
+    public static synchronized SlowOperationLog enable(Path file, Map<String, Long> thresholdMillis, int maxFileBytes, int fileCount) {
+        Handler handler;
+        try {
+            if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            handler = new FileHandler(file.toString().replace("%", "%%") + (fileCount > 1 ? ".%g" : ""), maxFileBytes, fileCount, true);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot open slow operation log " + file + ": " + e.getMessage());
+        }
+        handler.setFormatter(new LineFormatter());
+        SlowOperationLog log = new SlowOperationLog(handler, thresholdMillis);
+        disable();
+        active = log;
+        return log;
+    }
+
+    /**
+     * Disables the slow operation log and closes its file.
+     */
+    public static synchronized void disable() {
+        SlowOperationLog log = active;
+        active = null;
+        if (log != null) {
+            log.handler.close();
+        }
+    }
+
+    /**
+     * Enables the log if the gamestore.slowlog.file system property is set. Thresholds come
+     * from the gamestore.slowlog.thresholds property. The log is closed when the JVM exits.
+     * Does nothing if the log is already enabled.
+     *
+     * @throws IllegalArgumentException if the thresholds are malformed.
+     */
+    public static synchronized void configureFromSystemProperties() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null || file.isBlank() || active != null) {
+            return;
+        }
+        enable(Path.of(file), parseThresholds(System.getProperty(THRESHOLDS_PROPERTY, "")), DEFAULT_MAX_FILE_BYTES, DEFAULT_FILE_COUNT);
+        Runtime.getRuntime().addShutdownHook(new Thread(SlowOperationLog::disable));
+    }
+
+    /**
+     * Parses thresholds written as comma-separated key=milliseconds pairs.
+     *
+     * @param spec The thresholds, such as "service=100,games.getAll=50".
+     * @return The thresholds in milliseconds by key.
+     * @throws IllegalArgumentException if a pair is malformed.
+     */
+    public static Map<String, Long> parseThresholds(String spec) {
+        Map<String, Long> thresholds = new HashMap<>();
+        for (String pair : spec.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Invalid slow operation threshold: " + pair.trim());
+            }
+            try {
+                thresholds.put(pair.substring(0, eq).trim(), Long.parseLong(pair.substring(eq + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid slow operation threshold: " + pair.trim());
+            }
+        }
+        return thresholds;
+    }
+
+    /**
+     * Gets the enabled log.
+     *
+     * @return The log, or null if it is disabled.
+     */
+    public static SlowOperationLog active() {
+        return active;
+    }
+
+    /**
+     * Assigns a repository the slot its nested time is accumulated in. Registering a name again
+     * returns the same slot.
+     *
+     * @param name The repository name, such as "games".
+     * @return The slot, or -1 if every slot is taken.
+     */
+    public static synchronized int registerRepository(String name) {
+        for (int i = 0; i < repositoryCount; i++) {
+            if (REPOSITORY_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        if (repositoryCount == MAX_REPOSITORIES) {
+            return -1;
+        }
+        REPOSITORY_NAMES[repositoryCount] = name;
+        return repositoryCount++;
+    }
+
+    private static synchronized String repositoryName(int slot) {
+        return REPOSITORY_NAMES[slot];
+    }
+
+    /**
+     * Opens a service frame on the calling thread. Every call must be paired with exitService.
+     */
+    public void enterService() {
+        Frames stack = frames.get();
+        if (stack.depth < MAX_DEPTH) {
+            stack.clear(stack.depth);
+            stack.start[stack.depth] = System.nanoTime();
+        }
+        stack.depth++;
+    }
+
+    /**
+     * Closes the service frame opened by enterService and logs the call if it was slow.
+     *
+     * @param controller The controller name, such as "ShoppingCart".
+     * @param action     The action name, such as "checkout".
+     * @param entityId   The ID of the entity acted on, or -1.
+     * @param resultSize The number of objects returned, or -1.
+     * @param failed     Whether the call threw.
+     */
+    public void exitService(String controller, String action, int entityId, int resultSize, boolean failed) {
+        Frames stack = frames.get();
+        int frame = --stack.depth;
+        if (frame >= MAX_DEPTH) {
+            return;
+        }
+        long elapsed = System.nanoTime() - stack.start[frame];
+        if (frame > 0) {
+            stack.mergeInto(frame, frame - 1);
+        }
+        if (elapsed >= serviceThreshold(controller, action)) {
+            logService(stack, frame, controller, action, entityId, resultSize, failed, elapsed);
+        }
+    }
+
+    /**
+     * Records a finished repository call: adds its time to the current service frame and logs
+     * the call if it was slow.
+     *
+     * @param slot       The slot from registerRepository, or -1.
+     * @param repository The repository name.
+     * @param operation  The operation name, such as "getAll".
+     * @param entityId   The ID of the entity acted on, or -1.
+     * @param size       The number of objects returned or written, or -1.
+     * @param failed     Whether the call threw.
+     * @param elapsed    The duration of the call in nanoseconds.
+     */
+    public void recordRepository(int slot, String repository, String operation, int entityId, int size, boolean failed, long elapsed) {
+        Frames stack = frames.get();
+        if (stack.depth > 0 && stack.depth <= MAX_DEPTH && slot >= 0) {
+            int frame = stack.depth - 1;
+            stack.repositoryNanos[frame][slot] += elapsed;
+            stack.repositoryCalls[frame][slot]++;
+            if (size > 0) {
+                stack.repositoryRows[frame][slot] += size;
+            }
+        }
+        if (elapsed >= repositoryThreshold(repository, operation)) {
+            StringBuilder line = new StringBuilder(128);
+            line.append("repository ").append(repository).append('.').append(operation);
+            appendCall(line, elapsed, repositoryThreshold(repository, operation), entityId, size, failed);
+            logger.info(line.toString());
+        }
+    }
+
+    private long serviceThreshold(String controller, String action) {
+        return lookup(serviceThresholds, controller, action, serviceThresholdNanos);
+    }
+
+    private long repositoryThreshold(String repository, String operation) {
+        return lookup(repositoryThresholds, repository, operation, repositoryThresholdNanos);
+    }
+
+    private static long lookup(Map<String, Map<String, Long>> thresholds, String owner, String operation, long fallback) {
+        Map<String, Long> operations = thresholds.get(owner);
+        if (operations == null) {
+            return fallback;
+        }
+        Long threshold = operations.get(operation);
+        return threshold == null ? fallback : threshold;
+    }
+
+    private void logService(Frames stack, int frame, String controller, String action, int entityId, int resultSize,
+                            boolean failed, long elapsed) {
+        StringBuilder line = new StringBuilder(256);
+        line.append("service ").append(controller).append("Controller.").append(action);
+        appendCall(line, elapsed, serviceThreshold(controller, action), entityId, resultSize, failed);
+
+        long repositoryNanos = 0;
+        int calls = 0;
+        StringBuilder breakdown = new StringBuilder();
+        for (int slot = 0; slot < MAX_REPOSITORIES; slot++) {
+            if (stack.repositoryCalls[frame][slot] == 0) {
+                continue;
+            }
+            repositoryNanos += stack.repositoryNanos[frame][slot];
+            calls += stack.repositoryCalls[frame][slot];
+            breakdown.append(breakdown.length() == 0 ? "" : ", ").append(repositoryName(slot))
+                    .append(": ").append(formatMillis(stack.repositoryNanos[frame][slot]))
+                    .append(" in ").append(stack.repositoryCalls[frame][slot]).append(" calls, ")
+                    .append(stack.repositoryRows[frame][slot]).append(" rows");
+        }
+        line.append(" repositories=").append(formatMillis(repositoryNanos)).append(" in ").append(calls).append(" calls");
+        if (breakdown.length() > 0) {
+            line.append(" [").append(breakdown).append(']');
+        }
+        logger.info(line.toString());
+    }
+
+    private static void appendCall(StringBuilder line, long elapsed, long threshold, int entityId, int size, boolean failed) {
+        line.append(" took ").append(formatMillis(elapsed)).append(" (threshold ").append(formatMillis(threshold)).append(')');
+        if (entityId != -1) {
+            line.append(" id=").append(entityId);
+        }
+        if (size != -1) {
+            line.append(" size=").append(size);
+        }
+        if (failed) {
+            line.append(" failed");
+        }
+        line.append(" thread=").append(Thread.currentThread().getName());
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.3f ms", nanos / 1e6);
+    }
+
+    private static long millisToNanos(long millis) {
+        return millis * 1_000_000L;
+    }
+
+    /**
+     * The service frames open on one thread, with the repository time accumulated in each.
+     */
+    private static final class Frames {
+        final long[] start = new long[MAX_DEPTH];
+        final long[][] repositoryNanos = new long[MAX_DEPTH][MAX_REPOSITORIES];
+        final int[][] repositoryCalls = new int[MAX_DEPTH][MAX_REPOSITORIES];
+        final long[][] repositoryRows = new long[MAX_DEPTH][MAX_REPOSITORIES];
+        int depth;
+
+        void clear(int frame) {
+            for (int slot = 0; slot < MAX_REPOSITORIES; slot++) {
+                repositoryNanos[frame][slot] = 0;
+                repositoryCalls[frame][slot] = 0;
+                repositoryRows[frame][slot] = 0;
+            }
+        }
+
+        void mergeInto(int frame, int parent) {
+            for (int slot = 0; slot < MAX_REPOSITORIES; slot++) {
+                repositoryNanos[parent][slot] += repositoryNanos[frame][slot];
+                repositoryCalls[parent][slot] += repositoryCalls[frame][slot];
+                repositoryRows[parent][slot] += repositoryRows[frame][slot];
+            }
+        }
+    }
+
+    /**
+     * Formats each entry as one line starting with its timestamp.
+     */
+    private static final class LineFormatter extends Formatter {
+        @Override
+        public String format(LogRecord record) {
+            return Instant.ofEpochMilli(record.getMillis()) + " SLOW " + record.getMessage() + System.lineSeparator();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package Model;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A time-boxed discount, such as "20% off all RPG games from Friday to Sunday". A campaign
+ * targets whole genres, a set of game IDs, or both. While it is active, a targeted game is sold
+ * at the largest of its own discount and the discounts of the active campaigns targeting it.
+ */
+public class DiscountCampaign implements HasId, Serializable {
+    // Pinned to the value the class computed as first written, so existing campaign files still load.
+    private static final long serialVersionUID = -3684179164271278783L;
+
+    /**
+     * The lifecycle of a campaign.
+     */
+    public enum Status {
+        SCHEDULED, ACTIVE, EXPIRED, CANCELLED
+    }
+
+    private final int campaignId;
+    private final String name;
+    private final float discountPercentage;
+    private final Set<GameGenre> genres;
+    private final Set<Integer> gameIds;
+    private final Instant startsAt;
+    private final Instant endsAt;
+    private Status status = Status.SCHEDULED;
+
+    /**
+     * Constructs a DiscountCampaign.
+     *
+     * @param campaignId         The unique identifier for the campaign.
+     * @param name               The name shown to admins.
+     * @param discountPercentage The percentage taken off targeted games.
+     * @param genres             The genres whose games are targeted.
+     * @param gameIds            The IDs of further games targeted.
+     * @param startsAt           When the campaign starts.
+     * @param endsAt             When the campaign ends.
+     */
+    public DiscountCampaign(int campaignId, String name, float discountPercentage, Set<GameGenre> genres, Set<Integer> gameIds,
+                            Instant startsAt, Instant endsAt) {
+        this.campaignId = campaignId;
+        this.name = name;
+        this.discountPercentage = discountPercentage;
+        this.genres = genres.isEmpty() ? EnumSet.noneOf(GameGenre.class) : EnumSet.copyOf(genres);
+        this.gameIds = new HashSet<>(gameIds);
+        this.startsAt = startsAt;
+        this.endsAt = endsAt;
+    }
+
+    /**
+     * Checks whether the campaign applies to a game.
+     *
+     * @param game The game.
+     * @return true if the game's genre or ID is targeted.
+     */
+    public boolean targets(Game game) {
+        return genres.contains(game.getGameGenre()) || gameIds.contains(game.getGameId());
+    }
+
+    public int getCampaignId() {
+        return campaignId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getDiscountPercentage() {
+        return discountPercentage;
+    }
+
+    public Set<GameGenre> getGenres() {
+        return Collections.unmodifiableSet(genres);
+    }
+
+    public Set<Integer> getGameIds() {
+        return Collections.unmodifiableSet(gameIds);
+    }
+
+    public Instant getStartsAt() {
+        return startsAt;
+    }
+
+    public Instant getEndsAt() {
+        return endsAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    @Override
+    public Integer getId() {
+        return campaignId;
+    }
+
+    @Override
+    public String toString() {
+        return "DiscountCampaign{" +
+                "campaignId=" + campaignId +
+                ", name='" + name + '\'' +
+                ", discountPercentage=" + discountPercentage +
+                ", genres=" + genres +
+                ", gameIds=" + gameIds +
+                ", startsAt=" + startsAt +
+                ", endsAt=" + endsAt +
+                ", status=" + status +
+                '}';
+    }
+}
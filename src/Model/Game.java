@@ -11,6 +11,8 @@ import java.util.List;
  */
 
 public class Game implements HasId, Serializable {
+    // Pinned to the value computed for the class before getEffectivePrice was added, so existing data files still load.
+    private static final long serialVersionUID = -6786491475963033856L;
 
     private Integer gameId;
     private String gameName;
@@ -72,6 +74,16 @@ public class Game implements HasId, Serializable {
         return price;
     }
 
+    /**
+     * Calculates the price of the game after applying any discount, rounded to the cent.
+     * Services read prices through Service.PricingEngine, which caches this value per game.
+     * @return The discounted price, or the original price if no discount is applied.
+     */
+    public Money getEffectivePrice() {
+        Money base = Money.of(price);
+        return discount != null ? base.percentOff(discount.getDiscountPercentage()) : base;
+    }
+
     /**
      * Calculates and returns the price of the game after applying any discount.
      * @return The discounted price, or the original price if no discount is applied.
@@ -79,10 +91,7 @@ public class Game implements HasId, Serializable {
 
 
     public float getDiscountedPrice() {
-        if (discount != null) {
-            return price * (1 - discount.getDiscountPercentage() / 100);
-        }
-        return price;
+        return getEffectivePrice().toBigDecimal().floatValue();
     }
 
     public void setPrice(float price) {
@@ -0,0 +1,111 @@
+package Model;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Selects a set of games for a bulk operation such as a bulk discount: every game of a genre,
+ * every game a developer published, every game whose effective price lies in a range, or an
+ * explicit list of game IDs.
+ */
+public class GameSelector {
+
+    /**
+     * The kind of selection.
+     */
+    public enum Kind {
+        GENRE, DEVELOPER, PRICE_RANGE, IDS
+    }
+
+    private final Kind kind;
+    private final GameGenre genre;
+    private final int developerId;
+    private final float minPrice;
+    private final float maxPrice;
+    private final Set<Integer> gameIds;
+
+    private GameSelector(Kind kind, GameGenre genre, int developerId, float minPrice, float maxPrice, Set<Integer> gameIds) {
+        this.kind = kind;
+        this.genre = genre;
+        this.developerId = developerId;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.gameIds = gameIds;
+    }
+
+    /**
+     * Selects every game of a genre.
+     *
+     * @param genre The genre.
+     * @return The selector.
+     */
+    public static GameSelector byGenre(GameGenre genre) {
+        return new GameSelector(Kind.GENRE, genre, -1, 0, 0, Set.of());
+    }
+
+    /**
+     * Selects every game a developer published.
+     *
+     * @param developerId The ID of the developer.
+     * @return The selector.
+     */
+    public static GameSelector byDeveloper(int developerId) {
+        return new GameSelector(Kind.DEVELOPER, null, developerId, 0, 0, Set.of());
+    }
+
+    /**
+     * Selects every game whose effective price lies in a range, both ends included.
+     *
+     * @param minPrice The lowest price.
+     * @param maxPrice The highest price.
+     * @return The selector.
+     */
+    public static GameSelector byPriceRange(float minPrice, float maxPrice) {
+        return new GameSelector(Kind.PRICE_RANGE, null, -1, minPrice, maxPrice, Set.of());
+    }
+
+    /**
+     * Selects the games with the given IDs. IDs of games that do not exist are ignored.
+     *
+     * @param gameIds The IDs of the games.
+     * @return The selector.
+     */
+    public static GameSelector byIds(Set<Integer> gameIds) {
+        return new GameSelector(Kind.IDS, null, -1, 0, 0, Collections.unmodifiableSet(new LinkedHashSet<>(gameIds)));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public GameGenre getGenre() {
+        return genre;
+    }
+
+    public int getDeveloperId() {
+        return developerId;
+    }
+
+    public float getMinPrice() {
+        return minPrice;
+    }
+
+    public float getMaxPrice() {
+        return maxPrice;
+    }
+
+    public Set<Integer> getGameIds() {
+        return gameIds;
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case GENRE -> "genre " + genre;
+            case DEVELOPER -> "developer " + developerId;
+            case PRICE_RANGE -> "price $" + minPrice + " - $" + maxPrice;
+            case IDS -> "games " + gameIds;
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package Model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money held as a whole number of cents, so sums and differences are exact.
+ * Amounts typed in as floats are rounded half-up to the nearest cent once, on the way in.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+    // Pinned to the value the class computed once percentOff was added, so stored amounts still load.
+    private static final long serialVersionUID = 2538221091343377211L;
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * Creates an amount from a number of cents.
+     *
+     * @param cents The amount in cents.
+     * @return The amount.
+     */
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Creates an amount from a value in dollars, rounded to the nearest cent.
+     * The float's shortest decimal form is used, so 10.1f becomes exactly 10.10.
+     *
+     * @param dollars The amount in dollars.
+     * @return The amount.
+     * @throws IllegalArgumentException if the value is not finite.
+     */
+    public static Money of(float dollars) {
+        if (!Float.isFinite(dollars)) {
+            throw new IllegalArgumentException("Amount must be a finite number.");
+        }
+        return ofCents(new BigDecimal(Float.toString(dollars)).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact());
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    /**
+     * Takes a percentage off the amount, rounding half-up to the nearest cent.
+     *
+     * @param percentage The percentage to take off, between 0 and 100.
+     * @return The reduced amount.
+     */
+    public Money percentOff(float percentage) {
+        BigDecimal remaining = BigDecimal.valueOf(100).subtract(new BigDecimal(Float.toString(percentage)));
+        return ofCents(BigDecimal.valueOf(cents).multiply(remaining).divide(BigDecimal.valueOf(100), 0, RoundingMode.HALF_UP).longValueExact());
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    /**
+     * Gets the amount as a decimal number of dollars with two fraction digits.
+     *
+     * @return The amount in dollars.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && other.cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
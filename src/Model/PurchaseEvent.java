@@ -0,0 +1,115 @@
+package Model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A completed purchase, as recorded in the append-only purchase event store. Events are never
+ * modified after they are written; the customer libraries, order histories and sales counts
+ * read by the store are projections of the event stream.
+ *
+ * The stream also records the deletion of a customer's account, so projections built from it
+ * stop counting the customer's earlier purchases as theirs, including after a rebuild.
+ */
+public class PurchaseEvent implements HasId {
+    // Pinned to the value computed before the event type was added, so existing event files still load.
+    private static final long serialVersionUID = -6650970115519523286L;
+
+    /**
+     * What an event records.
+     */
+    public enum Type {
+        PURCHASE, ACCOUNT_DELETED
+    }
+
+    private final int eventId;
+    private final int orderId;
+    private final int customerId;
+    private final List<Integer> gameIds;
+    private final long amountCents;
+    private final Instant timestamp;
+    // Null in events written before types were recorded, which are all purchases.
+    private final Type type;
+
+    /**
+     * Constructs a PurchaseEvent.
+     *
+     * @param eventId     The position of the event in the stream, starting at 1; also its ID.
+     * @param orderId     The order the purchase placed.
+     * @param customerId  The customer who made the purchase.
+     * @param gameIds     The IDs of the games bought.
+     * @param amountCents The amount charged in cents.
+     * @param timestamp   When the purchase was made.
+     */
+    public PurchaseEvent(int eventId, int orderId, int customerId, List<Integer> gameIds, long amountCents, Instant timestamp) {
+        this(eventId, orderId, customerId, gameIds, amountCents, timestamp, Type.PURCHASE);
+    }
+
+    private PurchaseEvent(int eventId, int orderId, int customerId, List<Integer> gameIds, long amountCents, Instant timestamp, Type type) {
+        this.eventId = eventId;
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.gameIds = List.copyOf(gameIds);
+        this.amountCents = amountCents;
+        this.timestamp = timestamp;
+        this.type = type;
+    }
+
+    /**
+     * Creates the event recording that a customer's account was deleted. It carries no order,
+     * games or amount.
+     *
+     * @param eventId    The position of the event in the stream; also its ID.
+     * @param customerId The customer whose account was deleted.
+     * @param timestamp  When the account was deleted.
+     * @return The event.
+     */
+    public static PurchaseEvent accountDeleted(int eventId, int customerId, Instant timestamp) {
+        return new PurchaseEvent(eventId, 0, customerId, List.of(), 0, timestamp, Type.ACCOUNT_DELETED);
+    }
+
+    public int getEventId() {
+        return eventId;
+    }
+
+    public int getOrderId() {
+        return orderId;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public List<Integer> getGameIds() {
+        return gameIds;
+    }
+
+    public Money getAmount() {
+        return Money.ofCents(amountCents);
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public Type getType() {
+        return type == null ? Type.PURCHASE : type;
+    }
+
+    @Override
+    public Integer getId() {
+        return eventId;
+    }
+
+    @Override
+    public String toString() {
+        return "PurchaseEvent{" +
+                "eventId=" + eventId +
+                ", type=" + getType() +
+                ", orderId=" + orderId +
+                ", customerId=" + customerId +
+                ", gameIds=" + gameIds +
+                ", amount=" + getAmount() +
+                '}';
+    }
+}
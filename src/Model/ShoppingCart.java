@@ -1,16 +1,28 @@
 package Model;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a Shopping Cart for a Customer, which can also act as an Order in the database.
+ * The cart carries running totals of its games' list prices and effective prices, kept up to
+ * date as games are added and removed, so reading them does not walk the games.
+ * It also records when it was last touched, so idle carts can be evicted.
  */
-public class ShoppingCart implements HasId {
+public class ShoppingCart implements Versioned {
+    // Pinned to the value computed for the class before the version, totals and last-touched fields were added,
+    // so existing data files still load.
+    private static final long serialVersionUID = 4033850664897990396L;
+
     private int shoppingCartId;
     private List<Game> listOfGames;
     private Customer customer;
     private String status; // "ACTIVE", "CHECKED_OUT", etc.
+    private long version;
+    private long subtotalCents;
+    private long totalCents;
+    private long lastTouchedMillis;
 
     /**
      * Constructs a ShoppingCart with the specified details.
@@ -23,6 +35,7 @@ public class ShoppingCart implements HasId {
         this.customer = customer;
         this.listOfGames = new ArrayList<>();
         this.status = "ACTIVE";
+        this.lastTouchedMillis = System.currentTimeMillis();
     }
 
     // Getters and Setters
@@ -58,12 +71,101 @@ public class ShoppingCart implements HasId {
         this.status = status;
     }
 
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Gets the sum of the list prices of the games in the cart.
+     *
+     * @return The subtotal before discounts.
+     */
+    public Money getSubtotal() {
+        return Money.ofCents(subtotalCents);
+    }
+
+    /**
+     * Gets the sum of the effective prices of the games in the cart, which checkout charges.
+     *
+     * @return The total after discounts.
+     */
+    public Money getTotal() {
+        return Money.ofCents(totalCents);
+    }
+
+    /**
+     * Adds a game to the cart and its prices to the running totals.
+     *
+     * @param game           The game to add.
+     * @param listPrice      The list price of the game.
+     * @param effectivePrice The price of the game after discount.
+     */
+    public void addGame(Game game, Money listPrice, Money effectivePrice) {
+        listOfGames.add(game);
+        subtotalCents = Math.addExact(subtotalCents, listPrice.getCents());
+        totalCents = Math.addExact(totalCents, effectivePrice.getCents());
+    }
+
+    /**
+     * Removes a game from the cart and its prices from the running totals.
+     *
+     * @param gameId         The ID of the game to remove.
+     * @param listPrice      The list price the game was counted at.
+     * @param effectivePrice The price after discount the game was counted at.
+     * @return true if the game was in the cart.
+     */
+    public boolean removeGame(int gameId, Money listPrice, Money effectivePrice) {
+        if (!listOfGames.removeIf(game -> game.getGameId() == gameId)) {
+            return false;
+        }
+        subtotalCents -= listPrice.getCents();
+        totalCents -= effectivePrice.getCents();
+        return true;
+    }
+
+    /**
+     * Replaces the running totals, after they have been recomputed from the games.
+     *
+     * @param subtotal The sum of the list prices.
+     * @param total    The sum of the effective prices.
+     */
+    public void setTotals(Money subtotal, Money total) {
+        this.subtotalCents = subtotal.getCents();
+        this.totalCents = total.getCents();
+    }
+
+    /**
+     * Gets when the cart was last changed by its customer.
+     *
+     * @return The time of the last change.
+     */
+    public Instant getLastTouched() {
+        return Instant.ofEpochMilli(lastTouchedMillis);
+    }
+
+    /**
+     * Records that the cart was changed by its customer.
+     *
+     * @param now The current time.
+     */
+    public void touch(Instant now) {
+        this.lastTouchedMillis = now.toEpochMilli();
+    }
+
 //    public boolean isCheckedOut() {
 //        return "CHECKED_OUT".equals(status);
 //    }
 
     public void clear() {
         this.listOfGames.clear();
+        this.subtotalCents = 0;
+        this.totalCents = 0;
     }
 
     @Override
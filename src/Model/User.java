@@ -7,12 +7,16 @@ import java.io.Serializable;
  * Users can have different roles, such as Admin, Developer, or Customer.
  */
 
-public abstract class User implements HasId, Serializable {
+public abstract class User implements Versioned, Serializable {
+    // Pinned to the value computed for the class before the version field was added, so existing data files still load.
+    private static final long serialVersionUID = 720522213217526978L;
+
     protected Integer userId;
     protected String username;
     protected String email;
     protected String password;
     protected String role;
+    protected long version;
 
     /**
      * Constructs a User with the specified details.
@@ -64,6 +68,12 @@ public abstract class User implements HasId, Serializable {
 
     public void setRole(String role) {this.role = role;}
 
+    @Override
+    public long getVersion() {return version;}
+
+    @Override
+    public void setVersion(long version) {this.version = version;}
+
     @Override
     public String toString() {
         return "User{" +
@@ -0,0 +1,24 @@
+package Model;
+
+/**
+ * An interface for entities that carry a version stamp for optimistic concurrency control.
+ * Repositories bump the version on every successful write, so a writer holding an older
+ * version can detect that someone else modified the entity in the meantime.
+ */
+
+public interface Versioned extends HasId {
+
+    /**
+     * Gets the version of the entity as of the last time it was written to a repository.
+     * @return The version stamp.
+     */
+
+    long getVersion();
+
+    /**
+     * Sets the version of the entity. Intended for repositories only.
+     * @param version The new version stamp.
+     */
+
+    void setVersion(long version);
+}
@@ -0,0 +1,53 @@
+package Model;
+
+/**
+ * The balance of a customer's wallet as of one position in their ledger. Rebuilding a balance
+ * starts from the snapshot and only replays the entries written after it.
+ */
+public class WalletSnapshot implements HasId {
+    // Pinned to the value the class computed as first written, so existing snapshot files still load.
+    private static final long serialVersionUID = 5619842125872536119L;
+
+    private final int customerId;
+    private final long sequence;
+    private final long balanceCents;
+
+    /**
+     * Constructs a WalletSnapshot.
+     *
+     * @param customerId   The customer the snapshot belongs to; also its ID.
+     * @param sequence     The sequence of the last ledger entry included in the balance.
+     * @param balanceCents The balance in cents after that entry.
+     */
+    public WalletSnapshot(int customerId, long sequence, long balanceCents) {
+        this.customerId = customerId;
+        this.sequence = sequence;
+        this.balanceCents = balanceCents;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Money getBalance() {
+        return Money.ofCents(balanceCents);
+    }
+
+    @Override
+    public Integer getId() {
+        return customerId;
+    }
+
+    @Override
+    public String toString() {
+        return "WalletSnapshot{" +
+                "customerId=" + customerId +
+                ", sequence=" + sequence +
+                ", balance=" + getBalance() +
+                '}';
+    }
+}
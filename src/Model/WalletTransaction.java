@@ -0,0 +1,103 @@
+package Model;
+
+import java.time.Instant;
+
+/**
+ * An entry of the append-only wallet ledger. Entries are never modified after they are written;
+ * a customer's balance is the sum of their entries.
+ */
+public class WalletTransaction implements HasId {
+    // Pinned to the value the class computed as first written, so existing ledger files still load.
+    private static final long serialVersionUID = 1615306062603382135L;
+
+    /**
+     * The kinds of wallet entries.
+     */
+    public enum Type {
+        TOP_UP, PURCHASE, REFUND
+    }
+
+    private final int transactionId;
+    private final int customerId;
+    private final long sequence;
+    private final Type type;
+    private final long amountCents;
+    private final long balanceAfterCents;
+    private final String reference;
+    private final Instant timestamp;
+
+    /**
+     * Constructs a WalletTransaction.
+     *
+     * @param transactionId     The unique identifier of the entry.
+     * @param customerId        The customer whose wallet changed.
+     * @param sequence          The position of the entry in the customer's ledger, starting at 1.
+     * @param type              The kind of entry.
+     * @param amountCents       The signed change in cents: positive for top-ups and refunds, negative for purchases.
+     * @param balanceAfterCents The balance in cents right after this entry.
+     * @param reference         What the entry is for, such as the payment method or the shopping cart.
+     * @param timestamp         When the entry was written.
+     */
+    public WalletTransaction(int transactionId, int customerId, long sequence, Type type, long amountCents,
+                             long balanceAfterCents, String reference, Instant timestamp) {
+        this.transactionId = transactionId;
+        this.customerId = customerId;
+        this.sequence = sequence;
+        this.type = type;
+        this.amountCents = amountCents;
+        this.balanceAfterCents = balanceAfterCents;
+        this.reference = reference;
+        this.timestamp = timestamp;
+    }
+
+    public int getTransactionId() {
+        return transactionId;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Money getAmount() {
+        return Money.ofCents(amountCents);
+    }
+
+    public Money getBalanceAfter() {
+        return Money.ofCents(balanceAfterCents);
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public Integer getId() {
+        return transactionId;
+    }
+
+    @Override
+    public String toString() {
+        return "WalletTransaction{" +
+                "transactionId=" + transactionId +
+                ", customerId=" + customerId +
+                ", sequence=" + sequence +
+                ", type=" + type +
+                ", amount=" + getAmount() +
+                ", balanceAfter=" + getBalanceAfter() +
+                ", reference='" + reference + '\'' +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -2,9 +2,16 @@ package Presentation;
 
 import Controller.AdminController;
 import Controller.GameController;
-import Model.Admin;
-
+import Controller.MetricsController;
+import Model.GameGenre;
+import Model.GameSelector;
+import Service.BulkDiscountResult;
+import Service.Session;
+
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
 import java.util.Scanner;
+import java.util.Set;
 
 /**
  * Handles the admin-specific menu and its operations, such as viewing, deleting games,
@@ -13,7 +20,9 @@ import java.util.Scanner;
 public class AdminMenu {
     private final AdminController adminController;
     private final GameController gameController;
+    private final MetricsController metricsController;
     private final MainMenu mainMenu;
+    private final Session session;
     private final Scanner scanner = new Scanner(System.in);
 
     /**
@@ -21,14 +30,16 @@ public class AdminMenu {
      *
      * @param adminController  The controller for admin-specific operations.
      * @param gameController   The controller for game operations.
+     * @param metricsController The controller for repository metrics.
      * @param mainMenu         The main menu reference.
-     * @param loggedInAdmin    The currently logged-in admin.
+     * @param session          The session of the logged-in admin.
      */
-    public AdminMenu(AdminController adminController, GameController gameController, MainMenu mainMenu, Admin loggedInAdmin) {
+    public AdminMenu(AdminController adminController, GameController gameController, MetricsController metricsController, MainMenu mainMenu, Session session) {
         this.adminController = adminController;
         this.gameController = gameController;
+        this.metricsController = metricsController;
         this.mainMenu = mainMenu;
-        this.adminController.setLoggedInAdmin(loggedInAdmin);
+        this.session = session;
     }
 
     /**
@@ -43,8 +54,10 @@ public class AdminMenu {
             System.out.println("4. Apply Discount");
             System.out.println("5. Delete Account");
             System.out.println("6. Delete Any Account by Email");
-            System.out.println("7. Log Out");
-            System.out.println("8. Exit\n");
+            System.out.println("7. View Repository Metrics");
+            System.out.println("8. Apply Bulk Discount");
+            System.out.println("9. Log Out");
+            System.out.println("10. Exit\n");
             System.out.print("Select option: ");
             int option = scanner.nextInt();
             scanner.nextLine();
@@ -54,10 +67,12 @@ public class AdminMenu {
                 case 2 -> mainMenu.handleViewGame(gameController);
                 case 3 -> handleDeleteGame();
                 case 4 -> handleApplyDiscount();
-                case 5 -> {mainMenu.handleDeleteAccount(); return;}
+                case 5 -> {mainMenu.handleDeleteAccount(session); return;}
                 case 6 -> handleDeleteAnyAccount();
-                case 7 -> {mainMenu.handleLogOut(); return;}
-                case 8 -> mainMenu.exitApp();
+                case 7 -> handleViewMetrics();
+                case 8 -> handleApplyBulkDiscount();
+                case 9 -> {mainMenu.handleLogOut(session); return;}
+                case 10 -> mainMenu.exitApp();
                 default -> System.out.println("Invalid option. Try again.");
             }
         }
@@ -73,7 +88,7 @@ public class AdminMenu {
         System.out.print("Enter Game ID to delete: ");
         int gameId = scanner.nextInt();
         scanner.nextLine();
-        adminController.deleteGame(gameId);
+        adminController.deleteGame(session, gameId);
         System.out.println("Game with ID " + gameId + " has been successfully deleted.");
     }
 
@@ -88,10 +103,64 @@ public class AdminMenu {
         System.out.print("Enter Discount Percentage: ");
         float discount = scanner.nextFloat();
         scanner.nextLine();
-        adminController.applyDiscountToGame(gameId, discount);
+        adminController.applyDiscountToGame(session, gameId, discount);
         System.out.println("Discount applied successfully.");
     }
 
+    //8
+    /**
+     * Handles applying one discount to a selection of games.
+     * Prompts the admin for how to select the games and the discount percentage,
+     * and prints progress for large selections.
+     */
+    private void handleApplyBulkDiscount() {
+        System.out.println("Select games by: 1. Genre  2. Developer ID  3. Price range  4. Game IDs");
+        System.out.print("Select option: ");
+        int option = scanner.nextInt();
+        scanner.nextLine();
+        GameSelector selector;
+        switch (option) {
+            case 1 -> {
+                System.out.print("Enter Genre: ");
+                selector = GameSelector.byGenre(GameGenre.valueOf(scanner.nextLine().trim().toUpperCase()));
+            }
+            case 2 -> {
+                System.out.print("Enter Developer ID: ");
+                selector = GameSelector.byDeveloper(scanner.nextInt());
+                scanner.nextLine();
+            }
+            case 3 -> {
+                System.out.print("Enter minimum price: ");
+                float min = scanner.nextFloat();
+                System.out.print("Enter maximum price: ");
+                float max = scanner.nextFloat();
+                scanner.nextLine();
+                selector = GameSelector.byPriceRange(min, max);
+            }
+            case 4 -> {
+                System.out.print("Enter Game IDs separated by commas: ");
+                Set<Integer> ids = new LinkedHashSet<>();
+                for (String id : scanner.nextLine().split(",")) {
+                    ids.add(Integer.parseInt(id.trim()));
+                }
+                selector = GameSelector.byIds(ids);
+            }
+            default -> {
+                System.out.println("Invalid option.");
+                return;
+            }
+        }
+        System.out.print("Enter Discount Percentage: ");
+        float discount = scanner.nextFloat();
+        scanner.nextLine();
+        BulkDiscountResult result = adminController.applyBulkDiscount(session, selector, discount, (completed, total) -> {
+            if (total >= 10_000) {
+                System.out.println("Processed " + completed + " of " + total + " games...");
+            }
+        });
+        System.out.println("Discount applied to " + result.getChangedCount() + " of " + result.getSelectedCount() + " selected games.");
+    }
+
     //5
     /**
      * Handles the deletion of any account by its email.
@@ -109,6 +178,21 @@ public class AdminMenu {
         }
     }
 
+    //7
+    /**
+     * Displays the repository metrics and optionally writes them to a file
+     * in the Prometheus text format.
+     */
+    private void handleViewMetrics() {
+        System.out.println(metricsController.getMetricsTable(session));
+        System.out.print("Enter a file to dump the metrics to (leave empty to skip): ");
+        String file = scanner.nextLine().trim();
+        if (!file.isEmpty()) {
+            metricsController.dumpMetrics(session, Path.of(file));
+            System.out.println("Metrics written to " + file + ".");
+        }
+    }
+
 
 
 
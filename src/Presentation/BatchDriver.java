@@ -0,0 +1,451 @@
+package Presentation;
+
+import Metrics.SlowOperationLog;
+import Model.Game;
+import Model.GameGenre;
+import Service.Session;
+import Tracing.Tracer;
+import Exception.ValidationException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-interactive driver that replays a command script straight through the controllers,
+ * with no prompting. It reports latency per command and throughput for the whole run.
+ *
+ * A script has one command per line. Blank lines and lines starting with '#' are ignored.
+ * Arguments are separated by whitespace, and double quotes group an argument that contains spaces.
+ *
+ * <pre>
+ * signup &lt;username&gt; &lt;email&gt; &lt;password&gt;
+ * login &lt;email&gt; &lt;password&gt;         (becomes the current session)
+ * use &lt;email&gt;                      (switches to another logged-in session)
+ * logout
+ * games | search &lt;name&gt; | sort name|price | filter genre &lt;GENRE&gt; | filter price &lt;min&gt; &lt;max&gt;
+ * fund &lt;paymentMethod&gt; &lt;amount&gt; | balance | library | orders
+ * add &lt;gameId&gt; | remove &lt;gameId&gt; | total | checkout | clear
+ * review &lt;gameId&gt; &lt;rating&gt; | reviews &lt;gameId&gt;
+ * publish &lt;name&gt; &lt;genre&gt; &lt;price&gt; &lt;description&gt;     (developer)
+ * discount &lt;gameId&gt; &lt;percentage&gt; | delete-game &lt;gameId&gt;   (admin)
+ * </pre>
+ *
+ * Usage: java Presentation.BatchDriver &lt;script&gt; [memory|file] [--echo]
+ */
+public class BatchDriver {
+    private static final Map<String, Integer> ARITY = new HashMap<>();
+
+    static {
+        ARITY.put("signup", 3);
+        ARITY.put("login", 2);
+        ARITY.put("use", 1);
+        ARITY.put("logout", 0);
+        ARITY.put("games", 0);
+        ARITY.put("search", 1);
+        ARITY.put("sort", 1);
+        ARITY.put("filter", 2);
+        ARITY.put("fund", 2);
+        ARITY.put("balance", 0);
+        ARITY.put("library", 0);
+        ARITY.put("orders", 0);
+        ARITY.put("add", 1);
+        ARITY.put("remove", 1);
+        ARITY.put("total", 0);
+        ARITY.put("checkout", 0);
+        ARITY.put("clear", 0);
+        ARITY.put("review", 2);
+        ARITY.put("reviews", 1);
+        ARITY.put("publish", 4);
+        ARITY.put("discount", 2);
+        ARITY.put("delete-game", 1);
+    }
+
+    private final StoreContext context;
+    private final Map<String, Session> sessions = new HashMap<>();
+    private Session current;
+
+    /**
+     * Constructs a BatchDriver over the controllers of a store context.
+     *
+     * @param context The store to run the script against.
+     */
+    public BatchDriver(StoreContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Parses a script into commands without running it.
+     *
+     * @param lines The lines of the script.
+     * @return The parsed commands.
+     * @throws ValidationException if a line holds an unknown command or the wrong number of arguments.
+     */
+    public static List<Command> parse(List<String> lines) {
+        List<Command> commands = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            List<String> tokens = tokenize(line, i + 1);
+            String name = tokens.get(0).toLowerCase();
+            Integer arity = ARITY.get(name);
+            if (arity == null) {
+                throw new ValidationException("Line " + (i + 1) + ": unknown command '" + name + "'");
+            }
+            String[] args = tokens.subList(1, tokens.size()).toArray(new String[0]);
+            boolean priceFilter = name.equals("filter") && args.length == 3 && args[0].equalsIgnoreCase("price");
+            if (args.length != arity && !priceFilter) {
+                throw new ValidationException("Line " + (i + 1) + ": '" + name + "' expects " + arity + " argument(s)");
+            }
+            commands.add(new Command(i + 1, name, args));
+        }
+        return commands;
+    }
+
+    /**
+     * Runs a script, timing each command. A command that fails is counted as an error
+     * and the run continues with the next one.
+     *
+     * @param lines The lines of the script.
+     * @param echo  Whether to print each command's result or error as it runs.
+     * @return The report of the run.
+     */
+    public Report run(List<String> lines, PrintStream echo) {
+        List<Command> commands = parse(lines);
+        Report report = new Report();
+        long begin = System.nanoTime();
+        for (Command command : commands) {
+            long start = System.nanoTime();
+            String error = null;
+            Object result = null;
+            try {
+                result = execute(command);
+            } catch (RuntimeException e) {
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+            report.record(command, System.nanoTime() - start, error);
+            if (echo != null) {
+                echo.println("[" + command.line + "] " + command.name + " -> " + (error != null ? "ERROR " + error : result));
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - begin;
+        return report;
+    }
+
+    /**
+     * Executes one command against the controllers.
+     *
+     * @return A short description of the result.
+     */
+    private Object execute(Command command) {
+        String[] a = command.args;
+        switch (command.name) {
+            case "signup" -> {
+                return context.getAccountController().signUp(a[0], a[1], a[2]);
+            }
+            case "login" -> {
+                current = context.getAccountController().logIn(a[0], a[1]);
+                sessions.put(a[0], current);
+                return current.getUser().getUsername();
+            }
+            case "use" -> {
+                Session session = sessions.get(a[0]);
+                if (session == null) {
+                    throw new ValidationException("No session for " + a[0]);
+                }
+                current = session;
+                return a[0];
+            }
+            case "logout" -> {
+                boolean loggedOut = context.getAccountController().logOut(session());
+                sessions.values().remove(current);
+                current = null;
+                return loggedOut;
+            }
+            case "games" -> {
+                return context.getGameController().getAllGames().size();
+            }
+            case "search" -> {
+                return context.getCustomerController().searchGameByName(session(), a[0]).size();
+            }
+            case "sort" -> {
+                return ("price".equalsIgnoreCase(a[0])
+                        ? context.getCustomerController().sortGamesByPriceDescending()
+                        : context.getCustomerController().sortGamesByNameAscending()).size();
+            }
+            case "filter" -> {
+                if (a[0].equalsIgnoreCase("price")) {
+                    return context.getCustomerController().filterGamesByPriceRange(parseFloat(a[1]), parseFloat(a[2])).size();
+                }
+                return context.getCustomerController().filterGamesByGenre(a[1]).size();
+            }
+            case "fund" -> {
+                context.getCustomerController().addFundsToWallet(session(), a[0], parseFloat(a[1]));
+                return context.getCustomerController().getWalletBalance(session());
+            }
+            case "balance" -> {
+                return context.getCustomerController().getWalletBalance(session());
+            }
+            case "library" -> {
+                return context.getCustomerController().viewGamesLibrary(session()).size();
+            }
+            case "orders" -> {
+                return context.getShoppingCartController().getAllOrdersByCustomer(session().getCustomer()).size();
+            }
+            case "add" -> {
+                context.getShoppingCartController().addGameToCart(cartId(), parseInt(a[0]));
+                return "ok";
+            }
+            case "remove" -> {
+                context.getShoppingCartController().removeGameFromCart(cartId(), parseInt(a[0]));
+                return "ok";
+            }
+            case "total" -> {
+                return context.getShoppingCartController().getCartTotalPrice(cartId());
+            }
+            case "checkout" -> {
+                context.getShoppingCartController().checkout(cartId());
+                return "ok";
+            }
+            case "clear" -> {
+                context.getShoppingCartController().clearCart(cartId());
+                return "ok";
+            }
+            case "review" -> {
+                context.getReviewController().leaveReview(session(), parseInt(a[0]), parseInt(a[1]));
+                return "ok";
+            }
+            case "reviews" -> {
+                return context.getReviewController().getReviewsForGame(parseInt(a[0])).size();
+            }
+            case "publish" -> {
+                Game game = new Game(null, a[0], a[3], GameGenre.valueOf(a[1].toUpperCase()), parseFloat(a[2]), null);
+                context.getDeveloperController().publishGame(session(), game);
+                return "ok";
+            }
+            case "discount" -> {
+                context.getAdminController().applyDiscountToGame(session(), parseInt(a[0]), parseFloat(a[1]));
+                return "ok";
+            }
+            case "delete-game" -> {
+                context.getAdminController().deleteGame(session(), parseInt(a[0]));
+                return "ok";
+            }
+            default -> throw new ValidationException("Unknown command: " + command.name);
+        }
+    }
+
+    private Session session() {
+        if (current == null) {
+            throw new ValidationException("No user is logged in.");
+        }
+        return current;
+    }
+
+    private int cartId() {
+        return context.getCustomerController().getShoppingCartId(session());
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Expected an integer but got: " + value);
+        }
+    }
+
+    private static float parseFloat(String value) {
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Expected a number but got: " + value);
+        }
+    }
+
+    /**
+     * Splits a line on whitespace, keeping double-quoted text together.
+     */
+    private static List<String> tokenize(String line, int lineNumber) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean hasToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                hasToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (hasToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    hasToken = false;
+                }
+            } else {
+                token.append(c);
+                hasToken = true;
+            }
+        }
+        if (quoted) {
+            throw new ValidationException("Line " + lineNumber + ": unterminated quote");
+        }
+        if (hasToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java Presentation.BatchDriver <script> [memory|file] [--echo]");
+            return;
+        }
+        List<String> flags = Arrays.asList(args).subList(1, args.length);
+        boolean echo = flags.contains("--echo");
+        Tracer.configureFromSystemProperties();
+        SlowOperationLog.configureFromSystemProperties();
+        StoreContext context = flags.contains("file") ? StoreContext.inFile() : StoreContext.inMemory();
+        List<String> lines = Files.readAllLines(Path.of(args[0]));
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Report report;
+        try {
+            context.initializeGames();
+            report = new BatchDriver(context).run(lines, echo ? out : null);
+        } finally {
+            System.setOut(out);
+        }
+        report.print(out);
+    }
+
+    /**
+     * A parsed script command.
+     */
+    public static class Command {
+        private final int line;
+        private final String name;
+        private final String[] args;
+
+        Command(int line, String name, String[] args) {
+            this.line = line;
+            this.name = name;
+            this.args = args;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Latency samples and error count for one command name.
+     */
+    public static class CommandStats {
+        private final List<Long> samples = new ArrayList<>();
+        private int errors;
+
+        public int getCount() {
+            return samples.size();
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * Gets a latency percentile.
+         *
+         * @param percentile The percentile, between 0 and 100.
+         * @return The latency in nanoseconds.
+         */
+        public long percentileNanos(double percentile) {
+            if (samples.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(samples);
+            sorted.sort(null);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+        }
+
+        public long meanNanos() {
+            long total = 0;
+            for (long sample : samples) {
+                total += sample;
+            }
+            return samples.isEmpty() ? 0 : total / samples.size();
+        }
+    }
+
+    /**
+     * The outcome of a batch run: per-command latency, errors and total throughput.
+     */
+    public static class Report {
+        private final Map<String, CommandStats> stats = new LinkedHashMap<>();
+        private final List<String> errors = new ArrayList<>();
+        private long elapsedNanos;
+
+        private void record(Command command, long nanos, String error) {
+            CommandStats commandStats = stats.computeIfAbsent(command.name, name -> new CommandStats());
+            commandStats.samples.add(nanos);
+            if (error != null) {
+                commandStats.errors++;
+                errors.add("line " + command.line + " (" + command.name + "): " + error);
+            }
+        }
+
+        public Map<String, CommandStats> getStats() {
+            return stats;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public int getCommandCount() {
+            int count = 0;
+            for (CommandStats commandStats : stats.values()) {
+                count += commandStats.getCount();
+            }
+            return count;
+        }
+
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : getCommandCount() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * Prints the per-command latency table, the throughput and the errors.
+         *
+         * @param out The stream to print to.
+         */
+        public void print(PrintStream out) {
+            out.printf("%-12s %7s %7s %10s %10s %10s %10s%n", "command", "count", "errors", "mean(us)", "p50(us)", "p99(us)", "max(us)");
+            for (Map.Entry<String, CommandStats> entry : stats.entrySet()) {
+                CommandStats s = entry.getValue();
+                out.printf("%-12s %7d %7d %10.1f %10.1f %10.1f %10.1f%n", entry.getKey(), s.getCount(), s.getErrors(),
+                        s.meanNanos() / 1e3, s.percentileNanos(50) / 1e3, s.percentileNanos(99) / 1e3, s.percentileNanos(100) / 1e3);
+            }
+            out.printf("%d commands in %.1f ms (%.0f commands/sec), %d error(s)%n",
+                    getCommandCount(), elapsedNanos / 1e6, getThroughput(), errors.size());
+            for (String error : errors) {
+                out.println("  " + error);
+            }
+        }
+    }
+}
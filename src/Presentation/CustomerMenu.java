@@ -6,9 +6,11 @@ import Controller.ReviewController;
 import Controller.ShoppingCartController;
 import Model.Customer;
 import Model.Game;
+import Model.Money;
 import Model.Review;
 import Exception.EntityNotFoundException;
 import Exception.ValidationException;
+import Service.Session;
 import Model.Order;
 import Model.ShoppingCart;
 
@@ -25,6 +27,7 @@ public class CustomerMenu {
     private final ShoppingCartController shoppingCartController;
     private final ReviewController reviewController;
     private final MainMenu mainMenu;
+    private final Session session;
     private final Scanner scanner = new Scanner(System.in);
 
     /**
@@ -33,18 +36,17 @@ public class CustomerMenu {
      * @param customerController       The controller for customer-specific operations.
      * @param gameController           The controller for game operations.
      * @param mainMenu                 The main menu reference.
-     * @param loggedInCustomer         The currently logged-in customer.
+     * @param session                  The session of the logged-in customer.
      * @param shoppingCartController   The controller for shopping cart operations.
      * @param reviewController         The controller for review operations.
      */
-    public CustomerMenu(CustomerController customerController, GameController gameController, MainMenu mainMenu, Customer loggedInCustomer, ShoppingCartController shoppingCartController, ReviewController reviewController) {
+    public CustomerMenu(CustomerController customerController, GameController gameController, MainMenu mainMenu, Session session, ShoppingCartController shoppingCartController, ReviewController reviewController) {
         this.customerController = customerController;
         this.gameController = gameController;
         this.mainMenu = mainMenu;
         this.shoppingCartController = shoppingCartController;
         this.reviewController = reviewController;
-        this.customerController.setLoggedInCustomer(loggedInCustomer);
-        this.reviewController.setLoggedInCustomer(loggedInCustomer);
+        this.session = session;
     }
 
     //MENUS
@@ -80,11 +82,11 @@ public class CustomerMenu {
                 case 7 -> handleShoppingCartMenu();
                 case 8 -> handleViewCustomerOrderHistory();
                 case 9 -> {
-                    mainMenu.handleDeleteAccount();
+                    mainMenu.handleDeleteAccount(session);
                     return;
                 }
                 case 10 -> {
-                    mainMenu.handleLogOut();
+                    mainMenu.handleLogOut(session);
                     return;
                 }
                 case 11 -> mainMenu.exitApp();
@@ -230,7 +232,7 @@ public class CustomerMenu {
         String gameName = scanner.nextLine().trim();
 
         try {
-            List<Game> matchingGames = customerController.searchGameByName(gameName);
+            List<Game> matchingGames = customerController.searchGameByName(session, gameName);
             if (matchingGames.isEmpty()) {
                 throw new EntityNotFoundException("No games found with the name: " + gameName);
             } else {
@@ -391,7 +393,7 @@ public class CustomerMenu {
         scanner.nextLine();
 
         try {
-            customerController.addFundsToWallet(paymentMethod, amount);
+            customerController.addFundsToWallet(session, paymentMethod, amount);
         } catch (IllegalArgumentException | IllegalStateException e) {
             System.out.println("Error: " + e.getMessage());
         }
@@ -404,7 +406,7 @@ public class CustomerMenu {
      */
     private void handleViewWalletBalance() {
         try {
-            float balance = customerController.getWalletBalance();
+            Money balance = customerController.getWalletBalance(session);
             System.out.println("Your current wallet balance is: $" + balance);
         } catch (IllegalStateException e) {
             System.out.println("Error: " + e.getMessage());
@@ -419,7 +421,7 @@ public class CustomerMenu {
      */
     private void handleViewGamesLibrary() {
         try {
-            List<Game> gamesLibrary = customerController.viewGamesLibrary();
+            List<Game> gamesLibrary = customerController.viewGamesLibrary(session);
             if (gamesLibrary.isEmpty()) {
                 throw new EntityNotFoundException("Your Game Library is empty.");
             } else {
@@ -467,7 +469,7 @@ public class CustomerMenu {
             int rating = scanner.nextInt();
             scanner.nextLine();
 
-            reviewController.leaveReview(gameId, rating);
+            reviewController.leaveReview(session, gameId, rating);
             System.out.println("Review successfully added!\n");
         } catch (Exception e) {
             System.out.println("An unexpected error occurred: " + e.getMessage());
@@ -532,7 +534,7 @@ public class CustomerMenu {
      */
     private void handleViewCart() {
         try {
-            int shoppingCartId = customerController.getShoppingCartId();
+            int shoppingCartId = customerController.getShoppingCartId(session);
             ShoppingCart cart = shoppingCartController.getShoppingCart(shoppingCartId);
             List<Game> gamesInCart = cart.getListOfGames();
 
@@ -543,6 +545,7 @@ public class CustomerMenu {
                 for (Game game : gamesInCart) {
                     System.out.println("- " + game.getGameName() + " ($" + game.getPrice() + ")");
                 }
+                System.out.println("Subtotal: $" + cart.getSubtotal() + ", total after discounts: $" + cart.getTotal());
             }
         } catch (IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
@@ -563,7 +566,7 @@ public class CustomerMenu {
         scanner.nextLine();
 
         try {
-            int shoppingCartId = customerController.getShoppingCartId();
+            int shoppingCartId = customerController.getShoppingCartId(session);
             shoppingCartController.addGameToCart(shoppingCartId, gameId);
             System.out.println("Game successfully added to your cart!");
         } catch (IllegalArgumentException e) {
@@ -585,7 +588,7 @@ public class CustomerMenu {
         scanner.nextLine();
 
         try {
-            int shoppingCartId = customerController.getShoppingCartId();
+            int shoppingCartId = customerController.getShoppingCartId(session);
             shoppingCartController.removeGameFromCart(shoppingCartId, gameId);
             System.out.println("Game successfully removed from your cart!");
         } catch (IllegalArgumentException e) {
@@ -603,9 +606,9 @@ public class CustomerMenu {
      */
     private void handleViewCartTotalPrice() {
         try {
-            int shoppingCartId = customerController.getShoppingCartId();
+            int shoppingCartId = customerController.getShoppingCartId(session);
 
-            float totalPrice = shoppingCartController.getCartTotalPrice(shoppingCartId);
+            Money totalPrice = shoppingCartController.getCartTotalPrice(shoppingCartId);
 
             System.out.println("Total price of the games in your cart: $" + totalPrice);
         } catch (IllegalArgumentException e) {
@@ -623,7 +626,7 @@ public class CustomerMenu {
      */
     private void handleCheckout() {
         try {
-            int shoppingCartId = customerController.getShoppingCartId();
+            int shoppingCartId = customerController.getShoppingCartId(session);
             shoppingCartController.checkout(shoppingCartId);
             System.out.println("Checkout completed successfully!");
         } catch (IllegalArgumentException e) {
@@ -639,7 +642,7 @@ public class CustomerMenu {
      */
     private void handleViewCustomerOrderHistory() {
         try {
-            Customer loggedInCustomer = customerController.getLoggedInCustomer();
+            Customer loggedInCustomer = session.getCustomer();
             if (loggedInCustomer == null) {
                 throw new EntityNotFoundException("No customer is currently logged in.");
             }
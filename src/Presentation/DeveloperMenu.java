@@ -2,10 +2,10 @@ package Presentation;
 
 import Controller.DeveloperController;
 import Controller.GameController;
-import Model.Developer;
 import Model.Game;
 import Model.GameGenre;
 import Exception.*;
+import Service.Session;
 
 import java.util.List;
 import java.util.Scanner;
@@ -18,6 +18,7 @@ public class DeveloperMenu {
     private final DeveloperController developerController;
     private final GameController gameController;
     private final MainMenu mainMenu;
+    private final Session session;
     private final Scanner scanner = new Scanner(System.in);
 
     /**
@@ -26,13 +27,13 @@ public class DeveloperMenu {
      * @param developerController The controller for developer operations.
      * @param gameController      The controller for game operations.
      * @param mainMenu            The main menu reference.
-     * @param loggedInDeveloper   The currently logged-in developer.
+     * @param session             The session of the logged-in developer.
      */
-    public DeveloperMenu(DeveloperController developerController, GameController gameController, MainMenu mainMenu, Developer loggedInDeveloper) {
+    public DeveloperMenu(DeveloperController developerController, GameController gameController, MainMenu mainMenu, Session session) {
         this.developerController = developerController;
         this.gameController = gameController;
         this.mainMenu = mainMenu;
-        this.developerController.setDeveloper(loggedInDeveloper);
+        this.session = session;
     }
 
     /**
@@ -59,8 +60,8 @@ public class DeveloperMenu {
                 case 3 -> handlePublishGame();
                 case 4 -> handleModifyGame();
                 case 5 -> handleViewPublishedGames();
-                case 6 -> {mainMenu.handleDeleteAccount(); return;}
-                case 7 -> {mainMenu.handleLogOut(); return;}
+                case 6 -> {mainMenu.handleDeleteAccount(session); return;}
+                case 7 -> {mainMenu.handleLogOut(session); return;}
                 case 8 -> System.exit(0);
                 default -> System.out.println("Invalid option. Try again.");
             }
@@ -85,7 +86,7 @@ public class DeveloperMenu {
         scanner.nextLine();
 
         Game game = new Game(null, name, description, GameGenre.valueOf(genre), price , null);
-        developerController.publishGame(game);
+        developerController.publishGame(session, game);
         System.out.println("Game published successfully.");
     }
 
@@ -109,7 +110,7 @@ public class DeveloperMenu {
         float price = scanner.nextFloat();
         scanner.nextLine();
 
-        developerController.modifyGame(gameId, name, description, genre, price);
+        developerController.modifyGame(session, gameId, name, description, genre, price);
     }
 
     //5
@@ -119,7 +120,7 @@ public class DeveloperMenu {
      */
     private void handleViewPublishedGames() {
         try {
-            List<Game> publishedGames = developerController.getPublishedGames();
+            List<Game> publishedGames = developerController.getPublishedGames(session);
             if (publishedGames.isEmpty()) {
                 System.out.println("No games have been published yet.");
             } else {
@@ -3,6 +3,7 @@ package Presentation;
 import Controller.*;
 import Model.*;
 import Exception.*;
+import Service.Session;
 
 import java.util.List;
 import java.util.Scanner;
@@ -20,6 +21,7 @@ public class MainMenu {
     private final CustomerController customerController;
     private final ShoppingCartController shoppingCartController;
     private final ReviewController reviewController;
+    private final MetricsController metricsController;
     private final Scanner scanner = new Scanner(System.in);
 
     /**
@@ -32,9 +34,10 @@ public class MainMenu {
      * @param customerController       Controller for customer-specific operations.
      * @param shoppingCartController   Controller for shopping cart-related operations.
      * @param reviewController         Controller for review-related operations.
+     * @param metricsController        Controller for repository metrics.
      */
     public MainMenu(AccountController accountController, GameController gameController,
-                    AdminController adminController, DeveloperController developerController, CustomerController customerController, ShoppingCartController shoppingCartController, ReviewController reviewController) {
+                    AdminController adminController, DeveloperController developerController, CustomerController customerController, ShoppingCartController shoppingCartController, ReviewController reviewController, MetricsController metricsController) {
         this.accountController = accountController;
         this.gameController = gameController;
         this.adminController = adminController;
@@ -42,6 +45,7 @@ public class MainMenu {
         this.customerController = customerController;
         this.shoppingCartController = shoppingCartController;
         this.reviewController = reviewController;
+        this.metricsController = metricsController;
     }
 
     /**
@@ -108,20 +112,18 @@ public class MainMenu {
             System.out.print("Enter password: ");
             String password = scanner.nextLine();
 
-            if (accountController.logIn(email, password)) {
+            Session session = accountController.logIn(email, password);
+            if (session != null) {
                 System.out.println("Login successful!");
-                User loggedInUser = accountController.getLoggedInUser();
+                User loggedInUser = session.getUser();
                 if ("Admin".equals(loggedInUser.getRole())) {
-                    Admin loggedInAdmin = (Admin) loggedInUser;
-                    AdminMenu adminMenu = new AdminMenu(adminController, gameController, this, loggedInAdmin);
+                    AdminMenu adminMenu = new AdminMenu(adminController, gameController, metricsController, this, session);
                     adminMenu.start();
                 } else if ("Developer".equals(loggedInUser.getRole())) {
-                    Developer loggedInDeveloper = (Developer) loggedInUser;
-                    DeveloperMenu developerMenu = new DeveloperMenu(developerController, gameController, this, loggedInDeveloper);
+                    DeveloperMenu developerMenu = new DeveloperMenu(developerController, gameController, this, session);
                     developerMenu.start();
                 } else if ("Customer".equals(loggedInUser.getRole())) {
-                    Customer loggedInCustomer = (Customer) loggedInUser;
-                    CustomerMenu customerMenu = new CustomerMenu(customerController, gameController, this, loggedInCustomer, shoppingCartController, reviewController);
+                    CustomerMenu customerMenu = new CustomerMenu(customerController, gameController, this, session, shoppingCartController, reviewController);
                     customerMenu.start();
                 } else {
                     throw new BusinessLogicException("Unknown role. Returning to Main Menu.");
@@ -142,11 +144,12 @@ public class MainMenu {
      * If successful, a success message is displayed.
      * If no user is logged in, a BusinessLogicException message is shown.
      *
+     * @param session The session to close.
      * @throws BusinessLogicException if no user is currently logged in.
      */
-    public void handleLogOut() {
+    public void handleLogOut(Session session) {
         try {
-            boolean success = accountController.logOut();
+            boolean success = accountController.logOut(session);
             if (success) {
                 System.out.println("You have been logged out successfully.");
             } else {
@@ -231,14 +234,16 @@ public class MainMenu {
      * If the account is successfully deleted, a success message is displayed, and the user is returned to the main menu.
      * If the deletion fails, an error message is shown.
      * If the user cancels the operation, a cancellation message is displayed.
+     *
+     * @param session The session of the user whose account is deleted.
      */
-    public void handleDeleteAccount() {
+    public void handleDeleteAccount(Session session) {
         try {
             System.out.print("Are you sure you want to delete your account? (yes/no): ");
             String confirmation = scanner.nextLine().trim().toLowerCase();
 
             if (confirmation.equals("yes")) {
-                boolean success = accountController.deleteAccount();
+                boolean success = accountController.deleteAccount(session);
                 if (success) {
                     System.out.println("Your account has been successfully deleted.");
                     System.out.println("Returning to Main Menu...");
@@ -0,0 +1,487 @@
+package Presentation;
+
+import Controller.*;
+import Metrics.MetricsRegistry;
+import Model.*;
+import Repository.FileRepository;
+import Repository.FlightRecorderRepository;
+import Repository.IRepository;
+import Repository.InMemoryRepository;
+import Repository.IndexedRepository;
+import Repository.JournaledRepository;
+import Repository.MetricsRepository;
+import Repository.TracingRepository;
+import Repository.WriteAheadJournal;
+import Service.*;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Wires the repositories, services and controllers of the store for one repository backend.
+ * Every front end (the console menus, the HTTP server and the batch and load-test drivers)
+ * builds its object graph through this class so they all run against the same setup.
+ */
+public class StoreContext {
+    private static final Duration CART_COMPACTION_INTERVAL = Duration.ofHours(1);
+    private static final Duration SESSION_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final Path JOURNAL_PATH = Path.of("store.journal");
+    private static final Set<String> JOURNALED_REPOSITORIES = Set.of("customers", "shoppingCarts", "orders", "walletTransactions", "walletSnapshots", "purchaseEvents");
+
+    private final IRepository<Game> gameRepository;
+    private final IRepository<User> userRepository;
+    private final IRepository<Admin> adminRepository;
+    private final IRepository<Developer> developerRepository;
+    private final IRepository<Discount> discountRepository;
+    private final IRepository<Customer> customerRepository;
+    private final IRepository<Review> reviewRepository;
+    private final IRepository<PaymentMethod> paymentMethodRepository;
+    private final IRepository<ShoppingCart> shoppingCartRepository;
+    private final IRepository<Order> orderRepository;
+    private final IRepository<WalletTransaction> walletTransactionRepository;
+    private final IRepository<WalletSnapshot> walletSnapshotRepository;
+    private final IRepository<DiscountCampaign> campaignRepository;
+    private final IRepository<ShoppingCart> shoppingCartArchiveRepository;
+    private final IRepository<PurchaseEvent> purchaseEventRepository;
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    private final AccountService accountService;
+    private final GameService gameService;
+    private final AdminService adminService;
+    private final DeveloperService developerService;
+    private final CustomerService customerService;
+    private final ShoppingCartService shoppingCartService;
+    private final OrderService orderService;
+    private final ReviewService reviewService;
+    private final MetricsService metricsService;
+    private final WalletLedger walletLedger;
+    private final PricingEngine pricingEngine = new PricingEngine();
+    private final CampaignService campaignService;
+    private final CartLifecycleManager cartLifecycleManager;
+    private final PurchaseEventStore purchaseEventStore;
+    private final CustomerLibraryProjection libraryProjection = new CustomerLibraryProjection();
+    private final OrderHistoryProjection orderHistoryProjection = new OrderHistoryProjection();
+    private final SalesAnalytics salesAnalytics = new SalesAnalytics();
+    private final OrderPipeline orderPipeline;
+    private final WriteAheadJournal journal;
+
+    private final AccountController accountController;
+    private final GameController gameController;
+    private final AdminController adminController;
+    private final DeveloperController developerController;
+    private final CustomerController customerController;
+    private final ShoppingCartController shoppingCartController;
+    private final ReviewController reviewController;
+    private final MetricsController metricsController;
+    private final CampaignController campaignController;
+
+    /**
+     * Creates a context backed by in-memory repositories. Accepted orders are persisted on the
+     * checkout thread, since there is no disk write to take off it.
+     *
+     * @return The new context.
+     */
+    public static StoreContext inMemory() {
+        return new StoreContext(name -> new InMemoryRepository<>(), false, null);
+    }
+
+    /**
+     * Creates a context backed by file repositories in the working directory. Once the background
+     * tasks are started, accepted orders are persisted by the order pipeline's writer threads.
+     *
+     * The repositories written by checkout and the wallet are journaled: their files hold the
+     * snapshot of the last checkpoint, and the writes since are replayed from the journal here.
+     *
+     * @return The new context.
+     */
+    public static StoreContext inFile() {
+        return inFile(Path.of(""));
+    }
+
+    /**
+     * Creates a context backed by file repositories in the given directory, as inFile() does in
+     * the working directory.
+     *
+     * @param directory The directory holding the data files and the journal.
+     * @return The new context.
+     */
+    public static StoreContext inFile(Path directory) {
+        WriteAheadJournal journal = new WriteAheadJournal(directory.resolve(JOURNAL_PATH), WriteAheadJournal.DEFAULT_CHECKPOINT_INTERVAL);
+        Function<String, String> file = name -> directory.resolve(name + ".dat").toString();
+        Map<String, IRepository<?>> journaled = new HashMap<>();
+        for (String name : JOURNALED_REPOSITORIES) {
+            journaled.put(name, new JournaledRepository<>(name, new FileRepository<>(file.apply(name)), journal));
+        }
+        // Replay before the indexes are built over the repositories.
+        journal.recover();
+        return new StoreContext(name -> journaled.containsKey(name) ? journaled.get(name) : new FileRepository<>(file.apply(name)), true, journal);
+    }
+
+    /**
+     * Constructs a StoreContext, creating each repository with the given factory.
+     * Every repository is measured by a MetricsRepository directly on top of its storage and
+     * emits flight recorder events through a FlightRecorderRepository, with the indexes layered above.
+     * A TracingRepository sits on top of the indexes, so trace spans show the calls the services make.
+     *
+     * @param backends    Creates the repository for a storage name such as "games" or "orders".
+     * @param asyncOrders Whether accepted orders are persisted off the checkout thread.
+     * @param journal     The journal the backends write to, already recovered; or null.
+     */
+    @SuppressWarnings("unchecked")
+    private StoreContext(Function<String, IRepository<?>> backends, boolean asyncOrders, WriteAheadJournal journal) {
+        Function<String, IRepository<?>> repositories = name -> new FlightRecorderRepository<>(new MetricsRepository<>(
+                (IRepository<HasId>) backends.apply(name), metricsRegistry.repository(name)), name);
+
+        gameRepository = traced(indexGames((IRepository<Game>) repositories.apply("games"), pricingEngine), "games");
+        userRepository = traced(indexUsers((IRepository<User>) repositories.apply("users")), "users");
+        adminRepository = traced(indexUsers((IRepository<Admin>) repositories.apply("admins")), "admins");
+        developerRepository = traced(indexUsers((IRepository<Developer>) repositories.apply("developers")), "developers");
+        discountRepository = traced((IRepository<Discount>) repositories.apply("discounts"), "discounts");
+        customerRepository = traced(indexUsers((IRepository<Customer>) repositories.apply("customers")), "customers");
+        reviewRepository = traced(indexReviews((IRepository<Review>) repositories.apply("reviews")), "reviews");
+        paymentMethodRepository = traced((IRepository<PaymentMethod>) repositories.apply("paymentMethods"), "paymentMethods");
+        shoppingCartRepository = traced((IRepository<ShoppingCart>) repositories.apply("shoppingCarts"), "shoppingCarts");
+        orderRepository = traced(indexOrders((IRepository<Order>) repositories.apply("orders")), "orders");
+        walletTransactionRepository = traced(new IndexedRepository<>((IRepository<WalletTransaction>) repositories.apply("walletTransactions"))
+                .addIndex("customerId", WalletTransaction::getCustomerId, false), "walletTransactions");
+        walletSnapshotRepository = traced((IRepository<WalletSnapshot>) repositories.apply("walletSnapshots"), "walletSnapshots");
+        campaignRepository = traced((IRepository<DiscountCampaign>) repositories.apply("campaigns"), "campaigns");
+        shoppingCartArchiveRepository = traced((IRepository<ShoppingCart>) repositories.apply("shoppingCartArchive"), "shoppingCartArchive");
+        purchaseEventRepository = traced((IRepository<PurchaseEvent>) repositories.apply("purchaseEvents"), "purchaseEvents");
+
+        this.journal = journal;
+
+        purchaseEventStore = new PurchaseEventStore(purchaseEventRepository, Clock.systemUTC());
+        purchaseEventStore.backfill(orderRepository.getAll());
+        purchaseEventStore.register(libraryProjection, orderHistoryProjection, salesAnalytics);
+        orderPipeline = new OrderPipeline(OrderPipeline.DEFAULT_QUEUE_CAPACITY, OrderPipeline.DEFAULT_BATCH_SIZE, asyncOrders)
+                .addStage("orders", orderRepository::createAll);
+        walletLedger = new WalletLedger(walletTransactionRepository, walletSnapshotRepository, customerRepository, WalletLedger.DEFAULT_SNAPSHOT_INTERVAL);
+
+        accountService = new AccountService(userRepository, adminRepository, developerRepository, customerRepository, shoppingCartRepository,
+                new SessionManager(SESSION_IDLE_TIMEOUT), walletLedger, purchaseEventStore);
+        gameService = new GameService(gameRepository);
+        adminService = new AdminService(gameRepository, adminRepository, discountRepository, userRepository, developerRepository, customerRepository, pricingEngine, walletLedger, purchaseEventStore);
+        developerService = new DeveloperService(gameRepository, developerRepository, pricingEngine);
+        shoppingCartService = new ShoppingCartService(shoppingCartRepository, gameRepository, orderRepository, customerRepository, walletLedger, pricingEngine, orderPipeline, purchaseEventStore);
+        cartLifecycleManager = new CartLifecycleManager(shoppingCartRepository, shoppingCartArchiveRepository, customerRepository, shoppingCartService,
+                Clock.systemUTC(), CartLifecycleManager.DEFAULT_IDLE_TTL, CartLifecycleManager.DEFAULT_ARCHIVE_RETENTION);
+        customerService = new CustomerService(gameRepository, userRepository, customerRepository, reviewRepository, paymentMethodRepository, walletLedger, pricingEngine, cartLifecycleManager, libraryProjection);
+        orderService = new OrderService(orderRepository, orderPipeline, purchaseEventStore, orderHistoryProjection);
+        reviewService = new ReviewService(reviewRepository, customerRepository, gameRepository);
+        metricsService = new MetricsService(metricsRegistry);
+        campaignService = new CampaignService(campaignRepository, gameRepository, discountRepository, pricingEngine,
+                Clock.systemUTC(), CampaignService.DEFAULT_TICK);
+
+        accountController = new AccountController(accountService);
+        gameController = new GameController(gameService);
+        adminController = new AdminController(adminService);
+        developerController = new DeveloperController(developerService);
+        customerController = new CustomerController(customerService);
+        shoppingCartController = new ShoppingCartController(shoppingCartService, orderService);
+        reviewController = new ReviewController(reviewService);
+        metricsController = new MetricsController(metricsService);
+        campaignController = new CampaignController(campaignService);
+    }
+
+    /**
+     * Populates the game repository with sample data. Sample games already in the repository are left as they are.
+     */
+    public void initializeGames() {
+        List<Game> sampleGames = List.of(
+                new Game(1, "Cyber Adventure", "Explore a cyberpunk city filled with secrets.", GameGenre.ADVENTURE, 59.99f, new ArrayList<>()),
+                new Game(2, "Space Warfare", "A space-themed shooter with intergalactic battles.", GameGenre.SHOOTER, 49.99f, new ArrayList<>()),
+                new Game(3, "Mystic Quest", "Solve mysteries in a fantasy world.", GameGenre.RPG, 39.99f, new ArrayList<>()),
+                new Game(4, "Farm Builder", "Create and manage your own virtual farm.", GameGenre.RPG, 19.99f, new ArrayList<>()),
+                new Game(5, "Puzzle Challenge", "Solve various puzzles to progress through levels.", GameGenre.PUZZLE, 9.99f, new ArrayList<>())
+        );
+
+        List<Game> missingGames = new ArrayList<>(sampleGames.size());
+        for (Game game : sampleGames) {
+            if (gameRepository.get(game.getGameId()) == null) {
+                missingGames.add(game);
+            }
+        }
+        gameRepository.createAll(missingGames);
+
+        System.out.println("Sample games have been added to the repository.");
+    }
+
+    /**
+     * Starts the store's background work: the campaign timer, the hourly shopping cart compaction
+     * and the order pipeline's writers. When the JVM shuts down, the writers drain their queues
+     * and the journal takes a final checkpoint.
+     */
+    public void startBackgroundTasks() {
+        campaignService.start();
+        cartLifecycleManager.start(CART_COMPACTION_INTERVAL);
+        orderPipeline.start();
+        if (orderPipeline.isAsync() || journal != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::shutDown, "store-shutdown"));
+        }
+    }
+
+    /**
+     * Drains the order pipeline and checkpoints the journal.
+     */
+    private void shutDown() {
+        orderPipeline.stop();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+
+    /**
+     * Creates the main menu over this context's controllers.
+     *
+     * @return The main menu.
+     */
+    public MainMenu newMainMenu() {
+        return new MainMenu(accountController, gameController, adminController, developerController, customerController, shoppingCartController, reviewController, metricsController);
+    }
+
+    /**
+     * Adds the secondary indexes used by the catalog queries to a game repository.
+     * Price ranges are indexed by the effective price the pricing engine reports.
+     *
+     * @param gameRepository The repository to index.
+     * @param pricingEngine  The engine caching effective game prices.
+     * @return The indexed repository.
+     */
+    private static IRepository<Game> indexGames(IRepository<Game> gameRepository, PricingEngine pricingEngine) {
+        return new IndexedRepository<>(gameRepository)
+                .addIndex("gameGenre", Game::getGameGenre, false)
+                .addSortedIndex("effectivePrice", pricingEngine::getEffectivePrice, false)
+                .addIndex("gameNameLower", game -> game.getGameName().toLowerCase(), false);
+    }
+
+    /**
+     * Opens a trace span around every call the services make to a repository.
+     *
+     * @param repository The repository to trace.
+     * @param name       The repository name used in span names.
+     * @return The traced repository.
+     */
+    private static <T extends HasId> IRepository<T> traced(IRepository<T> repository, String name) {
+        return new TracingRepository<>(repository, name);
+    }
+
+    /**
+     * Adds the email indexes used by login, signup and account deletion to a user repository.
+     *
+     * @param userRepository The repository to index.
+     * @return The indexed repository.
+     */
+    private static <U extends User> IRepository<U> indexUsers(IRepository<U> userRepository) {
+        return new IndexedRepository<>(userRepository)
+                .addIndex("email", User::getEmail, true)
+                .addIndex("emailLower", user -> user.getEmail().toLowerCase(), false);
+    }
+
+    /**
+     * Adds the per-game and per-customer indexes to a review repository.
+     *
+     * @param reviewRepository The repository to index.
+     * @return The indexed repository.
+     */
+    private static IRepository<Review> indexReviews(IRepository<Review> reviewRepository) {
+        return new IndexedRepository<>(reviewRepository)
+                .addIndex("gameId", review -> review.getGame().getGameId(), false)
+                .addIndex("customerId", review -> review.getCustomer().getId(), false);
+    }
+
+    /**
+     * Adds the per-customer index to an order repository.
+     *
+     * @param orderRepository The repository to index.
+     * @return The indexed repository.
+     */
+    private static IRepository<Order> indexOrders(IRepository<Order> orderRepository) {
+        return new IndexedRepository<>(orderRepository)
+                .addIndex("customerId", order -> order.getCustomer().getId(), false);
+    }
+
+    public IRepository<Game> getGameRepository() {
+        return gameRepository;
+    }
+
+    public IRepository<User> getUserRepository() {
+        return userRepository;
+    }
+
+    public IRepository<Admin> getAdminRepository() {
+        return adminRepository;
+    }
+
+    public IRepository<Developer> getDeveloperRepository() {
+        return developerRepository;
+    }
+
+    public IRepository<Discount> getDiscountRepository() {
+        return discountRepository;
+    }
+
+    public IRepository<Customer> getCustomerRepository() {
+        return customerRepository;
+    }
+
+    public IRepository<Review> getReviewRepository() {
+        return reviewRepository;
+    }
+
+    public IRepository<PaymentMethod> getPaymentMethodRepository() {
+        return paymentMethodRepository;
+    }
+
+    public IRepository<ShoppingCart> getShoppingCartRepository() {
+        return shoppingCartRepository;
+    }
+
+    public IRepository<Order> getOrderRepository() {
+        return orderRepository;
+    }
+
+    public IRepository<WalletTransaction> getWalletTransactionRepository() {
+        return walletTransactionRepository;
+    }
+
+    public IRepository<WalletSnapshot> getWalletSnapshotRepository() {
+        return walletSnapshotRepository;
+    }
+
+    public IRepository<DiscountCampaign> getCampaignRepository() {
+        return campaignRepository;
+    }
+
+    public IRepository<ShoppingCart> getShoppingCartArchiveRepository() {
+        return shoppingCartArchiveRepository;
+    }
+
+    public IRepository<PurchaseEvent> getPurchaseEventRepository() {
+        return purchaseEventRepository;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    public AccountService getAccountService() {
+        return accountService;
+    }
+
+    public GameService getGameService() {
+        return gameService;
+    }
+
+    public AdminService getAdminService() {
+        return adminService;
+    }
+
+    public DeveloperService getDeveloperService() {
+        return developerService;
+    }
+
+    public CustomerService getCustomerService() {
+        return customerService;
+    }
+
+    public ShoppingCartService getShoppingCartService() {
+        return shoppingCartService;
+    }
+
+    public OrderService getOrderService() {
+        return orderService;
+    }
+
+    public ReviewService getReviewService() {
+        return reviewService;
+    }
+
+    public MetricsService getMetricsService() {
+        return metricsService;
+    }
+
+    public WalletLedger getWalletLedger() {
+        return walletLedger;
+    }
+
+    public PricingEngine getPricingEngine() {
+        return pricingEngine;
+    }
+
+    public CampaignService getCampaignService() {
+        return campaignService;
+    }
+
+    public CartLifecycleManager getCartLifecycleManager() {
+        return cartLifecycleManager;
+    }
+
+    public OrderPipeline getOrderPipeline() {
+        return orderPipeline;
+    }
+
+    public SalesAnalytics getSalesAnalytics() {
+        return salesAnalytics;
+    }
+
+    public PurchaseEventStore getPurchaseEventStore() {
+        return purchaseEventStore;
+    }
+
+    public CustomerLibraryProjection getLibraryProjection() {
+        return libraryProjection;
+    }
+
+    public OrderHistoryProjection getOrderHistoryProjection() {
+        return orderHistoryProjection;
+    }
+
+    public WriteAheadJournal getJournal() {
+        return journal;
+    }
+
+    public AccountController getAccountController() {
+        return accountController;
+    }
+
+    public GameController getGameController() {
+        return gameController;
+    }
+
+    public AdminController getAdminController() {
+        return adminController;
+    }
+
+    public DeveloperController getDeveloperController() {
+        return developerController;
+    }
+
+    public CustomerController getCustomerController() {
+        return customerController;
+    }
+
+    public ShoppingCartController getShoppingCartController() {
+        return shoppingCartController;
+    }
+
+    public ReviewController getReviewController() {
+        return reviewController;
+    }
+
+    public MetricsController getMetricsController() {
+        return metricsController;
+    }
+
+    public CampaignController getCampaignController() {
+        return campaignController;
+    }
+}
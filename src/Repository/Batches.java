@@ -0,0 +1,37 @@
+package Repository;
+
+import Model.HasId;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Helpers shared by the repository implementations for validating batch writes.
+ */
+final class Batches {
+
+    private Batches() {
+    }
+
+    /**
+     * Checks that a batch of objects to create can be created as a whole: no ID may be taken
+     * already, and no ID may appear twice in the batch.
+     *
+     * @param objs  The objects to create.
+     * @param taken Whether an ID is already taken in the repository.
+     * @throws IllegalArgumentException if an ID is taken or appears twice in the batch.
+     */
+    static void checkNewIds(Collection<? extends HasId> objs, Predicate<Integer> taken) {
+        Set<Integer> seen = new HashSet<>();
+        for (HasId obj : objs) {
+            if (!seen.add(obj.getId())) {
+                throw new IllegalArgumentException("Object " + obj.getId() + " appears twice in the batch");
+            }
+            if (taken.test(obj.getId())) {
+                throw new IllegalArgumentException("Object already exists");
+            }
+        }
+    }
+}
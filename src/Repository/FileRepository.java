@@ -1,23 +1,43 @@
 package Repository;
 
+import Metrics.FileIoEvent;
 import Model.HasId;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * File-based implementation of IRepository for managing objects using serialized files.
  * This class provides basic CRUD operations for objects implementing HasId.
+ * Read-modify-write cycles on the file are serialized within the process, and updates
+ * of Versioned objects advance their version stamp.
  *
  * @param <T> The type of objects managed by the repository.
  */
 
 public class FileRepository<T extends HasId> implements IRepository<T> {
 
+    /**
+     * Whether a directory can be opened to sync it. Windows cannot, and does not need to, since
+     * NTFS journals the rename itself.
+     */
+    private static final boolean SYNC_DIRECTORIES = !System.getProperty("os.name").toLowerCase().startsWith("windows");
+
     private final String filePath;
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
 
     /**
      * Constructs a FileRepository with the specified file path.
@@ -30,14 +50,19 @@ public class FileRepository<T extends HasId> implements IRepository<T> {
     }
 
     /**
-     * Adds a new object to the repository if it doesn't already exist.
+     * Adds a new object to the repository.
      *
      * @param obj The object to add.
+     * @throws IllegalArgumentException if an object with the same ID already exists.
      */
 
     @Override
     public void create(T obj) {
-        doInFile(data -> data.putIfAbsent(obj.getId(), obj));
+        doInFile(data -> {
+            if (data.putIfAbsent(obj.getId(), obj) != null) {
+                throw new IllegalArgumentException("Object already exists");
+            }
+        });
     }
 
     /**
@@ -58,7 +83,26 @@ public class FileRepository<T extends HasId> implements IRepository<T> {
      */
     @Override
     public void update(T obj) {
-        doInFile(data -> data.replace(obj.getId(), obj));
+        doInFile(data -> replace(data, obj));
+    }
+
+    /**
+     * Updates an existing object only if the stored copy is still at the expected version.
+     * The file is only rewritten if the update succeeds.
+     *
+     * @param obj The object with updated information.
+     * @param expectedVersion The version the caller read before modifying the object.
+     * @return true if the object was updated, false otherwise.
+     */
+    @Override
+    public boolean compareAndUpdate(T obj, long expectedVersion) {
+        return doInFileIf(data -> {
+            T stored = data.get(obj.getId());
+            if (stored == null || Versions.of(stored) != expectedVersion) {
+                return false;
+            }
+            return replace(data, obj);
+        });
     }
 
     /**
@@ -81,40 +125,229 @@ public class FileRepository<T extends HasId> implements IRepository<T> {
         return readDataFromFile().values().stream().toList();
     }
 
+    /**
+     * Retrieves the objects matching a query, filtering straight off the decoded file contents.
+     *
+     * @param query The query to evaluate.
+     * @return A list of the matching objects.
+     */
+    @Override
+    public List<T> find(Query<T> query) {
+        return query.apply(readDataFromFile().values());
+    }
+
+    /**
+     * Adds several new objects with a single read and a single write of the file.
+     * Nothing is written if any ID is already taken or appears twice in the batch.
+     *
+     * @param objs The objects to add.
+     * @throws IllegalArgumentException if an ID is already taken or appears twice in the batch.
+     */
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        doInFile(data -> {
+            Batches.checkNewIds(objs, data::containsKey);
+            objs.forEach(obj -> data.put(obj.getId(), obj));
+        });
+    }
+
+    /**
+     * Updates several existing objects with a single read and a single write of the file.
+     *
+     * @param objs The objects with updated information.
+     */
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        doInFile(data -> objs.forEach(obj -> replace(data, obj)));
+    }
+
+    /**
+     * Deletes several objects with a single read and a single write of the file.
+     *
+     * @param ids The IDs of the objects to delete.
+     */
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        doInFile(data -> ids.forEach(data::remove));
+    }
+
+    /**
+     * Retrieves the objects with the given IDs with a single read of the file.
+     *
+     * @param ids The IDs of the objects to retrieve.
+     * @return A list of the objects found, in the order of the given IDs.
+     */
+    @Override
+    public List<T> getAll(Collection<Integer> ids) {
+        Map<Integer, T> data = readDataFromFile();
+        List<T> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T obj = data.get(id);
+            if (obj != null) {
+                result.add(obj);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the whole contents of the file with the given objects, and syncs the file and the
+     * rename to disk before returning. Used to write snapshots of journaled repositories.
+     *
+     * @param objs The objects the file should hold.
+     * @throws UncheckedIOException if the snapshot could not be written; the previous file is left as it was.
+     */
+    public synchronized void writeSnapshot(Collection<? extends T> objs) {
+        Map<Integer, T> data = new HashMap<>();
+        for (T obj : objs) {
+            data.put(obj.getId(), obj);
+        }
+        writeDataToFile(data, true);
+    }
+
     /**
      * Performs an operation on the data stored in the file.
      *
      * @param function The function to apply to the data.
      */
     private void doInFile(Consumer<Map<Integer, T>> function) {
+        doInFileIf(data -> {
+            function.accept(data);
+            return true;
+        });
+    }
+
+    /**
+     * Performs an operation on the data stored in the file and writes the data back
+     * only if the operation reports a change.
+     *
+     * @param function The function to apply to the data; returns whether the data should be written.
+     * @return The value returned by the function.
+     */
+    private synchronized boolean doInFileIf(Predicate<Map<Integer, T>> function) {
         Map<Integer, T> data = readDataFromFile();
-        function.accept(data);
-        writeDataToFile(data);
+        boolean changed = function.test(data);
+        if (changed) {
+            writeDataToFile(data, false);
+        }
+        return changed;
+    }
+
+    /**
+     * Replaces the stored copy of an object in the given data, advancing its version.
+     *
+     * @param data The data read from the file.
+     * @param obj  The object with updated information.
+     * @return true if an object with the same ID was present and replaced.
+     */
+    private boolean replace(Map<Integer, T> data, T obj) {
+        T stored = data.get(obj.getId());
+        if (stored == null) {
+            return false;
+        }
+        Versions.advance(obj, stored);
+        data.put(obj.getId(), obj);
+        return true;
     }
 
     /**
      * Reads the data from the file.
      *
-     * @return The data stored in the file, or an empty map if the file is empty or does not exist.
+     * @return The data stored in the file, or an empty map if the file does not exist.
+     * @throws UncheckedIOException if the file exists but cannot be read or decoded. The file is
+     *                              never treated as empty then, so the next write cannot replace
+     *                              data that failed to load.
      */
     private Map<Integer, T> readDataFromFile() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
-            return (Map<Integer, T>) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
+        if (!Files.exists(Path.of(filePath))) {
             return new HashMap<>();
         }
+        FileIoEvent event = new FileIoEvent();
+        event.begin();
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
+            Map<Integer, T> data = (Map<Integer, T>) ois.readObject();
+            long size = new File(filePath).length();
+            bytesRead.add(size);
+            commit(event, "read", size, data.size());
+            return data;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + filePath, e);
+        } catch (ClassNotFoundException e) {
+            throw new UncheckedIOException("Could not decode " + filePath, new InvalidClassException(e.getMessage()));
+        }
     }
 
     /**
-     * Writes the data to the file.
+     * Writes the data to the file. The data is written to a temporary file first, which then
+     * replaces the file in one rename, so a crash mid-write leaves the previous contents intact.
      *
      * @param data The data to write to the file.
+     * @param sync Whether to sync the data to disk before the rename, and the rename after it.
+     * @throws UncheckedIOException if the data could not be written; the previous file is left as it was.
      */
-    private void writeDataToFile(Map<Integer, T> data) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
-            oos.writeObject(data);
+    private void writeDataToFile(Map<Integer, T> data, boolean sync) {
+        FileIoEvent event = new FileIoEvent();
+        event.begin();
+        Path target = Path.of(filePath);
+        Path temp = Path.of(filePath + ".tmp");
+        try {
+            try (FileOutputStream fos = new FileOutputStream(temp.toFile());
+                 ObjectOutputStream oos = new ObjectOutputStream(fos)) {
+                oos.writeObject(data);
+                oos.flush();
+                if (sync) {
+                    fos.getFD().sync();
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (sync && SYNC_DIRECTORIES) {
+                // The rename is only durable once the directory entry pointing at the new file is.
+                try (FileChannel directory = FileChannel.open(target.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+                    directory.force(true);
+                }
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw new UncheckedIOException("Could not write " + filePath, e);
+        }
+        long size = new File(filePath).length();
+        bytesWritten.add(size);
+        commit(event, "write", size, data.size());
+    }
+
+    /**
+     * Completes a flight recorder event describing a read or write of the file.
+     */
+    private void commit(FileIoEvent event, String operation, long size, int entries) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = filePath;
+            event.operation = operation;
+            event.bytes = size;
+            event.entries = entries;
+            event.commit();
         }
     }
+
+    /**
+     * Gets the total size of the file contents read so far.
+     *
+     * @return The number of bytes read.
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Gets the total size of the file contents written so far.
+     *
+     * @return The number of bytes written.
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
 }
@@ -0,0 +1,198 @@
+package Repository;
+
+import Metrics.RepositoryEvent;
+import Model.HasId;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Decorator that emits a Java Flight Recorder event around every call to an IRepository.
+ * Events carry the repository name, the operation, the entity ID and the result size.
+ * While no recording has the event enabled, each call costs one enabled check.
+ *
+ * @param <T> The type of objects managed by the repository.
+ */
+public class FlightRecorderRepository<T extends HasId> implements IRepository<T> {
+
+    private final IRepository<T> delegate;
+    private final String name;
+
+    /**
+     * Constructs a FlightRecorderRepository on top of the given repository.
+     *
+     * @param delegate The repository to record.
+     * @param name     The repository name reported in events, such as "games".
+     */
+    public FlightRecorderRepository(IRepository<T> delegate, String name) {
+        this.delegate = delegate;
+        this.name = name;
+    }
+
+    @Override
+    public void create(T obj) {
+        RepositoryEvent event = begin();
+        boolean failed = true;
+        try {
+            delegate.create(obj);
+            failed = false;
+        } finally {
+            commit(event, "create", obj.getId(), -1, failed);
+        }
+    }
+
+    @Override
+    public T get(Integer id) {
+        RepositoryEvent event = begin();
+        boolean failed = true;
+        try {
+            T result = delegate.get(id);
+            failed = false;
+            return result;
+        } finally {
+            commit(event, "get", id, -1, failed);
+        }
+    }
+
+    @Override
+    public void update(T obj) {
+        RepositoryEvent event = begin();
+        boolean failed = true;
+        try {
+            delegate.update(obj);
+            failed = false;
+        } finally {
+            commit(event, "update", obj.getId(), -1, failed);
+        }
+    }
+
+    @Override
+    public void delete(Integer id) {
+        RepositoryEvent event = begin();
+        boolean failed = true;
+        try {
+            delegate.delete(id);
+            failed = false;
+        } finally {
+            commit(event, "delete", id, -1, failed);
+        }
+    }
+
+    @Override
+    public boolean compareAndUpdate(T obj, long expectedVersion) {
+        RepositoryEvent event = begin();
+        boolean failed = true;
+        try {
+            boolean updated = delegate.compareAndUpdate(obj, expectedVersion);
+            failed = false;
+            return updated;
+        } finally {
+            commit(event, "compareAndUpdate", obj.getId(), -1, failed);
+        }
+    }
+
+    @Override
+    public List<T> getAll() {
+        RepositoryEvent event = begin();
+        List<T> result = null;
+        try {
+            result = delegate.getAll();
+            return result;
+        } finally {
+            commit(event, "getAll", null, result);
+        }
+    }
+
+    @Override
+    public List<T> find(Query<T> query) {
+        RepositoryEvent event = begin();
+        List<T> result = null;
+        try {
+            result = delegate.find(query);
+            return result;
+        } finally {
+            commit(event, "find", null, result);
+        }
+    }
+
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        RepositoryEvent event = begin();
+        boolean failed = true;
+        try {
+            delegate.createAll(objs);
+            failed = false;
+        } finally {
+            commit(event, "createAll", null, objs.size(), failed);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        RepositoryEvent event = begin();
+        boolean failed = true;
+        try {
+            delegate.updateAll(objs);
+            failed = false;
+        } finally {
+            commit(event, "updateAll", null, objs.size(), failed);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        RepositoryEvent event = begin();
+        boolean failed = true;
+        try {
+            delegate.deleteAll(ids);
+            failed = false;
+        } finally {
+            commit(event, "deleteAll", null, ids.size(), failed);
+        }
+    }
+
+    @Override
+    public List<T> getAll(Collection<Integer> ids) {
+        RepositoryEvent event = begin();
+        List<T> result = null;
+        try {
+            result = delegate.getAll(ids);
+            return result;
+        } finally {
+            commit(event, "getAllById", null, result);
+        }
+    }
+
+    /**
+     * Starts an event if a recording has it enabled.
+     *
+     * @return The started event, or null when disabled.
+     */
+    private static RepositoryEvent begin() {
+        RepositoryEvent event = new RepositoryEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    private void commit(RepositoryEvent event, String operation, Integer entityId, List<T> result) {
+        commit(event, operation, entityId, result == null ? -1 : result.size(), result == null);
+    }
+
+    private void commit(RepositoryEvent event, String operation, Integer entityId, int resultSize, boolean failed) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.repository = name;
+            event.operation = operation;
+            event.entityId = entityId == null ? -1 : entityId;
+            event.resultSize = resultSize;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package Repository;
 import Model.HasId;
+import Model.Versioned;
+
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,6 +16,7 @@ public interface IRepository<T extends HasId> {
     /**
      * Adds a new object to the repository.
      * @param obj The object to add.
+     * @throws IllegalArgumentException if an object with the same ID already exists.
      */
     void create(T obj);
 
@@ -34,9 +39,91 @@ public interface IRepository<T extends HasId> {
      */
     void delete(Integer id);
 
+    /**
+     * Updates an existing object only if the stored copy is still at the expected version.
+     * Objects that are not Versioned are always at version 0.
+     * Implementations should override this to make the check and the write atomic.
+     * @param obj The object with updated information.
+     * @param expectedVersion The version the caller read before modifying the object.
+     * @return true if the object was updated, false if it is missing or was modified in the meantime.
+     */
+    default boolean compareAndUpdate(T obj, long expectedVersion) {
+        T stored = get(obj.getId());
+        if (stored == null) {
+            return false;
+        }
+        long storedVersion = stored instanceof Versioned versioned ? versioned.getVersion() : 0L;
+        if (storedVersion != expectedVersion) {
+            return false;
+        }
+        update(obj);
+        return true;
+    }
+
     /**
      * Retrieves all objects in the repository.
      * @return A list of all objects in the repository.
      */
     List<T> getAll();
+
+    /**
+     * Retrieves the objects matching a query.
+     * Implementations should override this to avoid materialising objects the query rejects.
+     * @param query The query to evaluate.
+     * @return A list of the matching objects, at most query.getLimit() of them.
+     */
+    default List<T> find(Query<T> query) {
+        return query.apply(getAll());
+    }
+
+    /**
+     * Adds several new objects to the repository in one batch.
+     * The whole batch is validated before anything is written: if any ID is already taken, or
+     * appears twice in the batch, nothing is added.
+     * Implementations should override this to avoid paying the per-object cost of create.
+     * @param objs The objects to add.
+     * @throws IllegalArgumentException if an ID is already taken or appears twice in the batch.
+     */
+    default void createAll(Collection<? extends T> objs) {
+        Batches.checkNewIds(objs, id -> get(id) != null);
+        for (T obj : objs) {
+            create(obj);
+        }
+    }
+
+    /**
+     * Updates several existing objects in the repository in one batch.
+     * @param objs The objects with updated information.
+     */
+    default void updateAll(Collection<? extends T> objs) {
+        for (T obj : objs) {
+            update(obj);
+        }
+    }
+
+    /**
+     * Deletes several objects from the repository by their IDs in one batch.
+     * @param ids The IDs of the objects to delete.
+     */
+    default void deleteAll(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            delete(id);
+        }
+    }
+
+    /**
+     * Retrieves the objects with the given IDs.
+     * @param ids The IDs of the objects to retrieve.
+     * @return A list of the objects found, in the order of the given IDs; missing IDs are skipped.
+     */
+    default List<T> getAll(Collection<Integer> ids) {
+        List<T> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T obj = get(id);
+            if (obj != null) {
+                result.add(obj);
+            }
+        }
+        return result;
+    }
 }
@@ -1,18 +1,25 @@
 package Repository;
 
 import Model.HasId;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * In-memory implementation of IRepository for managing objects in a HashMap.
  * This class provides basic CRUD operations for objects implementing HasId.
+ * Every operation, single or batch, takes the repository lock exactly once.
+ * Updates of Versioned objects advance their version stamp.
  * @param <T> The type of objects managed by the repository.
  */
 
 public class InMemoryRepository<T extends HasId> implements IRepository<T> {
     private final Map<Integer,T> data = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
      * Adds a new object to the repository if it doesn't already exist.
@@ -23,8 +30,13 @@ public class InMemoryRepository<T extends HasId> implements IRepository<T> {
 
     @Override
     public void create(T obj) {
-        if(data.putIfAbsent(obj.getId(), obj) != null) {
-            throw new IllegalArgumentException("Object already exists");
+        lock.writeLock().lock();
+        try {
+            if(data.putIfAbsent(obj.getId(), obj) != null) {
+                throw new IllegalArgumentException("Object already exists");
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -36,7 +48,12 @@ public class InMemoryRepository<T extends HasId> implements IRepository<T> {
 
     @Override
     public T get(Integer id) {
-        return data.get(id);
+        lock.readLock().lock();
+        try {
+            return data.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -47,7 +64,35 @@ public class InMemoryRepository<T extends HasId> implements IRepository<T> {
 
     @Override
     public void update(T obj) {
-        data.replace(obj.getId(), obj);
+        lock.writeLock().lock();
+        try {
+            replace(obj);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates an existing object only if the stored copy is still at the expected version.
+     *
+     * @param obj The object with updated information.
+     * @param expectedVersion The version the caller read before modifying the object.
+     * @return true if the object was updated, false otherwise.
+     */
+
+    @Override
+    public boolean compareAndUpdate(T obj, long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            T stored = data.get(obj.getId());
+            if (stored == null || Versions.of(stored) != expectedVersion) {
+                return false;
+            }
+            replace(obj);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -58,7 +103,12 @@ public class InMemoryRepository<T extends HasId> implements IRepository<T> {
 
     @Override
     public void delete(Integer id) {
-        data.remove(id);
+        lock.writeLock().lock();
+        try {
+            data.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -69,6 +119,123 @@ public class InMemoryRepository<T extends HasId> implements IRepository<T> {
 
     @Override
     public List<T> getAll() {
-        return data.values().stream().toList();
+        lock.readLock().lock();
+        try {
+            return data.values().stream().toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the objects matching a query, filtering in place without copying the whole map.
+     *
+     * @param query The query to evaluate.
+     * @return A list of the matching objects.
+     */
+
+    @Override
+    public List<T> find(Query<T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(data.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds several new objects under a single lock acquisition.
+     * Either all objects are added or, if any ID is already taken or appears twice in the batch, none are.
+     *
+     * @param objs The objects to add.
+     * @throws IllegalArgumentException if an ID is already taken or appears twice in the batch.
+     */
+
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        lock.writeLock().lock();
+        try {
+            Batches.checkNewIds(objs, data::containsKey);
+            for (T obj : objs) {
+                data.put(obj.getId(), obj);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates several existing objects under a single lock acquisition.
+     *
+     * @param objs The objects with updated information.
+     */
+
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        lock.writeLock().lock();
+        try {
+            for (T obj : objs) {
+                replace(obj);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes several objects under a single lock acquisition.
+     *
+     * @param ids The IDs of the objects to delete.
+     */
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            for (Integer id : ids) {
+                data.remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the objects with the given IDs under a single lock acquisition.
+     *
+     * @param ids The IDs of the objects to retrieve.
+     * @return A list of the objects found, in the order of the given IDs.
+     */
+
+    @Override
+    public List<T> getAll(Collection<Integer> ids) {
+        lock.readLock().lock();
+        try {
+            List<T> result = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                T obj = data.get(id);
+                if (obj != null) {
+                    result.add(obj);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the stored copy of an object, advancing its version. Callers must hold the write lock.
+     *
+     * @param obj The object with updated information.
+     */
+
+    private void replace(T obj) {
+        T stored = data.get(obj.getId());
+        if (stored != null) {
+            Versions.advance(obj, stored);
+            data.put(obj.getId(), obj);
+        }
     }
 }
@@ -0,0 +1,535 @@
+package Repository;
+
+import Model.HasId;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Decorator that adds secondary indexes to any IRepository.
+ * Indexes are registered by field name with a key extractor and are kept consistent on every
+ * create, update and delete made through this repository. Queries whose clauses name an indexed
+ * field are answered by looking up candidate IDs in the index and fetching only those objects
+ * from the underlying repository; all other queries fall through to the underlying repository.
+ *
+ * @param <T> The type of objects managed by the repository.
+ */
+public class IndexedRepository<T extends HasId> implements IRepository<T> {
+
+    private final IRepository<T> delegate;
+    private final Map<String, Index<T>> indexes = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong indexedQueries = new AtomicLong();
+    private final AtomicLong scannedQueries = new AtomicLong();
+
+    /**
+     * Constructs an IndexedRepository on top of the given repository.
+     *
+     * @param delegate The repository that stores the objects.
+     */
+    public IndexedRepository(IRepository<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Registers a hash index and builds it from the current contents of the repository.
+     *
+     * @param field     The field name, as used in Query clauses.
+     * @param extractor Function reading the indexed key from an object.
+     * @param unique    Whether two objects may share a key.
+     * @return This repository.
+     */
+    public IndexedRepository<T> addIndex(String field, Function<? super T, ?> extractor, boolean unique) {
+        return register(new Index<>(field, extractor, unique, false));
+    }
+
+    /**
+     * Registers a sorted index, which can also answer range and prefix clauses,
+     * and builds it from the current contents of the repository.
+     *
+     * @param field     The field name, as used in Query clauses.
+     * @param extractor Function reading the indexed key from an object; keys must be Comparable.
+     * @param unique    Whether two objects may share a key.
+     * @return This repository.
+     */
+    public IndexedRepository<T> addSortedIndex(String field, Function<? super T, ? extends Comparable<?>> extractor, boolean unique) {
+        return register(new Index<>(field, extractor, unique, true));
+    }
+
+    private IndexedRepository<T> register(Index<T> index) {
+        lock.writeLock().lock();
+        try {
+            for (T obj : delegate.getAll()) {
+                index.add(obj);
+            }
+            indexes.put(index.field, index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Rebuilds every index from the contents of the underlying repository,
+     * e.g. after it was loaded or modified behind this decorator's back.
+     */
+    public void rebuildIndexes() {
+        lock.writeLock().lock();
+        try {
+            List<T> all = delegate.getAll();
+            for (Index<T> index : indexes.values()) {
+                index.clear();
+                for (T obj : all) {
+                    index.add(obj);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void create(T obj) {
+        lock.writeLock().lock();
+        try {
+            checkUnique(obj);
+            delegate.create(obj);
+            indexes.values().forEach(index -> index.add(obj));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public T get(Integer id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public void update(T obj) {
+        lock.writeLock().lock();
+        try {
+            if (!isIndexed(obj.getId())) {
+                delegate.update(obj);
+                return;
+            }
+            checkUnique(obj);
+            delegate.update(obj);
+            indexes.values().forEach(index -> index.reindex(obj));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndUpdate(T obj, long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            if (isIndexed(obj.getId())) {
+                checkUnique(obj);
+            }
+            if (!delegate.compareAndUpdate(obj, expectedVersion)) {
+                return false;
+            }
+            indexes.values().forEach(index -> index.reindex(obj));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Integer id) {
+        lock.writeLock().lock();
+        try {
+            delegate.delete(id);
+            indexes.values().forEach(index -> index.remove(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        lock.writeLock().lock();
+        try {
+            checkUnique(objs);
+            delegate.createAll(objs);
+            for (T obj : objs) {
+                indexes.values().forEach(index -> index.add(obj));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        lock.writeLock().lock();
+        try {
+            List<T> known = new ArrayList<>(objs.size());
+            for (T obj : objs) {
+                if (isIndexed(obj.getId())) {
+                    known.add(obj);
+                }
+            }
+            checkUnique(known);
+            delegate.updateAll(objs);
+            for (T obj : known) {
+                indexes.values().forEach(index -> index.reindex(obj));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            delegate.deleteAll(ids);
+            for (Integer id : ids) {
+                indexes.values().forEach(index -> index.remove(id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> getAll(Collection<Integer> ids) {
+        return delegate.getAll(ids);
+    }
+
+    /**
+     * Retrieves the objects matching a query, using an index for the most selective
+     * indexed clause when one exists.
+     *
+     * @param query The query to evaluate.
+     * @return A list of the matching objects.
+     */
+    @Override
+    public List<T> find(Query<T> query) {
+        Set<Integer> candidates = null;
+        Index<T> chosen = null;
+        lock.readLock().lock();
+        try {
+            for (Query.Clause<T> clause : query.getClauses()) {
+                Index<T> index = clause.getField() != null ? indexes.get(clause.getField()) : null;
+                if (index == null) {
+                    continue;
+                }
+                Set<Integer> ids = index.lookup(clause);
+                if (ids != null && (candidates == null || ids.size() < candidates.size())) {
+                    candidates = ids;
+                    chosen = index;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (candidates == null) {
+            scannedQueries.incrementAndGet();
+            return delegate.find(query);
+        }
+        chosen.hits.incrementAndGet();
+        indexedQueries.incrementAndGet();
+        return query.apply(delegate.getAll(candidates));
+    }
+
+    /**
+     * Reports the size and usage of every registered index.
+     *
+     * @return One entry per index, in no particular order.
+     */
+    public List<IndexStats> getIndexStats() {
+        lock.readLock().lock();
+        try {
+            List<IndexStats> stats = new ArrayList<>();
+            for (Index<T> index : indexes.values()) {
+                stats.add(new IndexStats(index.field, index.unique, index.sorted,
+                        index.keys.size(), index.keyById.size(), index.hits.get()));
+            }
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of queries answered through an index.
+     * @return The indexed query count.
+     */
+    public long getIndexedQueryCount() {
+        return indexedQueries.get();
+    }
+
+    /**
+     * Gets the number of queries that had to scan the underlying repository.
+     * @return The scanned query count.
+     */
+    public long getScannedQueryCount() {
+        return scannedQueries.get();
+    }
+
+    /**
+     * Gets the fraction of queries answered through an index.
+     * @return The hit rate between 0 and 1, or 0 if no query has run yet.
+     */
+    public double getHitRate() {
+        long hits = indexedQueries.get();
+        long total = hits + scannedQueries.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Checks whether an ID is present in the indexes; an update of an unknown ID is a no-op
+     * in the underlying repository and must not be indexed either.
+     */
+    private boolean isIndexed(Integer id) {
+        return indexes.isEmpty() || indexes.values().iterator().next().keyById.containsKey(id);
+    }
+
+    private void checkUnique(T obj) {
+        for (Index<T> index : indexes.values()) {
+            if (index.unique) {
+                Object key = index.extractor.apply(obj);
+                if (key == null) {
+                    continue;
+                }
+                Set<Integer> owners = index.keys.get(key);
+                if (owners != null && !owners.isEmpty() && !owners.contains(obj.getId())) {
+                    throw new IllegalArgumentException("Duplicate value '" + key + "' for unique index " + index.field);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks a batch against the unique indexes: each object against the stored ones, and the
+     * objects of the batch against each other, so that two of them cannot claim the same key.
+     */
+    private void checkUnique(Collection<? extends T> objs) {
+        Map<String, Map<Object, Integer>> batchOwners = new HashMap<>();
+        for (T obj : objs) {
+            checkUnique(obj);
+            for (Index<T> index : indexes.values()) {
+                if (index.unique) {
+                    Object key = index.extractor.apply(obj);
+                    if (key == null) {
+                        continue;
+                    }
+                    Integer owner = batchOwners.computeIfAbsent(index.field, field -> new HashMap<>()).putIfAbsent(key, obj.getId());
+                    if (owner != null && !owner.equals(obj.getId())) {
+                        throw new IllegalArgumentException("Duplicate value '" + key + "' for unique index " + index.field);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Size and usage figures of a single index.
+     */
+    public static class IndexStats {
+        private final String field;
+        private final boolean unique;
+        private final boolean sorted;
+        private final int distinctKeys;
+        private final int entries;
+        private final long hits;
+
+        IndexStats(String field, boolean unique, boolean sorted, int distinctKeys, int entries, long hits) {
+            this.field = field;
+            this.unique = unique;
+            this.sorted = sorted;
+            this.distinctKeys = distinctKeys;
+            this.entries = entries;
+            this.hits = hits;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public boolean isUnique() {
+            return unique;
+        }
+
+        public boolean isSorted() {
+            return sorted;
+        }
+
+        public int getDistinctKeys() {
+            return distinctKeys;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        @Override
+        public String toString() {
+            return "IndexStats{" +
+                    "field='" + field + '\'' +
+                    ", unique=" + unique +
+                    ", sorted=" + sorted +
+                    ", distinctKeys=" + distinctKeys +
+                    ", entries=" + entries +
+                    ", hits=" + hits +
+                    '}';
+        }
+    }
+
+    /**
+     * A single secondary index: key to owning IDs, plus the reverse mapping needed to
+     * remove an object's old key when it is updated or deleted.
+     */
+    private static class Index<T extends HasId> {
+        private static final Comparator<Object> KEY_ORDER = Index::compareKeys;
+
+        /**
+         * A search bound that sorts right before every string key equal to its text ignoring
+         * case, whatever the case of the key.
+         */
+        private record LowerBound(String text) {
+        }
+
+        private final String field;
+        private final Function<? super T, ?> extractor;
+        private final boolean unique;
+        private final boolean sorted;
+        private final Map<Object, Set<Integer>> keys;
+        private final Map<Integer, Object> keyById = new HashMap<>();
+        private final AtomicLong hits = new AtomicLong();
+
+        Index(String field, Function<? super T, ?> extractor, boolean unique, boolean sorted) {
+            this.field = field;
+            this.extractor = extractor;
+            this.unique = unique;
+            this.sorted = sorted;
+            this.keys = sorted ? new TreeMap<>(KEY_ORDER) : new HashMap<>();
+        }
+
+        void add(T obj) {
+            remove(obj.getId());
+            Object key = extractor.apply(obj);
+            keyById.put(obj.getId(), key);
+            if (key != null || !sorted) {
+                keys.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(obj.getId());
+            }
+        }
+
+        void remove(Integer id) {
+            if (!keyById.containsKey(id)) {
+                return;
+            }
+            Object key = keyById.remove(id);
+            if (key == null && sorted) {
+                return;
+            }
+            Set<Integer> owners = keys.get(key);
+            if (owners != null) {
+                owners.remove(id);
+                if (owners.isEmpty()) {
+                    keys.remove(key);
+                }
+            }
+        }
+
+        void reindex(T obj) {
+            Object newKey = extractor.apply(obj);
+            if (keyById.containsKey(obj.getId()) && Objects.equals(keyById.get(obj.getId()), newKey)) {
+                return;
+            }
+            remove(obj.getId());
+            add(obj);
+        }
+
+        void clear() {
+            keys.clear();
+            keyById.clear();
+        }
+
+        /**
+         * Returns a superset of the IDs matching the clause, or null if this index cannot answer it.
+         * Hits are counted by the caller, for the index it ends up using.
+         */
+        Set<Integer> lookup(Query.Clause<T> clause) {
+            Set<Integer> result = null;
+            if (clause instanceof Query.Equals<T> equals) {
+                if (equals.getValue() == null && sorted) {
+                    return null;
+                }
+                Set<Integer> owners = keys.get(equals.getValue());
+                result = owners != null ? new LinkedHashSet<>(owners) : new LinkedHashSet<>();
+            } else if (sorted && clause instanceof Query.Range<T, ?> range) {
+                result = collect(subMap(range.getMin(), range.getMax()));
+            } else if (sorted && clause instanceof Query.Prefix<T> prefix) {
+                result = collect(subMap(new LowerBound(prefix.getPrefix()), prefix.getPrefix() + Character.MAX_VALUE));
+            }
+            return result;
+        }
+
+        private NavigableMap<Object, Set<Integer>> subMap(Object min, Object max) {
+            NavigableMap<Object, Set<Integer>> view = (NavigableMap<Object, Set<Integer>>) keys;
+            if (min != null) {
+                view = view.tailMap(min, true);
+            }
+            if (max != null) {
+                view = view.headMap(max, true);
+            }
+            return view;
+        }
+
+        private static Set<Integer> collect(Map<Object, Set<Integer>> view) {
+            Set<Integer> ids = new LinkedHashSet<>();
+            view.values().forEach(ids::addAll);
+            return ids;
+        }
+
+        /**
+         * Orders keys naturally, except strings, which are ordered ignoring case so that
+         * case-insensitive prefix clauses map onto a contiguous key range.
+         */
+        @SuppressWarnings("unchecked")
+        private static int compareKeys(Object a, Object b) {
+            if (a instanceof LowerBound bound) {
+                String other = b instanceof LowerBound otherBound ? otherBound.text() : (String) b;
+                int c = String.CASE_INSENSITIVE_ORDER.compare(bound.text(), other);
+                return c != 0 || b instanceof LowerBound ? c : -1;
+            }
+            if (b instanceof LowerBound) {
+                return -compareKeys(b, a);
+            }
+            if (a instanceof String s1 && b instanceof String s2) {
+                int c = String.CASE_INSENSITIVE_ORDER.compare(s1, s2);
+                return c != 0 ? c : s1.compareTo(s2);
+            }
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+    }
+}
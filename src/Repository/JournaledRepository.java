@@ -0,0 +1,196 @@
+package Repository;
+
+import Model.HasId;
+import Repository.WriteAheadJournal.Entry;
+import Repository.WriteAheadJournal.Kind;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A repository whose writes are made durable by a write-ahead journal instead of by rewriting
+ * its file. The objects are held in memory. Every mutation is applied in memory and appended to
+ * the journal, and returns once the journal has synced it. The file only holds the snapshot the
+ * journal writes at each checkpoint. On startup the snapshot is loaded and the journal replays
+ * the writes made since.
+ *
+ * Like the FileRepository it stands in for, creating an object whose ID is already taken throws
+ * IllegalArgumentException, leaves the stored object as it is and journals nothing. A batch
+ * create is all or nothing.
+ *
+ * @param <T> The type of objects managed by the repository.
+ */
+public class JournaledRepository<T extends HasId> implements IRepository<T> {
+
+    private final String name;
+    private final FileRepository<T> snapshot;
+    private final WriteAheadJournal journal;
+    private final InMemoryRepository<T> data = new InMemoryRepository<>();
+
+    /**
+     * Constructs a JournaledRepository, loading the latest snapshot and registering with the journal.
+     *
+     * @param name     The name the repository's entries are journaled under.
+     * @param snapshot The file the snapshots are written to.
+     * @param journal  The journal the writes are appended to.
+     */
+    public JournaledRepository(String name, FileRepository<T> snapshot, WriteAheadJournal journal) {
+        this.name = name;
+        this.snapshot = snapshot;
+        this.journal = journal;
+        data.createAll(snapshot.getAll());
+        journal.register(name, this);
+    }
+
+    @Override
+    public void create(T obj) {
+        journal.write(this, () -> {
+            data.create(obj);
+            return List.of(put(obj));
+        });
+    }
+
+    @Override
+    public T get(Integer id) {
+        return data.get(id);
+    }
+
+    @Override
+    public void update(T obj) {
+        journal.write(this, () -> {
+            if (data.get(obj.getId()) == null) {
+                return List.of();
+            }
+            data.update(obj);
+            return List.of(put(obj));
+        });
+    }
+
+    @Override
+    public boolean compareAndUpdate(T obj, long expectedVersion) {
+        boolean[] updated = {false};
+        journal.write(this, () -> {
+            updated[0] = data.compareAndUpdate(obj, expectedVersion);
+            return updated[0] ? List.of(put(obj)) : List.of();
+        });
+        return updated[0];
+    }
+
+    @Override
+    public void delete(Integer id) {
+        journal.write(this, () -> {
+            if (data.get(id) == null) {
+                return List.of();
+            }
+            data.delete(id);
+            return List.of(new Entry(name, Kind.DELETE, id, null));
+        });
+    }
+
+    @Override
+    public List<T> getAll() {
+        return data.getAll();
+    }
+
+    @Override
+    public List<T> find(Query<T> query) {
+        return data.find(query);
+    }
+
+    /**
+     * Adds several new objects as one journal append. Nothing is added or journaled if any ID
+     * is already taken or appears twice in the batch.
+     *
+     * @param objs The objects to add.
+     * @throws IllegalArgumentException if an ID is already taken or appears twice in the batch.
+     */
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        journal.write(this, () -> {
+            data.createAll(objs);
+            List<Entry> entries = new ArrayList<>(objs.size());
+            for (T obj : objs) {
+                entries.add(put(obj));
+            }
+            return entries;
+        });
+    }
+
+    /**
+     * Updates several existing objects as one journal append.
+     *
+     * @param objs The objects with updated information.
+     */
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        journal.write(this, () -> {
+            List<T> present = new ArrayList<>(objs.size());
+            for (T obj : objs) {
+                if (data.get(obj.getId()) != null) {
+                    present.add(obj);
+                }
+            }
+            data.updateAll(present);
+            List<Entry> entries = new ArrayList<>(present.size());
+            for (T obj : present) {
+                entries.add(put(obj));
+            }
+            return entries;
+        });
+    }
+
+    /**
+     * Deletes several objects as one journal append.
+     *
+     * @param ids The IDs of the objects to delete.
+     */
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        journal.write(this, () -> {
+            List<Entry> entries = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                if (data.get(id) != null) {
+                    entries.add(new Entry(name, Kind.DELETE, id, null));
+                }
+            }
+            data.deleteAll(ids);
+            return entries;
+        });
+    }
+
+    @Override
+    public List<T> getAll(Collection<Integer> ids) {
+        return data.getAll(ids);
+    }
+
+    /**
+     * Redoes a journaled write. The object is stored as it was journaled, version included.
+     *
+     * @param entry The journal entry.
+     */
+    @SuppressWarnings("unchecked")
+    void replay(Entry entry) {
+        data.delete(entry.id());
+        if (entry.kind() == Kind.PUT) {
+            data.create((T) entry.value());
+        }
+    }
+
+    /**
+     * Writes the objects currently held to the snapshot file.
+     *
+     * @throws java.io.UncheckedIOException if the snapshot could not be written.
+     */
+    void writeSnapshot() {
+        snapshot.writeSnapshot(data.getAll());
+    }
+
+    public FileRepository<T> getSnapshot() {
+        return snapshot;
+    }
+
+    private Entry put(T obj) {
+        return new Entry(name, Kind.PUT, obj.getId(), obj);
+    }
+}
@@ -0,0 +1,204 @@
+package Repository;
+
+import Metrics.OperationStats;
+import Metrics.RepositoryMetrics;
+import Metrics.SlowOperationLog;
+import Metrics.RepositoryMetrics.Operation;
+import Model.HasId;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Decorator that measures every call made to an IRepository. For each operation it records
+ * the call count, the error count, a latency histogram and, for calls returning lists, the
+ * result sizes. Recording is lock-free, so the decorator adds no contention of its own.
+ * When the slow operation log is enabled, each timing is also passed to it. This adds the time to
+ * the enclosing service call and logs calls over their threshold.
+ *
+ * @param <T> The type of objects managed by the repository.
+ */
+public class MetricsRepository<T extends HasId> implements IRepository<T> {
+
+    private final IRepository<T> delegate;
+    private final RepositoryMetrics metrics;
+    private final int slowLogSlot;
+
+    /**
+     * Constructs a MetricsRepository on top of the given repository.
+     *
+     * @param delegate The repository to measure.
+     * @param metrics  The metrics to record into.
+     */
+    public MetricsRepository(IRepository<T> delegate, RepositoryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.slowLogSlot = SlowOperationLog.registerRepository(metrics.getName());
+        if (delegate instanceof FileRepository<T> fileRepository) {
+            metrics.trackIo(fileRepository::getBytesRead, fileRepository::getBytesWritten);
+        } else if (delegate instanceof JournaledRepository<T> journaledRepository) {
+            metrics.trackIo(journaledRepository.getSnapshot()::getBytesRead, journaledRepository.getSnapshot()::getBytesWritten);
+        }
+    }
+
+    public RepositoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void create(T obj) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.create(obj);
+            failed = false;
+        } finally {
+            record(Operation.CREATE, start, obj.getId(), 1, failed);
+        }
+    }
+
+    @Override
+    public T get(Integer id) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = delegate.get(id);
+            failed = false;
+            return result;
+        } finally {
+            record(Operation.GET, start, id, -1, failed);
+        }
+    }
+
+    @Override
+    public void update(T obj) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.update(obj);
+            failed = false;
+        } finally {
+            record(Operation.UPDATE, start, obj.getId(), 1, failed);
+        }
+    }
+
+    @Override
+    public void delete(Integer id) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.delete(id);
+            failed = false;
+        } finally {
+            record(Operation.DELETE, start, id, -1, failed);
+        }
+    }
+
+    @Override
+    public boolean compareAndUpdate(T obj, long expectedVersion) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            boolean updated = delegate.compareAndUpdate(obj, expectedVersion);
+            failed = false;
+            return updated;
+        } finally {
+            record(Operation.COMPARE_AND_UPDATE, start, obj.getId(), 1, failed);
+        }
+    }
+
+    @Override
+    public List<T> getAll() {
+        long start = System.nanoTime();
+        List<T> result = null;
+        try {
+            result = delegate.getAll();
+            return result;
+        } finally {
+            record(Operation.GET_ALL, start, result);
+        }
+    }
+
+    @Override
+    public List<T> find(Query<T> query) {
+        long start = System.nanoTime();
+        List<T> result = null;
+        try {
+            result = delegate.find(query);
+            return result;
+        } finally {
+            record(Operation.FIND, start, result);
+        }
+    }
+
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.createAll(objs);
+            failed = false;
+        } finally {
+            record(Operation.CREATE_ALL, start, null, objs.size(), failed);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.updateAll(objs);
+            failed = false;
+        } finally {
+            record(Operation.UPDATE_ALL, start, null, objs.size(), failed);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.deleteAll(ids);
+            failed = false;
+        } finally {
+            record(Operation.DELETE_ALL, start, null, ids.size(), failed);
+        }
+    }
+
+    @Override
+    public List<T> getAll(Collection<Integer> ids) {
+        long start = System.nanoTime();
+        List<T> result = null;
+        try {
+            result = delegate.getAll(ids);
+            return result;
+        } finally {
+            record(Operation.GET_ALL_BY_ID, start, result);
+        }
+    }
+
+    private void record(Operation operation, long start, Integer entityId, int size, boolean failed) {
+        long elapsed = System.nanoTime() - start;
+        metrics.get(operation).record(elapsed, failed);
+        reportSlow(operation, entityId, size, failed, elapsed);
+    }
+
+    private void record(Operation operation, long start, List<T> result) {
+        long elapsed = System.nanoTime() - start;
+        OperationStats stats = metrics.get(operation);
+        stats.record(elapsed, result == null);
+        if (result != null) {
+            stats.recordResultSize(result.size());
+        }
+        reportSlow(operation, null, result == null ? -1 : result.size(), result == null, elapsed);
+    }
+
+    private void reportSlow(Operation operation, Integer entityId, int size, boolean failed, long elapsed) {
+        SlowOperationLog slowLog = SlowOperationLog.active();
+        if (slowLog != null) {
+            slowLog.recordRepository(slowLogSlot, metrics.getName(), operation.label(), entityId == null ? -1 : entityId, size, failed, elapsed);
+        }
+    }
+}
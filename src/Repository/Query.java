@@ -0,0 +1,273 @@
+package Repository;
+
+import Model.HasId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A declarative query against an IRepository.
+ * A query is a conjunction of clauses (equality, range, prefix or a free-form predicate)
+ * plus an optional result limit. Each clause names the field it filters on, so repository
+ * implementations can recognise clauses they are able to answer from an index and fall back
+ * to evaluating the rest in memory.
+ *
+ * @param <T> The type of objects the query is evaluated against.
+ */
+public final class Query<T extends HasId> {
+
+    /**
+     * A single filter condition of a query.
+     *
+     * @param <T> The type of objects the clause is evaluated against.
+     */
+    public interface Clause<T> extends Predicate<T> {
+
+        /**
+         * Gets the name of the field the clause filters on.
+         * @return The field name, or null for free-form predicates.
+         */
+        String getField();
+    }
+
+    /**
+     * Matches objects whose field equals a given value.
+     */
+    public static final class Equals<T> implements Clause<T> {
+        private final String field;
+        private final Function<? super T, ?> extractor;
+        private final Object value;
+
+        private Equals(String field, Function<? super T, ?> extractor, Object value) {
+            this.field = field;
+            this.extractor = extractor;
+            this.value = value;
+        }
+
+        @Override
+        public String getField() {
+            return field;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean test(T obj) {
+            return Objects.equals(extractor.apply(obj), value);
+        }
+    }
+
+    /**
+     * Matches objects whose field lies within an inclusive range. A null bound is open.
+     */
+    public static final class Range<T, V extends Comparable<? super V>> implements Clause<T> {
+        private final String field;
+        private final Function<? super T, V> extractor;
+        private final V min;
+        private final V max;
+
+        private Range(String field, Function<? super T, V> extractor, V min, V max) {
+            this.field = field;
+            this.extractor = extractor;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public String getField() {
+            return field;
+        }
+
+        public V getMin() {
+            return min;
+        }
+
+        public V getMax() {
+            return max;
+        }
+
+        @Override
+        public boolean test(T obj) {
+            V value = extractor.apply(obj);
+            if (value == null) {
+                return false;
+            }
+            return (min == null || value.compareTo(min) >= 0) && (max == null || value.compareTo(max) <= 0);
+        }
+    }
+
+    /**
+     * Matches objects whose string field starts with a given prefix, ignoring case.
+     */
+    public static final class Prefix<T> implements Clause<T> {
+        private final String field;
+        private final Function<? super T, String> extractor;
+        private final String prefix;
+
+        private Prefix(String field, Function<? super T, String> extractor, String prefix) {
+            this.field = field;
+            this.extractor = extractor;
+            this.prefix = prefix.toLowerCase();
+        }
+
+        @Override
+        public String getField() {
+            return field;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        @Override
+        public boolean test(T obj) {
+            String value = extractor.apply(obj);
+            return value != null && value.toLowerCase().startsWith(prefix);
+        }
+    }
+
+    /**
+     * Matches objects accepted by an arbitrary predicate. Never answered from an index.
+     */
+    public static final class Where<T> implements Clause<T> {
+        private final Predicate<? super T> predicate;
+
+        private Where(Predicate<? super T> predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public String getField() {
+            return null;
+        }
+
+        @Override
+        public boolean test(T obj) {
+            return predicate.test(obj);
+        }
+    }
+
+    private final List<Clause<T>> clauses = new ArrayList<>();
+    private int limit = Integer.MAX_VALUE;
+
+    private Query() {
+    }
+
+    /**
+     * Creates a query that matches every object; narrow it down with the clause methods.
+     * @param <T> The type of objects the query is evaluated against.
+     * @return A new, unrestricted query.
+     */
+    public static <T extends HasId> Query<T> where() {
+        return new Query<>();
+    }
+
+    /**
+     * Adds an equality clause.
+     * @param field     The name of the field.
+     * @param extractor Function reading the field from an object.
+     * @param value     The value the field must equal.
+     * @return This query.
+     */
+    public Query<T> eq(String field, Function<? super T, ?> extractor, Object value) {
+        clauses.add(new Equals<>(field, extractor, value));
+        return this;
+    }
+
+    /**
+     * Adds an inclusive range clause.
+     * @param field     The name of the field.
+     * @param extractor Function reading the field from an object.
+     * @param min       The lower bound, or null for none.
+     * @param max       The upper bound, or null for none.
+     * @return This query.
+     */
+    public <V extends Comparable<? super V>> Query<T> range(String field, Function<? super T, V> extractor, V min, V max) {
+        clauses.add(new Range<>(field, extractor, min, max));
+        return this;
+    }
+
+    /**
+     * Adds a case-insensitive prefix clause.
+     * @param field     The name of the field.
+     * @param extractor Function reading the field from an object.
+     * @param prefix    The prefix the field must start with.
+     * @return This query.
+     */
+    public Query<T> prefix(String field, Function<? super T, String> extractor, String prefix) {
+        clauses.add(new Prefix<>(field, extractor, prefix));
+        return this;
+    }
+
+    /**
+     * Adds a free-form predicate clause.
+     * @param predicate The predicate objects must satisfy.
+     * @return This query.
+     */
+    public Query<T> matching(Predicate<? super T> predicate) {
+        clauses.add(new Where<>(predicate));
+        return this;
+    }
+
+    /**
+     * Restricts the number of results.
+     * @param limit The maximum number of objects to return.
+     * @return This query.
+     */
+    public Query<T> limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative.");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public List<Clause<T>> getClauses() {
+        return Collections.unmodifiableList(clauses);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Checks whether an object satisfies every clause of the query.
+     * @param obj The object to test.
+     * @return true if the object matches, false otherwise.
+     */
+    public boolean matches(T obj) {
+        for (Clause<T> clause : clauses) {
+            if (!clause.test(obj)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the query against a sequence of candidate objects, honouring the limit.
+     * @param candidates The objects to filter.
+     * @return The matching objects, at most limit of them.
+     */
+    public List<T> apply(Iterable<? extends T> candidates) {
+        List<T> result = new ArrayList<>();
+        if (limit == 0) {
+            return result;
+        }
+        for (T obj : candidates) {
+            if (matches(obj)) {
+                result.add(obj);
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
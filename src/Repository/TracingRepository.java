@@ -0,0 +1,174 @@
+package Repository;
+
+import Model.HasId;
+import Tracing.Span;
+import Tracing.Tracer;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Decorator that opens a trace span around every call to an IRepository. Spans are named
+ * "repository.operation" and tagged with the entity ID or the result size. They nest under the
+ * controller span of the request, so the trace shows every repository call a request made.
+ * While tracing is off, each call costs one volatile read.
+ *
+ * @param <T> The type of objects managed by the repository.
+ */
+public class TracingRepository<T extends HasId> implements IRepository<T> {
+
+    private final IRepository<T> delegate;
+    private final String name;
+
+    /**
+     * Constructs a TracingRepository on top of the given repository.
+     *
+     * @param delegate The repository to trace.
+     * @param name     The repository name used in span names, such as "games".
+     */
+    public TracingRepository(IRepository<T> delegate, String name) {
+        this.delegate = delegate;
+        this.name = name;
+    }
+
+    @Override
+    public void create(T obj) {
+        Span span = start("create", obj.getId());
+        try {
+            delegate.create(obj);
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    @Override
+    public T get(Integer id) {
+        Span span = start("get", id);
+        try {
+            return delegate.get(id);
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    @Override
+    public void update(T obj) {
+        Span span = start("update", obj.getId());
+        try {
+            delegate.update(obj);
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    @Override
+    public void delete(Integer id) {
+        Span span = start("delete", id);
+        try {
+            delegate.delete(id);
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    @Override
+    public boolean compareAndUpdate(T obj, long expectedVersion) {
+        Span span = start("compareAndUpdate", obj.getId());
+        try {
+            boolean updated = delegate.compareAndUpdate(obj, expectedVersion);
+            if (span != null) {
+                span.tag("updated", updated);
+            }
+            return updated;
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    @Override
+    public List<T> getAll() {
+        Span span = start("getAll", null);
+        try {
+            return sized(span, delegate.getAll());
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    @Override
+    public List<T> find(Query<T> query) {
+        Span span = start("find", null);
+        try {
+            return sized(span, delegate.find(query));
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        Span span = start("createAll", null);
+        try {
+            sized(span, objs.size());
+            delegate.createAll(objs);
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        Span span = start("updateAll", null);
+        try {
+            sized(span, objs.size());
+            delegate.updateAll(objs);
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        Span span = start("deleteAll", null);
+        try {
+            sized(span, ids.size());
+            delegate.deleteAll(ids);
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    @Override
+    public List<T> getAll(Collection<Integer> ids) {
+        Span span = start("getAllById", null);
+        try {
+            return sized(span, delegate.getAll(ids));
+        } finally {
+            Tracer.end(span);
+        }
+    }
+
+    private Span start(String operation, Integer entityId) {
+        if (!Tracer.isEnabled()) {
+            return null;
+        }
+        Span span = Tracer.start(name + "." + operation, Span.Kind.REPOSITORY);
+        if (span != null && entityId != null) {
+            span.tag("entity.id", entityId);
+        }
+        return span;
+    }
+
+    private static <L extends List<?>> L sized(Span span, L result) {
+        if (span != null && result != null) {
+            span.tag("result.size", result.size());
+        }
+        return result;
+    }
+
+    private static void sized(Span span, int size) {
+        if (span != null) {
+            span.tag("batch.size", size);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package Repository;
+
+import Model.HasId;
+import Model.Versioned;
+
+/**
+ * Helpers shared by the repository implementations for handling version stamps.
+ * Objects that do not implement Versioned are treated as always being at version 0.
+ */
+final class Versions {
+
+    private Versions() {
+    }
+
+    /**
+     * Gets the version of an object.
+     *
+     * @param obj The object.
+     * @return Its version, or 0 if it is not versioned.
+     */
+    static long of(HasId obj) {
+        return obj instanceof Versioned versioned ? versioned.getVersion() : 0L;
+    }
+
+    /**
+     * Stamps an object that is about to replace a stored one with the next version.
+     *
+     * @param obj    The object being written.
+     * @param stored The object currently stored under the same ID.
+     */
+    static void advance(HasId obj, HasId stored) {
+        if (obj instanceof Versioned versioned) {
+            versioned.setVersion(of(stored) + 1);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package Repository;
+
+import Model.HasId;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * A sequential write-ahead journal for the mutations of JournaledRepositories.
+ *
+ * Every mutation is appended to the journal as a redo entry holding the object as it was
+ * written, or the ID it deleted. A writer returns once its entries are on disk. Writers that
+ * arrive while an fsync is in progress queue their entries, and the next fsync writes all of
+ * them at once, so concurrent checkouts share the cost of a sync (group commit).
+ *
+ * Every checkpointInterval entries, the journal writes a snapshot of each registered repository
+ * to its file and truncates itself. On startup, recover replays the entries written since the
+ * last checkpoint on top of the snapshots. Entries are upserts and deletes by ID, so replaying an
+ * entry a checkpoint already covers does no harm. A record torn by a crash mid-append fails its
+ * checksum and is cut off, together with anything after it.
+ *
+ * Each record on disk is its length, a CRC32 of its bytes, and the serialized Entry.
+ */
+public class WriteAheadJournal implements Closeable {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    /**
+     * The kind of mutation an entry redoes.
+     */
+    public enum Kind {
+        PUT, DELETE
+    }
+
+    /**
+     * One journaled mutation of one repository.
+     *
+     * @param repository The name of the repository.
+     * @param kind       Whether the object was written or deleted.
+     * @param id         The ID of the object.
+     * @param value      The object as written, or null for a delete.
+     */
+    public record Entry(String repository, Kind kind, int id, HasId value) implements Serializable {
+    }
+
+    /**
+     * An entry read back from the file, with the number of bytes its record takes up.
+     */
+    private record Record(Entry entry, int size) {
+    }
+
+    private final Path path;
+    private final int checkpointInterval;
+    private final FileChannel channel;
+    private final Map<String, JournaledRepository<?>> repositories = new ConcurrentHashMap<>();
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final Object syncLock = new Object();
+    private final AtomicBoolean checkpointing = new AtomicBoolean();
+
+    private List<byte[]> pending = new ArrayList<>();
+    private long lastSequence;
+    private long entriesSinceCheckpoint;
+    private volatile long durableSequence;
+    private long syncCount;
+    private long checkpointCount;
+
+    /**
+     * Opens a journal, creating the file if it does not exist. Call recover once every
+     * repository has registered, before any is written to.
+     *
+     * @param path               The journal file.
+     * @param checkpointInterval The number of entries after which a checkpoint is taken.
+     */
+    public WriteAheadJournal(Path path, int checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be greater than 0.");
+        }
+        this.path = path;
+        this.checkpointInterval = checkpointInterval;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal " + path, e);
+        }
+    }
+
+    /**
+     * Replays the entries written since the last checkpoint into the registered repositories,
+     * and cuts off a torn record at the end of the file.
+     *
+     * @return The number of entries replayed.
+     */
+    public int recover() {
+        checkpointLock.writeLock().lock();
+        try {
+            int replayed = 0;
+            long valid = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path.toFile())))) {
+                for (Record record = readRecord(in); record != null; record = readRecord(in)) {
+                    JournaledRepository<?> repository = repositories.get(record.entry().repository());
+                    if (repository != null) {
+                        repository.replay(record.entry());
+                    }
+                    replayed++;
+                    valid += record.size();
+                }
+            }
+            if (valid < channel.size()) {
+                System.out.println("Journal " + path + ": dropped a torn record at offset " + valid + ".");
+                channel.truncate(valid);
+            }
+            channel.position(valid);
+            synchronized (this) {
+                entriesSinceCheckpoint = replayed;
+            }
+            if (replayed > 0) {
+                System.out.println("Replayed " + replayed + " journal entries from " + path + ".");
+            }
+            return replayed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay journal " + path, e);
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of every registered repository and empties the journal. The journal is
+     * only emptied once every snapshot is on disk; if one fails, the journal keeps its entries
+     * and the exception is thrown, and recovery replays them over whichever snapshots were written.
+     *
+     * @throws UncheckedIOException if a snapshot or the journal could not be written.
+     */
+    public void checkpoint() {
+        checkpointLock.writeLock().lock();
+        try {
+            synchronized (syncLock) {
+                for (JournaledRepository<?> repository : repositories.values()) {
+                    repository.writeSnapshot();
+                }
+                long upTo;
+                synchronized (this) {
+                    pending = new ArrayList<>();
+                    upTo = lastSequence;
+                    entriesSinceCheckpoint = 0;
+                    checkpointCount++;
+                }
+                channel.truncate(0);
+                channel.force(true);
+                durableSequence = upTo;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not checkpoint journal " + path, e);
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Takes a final checkpoint and closes the journal file.
+     */
+    @Override
+    public void close() {
+        checkpoint();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close journal " + path, e);
+        }
+    }
+
+    /**
+     * Gets the number of fsyncs of the journal file.
+     *
+     * @return The sync count.
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Gets the number of checkpoints taken.
+     *
+     * @return The checkpoint count.
+     */
+    public synchronized long getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * Gets the number of entries written since the last checkpoint.
+     *
+     * @return The entry count.
+     */
+    public synchronized long getEntriesSinceCheckpoint() {
+        return entriesSinceCheckpoint;
+    }
+
+    /**
+     * Registers a repository whose entries this journal records and replays.
+     */
+    void register(String name, JournaledRepository<?> repository) {
+        if (repositories.putIfAbsent(name, repository) != null) {
+            throw new IllegalArgumentException("A repository named " + name + " is already journaled.");
+        }
+    }
+
+    /**
+     * Applies a mutation and queues its entries, with no checkpoint in progress, then waits
+     * until the entries are on disk.
+     *
+     * @param lock     The lock ordering the repository's mutations, held while the mutation is
+     *                 applied and its entries queued so the journal records them in the same order.
+     * @param mutation Applies the mutation and returns the entries that redo it.
+     */
+    void write(Object lock, Supplier<List<Entry>> mutation) {
+        long sequence = 0;
+        checkpointLock.readLock().lock();
+        try {
+            synchronized (lock) {
+                List<Entry> entries = mutation.get();
+                if (!entries.isEmpty()) {
+                    sequence = append(entries);
+                }
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        if (sequence > 0) {
+            awaitDurable(sequence);
+            checkpointIfDue();
+        }
+    }
+
+    private synchronized long append(List<Entry> entries) {
+        for (Entry entry : entries) {
+            pending.add(encode(entry));
+        }
+        entriesSinceCheckpoint += entries.size();
+        return ++lastSequence;
+    }
+
+    /**
+     * Waits until the entries queued under a sequence number are on disk. The first waiter
+     * writes and syncs everything queued so far; those queued behind it are covered by that sync.
+     */
+    private void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durableSequence >= sequence) {
+                return;
+            }
+            List<byte[]> batch;
+            long upTo;
+            synchronized (this) {
+                batch = pending;
+                pending = new ArrayList<>();
+                upTo = lastSequence;
+            }
+            try {
+                int size = 0;
+                for (byte[] record : batch) {
+                    size += record.length;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(size);
+                for (byte[] record : batch) {
+                    buffer.put(record);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not append to journal " + path, e);
+            }
+            synchronized (this) {
+                syncCount++;
+            }
+            durableSequence = upTo;
+        }
+    }
+
+    /**
+     * Takes a checkpoint if enough entries have been written since the last one. The caller's
+     * write is already durable, so a failed checkpoint is logged rather than thrown, and the next
+     * write tries again.
+     */
+    private void checkpointIfDue() {
+        if (getEntriesSinceCheckpoint() < checkpointInterval || !checkpointing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (getEntriesSinceCheckpoint() >= checkpointInterval) {
+                checkpoint();
+            }
+        } catch (UncheckedIOException e) {
+            System.err.println("Journal " + path + ": checkpoint failed, entries kept: " + e.getMessage());
+        } finally {
+            checkpointing.set(false);
+        }
+    }
+
+    private static byte[] encode(Entry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode journal entry", e);
+        }
+        byte[] body = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return ByteBuffer.allocate(HEADER_BYTES + body.length)
+                .putInt(body.length)
+                .putLong(crc.getValue())
+                .put(body)
+                .array();
+    }
+
+    /**
+     * Reads the next record, or returns null at the end of the file or at a torn record.
+     */
+    private static Record readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            long checksum = in.readLong();
+            if (length <= 0) {
+                return null;
+            }
+            byte[] body = in.readNBytes(length);
+            if (body.length < length) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if (crc.getValue() != checksum) {
+                return null;
+            }
+            try (ObjectInputStream entry = new ObjectInputStream(new ByteArrayInputStream(body))) {
+                return new Record((Entry) entry.readObject(), HEADER_BYTES + length);
+            }
+        } catch (EOFException | ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
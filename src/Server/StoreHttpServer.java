@@ -0,0 +1,534 @@
+package Server;
+
+import Controller.*;
+import Metrics.SlowOperationLog;
+import Model.*;
+import Presentation.StoreContext;
+import Service.Session;
+import Tracing.Tracer;
+import Exception.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Headless HTTP front end exposing the store's controllers as a JSON API on the JDK's built-in server.
+ * Each request runs on its own virtual thread when the JVM supports them, and on a cached thread
+ * pool otherwise. Connections are kept alive between requests, since every response carries its length.
+ *
+ * Authenticated endpoints expect the token returned by POST /api/login in an
+ * "Authorization: Bearer &lt;token&gt;" header. POST /api/cart/checkout accepts an
+ * "Idempotency-Key" header; retrying with the same key returns the original order.
+ *
+ * Usage: java Server.StoreHttpServer [port] [memory|file]
+ */
+public class StoreHttpServer {
+    private static final String API_PREFIX = "/api";
+
+    private final AccountController accountController;
+    private final GameController gameController;
+    private final CustomerController customerController;
+    private final ShoppingCartController shoppingCartController;
+    private final ReviewController reviewController;
+    private final MetricsController metricsController;
+    private final CampaignController campaignController;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<Route> routes = new ArrayList<>();
+
+    /**
+     * Constructs a server over the controllers of a store context, bound to the given port.
+     *
+     * @param context The store to expose.
+     * @param port    The TCP port, or 0 to pick a free one.
+     * @throws IOException if the port cannot be bound.
+     */
+    public StoreHttpServer(StoreContext context, int port) throws IOException {
+        this.accountController = context.getAccountController();
+        this.gameController = context.getGameController();
+        this.customerController = context.getCustomerController();
+        this.shoppingCartController = context.getShoppingCartController();
+        this.reviewController = context.getReviewController();
+        this.metricsController = context.getMetricsController();
+        this.campaignController = context.getCampaignController();
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext(API_PREFIX, this::dispatch);
+        registerRoutes();
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most the given time for running requests to finish.
+     *
+     * @param delaySeconds The maximum time to wait.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * Gets the port the server is bound to.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void registerRoutes() {
+        route("POST", "/signup", request -> {
+            Map<String, String> body = request.body();
+            accountController.signUp(body.get("username"), body.get("email"), body.get("password"));
+            return null;
+        });
+        route("POST", "/login", request -> {
+            Map<String, String> body = request.body();
+            Session session = accountController.logIn(body.get("email"), body.get("password"));
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("token", session.getToken());
+            json.put("userId", session.getUser().getId());
+            json.put("role", session.getUser().getRole());
+            return json;
+        });
+        route("POST", "/logout", request -> {
+            accountController.logOut(request.session());
+            return null;
+        });
+        route("DELETE", "/account", request -> {
+            accountController.deleteAccount(request.session());
+            return null;
+        });
+
+        route("GET", "/games", request -> games(gameController.getAllGames()));
+        route("GET", "/games/search", request -> games(customerController.searchGameByName(request.session(), request.query("name"))));
+        route("GET", "/games/sorted", request -> games("price".equalsIgnoreCase(request.query("by"))
+                ? customerController.sortGamesByPriceDescending()
+                : customerController.sortGamesByNameAscending()));
+        route("GET", "/games/filter", request -> games(request.query("genre") != null
+                ? customerController.filterGamesByGenre(request.query("genre"))
+                : customerController.filterGamesByPriceRange(request.queryFloat("min"), request.queryFloat("max"))));
+        route("GET", "/games/(\\d+)", request -> game(gameController.getGameById(request.pathInt(1))));
+        route("GET", "/games/(\\d+)/reviews", request -> reviews(reviewController.getReviewsForGame(request.pathInt(1))));
+
+        route("GET", "/wallet", request -> Map.of("balance", customerController.getWalletBalance(request.session()).toBigDecimal()));
+        route("POST", "/wallet", request -> {
+            Session session = request.session();
+            Map<String, String> body = request.body();
+            customerController.addFundsToWallet(session, body.get("paymentMethod"), parseFloat(body.get("amount")));
+            return Map.of("balance", customerController.getWalletBalance(session).toBigDecimal());
+        });
+        route("GET", "/library", request -> games(customerController.viewGamesLibrary(request.session())));
+
+        route("GET", "/cart", request -> cart(shoppingCartController.getShoppingCart(cartId(request))));
+        route("DELETE", "/cart", request -> {
+            shoppingCartController.clearCart(cartId(request));
+            return null;
+        });
+        route("GET", "/cart/total", request -> Map.of("total", shoppingCartController.getCartTotalPrice(cartId(request)).toBigDecimal()));
+        route("POST", "/cart/games/(\\d+)", request -> {
+            int cartId = cartId(request);
+            shoppingCartController.addGameToCart(cartId, request.pathInt(1));
+            return cart(shoppingCartController.getShoppingCart(cartId));
+        });
+        route("DELETE", "/cart/games/(\\d+)", request -> {
+            int cartId = cartId(request);
+            shoppingCartController.removeGameFromCart(cartId, request.pathInt(1));
+            return cart(shoppingCartController.getShoppingCart(cartId));
+        });
+        route("POST", "/cart/checkout", request -> {
+            Order order = shoppingCartController.checkout(cartId(request), request.header("Idempotency-Key"));
+            return Map.of("orderId", order.getOrderId());
+        });
+        route("GET", "/orders", request -> orders(shoppingCartController.getAllOrdersByCustomer(customer(request))));
+
+        route("GET", "/reviews", request -> reviews(reviewController.getAllReviews()));
+        route("POST", "/reviews", request -> {
+            Map<String, String> body = request.body();
+            reviewController.leaveReview(request.session(), parseInt(body.get("gameId")), parseInt(body.get("rating")));
+            return null;
+        });
+
+        route("GET", "/metrics", request -> metricsController.getMetricsSnapshot(request.session()));
+
+        route("GET", "/campaigns", request -> campaigns(campaignController.getCampaigns()));
+        route("POST", "/campaigns", request -> {
+            Map<String, String> body = request.body();
+            return campaign(campaignController.scheduleCampaign(request.session(), body.get("name"), parseFloat(body.get("percentage")),
+                    parseGenres(body.get("genres")), parseIds(body.get("gameIds")),
+                    parseInstant(body.get("startsAt")), parseInstant(body.get("endsAt"))));
+        });
+        route("DELETE", "/campaigns/(\\d+)", request -> {
+            campaignController.cancelCampaign(request.session(), request.pathInt(1));
+            return null;
+        });
+    }
+
+    private void route(String method, String path, Handler handler) {
+        routes.add(new Route(method, Pattern.compile(API_PREFIX + path), handler));
+    }
+
+    /**
+     * Finds the route for a request, runs it and writes the JSON response.
+     */
+    private void dispatch(HttpExchange exchange) throws IOException {
+        int status = 200;
+        Object result;
+        try {
+            result = handle(exchange);
+            if (result == null) {
+                result = Map.of("ok", true);
+            }
+        } catch (NotFound e) {
+            status = 404;
+            result = error(e.getMessage());
+        } catch (MethodNotAllowed e) {
+            status = 405;
+            exchange.getResponseHeaders().set("Allow", e.allow);
+            result = error(e.getMessage());
+        } catch (Unauthorized e) {
+            status = 401;
+            result = error(e.getMessage());
+        } catch (ValidationException | IllegalArgumentException e) {
+            status = 400;
+            result = error(e.getMessage());
+        } catch (EntityNotFoundException e) {
+            status = 404;
+            result = error(e.getMessage());
+        } catch (BusinessLogicException | OptimisticLockException e) {
+            status = 409;
+            result = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            result = error(String.valueOf(e.getMessage()));
+        }
+
+        byte[] bytes = Json.write(result).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Object handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Set<String> allowed = new LinkedHashSet<>();
+        for (Route route : routes) {
+            Matcher matcher = route.pattern.matcher(path);
+            if (matcher.matches()) {
+                if (route.method.equals(exchange.getRequestMethod())) {
+                    return route.handler.handle(new Request(exchange, matcher));
+                }
+                allowed.add(route.method);
+            }
+        }
+        if (!allowed.isEmpty()) {
+            throw new MethodNotAllowed(allowed);
+        }
+        throw new NotFound("No such endpoint: " + path);
+    }
+
+    private int cartId(Request request) {
+        return customerController.getShoppingCartId(request.session());
+    }
+
+    private Customer customer(Request request) {
+        return request.session().getCustomer();
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("error", message);
+        return json;
+    }
+
+    private static Map<String, Object> game(Game game) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", game.getGameId());
+        json.put("name", game.getGameName());
+        json.put("description", game.getGameDescription());
+        json.put("genre", game.getGameGenre() != null ? game.getGameGenre().name() : null);
+        json.put("price", game.getPrice());
+        json.put("discountedPrice", game.getDiscountedPrice());
+        json.put("reviews", game.getReviews().size());
+        return json;
+    }
+
+    private static List<Object> games(List<Game> games) {
+        List<Object> json = new ArrayList<>(games.size());
+        for (Game game : games) {
+            json.add(game(game));
+        }
+        return json;
+    }
+
+    private static Map<String, Object> cart(ShoppingCart cart) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", cart.getShoppingCartId());
+        json.put("status", cart.getStatus());
+        json.put("games", games(cart.getListOfGames()));
+        json.put("subtotal", cart.getSubtotal().toBigDecimal());
+        json.put("total", cart.getTotal().toBigDecimal());
+        return json;
+    }
+
+    private static List<Object> orders(List<Order> orders) {
+        List<Object> json = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", order.getOrderId());
+            item.put("customerId", order.getCustomer() != null ? order.getCustomer().getId() : null);
+            item.put("games", games(order.getPurchasedGames()));
+            json.add(item);
+        }
+        return json;
+    }
+
+    private static List<Object> reviews(List<Review> reviews) {
+        List<Object> json = new ArrayList<>(reviews.size());
+        for (Review review : reviews) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", review.getReviewID());
+            item.put("rating", review.getRating());
+            item.put("gameId", review.getGame() != null ? review.getGame().getGameId() : null);
+            item.put("customer", review.getCustomer() != null ? review.getCustomer().getUsername() : null);
+            json.add(item);
+        }
+        return json;
+    }
+
+    private static Map<String, Object> campaign(DiscountCampaign campaign) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", campaign.getCampaignId());
+        json.put("name", campaign.getName());
+        json.put("percentage", campaign.getDiscountPercentage());
+        json.put("genres", campaign.getGenres().toString());
+        json.put("gameIds", campaign.getGameIds().toString());
+        json.put("startsAt", campaign.getStartsAt().toString());
+        json.put("endsAt", campaign.getEndsAt().toString());
+        json.put("status", campaign.getStatus().name());
+        return json;
+    }
+
+    private static List<Object> campaigns(List<DiscountCampaign> campaigns) {
+        List<Object> json = new ArrayList<>(campaigns.size());
+        for (DiscountCampaign campaign : campaigns) {
+            json.add(campaign(campaign));
+        }
+        return json;
+    }
+
+    private static Set<GameGenre> parseGenres(String value) {
+        Set<GameGenre> genres = EnumSet.noneOf(GameGenre.class);
+        if (value != null && !value.isBlank()) {
+            for (String genre : value.split(",")) {
+                try {
+                    genres.add(GameGenre.valueOf(genre.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    throw new ValidationException("Unknown genre: " + genre.trim());
+                }
+            }
+        }
+        return genres;
+    }
+
+    private static Set<Integer> parseIds(String value) {
+        Set<Integer> ids = new HashSet<>();
+        if (value != null && !value.isBlank()) {
+            for (String id : value.split(",")) {
+                ids.add(parseInt(id.trim()));
+            }
+        }
+        return ids;
+    }
+
+    private static Instant parseInstant(String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new ValidationException("Expected an ISO-8601 instant but got: " + value);
+        }
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Expected an integer but got: " + value);
+        }
+    }
+
+    private static float parseFloat(String value) {
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new ValidationException("Expected a number but got: " + value);
+        }
+    }
+
+    /**
+     * Creates a virtual-thread-per-request executor when the JVM provides one, falling back
+     * to a cached platform thread pool on older JVMs.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        boolean inFile = args.length > 1 && "file".equalsIgnoreCase(args[1]);
+
+        Tracer.configureFromSystemProperties();
+        SlowOperationLog.configureFromSystemProperties();
+        StoreContext context = inFile ? StoreContext.inFile() : StoreContext.inMemory();
+        context.initializeGames();
+        context.startBackgroundTasks();
+
+        StoreHttpServer server = new StoreHttpServer(context, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        server.start();
+        System.out.println("Game Store API listening on http://localhost:" + server.getPort() + API_PREFIX);
+    }
+
+    /**
+     * Handles a matched request and returns the value to serialize, or null for a plain acknowledgement.
+     */
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Request request) throws IOException;
+    }
+
+    private static class Route {
+        private final String method;
+        private final Pattern pattern;
+        private final Handler handler;
+
+        Route(String method, Pattern pattern, Handler handler) {
+            this.method = method;
+            this.pattern = pattern;
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * A request being handled: path parameters, query string, body and session.
+     */
+    private class Request {
+        private final HttpExchange exchange;
+        private final Matcher path;
+        private Map<String, String> query;
+
+        Request(HttpExchange exchange, Matcher path) {
+            this.exchange = exchange;
+            this.path = path;
+        }
+
+        int pathInt(int group) {
+            return parseInt(path.group(group));
+        }
+
+        String query(String name) {
+            if (query == null) {
+                query = new HashMap<>();
+                String raw = exchange.getRequestURI().getRawQuery();
+                if (raw != null) {
+                    for (String pair : raw.split("&")) {
+                        int eq = pair.indexOf('=');
+                        String key = eq >= 0 ? pair.substring(0, eq) : pair;
+                        String value = eq >= 0 ? pair.substring(eq + 1) : "";
+                        query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            return query.get(name);
+        }
+
+        float queryFloat(String name) {
+            return parseFloat(query(name));
+        }
+
+        Map<String, String> body() throws IOException {
+            try (InputStream in = exchange.getRequestBody()) {
+                return Json.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        String header(String name) {
+            return exchange.getRequestHeaders().getFirst(name);
+        }
+
+        Session session() {
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            if (header == null || !header.startsWith("Bearer ")) {
+                throw new Unauthorized("Missing bearer token.");
+            }
+            try {
+                return accountController.getSession(header.substring("Bearer ".length()).trim());
+            } catch (BusinessLogicException e) {
+                throw new Unauthorized(e.getMessage());
+            }
+        }
+    }
+
+    private static class NotFound extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        NotFound(String message) {
+            super(message);
+        }
+    }
+
+    private static class Unauthorized extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unauthorized(String message) {
+            super(message);
+        }
+    }
+
+    private static class MethodNotAllowed extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final String allow;
+
+        MethodNotAllowed(Set<String> allowed) {
+            super("Method not allowed.");
+            this.allow = String.join(", ", allowed);
+        }
+    }
+}
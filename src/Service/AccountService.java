@@ -2,8 +2,10 @@ package Service;
 
 import Model.*;
 import Repository.IRepository;
+import Repository.Query;
 import Exception.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
@@ -12,6 +14,7 @@ import Repository.InMemoryRepository;
 
 /**
  * Service class for managing user accounts, including authentication, role-based signup, and account deletion.
+ * A successful login opens a Session; every other service identifies the acting user through it.
  */
 public class AccountService {
     private final IRepository<User> userRepository; //ambele
@@ -19,7 +22,10 @@ public class AccountService {
     private final  IRepository<Developer> developerRepository;
     private final IRepository<Customer> customerRepository;
     private final IRepository<ShoppingCart> shoppingCartRepository;
-    private User loggedInUser;
+    private final SessionManager sessionManager;
+    private final WalletLedger walletLedger;
+    private final PurchaseEventStore purchaseEvents;
+    private final Object signUpLock = new Object();
 
     /**
      * Constructs the AccountService with repositories for different user types.
@@ -31,6 +37,40 @@ public class AccountService {
      * @param shoppingCartRepository The repository for storing and retrieving shopping carts.
      */
     public AccountService(IRepository<User> userRepository, IRepository<Admin> adminRepository, IRepository<Developer> developerRepository, IRepository<Customer> customerRepository, IRepository<ShoppingCart> shoppingCartRepository) {
+        this(userRepository, adminRepository, developerRepository, customerRepository, shoppingCartRepository, new SessionManager(Duration.ofMinutes(30)));
+    }
+
+    /**
+     * Constructs the AccountService with repositories for different user types and a session manager.
+     *
+     * @param userRepository The repository for storing and retrieving users.
+     * @param adminRepository The repository for storing and retrieving administrators.
+     * @param developerRepository The repository for storing and retrieving developers.
+     * @param customerRepository The repository for storing and retrieving customers.
+     * @param shoppingCartRepository The repository for storing and retrieving shopping carts.
+     * @param sessionManager The manager keeping the active sessions.
+     */
+    public AccountService(IRepository<User> userRepository, IRepository<Admin> adminRepository, IRepository<Developer> developerRepository, IRepository<Customer> customerRepository, IRepository<ShoppingCart> shoppingCartRepository, SessionManager sessionManager) {
+        this(userRepository, adminRepository, developerRepository, customerRepository, shoppingCartRepository, sessionManager, null, null);
+    }
+
+    /**
+     * Constructs the AccountService with repositories for different user types, a session manager,
+     * and the wallet ledger and purchase event store a deleted customer is removed from.
+     *
+     * @param userRepository The repository for storing and retrieving users.
+     * @param adminRepository The repository for storing and retrieving administrators.
+     * @param developerRepository The repository for storing and retrieving developers.
+     * @param customerRepository The repository for storing and retrieving customers.
+     * @param shoppingCartRepository The repository for storing and retrieving shopping carts.
+     * @param sessionManager The manager keeping the active sessions.
+     * @param walletLedger The ledger holding customer wallets, or null.
+     * @param purchaseEvents The store recording purchases, or null.
+     */
+    public AccountService(IRepository<User> userRepository, IRepository<Admin> adminRepository, IRepository<Developer> developerRepository, IRepository<Customer> customerRepository, IRepository<ShoppingCart> shoppingCartRepository, SessionManager sessionManager, WalletLedger walletLedger, PurchaseEventStore purchaseEvents) {
+        this.sessionManager = sessionManager;
+        this.walletLedger = walletLedger;
+        this.purchaseEvents = purchaseEvents;
         this.userRepository = userRepository;
         this.adminRepository = adminRepository != null ? adminRepository : new InMemoryRepository<>();
         this.developerRepository = developerRepository != null ? developerRepository : new InMemoryRepository<>();
@@ -40,6 +80,8 @@ public class AccountService {
 
     /**
      * Registers a new user with the given details and assigns a role based on the email domain.
+     * Sign-ups run one at a time, so two of them can neither both pass the email check nor be
+     * allocated the same ID.
      *
      * @param username The username for the new account.
      * @param email The email for the new account.
@@ -48,80 +90,81 @@ public class AccountService {
      * @throws BusinessLogicException if the email is already in use.
      */
     public boolean signUp(String username, String email, String password) {
-        if (isEmailUsed(email)) {
-            throw new BusinessLogicException("Email is already in use.");
-        }
+        synchronized (signUpLock) {
+            if (isEmailUsed(email)) {
+                throw new BusinessLogicException("Email is already in use.");
+            }
+
+            String role = determineRoleByEmail(email);
+            int userId;
 
-        String role = determineRoleByEmail(email);
-        int userId;
+            User newUser;
+            switch (role) {
+                case "Admin":
+                    userId = nextId(adminRepository != null ? adminRepository : userRepository);
+                    newUser = new Admin(userId, username, email, password, role);
+                    if (adminRepository != null) {
+                        adminRepository.create((Admin) newUser);
+                    } else {
+                        userRepository.create(newUser);
+                    }
+                    break;
+                case "Developer":
+                    userId = nextId(developerRepository != null ? developerRepository : userRepository);
+                    newUser = new Developer(userId, username, email, password, role, new ArrayList<>());
+                    if (developerRepository != null) {
+                        developerRepository.create((Developer) newUser);
+                    } else {
+                        userRepository.create(newUser);
+                    }
+                    break;
 
-        User newUser;
-        switch (role) {
-            case "Admin":
-                userId = (adminRepository != null ? adminRepository.getAll().size() : userRepository.getAll().size()) + 1;
-                newUser = new Admin(userId, username, email, password, role);
-                if (adminRepository != null) {
-                    adminRepository.create((Admin) newUser);
-                } else {
-                    userRepository.create(newUser);
-                }
-                break;
-            case "Developer":
-                userId = (developerRepository != null ? developerRepository.getAll().size() : userRepository.getAll().size()) + 1;
-                newUser = new Developer(userId, username, email, password, role, new ArrayList<>());
-                if (developerRepository != null) {
-                    developerRepository.create((Developer) newUser);
-                } else {
-                    userRepository.create(newUser);
-                }
-                break;
+                case "Customer":
+                    userId = nextId(customerRepository != null ? customerRepository : userRepository);
+                    Customer newCustomer = new Customer(userId, username, email, password, role, 0.0f, new ArrayList<>(), new ArrayList<>(), null);
+                    ShoppingCart shoppingCart = new ShoppingCart(userId, newCustomer);
+                    newCustomer.setShoppingCart(shoppingCart);
 
-            case "Customer":
-                userId = (customerRepository != null ? customerRepository.getAll().size() : userRepository.getAll().size()) + 1;
-                Customer newCustomer = new Customer(userId, username, email, password, role, 0.0f, new ArrayList<>(), new ArrayList<>(), null);
-                ShoppingCart shoppingCart = new ShoppingCart(userId, newCustomer);
-                newCustomer.setShoppingCart(shoppingCart);
+                    if (customerRepository != null) {
+                        customerRepository.create(newCustomer);
+                        shoppingCartRepository.create(shoppingCart);
+                    } else {
+                        userRepository.create(newCustomer);
+                        shoppingCartRepository.create(shoppingCart);
+                    }
+                    break;
+            }
 
-                if (customerRepository != null) {
-                    customerRepository.create(newCustomer);
-                    shoppingCartRepository.create(shoppingCart);
-                } else {
-                    userRepository.create(newCustomer);
-                    shoppingCartRepository.create(shoppingCart);
-                }
-                break;
+            return true;
         }
-
-        return true;
     }
 
 
     /**
-     * Authenticates a user with their email and password.
+     * Authenticates a user with their email and password and opens a session for them.
      * @param email The email of the user.
      * @param password The password of the user.
-     * @return true if login is successful, false otherwise.
+     * @return The new session.
      * @throws BusinessLogicException if the email or password is incorrect.
      */
-    public boolean logIn(String email, String password) {
-        List<User> users = new ArrayList<>(userRepository.getAll());
+    public Session logIn(String email, String password) {
+        List<User> users = new ArrayList<>(userRepository.find(byEmail(email)));
 
         if (adminRepository != null) {
-            users.addAll(adminRepository.getAll());
+            users.addAll(adminRepository.find(byEmail(email)));
         }
         if (developerRepository != null) {
-            users.addAll(developerRepository.getAll());
+            users.addAll(developerRepository.find(byEmail(email)));
         }
 
         if (customerRepository != null) {
-            users.addAll(customerRepository.getAll());
+            users.addAll(customerRepository.find(byEmail(email)));
         }
 
         for (User u : users) {
             if (u.getEmail().equals(email) && u.getPassword().equals(password)) {
-                loggedInUser = u;
-                System.out.println("Successful authentication for user: " + loggedInUser.getUsername());
-                return true;
+                System.out.println("Successful authentication for user: " + u.getUsername());
+                return sessionManager.open(u);
             }
         }
 
@@ -129,24 +172,36 @@ public class AccountService {
     }
 
     /**
-     * Logs out the currently logged-in user.
+     * Looks up an active session by its token.
+     * @param token The session token.
+     * @return The session.
+     * @throws BusinessLogicException if the token is unknown or the session has expired.
+     */
+    public Session getSession(String token) {
+        return sessionManager.get(token);
+    }
+
+    /**
+     * Logs out the user of a session by closing it.
+     * @param session The session to close.
      * @return true if the user was logged out successfully.
-     * @throws BusinessLogicException if no user is logged in.
+     * @throws BusinessLogicException if the session is not active.
      */
-    public boolean logOut() {
-        if (loggedInUser != null) {
-            loggedInUser = null;
+    public boolean logOut(Session session) {
+        if (sessionManager.close(session)) {
             return true;
         }
         throw new BusinessLogicException("No user is logged in to log out.");
     }
 
     /**
-     * Deletes the currently logged-in user's account.
+     * Deletes the account of a session's user and closes all of that user's sessions.
+     * @param session The session of the user to delete.
      * @return true if the account was deleted, false otherwise.
      * @throws BusinessLogicException if no user is logged in or if the repository is not initialized.
      */
-    public boolean deleteAccount() {
+    public boolean deleteAccount(Session session) {
+        User loggedInUser = session != null ? session.getUser() : null;
         if (loggedInUser != null) {
             switch (loggedInUser.getRole()) {
                 case "Admin":
@@ -177,6 +232,12 @@ public class AccountService {
                             customerToDelete.getGamesLibrary().clear();
                         }
                         customerRepository.delete(customerToDelete.getId());
+                        if (walletLedger != null) {
+                            walletLedger.close(customerToDelete.getId());
+                        }
+                        if (purchaseEvents != null) {
+                            purchaseEvents.appendAccountDeleted(customerToDelete.getId());
+                        }
                     } else {
                         throw new BusinessLogicException("User repository is not initialized.");
                     }
@@ -189,7 +250,7 @@ public class AccountService {
                     }
                     break;
             }
-            loggedInUser = null;
+            sessionManager.closeAllFor(loggedInUser);
             return true;
         }
         throw new BusinessLogicException("No user is logged in to delete.");
@@ -204,30 +265,34 @@ public class AccountService {
     private boolean isEmailUsed(String email) {
 
         if (userRepository != null) {
-            for (User user : userRepository.getAll()) {
-                if (user.getEmail().equals(email)) {
-                    return true;
-                }
-            }
-        } else {
-            for (Admin admin : adminRepository.getAll()) {
-                if (admin.getEmail().equals(email)) {
-                    return true;
-                }
-            }
-            for (Developer developer : developerRepository.getAll()) {
-                if (developer.getEmail().equals(email)) {
-                    return true;
-                }
-            }
+            return !userRepository.find(AccountService.<User>byEmail(email).limit(1)).isEmpty();
+        }
+        return !adminRepository.find(AccountService.<Admin>byEmail(email).limit(1)).isEmpty()
+                || !developerRepository.find(AccountService.<Developer>byEmail(email).limit(1)).isEmpty()
+                || !customerRepository.find(AccountService.<Customer>byEmail(email).limit(1)).isEmpty();
+    }
 
-             for (Customer customer : customerRepository.getAll()) {
-                 if (customer.getEmail().equals(email)) {
-                     return true;
-                 }
-             }
+    /**
+     * Allocates the ID for a new account: one past the highest ID in use, so an account never
+     * takes the ID of one that still exists after others were deleted.
+     * @param repository The repository the account will be stored in.
+     * @return The new ID.
+     */
+    private static int nextId(IRepository<? extends User> repository) {
+        int maxId = 0;
+        for (User user : repository.getAll()) {
+            maxId = Math.max(maxId, user.getId());
         }
-        return false;
+        return maxId + 1;
+    }
+
+    /**
+     * Builds a query matching users with the given email.
+     * @param email The email to look for.
+     * @return A query on the "email" field.
+     */
+    private static <U extends User> Query<U> byEmail(String email) {
+        return Query.<U>where().eq("email", User::getEmail, email);
     }
 
     /**
@@ -249,10 +314,10 @@ public class AccountService {
     }
 
     /**
-     * Retrieves the currently logged-in user.
-     * @return The logged-in user, or null if no user is logged in.
+     * Retrieves the session manager holding the active sessions.
+     * @return The session manager.
      */
-    public User getLoggedInUser() {
-        return loggedInUser;
+    public SessionManager getSessionManager() {
+        return sessionManager;
     }
 }
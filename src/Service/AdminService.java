@@ -2,22 +2,36 @@ package Service;
 
 import Model.*;
 import Repository.IRepository;
+import Repository.Query;
 import Exception.BusinessLogicException;
 
 import javax.management.relation.Role;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service class for admin-specific functions, such as managing games and applying discounts.
  */
 public class AdminService {
+    /**
+     * The number of games one fork/join leaf computes before reporting progress.
+     */
+    static final int BULK_LEAF_SIZE = 512;
+
     private final IRepository<Game> gameRepository;
     private final IRepository<Admin> adminRepository;
     private final IRepository<Discount> discountRepository;
     private final IRepository<User> userRepository;
     private final IRepository<Developer> developerRepository;
     private final IRepository<Customer> customerRepository;
-    private Admin loggedInAdmin;
+    private final PricingEngine pricingEngine;
+    private final WalletLedger walletLedger;
+    private final PurchaseEventStore purchaseEvents;
 
     /**
      * Constructs the AdminService with game, admin, and discount repositories.
@@ -28,32 +42,30 @@ public class AdminService {
      * @param userRepository The repository for managing general users.
      * @param developerRepository The repository for managing developers.
      * @param customerRepository The repository for managing customers.
+     * @param pricingEngine The engine caching effective game prices.
+     * @param walletLedger The ledger holding customer wallets, closed when a customer is deleted; or null.
+     * @param purchaseEvents The store recording purchases, told when a customer is deleted; or null.
      */
-    public AdminService(IRepository<Game> gameRepository, IRepository<Admin> adminRepository, IRepository<Discount> discountRepository, IRepository<User> userRepository, IRepository<Developer> developerRepository, IRepository<Customer> customerRepository) {
+    public AdminService(IRepository<Game> gameRepository, IRepository<Admin> adminRepository, IRepository<Discount> discountRepository, IRepository<User> userRepository, IRepository<Developer> developerRepository, IRepository<Customer> customerRepository, PricingEngine pricingEngine, WalletLedger walletLedger, PurchaseEventStore purchaseEvents) {
         this.gameRepository = gameRepository;
         this.adminRepository = adminRepository;
         this.discountRepository = discountRepository;
         this.userRepository = userRepository;
         this.developerRepository = developerRepository;
         this.customerRepository = customerRepository;
-    }
-
-    /**
-     * Sets the currently logged-in admin.
-     *
-     * @param admin The admin to set as logged in.
-     */
-    public void setLoggedInAdmin(Admin admin) {
-        this.loggedInAdmin = admin;
+        this.pricingEngine = pricingEngine;
+        this.walletLedger = walletLedger;
+        this.purchaseEvents = purchaseEvents;
     }
 
     /**
      * Deletes a game from the repository by its ID.
      *
+     * @param loggedInAdmin The admin acting, as resolved from their session.
      * @param gameId The ID of the game to delete.
      * @throws BusinessLogicException if no admin is logged in or the game is not found.
      */
-    public void deleteGame(int gameId) {
+    public void deleteGame(Admin loggedInAdmin, int gameId) {
         if (loggedInAdmin == null) {
             throw new BusinessLogicException("You must be logged in as an admin to delete games.");
         }
@@ -63,16 +75,18 @@ public class AdminService {
             throw new BusinessLogicException("Game with ID " + gameId + " not found.");
         }
         gameRepository.delete(gameId);
+        pricingEngine.invalidate(gameId);
     }
 
     /**
      * Applies a discount to a specific game.
      *
+     * @param loggedInAdmin The admin acting, as resolved from their session.
      * @param gameId The ID of the game to apply the discount to.
-     * @param discountPercentage The discount percentage to apply.
-     * @throws BusinessLogicException if no admin is logged in or the game is not found.
+     * @param discountPercentage The discount percentage to apply; replaces any earlier discount of the game.
+     * @throws BusinessLogicException if no admin is logged in, the game is not found or the percentage is not between 0 and 100.
      */
-    public void applyDiscountToGame(int gameId, float discountPercentage) {
+    public void applyDiscountToGame(Admin loggedInAdmin, int gameId, float discountPercentage) {
         if (loggedInAdmin == null) {
             throw new BusinessLogicException("You must be logged in as an admin to apply discounts.");
         }
@@ -82,14 +96,150 @@ public class AdminService {
             throw new BusinessLogicException("Game with ID " + gameId + " not found.");
         }
 
+        if (!(discountPercentage >= 0 && discountPercentage <= 100)) {
+            throw new BusinessLogicException("Discount percentage must be between 0 and 100.");
+        }
+
         Discount discount = new Discount(gameId, discountPercentage);
-        discountRepository.create(discount);
+        if (discountRepository.get(gameId) == null) {
+            discountRepository.create(discount);
+        } else {
+            discountRepository.update(discount);
+        }
         game.setDiscount(discount);
         gameRepository.update(game);
+        pricingEngine.invalidate(gameId);
 
-        float discountedPrice = game.getPrice() * (1 - discountPercentage / 100);
         System.out.println("Discount of " + discountPercentage + "% applied to game: " + game.getGameName());
-        System.out.println("New discounted price: " + discountedPrice);
+        System.out.println("New discounted price: " + pricingEngine.getEffectivePrice(game));
+    }
+
+    /**
+     * Applies the same discount to every game a selector matches. The new discounts are worked
+     * out in parallel on the common fork/join pool, and games whose discount would not change are
+     * skipped. The rest are committed with one batched write to the discount repository for new
+     * discounts, one for replaced discounts and one to the game repository.
+     *
+     * @param loggedInAdmin The admin acting, as resolved from their session.
+     * @param selector The games to discount.
+     * @param discountPercentage The discount percentage to apply; replaces any earlier discount of each game.
+     * @param progress Receives progress as the games are processed, or null for no reports.
+     * @return How many games were selected and how many changed.
+     * @throws BusinessLogicException if no admin is logged in, the percentage is not between 0 and 100
+     * or the selector names a developer that does not exist.
+     */
+    public BulkDiscountResult applyBulkDiscount(Admin loggedInAdmin, GameSelector selector, float discountPercentage, ProgressListener progress) {
+        if (loggedInAdmin == null) {
+            throw new BusinessLogicException("You must be logged in as an admin to apply discounts.");
+        }
+        if (!(discountPercentage >= 0 && discountPercentage <= 100)) {
+            throw new BusinessLogicException("Discount percentage must be between 0 and 100.");
+        }
+
+        List<Game> selected = select(selector);
+        List<Game> changed = ForkJoinPool.commonPool().invoke(new BulkDiscountTask(selected, 0, selected.size(), discountPercentage,
+                progress, new AtomicInteger()));
+
+        if (!changed.isEmpty()) {
+            List<Integer> ids = new ArrayList<>(changed.size());
+            for (Game game : changed) {
+                ids.add(game.getGameId());
+            }
+            Set<Integer> existing = new HashSet<>();
+            for (Discount discount : discountRepository.getAll(ids)) {
+                existing.add(discount.getDiscountId());
+            }
+            List<Discount> created = new ArrayList<>();
+            List<Discount> replaced = new ArrayList<>();
+            for (Game game : changed) {
+                Discount discount = new Discount(game.getGameId(), discountPercentage);
+                (existing.contains(game.getGameId()) ? replaced : created).add(discount);
+                game.setDiscount(discount);
+            }
+            discountRepository.createAll(created);
+            discountRepository.updateAll(replaced);
+            gameRepository.updateAll(changed);
+            pricingEngine.invalidate(ids);
+        }
+
+        System.out.println("Discount of " + discountPercentage + "% applied to " + changed.size() + " of "
+                + selected.size() + " games selected by " + selector + ".");
+        return new BulkDiscountResult(selected.size(), changed.size());
+    }
+
+    /**
+     * Finds the games a selector matches, using the repository indexes where there is one.
+     */
+    private List<Game> select(GameSelector selector) {
+        return switch (selector.getKind()) {
+            case GENRE -> gameRepository.find(Query.<Game>where().eq("gameGenre", Game::getGameGenre, selector.getGenre()));
+            case PRICE_RANGE -> gameRepository.find(Query.<Game>where().range("effectivePrice", pricingEngine::getEffectivePrice,
+                    Money.of(selector.getMinPrice()), Money.of(selector.getMaxPrice())));
+            case IDS -> gameRepository.getAll(selector.getGameIds());
+            case DEVELOPER -> {
+                Developer developer = developerRepository.get(selector.getDeveloperId());
+                if (developer == null) {
+                    throw new BusinessLogicException("Developer with ID " + selector.getDeveloperId() + " not found.");
+                }
+                List<Integer> ids = new ArrayList<>();
+                if (developer.getPublishedGames() != null) {
+                    for (Game game : developer.getPublishedGames()) {
+                        ids.add(game.getGameId());
+                    }
+                }
+                yield gameRepository.getAll(ids);
+            }
+        };
+    }
+
+    /**
+     * Splits a slice of the selected games in half until it is small enough, then collects the
+     * games whose discount differs from the new one.
+     */
+    private static final class BulkDiscountTask extends RecursiveTask<List<Game>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Game> games;
+        private final int from;
+        private final int to;
+        private final float discountPercentage;
+        private final ProgressListener progress;
+        private final AtomicInteger completed;
+
+        BulkDiscountTask(List<Game> games, int from, int to, float discountPercentage, ProgressListener progress, AtomicInteger completed) {
+            this.games = games;
+            this.from = from;
+            this.to = to;
+            this.discountPercentage = discountPercentage;
+            this.progress = progress;
+            this.completed = completed;
+        }
+
+        @Override
+        protected List<Game> compute() {
+            if (to - from <= BULK_LEAF_SIZE) {
+                List<Game> changed = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    Game game = games.get(i);
+                    float current = game.getDiscount() == null ? 0 : game.getDiscount().getDiscountPercentage();
+                    if (current != discountPercentage) {
+                        changed.add(game);
+                    }
+                }
+                int done = completed.addAndGet(to - from);
+                if (progress != null) {
+                    progress.onProgress(done, games.size());
+                }
+                return changed;
+            }
+            int mid = (from + to) >>> 1;
+            BulkDiscountTask left = new BulkDiscountTask(games, from, mid, discountPercentage, progress, completed);
+            left.fork();
+            List<Game> changed = new BulkDiscountTask(games, mid, to, discountPercentage, progress, completed).compute();
+            List<Game> leftChanged = left.join();
+            leftChanged.addAll(changed);
+            return leftChanged;
+        }
     }
 
     /**
@@ -102,7 +252,7 @@ public class AdminService {
     public boolean deleteAnyAccount(String email) {
         User userToDelete = null;
 
-        List<Admin> admins = adminRepository.getAll();
+        List<Admin> admins = adminRepository.find(byEmailIgnoreCase(email));
         for (Admin admin : admins) {
             if (admin.getEmail().equalsIgnoreCase(email)) {
                 userToDelete = admin;
@@ -111,7 +261,7 @@ public class AdminService {
             }
         }
 
-        List<Developer> developers = developerRepository.getAll();
+        List<Developer> developers = developerRepository.find(byEmailIgnoreCase(email));
         for (Developer developer : developers) {
             if (developer.getEmail().equalsIgnoreCase(email)) {
                 userToDelete = developer;
@@ -120,7 +270,7 @@ public class AdminService {
             }
         }
         if (customerRepository != null) {
-            List<Customer> customers = customerRepository.getAll();
+            List<Customer> customers = customerRepository.find(byEmailIgnoreCase(email));
             for (Customer customer : customers) {
                 if (customer.getEmail().equalsIgnoreCase(email)) {
                     userToDelete = customer;
@@ -135,12 +285,18 @@ public class AdminService {
                         customer.getGamesLibrary().clear();
                     }
                     customerRepository.delete(customer.getId());
+                    if (walletLedger != null) {
+                        walletLedger.close(customer.getId());
+                    }
+                    if (purchaseEvents != null) {
+                        purchaseEvents.appendAccountDeleted(customer.getId());
+                    }
                     return true;
                 }
             }
         }
 
-        List<User> users = userRepository.getAll();
+        List<User> users = userRepository.find(byEmailIgnoreCase(email));
         for (User user : users) {
             if (user.getEmail().equalsIgnoreCase(email)) {
                 userToDelete = user;
@@ -155,4 +311,14 @@ public class AdminService {
 
         return false;
     }
+
+    /**
+     * Builds a query matching users whose email equals the given one, ignoring case.
+     *
+     * @param email The email to look for.
+     * @return A query on the "emailLower" field.
+     */
+    private static <U extends User> Query<U> byEmailIgnoreCase(String email) {
+        return Query.<U>where().eq("emailLower", user -> user.getEmail().toLowerCase(), email.toLowerCase());
+    }
 }
@@ -0,0 +1,37 @@
+package Service;
+
+/**
+ * The outcome of a bulk discount: how many games the selector matched and how many of them
+ * had their discount changed and were written back.
+ */
+public class BulkDiscountResult {
+    private final int selectedCount;
+    private final int changedCount;
+
+    /**
+     * Constructs a BulkDiscountResult.
+     *
+     * @param selectedCount The number of games the selector matched.
+     * @param changedCount  The number of games whose discount changed.
+     */
+    public BulkDiscountResult(int selectedCount, int changedCount) {
+        this.selectedCount = selectedCount;
+        this.changedCount = changedCount;
+    }
+
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkDiscountResult{" +
+                "selectedCount=" + selectedCount +
+                ", changedCount=" + changedCount +
+                '}';
+    }
+}
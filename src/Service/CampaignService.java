@@ -0,0 +1,303 @@
+package Service;
+
+import Exception.BusinessLogicException;
+import Exception.EntityNotFoundException;
+import Exception.ValidationException;
+import Model.*;
+import Repository.IRepository;
+import Repository.Query;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service class for time-boxed discount campaigns. Each campaign gets two timers on a hashed
+ * timer wheel: one activates it at its start time and one expires it at its end time.
+ *
+ * Activating, expiring or cancelling a campaign reprices only the games it targets. The service
+ * works out each game's new discount and drops the changed games from the pricing engine. It then
+ * writes all of them in one gameRepository.updateAll, so the price index is rebuilt in one batch.
+ *
+ * Campaigns are stored, so a restarted store picks up the timers of its scheduled and active campaigns.
+ */
+public class CampaignService {
+    public static final Duration DEFAULT_TICK = Duration.ofSeconds(1);
+    private static final int WHEEL_SIZE = 512;
+
+    private final IRepository<DiscountCampaign> campaignRepository;
+    private final IRepository<Game> gameRepository;
+    private final IRepository<Discount> discountRepository;
+    private final PricingEngine pricingEngine;
+    private final Clock clock;
+    private final HashedTimerWheel wheel;
+    private final Map<Integer, List<HashedTimerWheel.Timeout>> timers = new ConcurrentHashMap<>();
+    private final AtomicInteger lastCampaignId = new AtomicInteger();
+    private final Object transitionLock = new Object();
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Constructs the CampaignService and schedules the timers of every stored campaign that has not ended.
+     *
+     * @param campaignRepository The repository for managing campaigns.
+     * @param gameRepository     The repository for managing games.
+     * @param discountRepository The repository holding the discounts admins set on single games.
+     * @param pricingEngine      The engine caching effective game prices.
+     * @param clock              The clock campaigns are timed against.
+     * @param tick               The resolution of the timer wheel.
+     */
+    public CampaignService(IRepository<DiscountCampaign> campaignRepository, IRepository<Game> gameRepository,
+                           IRepository<Discount> discountRepository, PricingEngine pricingEngine, Clock clock, Duration tick) {
+        this.campaignRepository = campaignRepository;
+        this.gameRepository = gameRepository;
+        this.discountRepository = discountRepository;
+        this.pricingEngine = pricingEngine;
+        this.clock = clock;
+        this.wheel = new HashedTimerWheel(clock.instant(), tick, WHEEL_SIZE);
+        for (DiscountCampaign campaign : campaignRepository.getAll()) {
+            lastCampaignId.accumulateAndGet(campaign.getCampaignId(), Math::max);
+            if (campaign.getStatus() == DiscountCampaign.Status.SCHEDULED || campaign.getStatus() == DiscountCampaign.Status.ACTIVE) {
+                scheduleTimers(campaign);
+            }
+        }
+    }
+
+    /**
+     * Schedules a discount campaign.
+     *
+     * @param loggedInAdmin      The admin acting, as resolved from their session.
+     * @param name               The name of the campaign.
+     * @param discountPercentage The percentage taken off targeted games.
+     * @param genres             The genres whose games are targeted.
+     * @param gameIds            The IDs of further games targeted.
+     * @param startsAt           When the campaign starts; a past time starts it on the next tick.
+     * @param endsAt             When the campaign ends.
+     * @return The scheduled campaign.
+     * @throws BusinessLogicException if no admin is logged in.
+     * @throws ValidationException    if the name is blank, the percentage is not above 0 and at most 100,
+     *                                nothing is targeted, or the campaign does not end after it starts and after now.
+     */
+    public DiscountCampaign scheduleCampaign(Admin loggedInAdmin, String name, float discountPercentage, Set<GameGenre> genres,
+                                             Set<Integer> gameIds, Instant startsAt, Instant endsAt) {
+        if (loggedInAdmin == null) {
+            throw new BusinessLogicException("You must be logged in as an admin to schedule campaigns.");
+        }
+        if (name == null || name.isBlank()) {
+            throw new ValidationException("Campaign name must not be empty.");
+        }
+        if (!(discountPercentage > 0 && discountPercentage <= 100)) {
+            throw new ValidationException("Discount percentage must be greater than 0 and at most 100.");
+        }
+        if (genres.isEmpty() && gameIds.isEmpty()) {
+            throw new ValidationException("A campaign must target at least one genre or game.");
+        }
+        if (!endsAt.isAfter(startsAt) || !endsAt.isAfter(clock.instant())) {
+            throw new ValidationException("A campaign must end after it starts and in the future.");
+        }
+
+        DiscountCampaign campaign = new DiscountCampaign(lastCampaignId.incrementAndGet(), name, discountPercentage, genres, gameIds, startsAt, endsAt);
+        campaignRepository.create(campaign);
+        scheduleTimers(campaign);
+        System.out.println("Campaign '" + name + "' scheduled from " + startsAt + " to " + endsAt + ".");
+        return campaign;
+    }
+
+    /**
+     * Cancels a campaign that has not ended, taking its discount off any games it applies to.
+     *
+     * @param loggedInAdmin The admin acting, as resolved from their session.
+     * @param campaignId    The ID of the campaign.
+     * @throws BusinessLogicException  if no admin is logged in or the campaign has already ended.
+     * @throws EntityNotFoundException if the campaign is not found.
+     */
+    public void cancelCampaign(Admin loggedInAdmin, int campaignId) {
+        if (loggedInAdmin == null) {
+            throw new BusinessLogicException("You must be logged in as an admin to cancel campaigns.");
+        }
+        synchronized (transitionLock) {
+            DiscountCampaign campaign = campaignRepository.get(campaignId);
+            if (campaign == null) {
+                throw new EntityNotFoundException("Campaign not found.");
+            }
+            if (campaign.getStatus() == DiscountCampaign.Status.EXPIRED || campaign.getStatus() == DiscountCampaign.Status.CANCELLED) {
+                throw new BusinessLogicException("The campaign has already ended.");
+            }
+            List<HashedTimerWheel.Timeout> pending = timers.remove(campaignId);
+            if (pending != null) {
+                pending.forEach(HashedTimerWheel.Timeout::cancel);
+            }
+            boolean wasActive = campaign.getStatus() == DiscountCampaign.Status.ACTIVE;
+            campaign.setStatus(DiscountCampaign.Status.CANCELLED);
+            campaignRepository.update(campaign);
+            if (wasActive) {
+                reprice(targetedGames(campaign));
+            }
+        }
+    }
+
+    /**
+     * Retrieves every campaign, whatever its status.
+     *
+     * @return A list of all campaigns.
+     */
+    public List<DiscountCampaign> getCampaigns() {
+        return campaignRepository.getAll();
+    }
+
+    /**
+     * Advances the timer wheel to the current time, activating and expiring the campaigns that fell due.
+     *
+     * @return The number of activations and expiries run.
+     */
+    public int runDueTimers() {
+        return wheel.advanceTo(clock.instant());
+    }
+
+    /**
+     * Starts a background thread that advances the timer wheel once per tick.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "campaign-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickMillis = wheel.getTickMillis();
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                runDueTimers();
+            } catch (RuntimeException e) {
+                System.err.println("Campaign timer failed: " + e.getMessage());
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background thread started by start.
+     */
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    private void scheduleTimers(DiscountCampaign campaign) {
+        int campaignId = campaign.getCampaignId();
+        List<HashedTimerWheel.Timeout> pending = new ArrayList<>(2);
+        if (campaign.getStatus() == DiscountCampaign.Status.SCHEDULED) {
+            pending.add(wheel.schedule(campaign.getStartsAt(), () -> activate(campaignId)));
+        }
+        pending.add(wheel.schedule(campaign.getEndsAt(), () -> expire(campaignId)));
+        timers.put(campaignId, pending);
+    }
+
+    private void activate(int campaignId) {
+        synchronized (transitionLock) {
+            DiscountCampaign campaign = campaignRepository.get(campaignId);
+            if (campaign == null || campaign.getStatus() != DiscountCampaign.Status.SCHEDULED) {
+                return;
+            }
+            campaign.setStatus(DiscountCampaign.Status.ACTIVE);
+            campaignRepository.update(campaign);
+            int repriced = reprice(targetedGames(campaign));
+            System.out.println("Campaign '" + campaign.getName() + "' started; " + repriced + " game(s) repriced.");
+        }
+    }
+
+    private void expire(int campaignId) {
+        synchronized (transitionLock) {
+            timers.remove(campaignId);
+            DiscountCampaign campaign = campaignRepository.get(campaignId);
+            if (campaign == null || (campaign.getStatus() != DiscountCampaign.Status.SCHEDULED
+                    && campaign.getStatus() != DiscountCampaign.Status.ACTIVE)) {
+                return;
+            }
+            campaign.setStatus(DiscountCampaign.Status.EXPIRED);
+            campaignRepository.update(campaign);
+            int repriced = reprice(targetedGames(campaign));
+            System.out.println("Campaign '" + campaign.getName() + "' ended; " + repriced + " game(s) repriced.");
+        }
+    }
+
+    /**
+     * Finds the games a campaign targets, using the genre index for genres.
+     */
+    private List<Game> targetedGames(DiscountCampaign campaign) {
+        Map<Integer, Game> games = new LinkedHashMap<>();
+        for (GameGenre genre : campaign.getGenres()) {
+            for (Game game : gameRepository.find(Query.<Game>where().eq("gameGenre", Game::getGameGenre, genre))) {
+                games.put(game.getGameId(), game);
+            }
+        }
+        if (!campaign.getGameIds().isEmpty()) {
+            for (Game game : gameRepository.getAll(campaign.getGameIds())) {
+                if (game != null) {
+                    games.put(game.getGameId(), game);
+                }
+            }
+        }
+        return new ArrayList<>(games.values());
+    }
+
+    /**
+     * Sets each game's discount to the largest of its own discount and those of the active
+     * campaigns targeting it, then writes the games whose discount changed in one batch.
+     *
+     * @return The number of games whose discount changed.
+     */
+    private int reprice(List<Game> games) {
+        if (games.isEmpty()) {
+            return 0;
+        }
+        List<DiscountCampaign> active = campaignRepository.find(Query.<DiscountCampaign>where()
+                .eq("status", DiscountCampaign::getStatus, DiscountCampaign.Status.ACTIVE));
+        List<Integer> ids = new ArrayList<>(games.size());
+        for (Game game : games) {
+            ids.add(game.getGameId());
+        }
+        Map<Integer, Discount> ownDiscounts = new HashMap<>();
+        for (Discount discount : discountRepository.getAll(ids)) {
+            if (discount != null) {
+                ownDiscounts.put(discount.getDiscountId(), discount);
+            }
+        }
+
+        List<Game> changed = new ArrayList<>();
+        List<Integer> changedIds = new ArrayList<>();
+        for (Game game : games) {
+            Discount own = ownDiscounts.get(game.getGameId());
+            Discount best = own;
+            for (DiscountCampaign campaign : active) {
+                float current = best == null ? 0 : best.getDiscountPercentage();
+                if (campaign.targets(game) && campaign.getDiscountPercentage() > current) {
+                    best = new Discount(game.getGameId(), campaign.getDiscountPercentage());
+                }
+            }
+            float before = game.getDiscount() == null ? 0 : game.getDiscount().getDiscountPercentage();
+            float after = best == null ? 0 : best.getDiscountPercentage();
+            if (before != after) {
+                game.setDiscount(best);
+                changed.add(game);
+                changedIds.add(game.getGameId());
+            }
+        }
+        gameRepository.updateAll(changed);
+        pricingEngine.invalidate(changedIds);
+        return changed.size();
+    }
+}
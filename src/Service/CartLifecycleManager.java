@@ -0,0 +1,225 @@
+package Service;
+
+import Exception.EntityNotFoundException;
+import Model.Customer;
+import Model.ShoppingCart;
+import Repository.IRepository;
+import Repository.Query;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the shopping cart store down to the carts of active shoppers.
+ *
+ * A cart left untouched for longer than the idle TTL is evicted from the cart store. If it
+ * still holds games, it goes to a cold archive; if it is empty or checked out, it is dropped.
+ * Carts are evicted in batches. Each batch is one read of the cart store, one write to the
+ * archive and one delete from the cart store. The next time the customer asks for their cart
+ * through CustomerService.getShoppingCartId, it is restored from the archive or recreated empty.
+ * Archived carts left longer than the archive retention are purged.
+ *
+ * The IDs of evicted carts are kept in memory, so looking up a resident cart costs nothing extra.
+ */
+public class CartLifecycleManager {
+    public static final Duration DEFAULT_IDLE_TTL = Duration.ofDays(7);
+    public static final Duration DEFAULT_ARCHIVE_RETENTION = Duration.ofDays(90);
+    static final int EVICTION_BATCH_SIZE = 1000;
+
+    private final IRepository<ShoppingCart> shoppingCartRepository;
+    private final IRepository<ShoppingCart> archiveRepository;
+    private final ShoppingCartService shoppingCartService;
+    private final Clock clock;
+    private final Duration idleTtl;
+    private final Duration archiveRetention;
+    private final Set<Integer> evicted = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService compactor;
+
+    /**
+     * Constructs the CartLifecycleManager. Customers whose cart is missing from the cart store
+     * are noted as evicted, so their cart is restored or recreated on next access.
+     *
+     * @param shoppingCartRepository The repository holding the carts of active shoppers.
+     * @param archiveRepository      The repository holding evicted carts.
+     * @param customerRepository     The repository for managing customers.
+     * @param shoppingCartService    The service the carts are used through.
+     * @param clock                  The clock idle times are measured against.
+     * @param idleTtl                How long a cart may go untouched before it is evicted.
+     * @param archiveRetention       How long an evicted cart stays in the archive.
+     */
+    public CartLifecycleManager(IRepository<ShoppingCart> shoppingCartRepository, IRepository<ShoppingCart> archiveRepository,
+                                IRepository<Customer> customerRepository, ShoppingCartService shoppingCartService,
+                                Clock clock, Duration idleTtl, Duration archiveRetention) {
+        this.shoppingCartRepository = shoppingCartRepository;
+        this.archiveRepository = archiveRepository;
+        this.shoppingCartService = shoppingCartService;
+        this.clock = clock;
+        this.idleTtl = idleTtl;
+        this.archiveRetention = archiveRetention;
+        Set<Integer> resident = new HashSet<>();
+        for (ShoppingCart cart : shoppingCartRepository.getAll()) {
+            resident.add(cart.getShoppingCartId());
+        }
+        for (Customer customer : customerRepository.getAll()) {
+            if (customer.getShoppingCart() != null && !resident.contains(customer.getShoppingCart().getShoppingCartId())) {
+                evicted.add(customer.getShoppingCart().getShoppingCartId());
+            }
+        }
+    }
+
+    /**
+     * Makes sure a customer's cart is in the cart store, restoring it from the archive or
+     * recreating it empty if it was evicted.
+     *
+     * @param customer The customer.
+     * @return The ID of the customer's cart.
+     * @throws EntityNotFoundException if the customer has no shopping cart.
+     */
+    public int ensureResident(Customer customer) {
+        if (customer.getShoppingCart() == null) {
+            throw new EntityNotFoundException("Logged-in customer does not have a shopping cart.");
+        }
+        int cartId = customer.getShoppingCart().getShoppingCartId();
+        if (!evicted.contains(cartId)) {
+            return cartId;
+        }
+        shoppingCartService.callWithCartLock(cartId, () -> {
+            if (!evicted.contains(cartId)) {
+                return null;
+            }
+            ShoppingCart cart = archiveRepository.get(cartId);
+            if (cart == null) {
+                cart = new ShoppingCart(cartId, customer);
+            }
+            cart.touch(clock.instant());
+            shoppingCartRepository.create(cart);
+            archiveRepository.delete(cartId);
+            shoppingCartService.adoptCart(cart);
+            evicted.remove(cartId);
+            return null;
+        });
+        return cartId;
+    }
+
+    /**
+     * Evicts every cart that has gone untouched for longer than the idle TTL.
+     *
+     * @return The number of carts evicted.
+     */
+    public int evictIdleCarts() {
+        Instant cutoff = clock.instant().minus(idleTtl);
+        List<ShoppingCart> idle = shoppingCartRepository.find(Query.<ShoppingCart>where()
+                .matching(cart -> cart.getLastTouched().isBefore(cutoff)));
+        int count = 0;
+        for (int from = 0; from < idle.size(); from += EVICTION_BATCH_SIZE) {
+            List<Integer> ids = new ArrayList<>();
+            for (ShoppingCart cart : idle.subList(from, Math.min(idle.size(), from + EVICTION_BATCH_SIZE))) {
+                ids.add(cart.getShoppingCartId());
+            }
+            count += shoppingCartService.callWithCartLocks(ids, () -> evictBatch(ids, cutoff));
+        }
+        if (count > 0) {
+            System.out.println(count + " idle shopping cart(s) evicted.");
+        }
+        return count;
+    }
+
+    /**
+     * Runs a full compaction pass: evicts idle carts, then purges archived carts older than the
+     * archive retention.
+     *
+     * @return The number of carts evicted and purged.
+     */
+    public int compact() {
+        int count = evictIdleCarts();
+        Instant cutoff = clock.instant().minus(archiveRetention);
+        List<Integer> expired = new ArrayList<>();
+        for (ShoppingCart cart : archiveRepository.find(Query.<ShoppingCart>where()
+                .matching(archived -> archived.getLastTouched().isBefore(cutoff)))) {
+            expired.add(cart.getShoppingCartId());
+        }
+        if (!expired.isEmpty()) {
+            archiveRepository.deleteAll(expired);
+        }
+        return count + expired.size();
+    }
+
+    /**
+     * Gets the number of carts currently evicted from the cart store.
+     *
+     * @return The evicted count.
+     */
+    public int getEvictedCount() {
+        return evicted.size();
+    }
+
+    /**
+     * Starts a background thread that runs a compaction pass at a fixed interval.
+     *
+     * @param interval The time between passes.
+     */
+    public synchronized void start(Duration interval) {
+        if (compactor != null) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                System.err.println("Cart compaction failed: " + e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background thread started by start.
+     */
+    public synchronized void stop() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+            compactor = null;
+        }
+    }
+
+    /**
+     * Moves one batch of idle carts out of the cart store. Must be called with the batch's
+     * cart stripes held, so no cart is changed between the idle check and the delete.
+     */
+    private int evictBatch(List<Integer> ids, Instant cutoff) {
+        List<ShoppingCart> evictable = new ArrayList<>();
+        List<ShoppingCart> archived = new ArrayList<>();
+        List<Integer> evictedIds = new ArrayList<>();
+        for (ShoppingCart cart : shoppingCartRepository.getAll(ids)) {
+            if (!cart.getLastTouched().isBefore(cutoff)) {
+                continue;
+            }
+            evictable.add(cart);
+            evictedIds.add(cart.getShoppingCartId());
+            if ("ACTIVE".equals(cart.getStatus()) && !cart.getListOfGames().isEmpty()) {
+                archived.add(cart);
+            }
+        }
+        if (evictable.isEmpty()) {
+            return 0;
+        }
+        archiveRepository.createAll(archived);
+        shoppingCartRepository.deleteAll(evictedIds);
+        evicted.addAll(evictedIds);
+        shoppingCartService.forgetCarts(evictable);
+        return evictedIds.size();
+    }
+}
@@ -0,0 +1,92 @@
+package Service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A reverse index from each game to the shopping carts holding it, used to keep cart totals
+ * right when prices change. When the pricing engine reports that a game's price changed, every
+ * cart holding that game is marked stale. Its totals are then recomputed the next time they
+ * are read. Carts not holding the game are untouched.
+ */
+public class CartPriceIndex implements PricingEngine.PriceChangeListener {
+    private final ConcurrentMap<Integer, Set<Integer>> cartsByGame = new ConcurrentHashMap<>();
+    private final Set<Integer> staleCarts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Records that a cart holds a game.
+     *
+     * @param cartId The ID of the cart.
+     * @param gameId The ID of the game.
+     */
+    public void track(int cartId, int gameId) {
+        cartsByGame.computeIfAbsent(gameId, id -> ConcurrentHashMap.newKeySet()).add(cartId);
+    }
+
+    /**
+     * Records that a cart no longer holds a game.
+     *
+     * @param cartId The ID of the cart.
+     * @param gameId The ID of the game.
+     */
+    public void untrack(int cartId, int gameId) {
+        cartsByGame.computeIfPresent(gameId, (id, carts) -> {
+            carts.remove(cartId);
+            return carts.isEmpty() ? null : carts;
+        });
+    }
+
+    /**
+     * Marks a cart's totals as needing a recompute.
+     *
+     * @param cartId The ID of the cart.
+     */
+    public void markStale(int cartId) {
+        staleCarts.add(cartId);
+    }
+
+    /**
+     * Checks whether a cart's totals need a recompute.
+     *
+     * @param cartId The ID of the cart.
+     * @return true if the cart holds a game whose price changed since its totals were computed.
+     */
+    public boolean isStale(int cartId) {
+        return staleCarts.contains(cartId);
+    }
+
+    /**
+     * Clears the stale mark of a cart whose totals are about to be recomputed. A price change
+     * during the recompute marks the cart again.
+     *
+     * @param cartId The ID of the cart.
+     */
+    public void clearStale(int cartId) {
+        staleCarts.remove(cartId);
+    }
+
+    /**
+     * Gets the IDs of the carts holding a game.
+     *
+     * @param gameId The ID of the game.
+     * @return The cart IDs.
+     */
+    public Set<Integer> getCartsHolding(int gameId) {
+        Set<Integer> carts = cartsByGame.get(gameId);
+        return carts == null ? Set.of() : Set.copyOf(carts);
+    }
+
+    @Override
+    public void priceChanged(int gameId) {
+        Set<Integer> carts = cartsByGame.get(gameId);
+        if (carts != null) {
+            staleCarts.addAll(carts);
+        }
+    }
+
+    @Override
+    public void allPricesChanged() {
+        staleCarts.addAll(cartsByGame.values().stream().flatMap(Set::stream).toList());
+    }
+}
@@ -0,0 +1,95 @@
+package Service;
+
+import Model.PurchaseEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Projects the purchase events onto the IDs of the games each customer owns, in the order they
+ * were bought.
+ *
+ * A rebuild folds the stream into a fresh map, and readers keep seeing the last complete one
+ * until the rebuild is done. Before the first rebuild completes there is nothing to read.
+ */
+public class CustomerLibraryProjection implements Projection {
+    public static final String NAME = "customerLibrary";
+
+    private volatile Map<Integer, Set<Integer>> gamesByCustomer = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Set<Integer>> published;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getSchemaVersion() {
+        return 1;
+    }
+
+    @Override
+    public void reset() {
+        gamesByCustomer = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void rebuilt() {
+        published = gamesByCustomer;
+    }
+
+    /**
+     * Checks whether the projection has been built from the full stream at least once.
+     *
+     * @return true if it can be read.
+     */
+    public boolean isBuilt() {
+        return published != null;
+    }
+
+    @Override
+    public void apply(PurchaseEvent event) {
+        if (event.getType() == PurchaseEvent.Type.ACCOUNT_DELETED) {
+            gamesByCustomer.remove(event.getCustomerId());
+            return;
+        }
+        Set<Integer> games = gamesByCustomer.computeIfAbsent(event.getCustomerId(),
+                id -> Collections.synchronizedSet(new LinkedHashSet<>()));
+        games.addAll(event.getGameIds());
+    }
+
+    /**
+     * Gets the IDs of the games a customer bought.
+     *
+     * @param customerId The ID of the customer.
+     * @return The game IDs, oldest purchase first; none before the projection is built.
+     */
+    public List<Integer> getGameIds(int customerId) {
+        Map<Integer, Set<Integer>> built = published;
+        Set<Integer> games = built == null ? null : built.get(customerId);
+        if (games == null) {
+            return List.of();
+        }
+        synchronized (games) {
+            return new ArrayList<>(games);
+        }
+    }
+
+    /**
+     * Checks whether a customer bought a game.
+     *
+     * @param customerId The ID of the customer.
+     * @param gameId     The ID of the game.
+     * @return true if the customer owns the game.
+     */
+    public boolean owns(int customerId, int gameId) {
+        Map<Integer, Set<Integer>> built = published;
+        Set<Integer> games = built == null ? null : built.get(customerId);
+        return games != null && games.contains(gameId);
+    }
+}
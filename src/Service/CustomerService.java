@@ -2,11 +2,13 @@ package Service;
 
 import Model.*;
 import Repository.IRepository;
+import Repository.Query;
 import Exception.BusinessLogicException;
 import Exception.EntityNotFoundException;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -18,7 +20,10 @@ public class CustomerService {
     private final IRepository<Customer> customerRepository;
     private final IRepository<Review> reviewRepository;
     private final IRepository<PaymentMethod> paymentMethodRepository;
-    private Customer loggedInCustomer;
+    private final WalletLedger walletLedger;
+    private final PricingEngine pricingEngine;
+    private final CartLifecycleManager cartLifecycleManager;
+    private final CustomerLibraryProjection libraryProjection;
 
     /**
      * Constructs the CustomerService with the specified repositories.
@@ -28,53 +33,38 @@ public class CustomerService {
      * @param customerRepository The repository for managing customers.
      * @param reviewRepository The repository for managing reviews.
      * @param paymentMethodRepository The repository for managing payment methods.
+     * @param walletLedger The ledger holding the customers' wallets.
+     * @param pricingEngine The engine caching effective game prices.
+     * @param cartLifecycleManager Restores evicted shopping carts, or null if carts are never evicted.
+     * @param libraryProjection The projection of the games each customer bought, or null to read libraries from the customers.
      */
-    public CustomerService(IRepository<Game> gameRepository, IRepository<User> userRepository, IRepository<Customer> customerRepository, IRepository<Review> reviewRepository, IRepository<PaymentMethod> paymentMethodRepository) {
+    public CustomerService(IRepository<Game> gameRepository, IRepository<User> userRepository, IRepository<Customer> customerRepository, IRepository<Review> reviewRepository, IRepository<PaymentMethod> paymentMethodRepository, WalletLedger walletLedger, PricingEngine pricingEngine, CartLifecycleManager cartLifecycleManager, CustomerLibraryProjection libraryProjection) {
         this.gameRepository = gameRepository;
         this.userRepository = userRepository;
         this.customerRepository = customerRepository;
         this.reviewRepository = reviewRepository;
         this.paymentMethodRepository = paymentMethodRepository;
-    }
-
-    /**
-     * Sets the currently logged-in customer.
-     *
-     * @param Customer The customer to set as logged in.
-     */
-    public void setLoggedInCustomer(Customer Customer) {
-        this.loggedInCustomer = Customer;
-    }
-
-    /**
-     * Retrieves the currently logged-in customer.
-     *
-     * @return The logged-in customer, or null if no customer is logged in.
-     */
-    public Customer getLoggedInCustomer() {
-        return loggedInCustomer;
+        this.walletLedger = walletLedger;
+        this.pricingEngine = pricingEngine;
+        this.cartLifecycleManager = cartLifecycleManager;
+        this.libraryProjection = libraryProjection;
     }
 
     /**
      * Searches for games by name.
      *
+     * @param loggedInCustomer The customer acting, as resolved from their session.
      * @param name The name (or part of the name) of the game to search for.
      * @return A list of games matching the search criteria.
      * @throws BusinessLogicException if no customer is logged in.
      */
-    public List<Game> searchGameByName(String name) {
-        List<Game> matchingGames = new ArrayList<>();
-        if (loggedInCustomer != null) {
-            List<Game> allGames = gameRepository.getAll();
-            for (Game game : allGames) {
-                if (game.getGameName().toLowerCase().contains(name.toLowerCase())) {
-                    matchingGames.add(game);
-                }
-            }
-        } else {
+    public List<Game> searchGameByName(Customer loggedInCustomer, String name) {
+        if (loggedInCustomer == null) {
             throw new BusinessLogicException("No customer is logged in.");
         }
-        return matchingGames;
+        String lowerName = name.toLowerCase();
+        return gameRepository.find(Query.<Game>where()
+                .matching(game -> game.getGameName().toLowerCase().contains(lowerName)));
     }
 
     /**
@@ -99,7 +89,7 @@ public class CustomerService {
     }
 
     /**
-     * Sorts all games by price in descending order.
+     * Sorts all games by effective price, after discounts, in descending order.
      *
      * @return A sorted list of games.
      * @throws BusinessLogicException if no games are available to sort.
@@ -109,13 +99,7 @@ public class CustomerService {
         if (allGames.isEmpty()) {
             throw new BusinessLogicException("No games available to sort.");
         }
-        for (int i = 0; i < allGames.size() - 1; i++) {
-            for (int j = 0; j < allGames.size() - i - 1; j++) {
-                if (allGames.get(j).getPrice() < allGames.get(j + 1).getPrice()) {
-                    Collections.swap(allGames, j, j + 1);
-                }
-            }
-        }
+        allGames.sort(Comparator.comparing(pricingEngine::getEffectivePrice).reversed());
         return allGames;
     }
 
@@ -128,9 +112,10 @@ public class CustomerService {
      */
     public List<Game> filterByGenre(String genre) {
         List<Game> gamesByGenre = new ArrayList<>();
-        for (Game game : gameRepository.getAll()) {
-            if (game.getGameGenre().name().equalsIgnoreCase(genre)) {
-                gamesByGenre.add(game);
+        for (GameGenre gameGenre : GameGenre.values()) {
+            if (gameGenre.name().equalsIgnoreCase(genre)) {
+                gamesByGenre = gameRepository.find(Query.<Game>where().eq("gameGenre", Game::getGameGenre, gameGenre));
+                break;
             }
         }
         if (gamesByGenre.isEmpty()) {
@@ -140,7 +125,7 @@ public class CustomerService {
     }
 
     /**
-     * Filters games by a specified price range.
+     * Filters games by a range of effective prices, after discounts.
      *
      * @param minPrice The minimum price.
      * @param maxPrice The maximum price.
@@ -148,13 +133,8 @@ public class CustomerService {
      * @throws BusinessLogicException if no games are found within the price range.
      */
     public List<Game> filterGamesByPriceRange(float minPrice, float maxPrice) {
-        List<Game> gamesByPriceRange = new ArrayList<>();
-
-        for (Game game : gameRepository.getAll()) {
-            if (game.getPrice() >= minPrice && game.getPrice() <= maxPrice) {
-                gamesByPriceRange.add(game);
-            }
-        }
+        List<Game> gamesByPriceRange = gameRepository.find(Query.<Game>where()
+                .range("effectivePrice", pricingEngine::getEffectivePrice, Money.of(minPrice), Money.of(maxPrice)));
         if (gamesByPriceRange.isEmpty()) {
             throw new BusinessLogicException("No games found in the price range: $" + minPrice + " - $" + maxPrice);
         }
@@ -164,13 +144,14 @@ public class CustomerService {
     /**
      * Adds funds to the wallet of the logged-in customer.
      *
+     * @param loggedInCustomer The customer acting, as resolved from their session.
      * @param paymentMethod The payment method used to add funds.
      * @param amount The amount to add.
      * @throws EntityNotFoundException if no customer is logged in.
      * @throws BusinessLogicException if the amount is not greater than 0.
      * @throws BusinessLogicException if the customer repository is not available.
      */
-    public void addFundsToWallet(String paymentMethod, float amount) {
+    public void addFundsToWallet(Customer loggedInCustomer, String paymentMethod, float amount) {
         if (loggedInCustomer == null) {
             throw new EntityNotFoundException("No customer is logged in.");
         }
@@ -178,41 +159,58 @@ public class CustomerService {
             throw new BusinessLogicException("Amount must be greater than 0.");
         }
 
-        loggedInCustomer.setFundWallet(loggedInCustomer.getFundWallet() + amount);
-        if (customerRepository != null) {
-            customerRepository.update(loggedInCustomer);
-        } else {
+        if (customerRepository == null) {
             throw new BusinessLogicException("Customer repository is not available.");
         }
-        System.out.println("Funds added via " + paymentMethod + ". New balance: $" + loggedInCustomer.getFundWallet());
+
+        WalletTransaction topUp = walletLedger.topUp(loggedInCustomer.getId(), Money.of(amount), paymentMethod);
+        System.out.println("Funds added via " + paymentMethod + ". New balance: $" + topUp.getBalanceAfter());
     }
 
     /**
      * Retrieves the wallet balance of the logged-in customer.
      *
+     * @param loggedInCustomer The customer acting, as resolved from their session.
      * @return The wallet balance.
      * @throws EntityNotFoundException if no customer is logged in.
      */
-    public float getWalletBalance() {
+    public Money getWalletBalance(Customer loggedInCustomer) {
         if (loggedInCustomer == null) {
             throw new EntityNotFoundException("No customer is logged in.");
         }
-        return loggedInCustomer.getFundWallet();
+        return walletLedger.getBalance(loggedInCustomer.getId());
     }
 
     /**
-     * Views the games library of the logged-in customer.
+     * Views the games library of the logged-in customer, in purchase order. The library is
+     * served from the library projection; the stored customer is only read until the projection
+     * is first built, or if a game in the library is no longer in the catalog.
      *
+     * @param loggedInCustomer The customer acting, as resolved from their session.
      * @return A list of games in the customer's library.
      * @throws EntityNotFoundException if no customer is logged in.
      * @throws EntityNotFoundException if the library is empty.
      */
-    public List<Game> viewGamesLibrary() {
+    public List<Game> viewGamesLibrary(Customer loggedInCustomer) {
         if (loggedInCustomer == null) {
             throw new EntityNotFoundException("No customer is logged in.");
         }
 
-        List<Game> gamesLibrary = customerRepository.get(loggedInCustomer.getId()).getGamesLibrary();
+        List<Game> gamesLibrary = null;
+        if (libraryProjection != null && libraryProjection.isBuilt()) {
+            List<Integer> owned = libraryProjection.getGameIds(loggedInCustomer.getId());
+            List<Game> listed = gameRepository.getAll(owned);
+            if (listed.size() == owned.size()) {
+                gamesLibrary = listed;
+            }
+        }
+        if (gamesLibrary == null) {
+            Customer customer = customerRepository.get(loggedInCustomer.getId());
+            if (customer == null) {
+                throw new EntityNotFoundException("Customer not found.");
+            }
+            gamesLibrary = customer.getGamesLibrary();
+        }
         if (gamesLibrary.isEmpty()) {
             throw new EntityNotFoundException("Your games library is empty.");
         }
@@ -221,16 +219,20 @@ public class CustomerService {
     }
 
     /**
-     * Retrieves the shopping cart ID of the logged-in customer.
+     * Retrieves the shopping cart ID of the logged-in customer. A cart that was evicted for
+     * being idle is restored from the archive, or recreated empty, first.
      *
+     * @param loggedInCustomer The customer acting, as resolved from their session.
      * @return The shopping cart ID.
      * @throws EntityNotFoundException if no customer is logged in or the shopping cart is null.
      */
-    public int getShoppingCartId() {
-        Customer loggedInCustomer = getLoggedInCustomer();
+    public int getShoppingCartId(Customer loggedInCustomer) {
         if (loggedInCustomer == null) {
             throw new EntityNotFoundException("No customer is logged in.");
         }
+        if (cartLifecycleManager != null) {
+            return cartLifecycleManager.ensureResident(loggedInCustomer);
+        }
         if (loggedInCustomer.getShoppingCart() == null) {
             throw new EntityNotFoundException("Logged-in customer does not have a shopping cart.");
         }
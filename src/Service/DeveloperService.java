@@ -3,6 +3,7 @@ package Service;
 import Model.Developer;
 import Model.Game;
 import Repository.IRepository;
+import Repository.Query;
 import Exception.BusinessLogicException;
 
 import java.util.List;
@@ -13,54 +14,49 @@ import java.util.List;
 public class DeveloperService {
     private final IRepository<Game> gameRepository;
     private final IRepository<Developer> developerRepository;
-    private Developer loggedInDeveloper;
+    private final PricingEngine pricingEngine;
 
     /**
      * Constructs the DeveloperService with game and developer repositories.
      *
      * @param gameRepository       The repository for managing games.
      * @param developerRepository  The repository for managing developers.
+     * @param pricingEngine        The engine caching effective game prices.
      */
-    public DeveloperService(IRepository<Game> gameRepository, IRepository<Developer> developerRepository) {
+    public DeveloperService(IRepository<Game> gameRepository, IRepository<Developer> developerRepository, PricingEngine pricingEngine) {
         this.gameRepository = gameRepository;
         this.developerRepository = developerRepository;
-    }
-
-    /**
-     * Sets the logged-in developer.
-     *
-     * @param developer The developer to set as logged in.
-     */
-    public void setDeveloper(Developer developer) {
-        this.loggedInDeveloper = developer;
+        this.pricingEngine = pricingEngine;
     }
 
     /**
      * Publishes a new game by the developer.
      *
+     * @param loggedInDeveloper The developer acting, as resolved from their session.
      * @param game The game to publish.
      * @return true if the game is published successfully.
      * @throws BusinessLogicException if the developer is not logged in or if a game with the same name already exists.
      */
-    public boolean publishGame(Game game) {
+    public boolean publishGame(Developer loggedInDeveloper, Game game) {
         if (loggedInDeveloper == null) {
             throw new BusinessLogicException("You are not logged in as a developer.");
         }
 
-        List<Game> allGames = gameRepository.getAll();
-        for (Game existingGame : allGames) {
-            if (existingGame.getGameName().equalsIgnoreCase(game.getGameName())) {
-                throw new BusinessLogicException("A game with this name already exists.");
-            }
+        boolean nameTaken = !gameRepository.find(Query.<Game>where()
+                .eq("gameNameLower", existingGame -> existingGame.getGameName().toLowerCase(), game.getGameName().toLowerCase())
+                .limit(1)).isEmpty();
+        if (nameTaken) {
+            throw new BusinessLogicException("A game with this name already exists.");
         }
 
-        int nextGameId = allGames.stream()
+        int nextGameId = gameRepository.getAll().stream()
                 .mapToInt(Game::getId)
                 .max()
                 .orElse(0) + 1;
 
         game.setGameId(nextGameId);
         gameRepository.create(game);
+        pricingEngine.invalidate(nextGameId);
 
         loggedInDeveloper.getPublishedGames().add(game);
         developerRepository.update(loggedInDeveloper);
@@ -71,6 +67,7 @@ public class DeveloperService {
     /**
      * Modifies an existing game if the developer owns it.
      *
+     * @param loggedInDeveloper The developer acting, as resolved from their session.
      * @param gameId          The ID of the game to modify.
      * @param newName         The new name for the game.
      * @param newDescription  The new description for the game.
@@ -80,7 +77,7 @@ public class DeveloperService {
      * @throws BusinessLogicException if the developer is not logged in, the game is not found,
      *                                or the developer does not own the game.
      */
-    public boolean modifyGame(int gameId, String newName, String newDescription, String newGenre, float newPrice) {
+    public boolean modifyGame(Developer loggedInDeveloper, int gameId, String newName, String newDescription, String newGenre, float newPrice) {
         if (loggedInDeveloper == null) {
             throw new BusinessLogicException("You are not logged in as a developer.");
         }
@@ -102,6 +99,7 @@ public class DeveloperService {
         game.setPrice(newPrice);
 
         gameRepository.update(game);
+        pricingEngine.invalidate(gameId);
 
         System.out.println("Game has been updated: " + game);
         return true;
@@ -110,10 +108,11 @@ public class DeveloperService {
     /**
      * Retrieves the list of games published by the developer.
      *
+     * @param loggedInDeveloper The developer acting, as resolved from their session.
      * @return A list of published games.
      * @throws BusinessLogicException if the developer is not logged in.
      */
-    public List<Game> getPublishedGames() {
+    public List<Game> getPublishedGames(Developer loggedInDeveloper) {
         if (loggedInDeveloper == null) {
             throw new BusinessLogicException("You are not logged in as a developer.");
         }
@@ -0,0 +1,156 @@
+package Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A hashed timer wheel: a ring of buckets, one per tick, where a timer is filed in the bucket of
+ * the tick it falls due. Scheduling and cancelling cost O(1), however many timers are pending.
+ * Advancing the wheel only visits the buckets of the ticks that passed. Timers more than one
+ * lap away share a bucket with nearer ones and are skipped until their lap comes round.
+ *
+ * The wheel has no thread of its own. The owner calls advanceTo with the current time, and
+ * due tasks run on that thread, outside the wheel's lock. A task that throws is logged and does
+ * not stop the tasks due after it.
+ */
+public class HashedTimerWheel {
+
+    /**
+     * A scheduled task, which can be cancelled until it runs.
+     */
+    public static final class Timeout {
+        private final long deadlineTick;
+        private final Runnable task;
+        private volatile boolean cancelled;
+
+        private Timeout(long deadlineTick, Runnable task) {
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        /**
+         * Prevents the task from running if it has not run yet.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final Instant origin;
+    private final long tickMillis;
+    private final List<List<Timeout>> buckets;
+    private final int mask;
+    private long currentTick;
+    private int pending;
+
+    /**
+     * Constructs a HashedTimerWheel.
+     *
+     * @param origin    The time of tick 0.
+     * @param tick      The length of a tick; timers fire at most one tick late.
+     * @param wheelSize The number of buckets, rounded up to a power of two.
+     */
+    public HashedTimerWheel(Instant origin, Duration tick, int wheelSize) {
+        if (tick.toMillis() <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be greater than 0.");
+        }
+        this.origin = origin;
+        this.tickMillis = tick.toMillis();
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Schedules a task. A deadline that has already passed fires on the next advance.
+     *
+     * @param deadline When the task falls due.
+     * @param task     The task.
+     * @return A handle that can cancel the task.
+     */
+    public synchronized Timeout schedule(Instant deadline, Runnable task) {
+        long tick = Math.max(ceilDiv(deadline.toEpochMilli() - origin.toEpochMilli(), tickMillis), currentTick + 1);
+        Timeout timeout = new Timeout(tick, task);
+        buckets.get((int) (tick & mask)).add(timeout);
+        pending++;
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel to the given time and runs every task that fell due, in deadline order
+     * within a tick. Cancelled tasks are dropped.
+     *
+     * @param now The current time.
+     * @return The number of tasks run, including any that threw.
+     */
+    public int advanceTo(Instant now) {
+        List<Timeout> due = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = Math.floorDiv(now.toEpochMilli() - origin.toEpochMilli(), tickMillis);
+            if (targetTick - currentTick >= buckets.size()) {
+                // More than a full lap passed: sweep every bucket once.
+                for (List<Timeout> bucket : buckets) {
+                    collectDue(bucket, targetTick, due);
+                }
+                currentTick = targetTick;
+            }
+            while (currentTick < targetTick) {
+                currentTick++;
+                collectDue(buckets.get((int) (currentTick & mask)), currentTick, due);
+            }
+        }
+        due.sort((a, b) -> Long.compare(a.deadlineTick, b.deadlineTick));
+        int run = 0;
+        for (Timeout timeout : due) {
+            if (!timeout.cancelled) {
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Timer task failed: " + e.getMessage());
+                }
+                run++;
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Gets the number of tasks scheduled and not yet due, including cancelled ones not yet swept.
+     *
+     * @return The pending count.
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    private void collectDue(List<Timeout> bucket, long tick, List<Timeout> due) {
+        for (Iterator<Timeout> it = bucket.iterator(); it.hasNext(); ) {
+            Timeout timeout = it.next();
+            if (timeout.cancelled || timeout.deadlineTick <= tick) {
+                it.remove();
+                pending--;
+                if (!timeout.cancelled) {
+                    due.add(timeout);
+                }
+            }
+        }
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+}
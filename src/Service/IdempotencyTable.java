@@ -0,0 +1,107 @@
+package Service;
+
+import Exception.BusinessLogicException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the results of completed requests by their client-supplied request ID, so a retried
+ * request can be answered with the original result instead of being run again.
+ *
+ * The table is bounded: it holds at most maxEntries results, each for at most the time to live.
+ * Entries are kept in insertion order, so the oldest is always at the head. Expired entries are
+ * swept from the head on every access, and the oldest entry is dropped when the table is full.
+ * Lookups and inserts are O(1) apart from that sweep.
+ *
+ * @param <V> The type of result remembered.
+ */
+public class IdempotencyTable<V> {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>();
+
+    /**
+     * A remembered result, with the scope it was recorded in and when it was recorded.
+     */
+    private record Entry<V>(int scope, V value, long recordedAtMillis) {
+    }
+
+    /**
+     * Constructs an IdempotencyTable.
+     *
+     * @param maxEntries The most results remembered at once.
+     * @param ttl        How long a result is remembered.
+     * @param clock      The clock entries are timed against.
+     */
+    public IdempotencyTable(int maxEntries, Duration ttl, Clock clock) {
+        if (maxEntries <= 0 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Capacity and time to live must be greater than 0.");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the result recorded for a request ID.
+     *
+     * @param requestId The request ID.
+     * @param scope     The entity the request acted on, such as a shopping cart ID.
+     * @return The result, or null if none is remembered.
+     * @throws BusinessLogicException if the request ID was used for a different scope.
+     */
+    public synchronized V get(String requestId, int scope) {
+        expire(clock.millis());
+        Entry<V> entry = entries.get(requestId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.scope() != scope) {
+            throw new BusinessLogicException("Request ID " + requestId + " was already used for another request.");
+        }
+        return entry.value();
+    }
+
+    /**
+     * Records the result of a completed request.
+     *
+     * @param requestId The request ID.
+     * @param scope     The entity the request acted on.
+     * @param value     The result.
+     */
+    public synchronized void put(String requestId, int scope, V value) {
+        long now = clock.millis();
+        expire(now);
+        entries.remove(requestId);
+        entries.put(requestId, new Entry<>(scope, value, now));
+        if (entries.size() > maxEntries) {
+            Iterator<Map.Entry<String, Entry<V>>> eldest = entries.entrySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Gets the number of results currently remembered, including expired ones not yet swept.
+     *
+     * @return The entry count.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void expire(long now) {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().recordedAtMillis() < ttlMillis) {
+                return;
+            }
+            it.remove();
+        }
+    }
+}
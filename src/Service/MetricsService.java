@@ -0,0 +1,83 @@
+package Service;
+
+import Metrics.MetricsRegistry;
+import Model.Admin;
+import Exception.BusinessLogicException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Service giving admins access to the repository metrics of the store.
+ */
+public class MetricsService {
+    private final MetricsRegistry metricsRegistry;
+
+    /**
+     * Constructs the MetricsService over a metrics registry.
+     *
+     * @param metricsRegistry The registry holding the repository metrics.
+     */
+    public MetricsService(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Gets a readable table of the repository metrics.
+     *
+     * @param loggedInAdmin The admin acting, as resolved from their session.
+     * @return The table.
+     * @throws BusinessLogicException if no admin is logged in.
+     */
+    public String getMetricsTable(Admin loggedInAdmin) {
+        requireAdmin(loggedInAdmin);
+        return metricsRegistry.formatTable();
+    }
+
+    /**
+     * Gets the repository metrics as nested maps, for machine-readable output.
+     *
+     * @param loggedInAdmin The admin acting, as resolved from their session.
+     * @return The metrics snapshot.
+     * @throws BusinessLogicException if no admin is logged in.
+     */
+    public Map<String, Object> getMetricsSnapshot(Admin loggedInAdmin) {
+        requireAdmin(loggedInAdmin);
+        return metricsRegistry.snapshot();
+    }
+
+    /**
+     * Writes the repository metrics to a file in the Prometheus text format.
+     *
+     * @param loggedInAdmin The admin acting, as resolved from their session.
+     * @param file The file to write.
+     * @throws BusinessLogicException if no admin is logged in or the file cannot be written.
+     */
+    public void dumpMetrics(Admin loggedInAdmin, Path file) {
+        requireAdmin(loggedInAdmin);
+        try {
+            Files.writeString(file, metricsRegistry.toPrometheus());
+        } catch (IOException e) {
+            throw new BusinessLogicException("Could not write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Clears the recorded repository metrics.
+     *
+     * @param loggedInAdmin The admin acting, as resolved from their session.
+     * @throws BusinessLogicException if no admin is logged in.
+     */
+    public void resetMetrics(Admin loggedInAdmin) {
+        requireAdmin(loggedInAdmin);
+        metricsRegistry.reset();
+    }
+
+    private void requireAdmin(Admin loggedInAdmin) {
+        if (loggedInAdmin == null) {
+            throw new BusinessLogicException("You must be logged in as an admin to view metrics.");
+        }
+    }
+}
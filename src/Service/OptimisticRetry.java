@@ -0,0 +1,47 @@
+package Service;
+
+import Exception.OptimisticLockException;
+import Tracing.Span;
+import Tracing.Tracer;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Helper for running read-modify-write sequences against versioned entities.
+ * Each attempt re-reads the entity, applies its change and tries to commit it with
+ * IRepository.compareAndUpdate; a failed commit means another writer got there first,
+ * so the attempt is repeated on fresh data.
+ * Each attempt is traced as a service span, so a trace shows how many attempts a request needed.
+ */
+final class OptimisticRetry {
+    static final int MAX_ATTEMPTS = 10;
+
+    private OptimisticRetry() {
+    }
+
+    /**
+     * Runs an attempt until it commits or the attempt limit is reached.
+     *
+     * @param attempt Performs one read-modify-write cycle and returns whether its commit succeeded.
+     * @throws OptimisticLockException if every attempt lost the race.
+     */
+    static void run(BooleanSupplier attempt) {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            Span span = Tracer.start("optimisticRetry.attempt", Span.Kind.SERVICE);
+            boolean committed = false;
+            try {
+                committed = attempt.getAsBoolean();
+            } finally {
+                if (span != null) {
+                    span.tag("attempt", i + 1).tag("committed", committed);
+                }
+                Tracer.end(span);
+            }
+            if (committed) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        throw new OptimisticLockException("The data was modified concurrently. Please try again.");
+    }
+}
@@ -0,0 +1,52 @@
+package Service;
+
+import Model.PurchaseEvent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Projects the purchase events onto the IDs of each customer's orders, in the order they were placed.
+ */
+public class OrderHistoryProjection implements Projection {
+    public static final String NAME = "orderHistory";
+
+    private final Map<Integer, List<Integer>> ordersByCustomer = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getSchemaVersion() {
+        return 1;
+    }
+
+    @Override
+    public void reset() {
+        ordersByCustomer.clear();
+    }
+
+    @Override
+    public void apply(PurchaseEvent event) {
+        if (event.getType() == PurchaseEvent.Type.ACCOUNT_DELETED) {
+            ordersByCustomer.remove(event.getCustomerId());
+            return;
+        }
+        ordersByCustomer.computeIfAbsent(event.getCustomerId(), id -> new CopyOnWriteArrayList<>()).add(event.getOrderId());
+    }
+
+    /**
+     * Gets the IDs of a customer's orders.
+     *
+     * @param customerId The ID of the customer.
+     * @return The order IDs, oldest first.
+     */
+    public List<Integer> getOrderIds(int customerId) {
+        List<Integer> orders = ordersByCustomer.get(customerId);
+        return orders == null ? List.of() : List.copyOf(orders);
+    }
+}
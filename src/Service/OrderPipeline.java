@@ -0,0 +1,375 @@
+package Service;
+
+import Model.Order;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Runs the work that follows an accepted checkout, such as persisting the order and updating
+ * sales analytics, off the customer's request path.
+ *
+ * Each stage has its own bounded queue and a single writer thread. The writer drains up to
+ * batchSize orders at a time and hands them to the stage's batch writer in one call, so
+ * persisting a burst of orders costs one repository write instead of one per order. When a
+ * queue is full, submit blocks until the writer catches up, so a slow disk slows checkouts
+ * down instead of letting the backlog grow without bound.
+ *
+ * A failed batch is retried a few times. If it still fails, its orders are parked with the
+ * stage and counted, and the stage tries them again every RETRY_INTERVAL_MILLIS, when the
+ * pipeline stops, and on retryFailed. An order stays visible through getInFlight until every
+ * stage has written it, parked or not, so reads can merge it in and no order is lost.
+ *
+ * Submitting checks whether the pipeline is running and enqueues under the read side of a lock
+ * whose write side start and stop take, so an order is never queued behind a stopped writer.
+ *
+ * A pipeline created with async set to false runs every stage on the submitting thread. That
+ * suits in-memory stores, where there is no disk write to take off the request path.
+ */
+public class OrderPipeline {
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
+    private final int queueCapacity;
+    private final int batchSize;
+    private final boolean async;
+    private final List<Stage> stages = new ArrayList<>();
+    private final ConcurrentMap<Integer, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+
+    /**
+     * An accepted order and the number of stages that have yet to process it.
+     */
+    private record InFlight(Order order, AtomicInteger remaining) {
+    }
+
+    /**
+     * One stage: its queue, its batch writer and the thread draining the queue.
+     */
+    private final class Stage implements Runnable {
+        private final String name;
+        private final Consumer<List<Order>> batchWriter;
+        private final BlockingQueue<Order> queue;
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+        private final List<Order> parked = new ArrayList<>();
+        private long nextRetryMillis;
+        private Thread thread;
+
+        Stage(String name, Consumer<List<Order>> batchWriter) {
+            this.name = name;
+            this.batchWriter = batchWriter;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        @Override
+        public void run() {
+            List<Order> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                retryParked(false);
+                try {
+                    Order first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    process(batch);
+                    batch.clear();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Writes a batch taken from the queue, parking it if it fails. Either way the orders
+         * count as processed, so flush does not wait on a failing writer.
+         */
+        void process(List<Order> batch) {
+            write(batch);
+            synchronized (this) {
+                processed.addAndGet(batch.size());
+                notifyAll();
+            }
+        }
+
+        /**
+         * Tries the parked orders again, if there are any and their retry is due or forced.
+         */
+        void retryParked(boolean force) {
+            List<Order> retry;
+            synchronized (this) {
+                if (parked.isEmpty() || (!force && System.currentTimeMillis() < nextRetryMillis)) {
+                    return;
+                }
+                retry = new ArrayList<>(parked);
+                parked.clear();
+            }
+            write(retry);
+        }
+
+        synchronized int getParkedCount() {
+            return parked.size();
+        }
+
+        private void write(List<Order> batch) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    batchWriter.accept(batch);
+                    break;
+                } catch (RuntimeException e) {
+                    if (attempt == MAX_ATTEMPTS) {
+                        failedBatches.incrementAndGet();
+                        synchronized (this) {
+                            parked.addAll(batch);
+                            nextRetryMillis = System.currentTimeMillis() + RETRY_INTERVAL_MILLIS;
+                        }
+                        System.err.println("Order pipeline stage '" + name + "' parked a batch of " + batch.size()
+                                + " order(s) for retry: " + e.getMessage());
+                        return;
+                    }
+                }
+            }
+            for (Order order : batch) {
+                InFlight entry = inFlight.get(order.getOrderId());
+                if (entry != null && entry.remaining().decrementAndGet() == 0) {
+                    inFlight.remove(order.getOrderId(), entry);
+                }
+            }
+        }
+
+        synchronized void awaitDrained() throws InterruptedException {
+            long target = accepted.get();
+            while (processed.get() < target) {
+                wait(50);
+            }
+        }
+    }
+
+    /**
+     * Constructs an OrderPipeline with no stages.
+     *
+     * @param queueCapacity The most orders waiting in each stage's queue.
+     * @param batchSize     The most orders handed to a batch writer at once.
+     * @param async         Whether stages run on their own threads, or on the submitting thread.
+     */
+    public OrderPipeline(int queueCapacity, int batchSize, boolean async) {
+        if (queueCapacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Queue capacity and batch size must be greater than 0.");
+        }
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.async = async;
+    }
+
+    /**
+     * Adds a stage. Stages must be added before the pipeline is started.
+     *
+     * @param name        The name of the stage, used in thread names and errors.
+     * @param batchWriter Processes a batch of orders, such as by writing them to a repository.
+     * @return This pipeline, for chaining.
+     */
+    public OrderPipeline addStage(String name, Consumer<List<Order>> batchWriter) {
+        if (running) {
+            throw new IllegalStateException("Stages must be added before the pipeline starts.");
+        }
+        stages.add(new Stage(name, batchWriter));
+        return this;
+    }
+
+    /**
+     * Starts the writer threads of an asynchronous pipeline.
+     */
+    public synchronized void start() {
+        if (!async || running) {
+            return;
+        }
+        for (Stage stage : stages) {
+            stage.thread = new Thread(stage, "order-pipeline-" + stage.name);
+            stage.thread.setDaemon(true);
+        }
+        runningLock.writeLock().lock();
+        try {
+            running = true;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        for (Stage stage : stages) {
+            stage.thread.start();
+        }
+    }
+
+    /**
+     * Hands an accepted order to every stage. Blocks while a stage's queue is full. When the
+     * pipeline is not running, the stages process the order on the calling thread, after
+     * retrying any orders they parked.
+     *
+     * @param order The accepted order.
+     */
+    public void submit(Order order) {
+        runningLock.readLock().lock();
+        try {
+            if (!stages.isEmpty()) {
+                inFlight.put(order.getOrderId(), new InFlight(order, new AtomicInteger(stages.size())));
+            }
+            for (Stage stage : stages) {
+                stage.accepted.incrementAndGet();
+                if (!running) {
+                    stage.retryParked(false);
+                    stage.process(List.of(order));
+                    continue;
+                }
+                try {
+                    stage.queue.put(order);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stage.process(List.of(order));
+                }
+            }
+        } finally {
+            runningLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the orders accepted but not yet processed by every stage.
+     *
+     * @return A snapshot of the in-flight orders.
+     */
+    public Collection<Order> getInFlight() {
+        List<Order> orders = new ArrayList<>(inFlight.size());
+        for (InFlight entry : inFlight.values()) {
+            orders.add(entry.order());
+        }
+        return orders;
+    }
+
+    /**
+     * Waits until every order submitted so far has been processed by every stage.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void flush() throws InterruptedException {
+        for (Stage stage : stages) {
+            stage.awaitDrained();
+        }
+    }
+
+    /**
+     * Retries the orders every stage has parked, on the calling thread.
+     *
+     * @return The number of orders still parked afterwards.
+     */
+    public int retryFailed() {
+        int stillParked = 0;
+        for (Stage stage : stages) {
+            stage.retryParked(true);
+            stillParked += stage.getParkedCount();
+        }
+        return stillParked;
+    }
+
+    /**
+     * Stops accepting asynchronous work, lets the writers drain their queues and waits for them,
+     * then retries the orders they parked once more. Orders still failing stay parked and in
+     * flight. Orders submitted afterwards are processed on the submitting thread.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        // Waits for submitters already enqueueing; any later submit sees the pipeline stopped.
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        for (Stage stage : stages) {
+            try {
+                stage.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // Orders queued while the writer was exiting.
+            List<Order> rest = new ArrayList<>();
+            stage.queue.drainTo(rest);
+            if (!rest.isEmpty()) {
+                stage.process(rest);
+            }
+        }
+        int stillParked = retryFailed();
+        if (stillParked > 0) {
+            System.err.println("Order pipeline stopped with " + stillParked + " parked order(s) still in flight.");
+        }
+    }
+
+    /**
+     * Gets the number of orders waiting in a stage's queue.
+     *
+     * @param stageName The name of the stage.
+     * @return The queue depth, or 0 if there is no such stage.
+     */
+    public int getQueueDepth(String stageName) {
+        for (Stage stage : stages) {
+            if (stage.name.equals(stageName)) {
+                return stage.queue.size();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the number of orders a stage has processed.
+     *
+     * @param stageName The name of the stage.
+     * @return The processed count, or 0 if there is no such stage.
+     */
+    public long getProcessedCount(String stageName) {
+        for (Stage stage : stages) {
+            if (stage.name.equals(stageName)) {
+                return stage.processed.get();
+            }
+        }
+        return 0;
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    /**
+     * Gets the number of orders parked by the stages after their batches failed.
+     *
+     * @return The parked count.
+     */
+    public int getParkedCount() {
+        int count = 0;
+        for (Stage stage : stages) {
+            count += stage.getParkedCount();
+        }
+        return count;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+}
@@ -1,35 +1,57 @@
 package Service;
 
 import Model.Customer;
+import Model.Money;
 import Model.Order;
 import Repository.IRepository;
+import Repository.Query;
 import Exception.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Service class for managing orders, including creating, retrieving, and filtering orders by customer.
+ * Orders accepted at checkout but not yet persisted by the order pipeline are merged into the results.
+ * A customer's orders are looked up through the order history projection of the purchase events.
  */
 public class OrderService {
     private final IRepository<Order> orderRepository;
+    private final OrderPipeline orderPipeline;
+    private final PurchaseEventStore purchaseEvents;
+    private final OrderHistoryProjection orderHistory;
 
     /**
      * Constructs the OrderService with the specified order repository.
      *
      * @param orderRepository The repository for managing orders.
+     * @param orderPipeline   The pipeline persisting accepted orders.
+     * @param purchaseEvents  The store purchases are recorded in, or null if they are not recorded.
+     * @param orderHistory    The projection of each customer's orders, or null to query the order repository.
      */
-    public OrderService(IRepository<Order> orderRepository) {
+    public OrderService(IRepository<Order> orderRepository, OrderPipeline orderPipeline, PurchaseEventStore purchaseEvents,
+                        OrderHistoryProjection orderHistory) {
         this.orderRepository = orderRepository;
+        this.orderPipeline = orderPipeline;
+        this.purchaseEvents = purchaseEvents;
+        this.orderHistory = orderHistory;
     }
 
     /**
-     * Creates a new order and adds it to the repository.
+     * Creates a new order, adds it to the repository and records it as a purchase. No amount
+     * was charged for it.
      *
      * @param order The order to create.
      */
     public void createOrder(Order order) {
         orderRepository.create(order);
+        if (purchaseEvents != null) {
+            purchaseEvents.append(order, Money.ZERO);
+        }
     }
 
 
@@ -39,7 +61,7 @@ public class OrderService {
      * @return A list of all orders.
      */
     public List<Order> getAllOrders() {
-        return orderRepository.getAll();
+        return withInFlight(orderRepository.getAll(), order -> true);
     }
 
     /**
@@ -54,13 +76,11 @@ public class OrderService {
             throw new EntityNotFoundException("Customer is not logged in.");
         }
 
-        List<Order> customerOrders = new ArrayList<>();
-        for (Order order : orderRepository.getAll()) {
-            if (order.getCustomer().getId().equals(customer.getId())) {
-                customerOrders.add(order);
-            }
-        }
-        return customerOrders;
+        List<Order> orders = orderHistory != null
+                ? orderRepository.getAll(orderHistory.getOrderIds(customer.getId()))
+                : orderRepository.find(Query.<Order>where()
+                        .eq("customerId", order -> order.getCustomer().getId(), customer.getId()));
+        return withInFlight(orders, order -> order.getCustomer().getId().equals(customer.getId()));
     }
 
     /**
@@ -72,9 +92,37 @@ public class OrderService {
      */
     public Order getOrderById(int orderId) {
         Order order = orderRepository.get(orderId);
+        if (order == null) {
+            order = orderPipeline.getInFlight().stream()
+                    .filter(pending -> pending.getOrderId() == orderId)
+                    .findFirst()
+                    .orElse(null);
+        }
         if (order == null) {
             throw new EntityNotFoundException("Order not found.");
         }
         return order;
     }
+
+    /**
+     * Adds the in-flight orders matching a filter to orders read from the repository, skipping
+     * any the pipeline persisted between the two reads.
+     */
+    private List<Order> withInFlight(List<Order> persisted, Predicate<Order> filter) {
+        Collection<Order> pending = orderPipeline.getInFlight();
+        if (pending.isEmpty()) {
+            return persisted;
+        }
+        Set<Integer> seen = new HashSet<>();
+        List<Order> orders = new ArrayList<>(persisted);
+        for (Order order : persisted) {
+            seen.add(order.getOrderId());
+        }
+        for (Order order : pending) {
+            if (filter.test(order) && seen.add(order.getOrderId())) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
 }
@@ -0,0 +1,150 @@
+package Service;
+
+import Model.Game;
+import Model.Money;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The single source of game prices for cart totals, checkout, sorting and price filters.
+ * It caches the effective price of each game, which is the list price less any discount,
+ * rounded to the cent. A cached price remembers the list price and discount it was computed
+ * from and is only returned for a game that still has them, so a copy of a game from before or
+ * after a repricing always gets its own price, and the repository's price index is keyed by the
+ * price of the game being written. Services that change a price or a discount call invalidate
+ * after writing the game. Listeners hear about each invalidation, so values derived from
+ * prices, such as cart totals, can be recomputed from the repository.
+ */
+public class PricingEngine {
+
+    /**
+     * Told when the price of a game changes.
+     */
+    public interface PriceChangeListener {
+
+        /**
+         * Called after the cached price of a game has been dropped.
+         *
+         * @param gameId The ID of the game.
+         */
+        void priceChanged(int gameId);
+
+        /**
+         * Called after every cached price has been dropped.
+         */
+        void allPricesChanged();
+    }
+
+    /**
+     * An effective price with the list price and discount percentage it was computed from.
+     */
+    private record Price(float listPrice, float discountPercentage, Money effective) {
+        static Price of(Game game) {
+            return new Price(game.getPrice(), discountPercentage(game), game.getEffectivePrice());
+        }
+
+        boolean isFor(Game game) {
+            return Float.compare(listPrice, game.getPrice()) == 0
+                    && Float.compare(discountPercentage, discountPercentage(game)) == 0;
+        }
+
+        private static float discountPercentage(Game game) {
+            return game.getDiscount() == null ? 0 : game.getDiscount().getDiscountPercentage();
+        }
+    }
+
+    private final ConcurrentMap<Integer, Price> effectivePrices = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final List<PriceChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Gets the effective price of a game, computing and caching it on first use.
+     *
+     * @param game The game.
+     * @return The price after discount.
+     */
+    public Money getEffectivePrice(Game game) {
+        Price price = effectivePrices.get(game.getGameId());
+        if (price != null && price.isFor(game)) {
+            hits.increment();
+            return price.effective();
+        }
+        misses.increment();
+        return effectivePrices.compute(game.getGameId(),
+                (id, cached) -> cached != null && cached.isFor(game) ? cached : Price.of(game)).effective();
+    }
+
+    /**
+     * Sums the effective prices of a collection of games.
+     *
+     * @param games The games, such as the contents of a shopping cart.
+     * @return The total.
+     */
+    public Money getTotal(Collection<Game> games) {
+        long cents = 0;
+        for (Game game : games) {
+            cents = Math.addExact(cents, getEffectivePrice(game).getCents());
+        }
+        return Money.ofCents(cents);
+    }
+
+    /**
+     * Drops the cached price of a game whose price or discount has changed, or which was deleted.
+     *
+     * @param gameId The ID of the game.
+     */
+    public void invalidate(int gameId) {
+        effectivePrices.remove(gameId);
+        for (PriceChangeListener listener : listeners) {
+            listener.priceChanged(gameId);
+        }
+    }
+
+    /**
+     * Drops the cached prices of a batch of games repriced together.
+     *
+     * @param gameIds The IDs of the games.
+     */
+    public void invalidate(Collection<Integer> gameIds) {
+        for (Integer gameId : gameIds) {
+            invalidate(gameId);
+        }
+    }
+
+    /**
+     * Drops every cached price.
+     */
+    public void invalidateAll() {
+        effectivePrices.clear();
+        for (PriceChangeListener listener : listeners) {
+            listener.allPricesChanged();
+        }
+    }
+
+    /**
+     * Registers a listener for price changes.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(PriceChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public int getCachedCount() {
+        return effectivePrices.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
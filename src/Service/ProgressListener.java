@@ -0,0 +1,17 @@
+package Service;
+
+/**
+ * Receives progress reports from a long-running bulk operation.
+ * Reports can arrive from worker threads, so an implementation must be thread-safe.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Reports how much of the operation is done.
+     *
+     * @param completed The number of items processed so far.
+     * @param total     The number of items to process.
+     */
+    void onProgress(int completed, int total);
+}
@@ -0,0 +1,46 @@
+package Service;
+
+import Model.PurchaseEvent;
+
+/**
+ * A read model built from the purchase event stream. Events are applied in stream order per
+ * customer, but events of different customers can be applied concurrently, so an
+ * implementation must be thread-safe. A projection kept per customer drops what it holds for a
+ * customer on their ACCOUNT_DELETED event, since customer IDs can be given out again.
+ */
+public interface Projection {
+
+    /**
+     * Gets the name the projection is registered under.
+     *
+     * @return The name.
+     */
+    String getName();
+
+    /**
+     * Gets the version of the projection's schema. Registering a projection under a name already
+     * taken by a lower version replaces it and rebuilds it from the full stream.
+     *
+     * @return The schema version.
+     */
+    int getSchemaVersion();
+
+    /**
+     * Discards everything the projection has built, before a rebuild.
+     */
+    void reset();
+
+    /**
+     * Folds one event into the projection.
+     *
+     * @param event The event.
+     */
+    void apply(PurchaseEvent event);
+
+    /**
+     * Called once a rebuild has folded in the full stream. Events appended afterwards are
+     * folded in with apply as usual.
+     */
+    default void rebuilt() {
+    }
+}
@@ -0,0 +1,215 @@
+package Service;
+
+import Model.Game;
+import Model.Money;
+import Model.Order;
+import Model.PurchaseEvent;
+import Repository.IRepository;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * The append-only store of purchase events, and the projections built from it.
+ *
+ * Appending an event writes it to the event repository and folds it into every registered
+ * projection, so the projections are always up to date with the stream. Appends run
+ * concurrently; a rebuild blocks them until it is done.
+ *
+ * Projections are held in memory. When they are registered they are built from the full stream,
+ * one fork/join task per projection, so they rebuild in parallel on startup. Registering a newer
+ * schema version of a projection replaces the old one and rebuilds just the new one.
+ */
+public class PurchaseEventStore {
+    private final IRepository<PurchaseEvent> eventRepository;
+    private final Clock clock;
+    private final Map<String, Projection> projections = new LinkedHashMap<>();
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private final AtomicInteger lastEventId = new AtomicInteger();
+    private volatile List<Projection> active = List.of();
+
+    /**
+     * Constructs the PurchaseEventStore over the events already written.
+     *
+     * @param eventRepository The repository the events are written to.
+     * @param clock           The clock events are timestamped with.
+     */
+    public PurchaseEventStore(IRepository<PurchaseEvent> eventRepository, Clock clock) {
+        this.eventRepository = eventRepository;
+        this.clock = clock;
+        for (PurchaseEvent event : eventRepository.getAll()) {
+            lastEventId.accumulateAndGet(event.getEventId(), Math::max);
+        }
+    }
+
+    /**
+     * Records a purchase and folds it into every projection.
+     *
+     * @param order  The order the purchase placed.
+     * @param amount The amount charged.
+     * @return The event written.
+     */
+    public PurchaseEvent append(Order order, Money amount) {
+        return append(eventId -> toEvent(eventId, order, amount));
+    }
+
+    /**
+     * Records that a customer's account was deleted, which drops the customer from the
+     * projections kept per customer.
+     *
+     * @param customerId The ID of the deleted customer.
+     * @return The event written.
+     */
+    public PurchaseEvent appendAccountDeleted(int customerId) {
+        return append(eventId -> PurchaseEvent.accountDeleted(eventId, customerId, clock.instant()));
+    }
+
+    private PurchaseEvent append(IntFunction<PurchaseEvent> newEvent) {
+        rebuildLock.readLock().lock();
+        try {
+            PurchaseEvent event = newEvent.apply(lastEventId.incrementAndGet());
+            eventRepository.create(event);
+            for (Projection projection : active) {
+                projection.apply(event);
+            }
+            return event;
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a purchase event for each order placed before purchases were event-sourced, if the
+     * store is still empty. Those orders did not record the amount charged, so their events
+     * carry an amount of zero.
+     *
+     * @param orders The orders already placed.
+     * @return The number of events written.
+     */
+    public int backfill(List<Order> orders) {
+        rebuildLock.writeLock().lock();
+        try {
+            if (lastEventId.get() > 0 || orders.isEmpty()) {
+                return 0;
+            }
+            List<PurchaseEvent> events = new ArrayList<>(orders.size());
+            orders.stream()
+                    .sorted(Comparator.comparingInt(Order::getOrderId))
+                    .forEach(order -> events.add(toEvent(lastEventId.incrementAndGet(), order, Money.ZERO)));
+            eventRepository.createAll(events);
+            rebuild(active);
+            System.out.println(events.size() + " purchase event(s) backfilled from existing orders.");
+            return events.size();
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registers projections and builds them from the full stream, in parallel. A projection
+     * replaces one registered under the same name only if its schema version is higher.
+     *
+     * @param newProjections The projections to register.
+     * @throws IllegalArgumentException if a projection of the same name and an equal or higher
+     *                                  schema version is already registered.
+     */
+    public void register(Projection... newProjections) {
+        rebuildLock.writeLock().lock();
+        try {
+            for (Projection projection : newProjections) {
+                Projection existing = projections.get(projection.getName());
+                if (existing != null && existing.getSchemaVersion() >= projection.getSchemaVersion()) {
+                    throw new IllegalArgumentException("Projection " + projection.getName() + " version "
+                            + existing.getSchemaVersion() + " is already registered.");
+                }
+            }
+            rebuild(List.of(newProjections));
+            for (Projection projection : newProjections) {
+                projections.put(projection.getName(), projection);
+            }
+            active = List.copyOf(projections.values());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds every registered projection from the full stream, in parallel.
+     */
+    public void rebuildAll() {
+        rebuildLock.writeLock().lock();
+        try {
+            rebuild(active);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets every event, oldest first.
+     *
+     * @return The events.
+     */
+    public List<PurchaseEvent> getEvents() {
+        List<PurchaseEvent> events = new ArrayList<>(eventRepository.getAll());
+        events.sort(Comparator.comparingInt(PurchaseEvent::getEventId));
+        return events;
+    }
+
+    public int getEventCount() {
+        return lastEventId.get();
+    }
+
+    /**
+     * Resets the projections and replays the full stream into each, one fork/join task per
+     * projection. Must be called with the rebuild lock held for writing.
+     */
+    private void rebuild(Collection<Projection> targets) {
+        if (targets.isEmpty()) {
+            return;
+        }
+        List<PurchaseEvent> events = getEvents();
+        List<Callable<Void>> tasks = new ArrayList<>(targets.size());
+        for (Projection projection : targets) {
+            tasks.add(() -> {
+                projection.reset();
+                for (PurchaseEvent event : events) {
+                    projection.apply(event);
+                }
+                projection.rebuilt();
+                return null;
+            });
+        }
+        for (Future<Void> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while rebuilding projections.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Could not rebuild projections: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    private PurchaseEvent toEvent(int eventId, Order order, Money amount) {
+        List<Integer> gameIds = new ArrayList<>(order.getPurchasedGames().size());
+        for (Game game : order.getPurchasedGames()) {
+            gameIds.add(game.getGameId());
+        }
+        return new PurchaseEvent(eventId, order.getOrderId(), order.getCustomer().getId(), gameIds, amount.getCents(), clock.instant());
+    }
+}
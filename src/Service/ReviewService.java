@@ -4,10 +4,12 @@ import Model.Customer;
 import Model.Game;
 import Model.Review;
 import Repository.IRepository;
+import Repository.Query;
 import Exception.*;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Service class for managing reviews, including adding, retrieving, and deleting reviews.
@@ -16,9 +18,9 @@ import java.util.List;
 public class ReviewService {
     private final IRepository<Review> reviewRepository;
     private final IRepository<Customer> customerRepository;
-    private Customer loggedInCustomer;
 
     private final IRepository<Game> gameRepository;
+    private final Lock reviewLock = new ReentrantLock();
 
     /**
      * Constructs the ReviewService with the specified repositories.
@@ -36,6 +38,7 @@ public class ReviewService {
     /**
      * Allows the logged-in customer to leave a review for a game they own.
      *
+     * @param loggedInCustomer The customer acting, as resolved from their session.
      * @param gameId The ID of the game being reviewed.
      * @param rating The rating given by the customer (1-5).
      * @throws EntityNotFoundException if no customer is logged in, the game is not found,
@@ -43,7 +46,7 @@ public class ReviewService {
      * @throws ValidationException if the provided rating is not between 1 and 5.
      * @throws BusinessLogicException if the customer has already reviewed the game.
      */
-    public void leaveReview(int gameId, int rating) {
+    public void leaveReview(Customer loggedInCustomer, int gameId, int rating) {
         if (loggedInCustomer == null) {
             throw new EntityNotFoundException("No customer is logged in.");
         }
@@ -65,19 +68,26 @@ public class ReviewService {
             throw new EntityNotFoundException("Customer does not own this game.");
         }
 
-        for (Review review : reviewRepository.getAll()) {
-            if (review.getCustomer().getId() == customer.getId() && review.getGame().getGameId() == gameId) {
+        reviewLock.lock();
+        try {
+            boolean alreadyReviewed = !reviewRepository.find(Query.<Review>where()
+                    .eq("gameId", review -> review.getGame().getGameId(), gameId)
+                    .eq("customerId", review -> review.getCustomer().getId(), customer.getId())
+                    .limit(1)).isEmpty();
+            if (alreadyReviewed) {
                 throw new BusinessLogicException("Customer has already reviewed this game.");
             }
-        }
 
-        int reviewId = generateReviewId();
-        Review newReview = new Review(reviewId, rating, customer, game);
-        reviewRepository.create(newReview);
+            int reviewId = generateReviewId();
+            Review newReview = new Review(reviewId, rating, customer, game);
+            reviewRepository.create(newReview);
 
-        List<Review> gameReviews = game.getReviews();
-        gameReviews.add(newReview);
-        game.setReviews(gameReviews);
+            List<Review> gameReviews = game.getReviews();
+            gameReviews.add(newReview);
+            game.setReviews(gameReviews);
+        } finally {
+            reviewLock.unlock();
+        }
     }
 
 
@@ -88,13 +98,8 @@ public class ReviewService {
      * @return A list of reviews for the game.
      */
     public List<Review> getReviewsForGame(int gameId) {
-        List<Review> reviews = new ArrayList<>();
-        for (Review review : reviewRepository.getAll()) {
-            if (review.getGame().getGameId() == gameId) {
-                reviews.add(review);
-            }
-        }
-        return reviews;
+        return reviewRepository.find(Query.<Review>where()
+                .eq("gameId", review -> review.getGame().getGameId(), gameId));
     }
 
     /**
@@ -109,15 +114,6 @@ public class ReviewService {
                 .orElse(0) + 1;
     }
 
-    /**
-     * Sets the currently logged-in customer.
-     *
-     * @param customer The customer to set as logged in.
-     */
-    public void setLoggedInCustomer(Customer customer) {
-        this.loggedInCustomer = customer;
-    }
-
     /**
      * Retrieves all reviews from the repository.
      *
@@ -0,0 +1,61 @@
+package Service;
+
+import Model.PurchaseEvent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Projects the purchase events onto running sales figures: the number of orders placed and
+ * the number of copies sold of each game.
+ */
+public class SalesAnalytics implements Projection {
+    public static final String NAME = "sales";
+
+    private final ConcurrentMap<Integer, LongAdder> unitsByGame = new ConcurrentHashMap<>();
+    private final LongAdder orders = new LongAdder();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getSchemaVersion() {
+        return 1;
+    }
+
+    @Override
+    public void reset() {
+        unitsByGame.clear();
+        orders.reset();
+    }
+
+    @Override
+    public void apply(PurchaseEvent event) {
+        // Sales stand even once the buyer's account is gone.
+        if (event.getType() != PurchaseEvent.Type.PURCHASE) {
+            return;
+        }
+        orders.increment();
+        for (int gameId : event.getGameIds()) {
+            unitsByGame.computeIfAbsent(gameId, id -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Gets the number of copies of a game sold.
+     *
+     * @param gameId The ID of the game.
+     * @return The units sold.
+     */
+    public long getUnitsSold(int gameId) {
+        LongAdder units = unitsByGame.get(gameId);
+        return units == null ? 0 : units.sum();
+    }
+
+    public long getOrderCount() {
+        return orders.sum();
+    }
+}
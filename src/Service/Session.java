@@ -0,0 +1,89 @@
+package Service;
+
+import Model.Admin;
+import Model.Customer;
+import Model.Developer;
+import Model.User;
+
+/**
+ * An authenticated session of a user, identified by an opaque token.
+ * Sessions replace the single logged-in user that each service used to keep, so one
+ * process can serve many users at the same time.
+ */
+public class Session {
+    private final String token;
+    private final User user;
+    private final long createdAtMillis;
+    private volatile long lastAccessMillis;
+
+    /**
+     * Constructs a Session for an authenticated user.
+     *
+     * @param token The token identifying the session.
+     * @param user  The authenticated user.
+     */
+    Session(String token, User user) {
+        this.token = token;
+        this.user = user;
+        this.createdAtMillis = System.currentTimeMillis();
+        this.lastAccessMillis = createdAtMillis;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * Gets the session's user if it is a customer.
+     *
+     * @return The customer, or null if the user is not a customer.
+     */
+    public Customer getCustomer() {
+        return user instanceof Customer customer ? customer : null;
+    }
+
+    /**
+     * Gets the session's user if it is an admin.
+     *
+     * @return The admin, or null if the user is not an admin.
+     */
+    public Admin getAdmin() {
+        return user instanceof Admin admin ? admin : null;
+    }
+
+    /**
+     * Gets the session's user if it is a developer.
+     *
+     * @return The developer, or null if the user is not a developer.
+     */
+    public Developer getDeveloper() {
+        return user instanceof Developer developer ? developer : null;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    /**
+     * Records that the session was just used.
+     */
+    void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "Session{" +
+                "user='" + user.getUsername() + '\'' +
+                ", role='" + user.getRole() + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,118 @@
+package Service;
+
+import Model.User;
+import Exception.BusinessLogicException;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Issues session tokens and keeps the active sessions.
+ * Sessions that have not been used for longer than the idle timeout expire: they are
+ * rejected when next looked up and removed by a sweep that runs every few hundred logins.
+ */
+public class SessionManager {
+    private static final int SWEEP_INTERVAL = 256;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicInteger opensSinceSweep = new AtomicInteger();
+    private final long idleTimeoutMillis;
+
+    /**
+     * Constructs a SessionManager.
+     *
+     * @param idleTimeout How long a session may stay unused before it expires.
+     */
+    public SessionManager(Duration idleTimeout) {
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+    }
+
+    /**
+     * Opens a new session for an authenticated user.
+     *
+     * @param user The authenticated user.
+     * @return The new session.
+     */
+    public Session open(User user) {
+        if (opensSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            opensSinceSweep.set(0);
+            expireIdleSessions();
+        }
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        Session session = new Session(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes), user);
+        sessions.put(session.getToken(), session);
+        return session;
+    }
+
+    /**
+     * Looks up an active session by its token and marks it as used.
+     *
+     * @param token The session token.
+     * @return The session.
+     * @throws BusinessLogicException if the token is unknown or the session has expired.
+     */
+    public Session get(String token) {
+        Session session = token != null ? sessions.get(token) : null;
+        if (session == null) {
+            throw new BusinessLogicException("Invalid or expired session.");
+        }
+        if (isExpired(session, System.currentTimeMillis())) {
+            sessions.remove(token, session);
+            throw new BusinessLogicException("Invalid or expired session.");
+        }
+        session.touch();
+        return session;
+    }
+
+    /**
+     * Closes a session.
+     *
+     * @param session The session to close.
+     * @return true if the session was active, false otherwise.
+     */
+    public boolean close(Session session) {
+        return session != null && sessions.remove(session.getToken(), session);
+    }
+
+    /**
+     * Closes every session of a user, e.g. after the account was deleted.
+     * Users are matched by role and ID, since each role has its own ID space.
+     *
+     * @param user The user.
+     */
+    public void closeAllFor(User user) {
+        sessions.values().removeIf(session -> session.getUser().getId().equals(user.getId())
+                && session.getUser().getRole().equals(user.getRole()));
+    }
+
+    /**
+     * Removes all sessions that have been idle for longer than the timeout.
+     *
+     * @return The number of sessions removed.
+     */
+    public int expireIdleSessions() {
+        long now = System.currentTimeMillis();
+        int before = sessions.size();
+        sessions.values().removeIf(session -> isExpired(session, now));
+        return before - sessions.size();
+    }
+
+    /**
+     * Gets the number of sessions currently held, including idle ones not yet swept.
+     *
+     * @return The session count.
+     */
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.getLastAccessMillis() > idleTimeoutMillis;
+    }
+}
@@ -2,23 +2,61 @@ package Service;
 
 import Model.Customer;
 import Model.Game;
+import Model.Money;
 import Model.Order;
 import Model.ShoppingCart;
 import Repository.IRepository;
 import Exception.*;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
 /**
  * Service class for managing shopping carts, including adding and removing games,
  * clearing the cart, and handling the checkout process.
+ * Cart operations are isolated per cart, and operations that also touch the customer
+ * per customer, using striped locks; customer stripes are always taken before cart stripes.
+ *
+ * Each cart keeps running totals, updated as games are added and removed, so cart totals and
+ * checkout do not re-sum the games. A CartPriceIndex listens to the pricing engine and marks
+ * the carts holding a repriced game as stale. A stale cart's totals are recomputed once, on
+ * the next read.
+ *
+ * Checkout is split in two. The synchronous part validates the cart, charges the wallet, adds
+ * the games to the library and accepts the order by appending a purchase event, which updates
+ * the order history, library and sales projections. Persisting the order is left to the
+ * OrderPipeline.
  */
 public class ShoppingCartService {
+    private static final int LOCK_STRIPES = 64;
+    public static final int CHECKOUT_DEDUP_ENTRIES = 100_000;
+    public static final Duration CHECKOUT_DEDUP_TTL = Duration.ofHours(24);
+
     private final IRepository<ShoppingCart> shoppingCartRepository;;
     private final IRepository<Game> gameRepository;
     private final IRepository<Order> orderRepository;
     private final IRepository<Customer> customerRepository;
+    private final WalletLedger walletLedger;
+    private final PricingEngine pricingEngine;
+    private final StripedLock customerLocks = new StripedLock(LOCK_STRIPES);
+    private final StripedLock cartLocks = new StripedLock(LOCK_STRIPES);
+    private final OrderPipeline orderPipeline;
+    private final PurchaseEventStore purchaseEvents;
+    private final AtomicInteger lastOrderId = new AtomicInteger();
+    private volatile boolean orderIdsSeeded;
+    private final CartPriceIndex priceIndex = new CartPriceIndex();
+    private final IdempotencyTable<Order> completedCheckouts = new IdempotencyTable<>(CHECKOUT_DEDUP_ENTRIES, CHECKOUT_DEDUP_TTL, Clock.systemUTC());
 
     /**
      * Constructs the ShoppingCartService with the specified repositories.
@@ -27,12 +65,31 @@ public class ShoppingCartService {
      * @param gameRepository         Repository for managing games.
      * @param orderRepository        Repository for managing orders.
      * @param customerRepository     Repository for managing customers.
+     * @param walletLedger           The ledger holding the customers' wallets.
+     * @param pricingEngine          The engine caching effective game prices.
+     * @param orderPipeline          The pipeline accepted orders are handed to.
+     * @param purchaseEvents         The store completed purchases are recorded in.
      */
-    public ShoppingCartService(IRepository<ShoppingCart> shoppingCartRepository, IRepository<Game> gameRepository, IRepository<Order> orderRepository, IRepository<Customer> customerRepository) {
+    public ShoppingCartService(IRepository<ShoppingCart> shoppingCartRepository, IRepository<Game> gameRepository, IRepository<Order> orderRepository, IRepository<Customer> customerRepository, WalletLedger walletLedger, PricingEngine pricingEngine, OrderPipeline orderPipeline, PurchaseEventStore purchaseEvents) {
         this.shoppingCartRepository = shoppingCartRepository;
         this.gameRepository = gameRepository;
         this.orderRepository = orderRepository;
         this.customerRepository = customerRepository;
+        this.walletLedger = walletLedger;
+        this.pricingEngine = pricingEngine;
+        this.orderPipeline = orderPipeline;
+        this.purchaseEvents = purchaseEvents;
+        pricingEngine.addListener(priceIndex);
+        // Stored totals may predate price changes made while the store was down, so every
+        // non-empty cart is recomputed on first read.
+        for (ShoppingCart cart : shoppingCartRepository.getAll()) {
+            for (Game game : cart.getListOfGames()) {
+                priceIndex.track(cart.getShoppingCartId(), game.getGameId());
+            }
+            if (!cart.getListOfGames().isEmpty()) {
+                priceIndex.markStale(cart.getShoppingCartId());
+            }
+        }
     }
 
 
@@ -47,18 +104,17 @@ public class ShoppingCartService {
 
 
     /**
-     * Retrieves a shopping cart by its ID.
+     * Retrieves a shopping cart by its ID, with up-to-date totals.
      *
      * @param shoppingCartId The ID of the shopping cart.
      * @return The shopping cart with the specified ID.
      * @throws EntityNotFoundException if the shopping cart is not found.
      */
     public ShoppingCart getShoppingCart(int shoppingCartId) {
-        ShoppingCart cart = shoppingCartRepository.get(shoppingCartId);
-        if (cart == null) {
-            throw new EntityNotFoundException("Shopping cart not found.");
+        if (priceIndex.isStale(shoppingCartId)) {
+            return callWithCartLock(shoppingCartId, () -> refreshTotals(loadCart(shoppingCartId)));
         }
-        return cart;
+        return loadCart(shoppingCartId);
     }
 
 
@@ -71,33 +127,38 @@ public class ShoppingCartService {
      * @throws EntityNotFoundException if the game or shopping cart is not found.
      */
     public void addGameToCart(int shoppingCartId, int gameId) {
-        ShoppingCart cart = getShoppingCart(shoppingCartId);
-        Customer customer = cart.getCustomer();
-
-        if (customer.getGamesLibrary().stream().anyMatch(game -> game.getGameId() == gameId)) {
-            throw new BusinessLogicException("The game is already in your library.");
-        }
-
-        if (cart.getListOfGames().stream().anyMatch(game -> game.getGameId() == gameId)) {
-            throw new BusinessLogicException("The game is already in your cart.");
-        }
-
-        if ("CHECKED_OUT".equals(cart.getStatus())) {
-            cart.setStatus("ACTIVE");
-            cart.getListOfGames().clear();
+        withCustomerAndCartLocks(shoppingCartId, () -> {
+            ShoppingCart cart = loadCart(shoppingCartId);
+            Customer customer = customerRepository.get(cart.getCustomer().getId());
+            if (customer == null) {
+                throw new EntityNotFoundException("No customer associated with this shopping cart.");
+            }
+
+            if (customer.getGamesLibrary().stream().anyMatch(game -> game.getGameId() == gameId)) {
+                throw new BusinessLogicException("The game is already in your library.");
+            }
+
+            if (cart.getListOfGames().stream().anyMatch(game -> game.getGameId() == gameId)) {
+                throw new BusinessLogicException("The game is already in your cart.");
+            }
+
+            if ("CHECKED_OUT".equals(cart.getStatus())) {
+                cart.setStatus("ACTIVE");
+                clearGames(cart);
+            }
+
+            // Tracked before the game is read, so a repricing written after the read marks the cart stale.
+            priceIndex.track(shoppingCartId, gameId);
+            Game game = gameRepository.get(gameId);
+            if (game == null) {
+                priceIndex.untrack(shoppingCartId, gameId);
+                throw new EntityNotFoundException("Game not found.");
+            }
+
+            cart.addGame(game, Money.of(game.getPrice()), pricingEngine.getEffectivePrice(game));
+            cart.touch(Instant.now());
             shoppingCartRepository.update(cart);
-        }
-
-        Game game = gameRepository.get(gameId);
-        if (game == null) {
-            throw new EntityNotFoundException("Game not found.");
-        }
-
-        cart.getListOfGames().add(game);
-        var fundWallet = customerRepository.get(customer.getId()).getFundWallet();
-        customer.setFundWallet(fundWallet);
-        customerRepository.update(customer);
-        shoppingCartRepository.update(cart);
+        });
     }
 
     /**
@@ -108,79 +169,147 @@ public class ShoppingCartService {
      * @throws EntityNotFoundException if the game is not found in the cart.
      */
     public void removeGameFromCart(int shoppingCartId, int gameId) {
-        ShoppingCart cart = getShoppingCart(shoppingCartId);
-
-        boolean removed = cart.getListOfGames().removeIf(game -> game.getGameId() == gameId);
-        if (!removed) {
-            throw new EntityNotFoundException("Game not found in cart.");
-        }
-        shoppingCartRepository.update(cart);
+        withCartLock(shoppingCartId, () -> {
+            ShoppingCart cart = refreshTotals(loadCart(shoppingCartId));
+
+            Game game = cart.getListOfGames().stream().filter(g -> g.getGameId() == gameId).findFirst()
+                    .orElseThrow(() -> new EntityNotFoundException("Game not found in cart."));
+            cart.removeGame(gameId, Money.of(game.getPrice()), pricingEngine.getEffectivePrice(game));
+            priceIndex.untrack(shoppingCartId, gameId);
+            cart.touch(Instant.now());
+            shoppingCartRepository.update(cart);
+        });
     }
 
     /**
-     * Calculates the total price of all games in the shopping cart.
+     * Gets the total price of all games in the shopping cart, after discounts.
+     * This is the amount checkout charges.
      *
      * @param shoppingCartId The ID of the shopping cart.
      * @return The total price of the games in the cart.
      */
-    public float getCartTotalPrice(int shoppingCartId) {
-        ShoppingCart cart = getShoppingCart(shoppingCartId);
-        float totalPrice = 0.0f;
-
-        for (Game game : cart.getListOfGames()) {
-            totalPrice += game.getPrice();
-        }
+    public Money getCartTotalPrice(int shoppingCartId) {
+        return getShoppingCart(shoppingCartId).getTotal();
+    }
 
-        return totalPrice;
+    /**
+     * Gets the total list price of all games in the shopping cart, before discounts.
+     *
+     * @param shoppingCartId The ID of the shopping cart.
+     * @return The subtotal of the games in the cart.
+     */
+    public Money getCartSubtotalPrice(int shoppingCartId) {
+        return getShoppingCart(shoppingCartId).getSubtotal();
     }
 
     /**
-     * Completes the checkout process for a shopping cart.
+     * Completes the checkout process for a shopping cart. The total is charged to the wallet
+     * ledger before the games are added to the library. If the library update fails, the
+     * charge is refunded. The order is then accepted and handed to the order pipeline, which
+     * persists it.
      *
      * @param shoppingCartId The ID of the shopping cart to process.
+     * @return The order placed.
      * @throws EntityNotFoundException if the shopping cart or associated customer is not found.
      * @throws BusinessLogicException   if the shopping cart is empty or the customer has insufficient funds.
+     * @throws Exception.OptimisticLockException if the customer keeps being modified concurrently.
      */
-    public void checkout(int shoppingCartId) {
-
-        ShoppingCart cart = getShoppingCart(shoppingCartId);
-
-        if (cart == null) {
-            throw new EntityNotFoundException("Shopping cart not found.");
-        }
-
-        if (cart.getListOfGames().isEmpty()) {
-            throw new BusinessLogicException("Your cart is empty.");
-        }
-
-        Customer customer = customerRepository.get(cart.getCustomer().getId());
-        if (customer == null) {
-            throw new EntityNotFoundException("No customer associated with this shopping cart.");
-        }
+    public Order checkout(int shoppingCartId) {
+        return checkout(shoppingCartId, null);
+    }
 
-        float totalPrice = 0.0f;
-        for (Game game : cart.getListOfGames()) {
-            totalPrice += game.getDiscountedPrice();
+    /**
+     * Completes the checkout process for a shopping cart at most once per request ID. A retry
+     * with the ID of a checkout that already completed returns the original order, without
+     * charging the wallet or writing an order again. Completed IDs are remembered for
+     * CHECKOUT_DEDUP_TTL, up to CHECKOUT_DEDUP_ENTRIES of them. A checkout that failed is not
+     * remembered, so its retry runs again.
+     *
+     * @param shoppingCartId The ID of the shopping cart to process.
+     * @param requestId      The client's ID for this checkout, or null to skip deduplication.
+     * @return The order placed, or the one placed by the first request with this ID.
+     * @throws EntityNotFoundException if the shopping cart or associated customer is not found.
+     * @throws BusinessLogicException   if the shopping cart is empty, the customer has insufficient funds
+     *                                  or the request ID was used for another cart.
+     * @throws Exception.OptimisticLockException if the customer keeps being modified concurrently.
+     */
+    public Order checkout(int shoppingCartId, String requestId) {
+        if (requestId != null) {
+            Order completed = completedCheckouts.get(requestId, shoppingCartId);
+            if (completed != null) {
+                return completed;
+            }
         }
+        Order[] placed = new Order[1];
+        boolean[] accepted = {false};
+        withCustomerAndCartLocks(shoppingCartId, () -> {
+            // A concurrent retry may have completed while this one waited for the locks.
+            if (requestId != null) {
+                placed[0] = completedCheckouts.get(requestId, shoppingCartId);
+                if (placed[0] != null) {
+                    return;
+                }
+            }
+            ShoppingCart cart = loadCart(shoppingCartId);
+            if (priceIndex.isStale(shoppingCartId)) {
+                cart = refreshTotals(cart);
+            }
+
+            if (cart.getListOfGames().isEmpty()) {
+                throw new BusinessLogicException("Your cart is empty.");
+            }
+
+            Money amountDue = cart.getTotal();
+
+            int customerId = cart.getCustomer().getId();
+            if (customerRepository.get(customerId) == null) {
+                throw new EntityNotFoundException("No customer associated with this shopping cart.");
+            }
+            String reference = "cart " + shoppingCartId;
+            if (amountDue.isPositive()) {
+                walletLedger.purchase(customerId, amountDue, reference);
+            }
+
+            List<Game> gamesInCart = new ArrayList<>(cart.getListOfGames());
+            Customer[] charged = new Customer[1];
+            try {
+                OptimisticRetry.run(() -> {
+                    Customer stored = customerRepository.get(customerId);
+                    if (stored == null) {
+                        throw new EntityNotFoundException("No customer associated with this shopping cart.");
+                    }
+                    long version = stored.getVersion();
+                    // The repository may hand out the stored object itself; a lost race must leave it untouched.
+                    Customer customer = copyOf(stored);
+                    customer.getGamesLibrary().addAll(gamesInCart);
+                    charged[0] = customer;
+                    return customerRepository.compareAndUpdate(customer, version);
+                });
+            } catch (RuntimeException e) {
+                if (amountDue.isPositive()) {
+                    walletLedger.refund(customerId, amountDue, reference);
+                }
+                throw e;
+            }
+
+            placed[0] = new Order(nextOrderId(), charged[0], gamesInCart);
+            purchaseEvents.append(placed[0], amountDue);
+
+            clearGames(cart);
+            cart.setStatus("CHECKED_OUT");
+            cart.touch(Instant.now());
+            shoppingCartRepository.update(cart);
 
-        if (customer.getFundWallet() < totalPrice) {
-            throw new BusinessLogicException("Insufficient funds in your wallet.");
+            accepted[0] = true;
+            if (requestId != null) {
+                completedCheckouts.put(requestId, shoppingCartId, placed[0]);
+            }
+        });
+        // Handed over once the stripes are released, so a full pipeline queue only holds up this checkout.
+        if (accepted[0]) {
+            orderPipeline.submit(placed[0]);
         }
-
-        customer.setFundWallet(customer.getFundWallet() - totalPrice);
-
-        List<Game> gamesInCart = new ArrayList<>(cart.getListOfGames());
-        customer.getGamesLibrary().addAll(gamesInCart);
-
-        Order order = new Order(generateOrderId(), customer, gamesInCart);
-        orderRepository.create(order);
-
-        cart.getListOfGames().clear();
-        cart.setStatus("CHECKED_OUT");
-        customerRepository.update(customer);
-        shoppingCartRepository.update(cart);
-
-        System.out.println("Checkout completed successfully!");
+        return placed[0];
     }
 
     /**
@@ -190,14 +319,17 @@ public class ShoppingCartService {
      * @throws BusinessLogicException if the cart is not active.
      */
     public void clearCart(int shoppingCartId) {
-        ShoppingCart cart = getShoppingCart(shoppingCartId);
+        withCartLock(shoppingCartId, () -> {
+            ShoppingCart cart = loadCart(shoppingCartId);
 
-        if (!cart.getStatus().equals("ACTIVE")) {
-            throw new BusinessLogicException("Cannot clear a checked-out cart.");
-        }
+            if (!cart.getStatus().equals("ACTIVE")) {
+                throw new BusinessLogicException("Cannot clear a checked-out cart.");
+            }
 
-        cart.getListOfGames().clear();
-        shoppingCartRepository.update(cart);
+            clearGames(cart);
+            cart.touch(Instant.now());
+            shoppingCartRepository.update(cart);
+        });
     }
 
     /**
@@ -207,39 +339,235 @@ public class ShoppingCartService {
      * @throws BusinessLogicException if the cart is already active.
      */
     public void resetCartForCustomer(int shoppingCartId) {
-        ShoppingCart cart = getShoppingCart(shoppingCartId);
+        withCartLock(shoppingCartId, () -> {
+            ShoppingCart cart = loadCart(shoppingCartId);
+
+            if (cart.getStatus().equals("CHECKED_OUT")) {
+                clearGames(cart);
+                cart.setStatus("ACTIVE");
+                cart.touch(Instant.now());
+                shoppingCartRepository.update(cart);
+            } else {
+                throw new BusinessLogicException("The shopping cart is already active.");
+            }
+        });
+    }
 
-        if (cart.getStatus().equals("CHECKED_OUT")) {
-            cart.getListOfGames().clear();
-            cart.setStatus("ACTIVE");
-            shoppingCartRepository.update(cart);
-        } else {
-            throw new BusinessLogicException("The shopping cart is already active.");
+    /**
+     * Reads a cart from the repository as stored.
+     *
+     * @param shoppingCartId The ID of the shopping cart.
+     * @return The shopping cart.
+     * @throws EntityNotFoundException if the shopping cart is not found.
+     */
+    private ShoppingCart loadCart(int shoppingCartId) {
+        ShoppingCart cart = shoppingCartRepository.get(shoppingCartId);
+        if (cart == null) {
+            throw new EntityNotFoundException("Shopping cart not found.");
         }
+        return cart;
     }
 
     /**
-     * Generates a unique ID for a new order.
+     * Copies a customer, with a library list of its own, so the copy can be changed and
+     * committed without touching the original.
+     *
+     * @param customer The customer.
+     * @return The copy, at the same version.
+     */
+    private static Customer copyOf(Customer customer) {
+        Customer copy = new Customer(customer.getId(), customer.getUsername(), customer.getEmail(), customer.getPassword(),
+                customer.getRole(), customer.getFundWallet(), customer.getGamesLibrary(), customer.getReviews(), customer.getShoppingCart());
+        copy.setVersion(customer.getVersion());
+        return copy;
+    }
+
+    /**
+     * Recomputes the totals of a stale cart from the current prices of its games in the game
+     * repository, and stores them along with the current copies of the games, so removing a game
+     * later takes off the price it is counted at. A game no longer in the catalog keeps the price
+     * it was added at. Must be called with the cart's stripe held.
+     *
+     * @param cart The cart.
+     * @return The cart with fresh totals.
+     */
+    private ShoppingCart refreshTotals(ShoppingCart cart) {
+        int cartId = cart.getShoppingCartId();
+        if (!priceIndex.isStale(cartId)) {
+            return cart;
+        }
+        priceIndex.clearStale(cartId);
+        List<Integer> gameIds = new ArrayList<>(cart.getListOfGames().size());
+        for (Game game : cart.getListOfGames()) {
+            gameIds.add(game.getGameId());
+        }
+        Map<Integer, Game> current = new HashMap<>();
+        for (Game game : gameRepository.getAll(gameIds)) {
+            current.put(game.getGameId(), game);
+        }
+        List<Game> priced = new ArrayList<>(gameIds.size());
+        long subtotal = 0;
+        for (Game game : cart.getListOfGames()) {
+            Game latest = current.getOrDefault(game.getGameId(), game);
+            priced.add(latest);
+            subtotal = Math.addExact(subtotal, Money.of(latest.getPrice()).getCents());
+        }
+        cart.setListOfGames(priced);
+        cart.setTotals(Money.ofCents(subtotal), pricingEngine.getTotal(priced));
+        shoppingCartRepository.update(cart);
+        return cart;
+    }
+
+    /**
+     * Empties a cart, dropping it from the reverse index of every game it held.
+     *
+     * @param cart The cart.
+     */
+    private void clearGames(ShoppingCart cart) {
+        for (Game game : cart.getListOfGames()) {
+            priceIndex.untrack(cart.getShoppingCartId(), game.getGameId());
+        }
+        cart.clear();
+        priceIndex.clearStale(cart.getShoppingCartId());
+    }
+
+    /**
+     * Drops carts that were evicted from the reverse price index. The carts themselves are
+     * left as they are, since they may have been archived.
+     *
+     * @param carts The evicted carts.
+     */
+    void forgetCarts(Collection<ShoppingCart> carts) {
+        for (ShoppingCart cart : carts) {
+            for (Game game : cart.getListOfGames()) {
+                priceIndex.untrack(cart.getShoppingCartId(), game.getGameId());
+            }
+            priceIndex.clearStale(cart.getShoppingCartId());
+        }
+    }
+
+    /**
+     * Adds a cart restored from the archive to the reverse price index. Its totals are recomputed
+     * on first read, since prices may have changed while it was archived.
+     *
+     * @param cart The restored cart.
+     */
+    void adoptCart(ShoppingCart cart) {
+        for (Game game : cart.getListOfGames()) {
+            priceIndex.track(cart.getShoppingCartId(), game.getGameId());
+        }
+        if (!cart.getListOfGames().isEmpty()) {
+            priceIndex.markStale(cart.getShoppingCartId());
+        }
+    }
+
+    /**
+     * Generates a unique ID for a new order. The counter is seeded from the highest persisted
+     * order ID on first use, so orders loaded after construction are accounted for.
      *
      * @return The next unique order ID.
      */
-    private int generateOrderId() {
-        List<Order> allOrders = orderRepository.getAll();
-        return allOrders.stream()
-                .mapToInt(Order::getId)
-                .max()
-                .orElse(0) + 1;
+    private int nextOrderId() {
+        if (!orderIdsSeeded) {
+            synchronized (lastOrderId) {
+                if (!orderIdsSeeded) {
+                    for (Order order : orderRepository.getAll()) {
+                        lastOrderId.accumulateAndGet(order.getOrderId(), Math::max);
+                    }
+                    orderIdsSeeded = true;
+                }
+            }
+        }
+        return lastOrderId.incrementAndGet();
     }
 
     /**
-     * Retrieves the entire order history.
+     * Retrieves the entire order history, including orders the order pipeline has yet to persist.
      *
      * @return A list of all orders.
      */
     public List<Order> getOrderHistory() {
-        return orderRepository.getAll();
+        List<Order> orders = new ArrayList<>(orderRepository.getAll());
+        Set<Integer> persisted = new HashSet<>();
+        for (Order order : orders) {
+            persisted.add(order.getOrderId());
+        }
+        for (Order order : orderPipeline.getInFlight()) {
+            if (persisted.add(order.getOrderId())) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Runs an action while holding the stripes of a cart's customer and of the cart, in that order.
+     *
+     * @param shoppingCartId The ID of the shopping cart.
+     * @param action         The action to run.
+     * @throws EntityNotFoundException if the shopping cart is not found.
+     */
+    private void withCustomerAndCartLocks(int shoppingCartId, Runnable action) {
+        int customerId = loadCart(shoppingCartId).getCustomer().getId();
+        Lock customerLock = customerLocks.get(customerId);
+        customerLock.lock();
+        try {
+            withCartLock(shoppingCartId, action);
+        } finally {
+            customerLock.unlock();
+        }
     }
 
+    /**
+     * Runs an action while holding the stripe of a cart.
+     *
+     * @param shoppingCartId The ID of the shopping cart.
+     * @param action         The action to run.
+     */
+    private void withCartLock(int shoppingCartId, Runnable action) {
+        callWithCartLock(shoppingCartId, () -> {
+            action.run();
+            return null;
+        });
+    }
 
+    /**
+     * Computes a value while holding the stripe of a cart.
+     *
+     * @param shoppingCartId The ID of the shopping cart.
+     * @param action         The computation.
+     * @return The computed value.
+     */
+    <T> T callWithCartLock(int shoppingCartId, Supplier<T> action) {
+        Lock cartLock = cartLocks.get(shoppingCartId);
+        cartLock.lock();
+        try {
+            return action.get();
+        } finally {
+            cartLock.unlock();
+        }
+    }
 
+    /**
+     * Computes a value while holding the stripes of several carts, taken in stripe order.
+     *
+     * @param shoppingCartIds The IDs of the shopping carts.
+     * @param action          The computation.
+     * @return The computed value.
+     */
+    <T> T callWithCartLocks(Collection<Integer> shoppingCartIds, Supplier<T> action) {
+        List<Lock> locks = cartLocks.getAll(shoppingCartIds);
+        int locked = 0;
+        try {
+            for (Lock lock : locks) {
+                lock.lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
 }
@@ -0,0 +1,82 @@
+package Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of reentrant locks shared by hashing entity IDs onto them.
+ * Operations on different entities usually take different stripes and run in parallel,
+ * while operations on the same entity always take the same stripe and are serialized,
+ * without keeping a lock object per entity.
+ */
+public class StripedLock {
+    private final Lock[] stripes;
+    private final int mask;
+
+    /**
+     * Constructs a StripedLock.
+     *
+     * @param stripeCount The minimum number of stripes; rounded up to a power of two.
+     */
+    public StripedLock(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive.");
+        }
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new Lock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Gets the lock guarding the given ID.
+     *
+     * @param id The entity ID.
+     * @return The stripe the ID hashes to.
+     */
+    public Lock get(int id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    /**
+     * Gets the distinct stripes guarding a set of IDs, ordered by stripe. Threads that take
+     * several stripes in this order cannot deadlock with each other.
+     *
+     * @param ids The entity IDs.
+     * @return The stripes, each listed once.
+     */
+    public List<Lock> getAll(Collection<Integer> ids) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Integer id : ids) {
+            indexes.add(stripeIndex(id));
+        }
+        List<Lock> locks = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            locks.add(stripes[index]);
+        }
+        return locks;
+    }
+
+    /**
+     * Gets the number of stripes.
+     *
+     * @return The stripe count.
+     */
+    public int size() {
+        return stripes.length;
+    }
+
+    private int stripeIndex(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
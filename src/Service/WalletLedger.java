@@ -0,0 +1,262 @@
+package Service;
+
+import Exception.BusinessLogicException;
+import Exception.EntityNotFoundException;
+import Model.Customer;
+import Model.Money;
+import Model.WalletSnapshot;
+import Model.WalletTransaction;
+import Repository.IRepository;
+import Repository.Query;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps customer wallets as an append-only ledger of top-ups, purchases and refunds, with
+ * amounts in whole cents.
+ *
+ * Each wallet's current balance and ledger position are held together in one immutable value.
+ * Reading a balance is a single lookup that takes no lock. Writers to the same wallet take turns
+ * on the wallet's monitor, and each writes its entry to the ledger before it publishes the new
+ * value, so the balance never includes an entry that failed to persist. Writers to different
+ * wallets never contend, and a purchase can never take a wallet below zero. Every
+ * snapshotInterval entries, the balance is also written as a WalletSnapshot. Rebuilding a wallet
+ * then replays only the entries written after its snapshot.
+ *
+ * A customer with no ledger history starts from the fundWallet value they were created with.
+ * Closing a wallet when its customer is deleted removes that history.
+ */
+public class WalletLedger {
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 100;
+
+    private final IRepository<WalletTransaction> transactionRepository;
+    private final IRepository<WalletSnapshot> snapshotRepository;
+    private final IRepository<Customer> customerRepository;
+    private final int snapshotInterval;
+    private final ConcurrentMap<Integer, AtomicReference<Balance>> wallets = new ConcurrentHashMap<>();
+    private final AtomicInteger lastTransactionId = new AtomicInteger();
+
+    /**
+     * The balance of a wallet together with the sequence of the last entry it includes.
+     */
+    private record Balance(long cents, long sequence) {
+    }
+
+    /**
+     * Constructs the WalletLedger with the specified repositories.
+     *
+     * @param transactionRepository The repository holding the ledger entries.
+     * @param snapshotRepository    The repository holding the balance snapshots.
+     * @param customerRepository    The repository for managing customers.
+     * @param snapshotInterval      The number of entries between snapshots of a wallet.
+     */
+    public WalletLedger(IRepository<WalletTransaction> transactionRepository, IRepository<WalletSnapshot> snapshotRepository,
+                        IRepository<Customer> customerRepository, int snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be greater than 0.");
+        }
+        this.transactionRepository = transactionRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.customerRepository = customerRepository;
+        this.snapshotInterval = snapshotInterval;
+        for (WalletTransaction transaction : transactionRepository.getAll()) {
+            lastTransactionId.accumulateAndGet(transaction.getTransactionId(), Math::max);
+        }
+    }
+
+    /**
+     * Gets the current balance of a customer's wallet.
+     *
+     * @param customerId The ID of the customer.
+     * @return The balance.
+     * @throws EntityNotFoundException if the customer has no wallet history and does not exist.
+     */
+    public Money getBalance(int customerId) {
+        return Money.ofCents(current(wallet(customerId)).cents());
+    }
+
+    /**
+     * Adds funds to a customer's wallet.
+     *
+     * @param customerId The ID of the customer.
+     * @param amount     The amount to add.
+     * @param reference  What the funds came from, such as the payment method.
+     * @return The new ledger entry.
+     * @throws BusinessLogicException  if the amount is not greater than 0.
+     * @throws EntityNotFoundException if the customer is not found.
+     */
+    public WalletTransaction topUp(int customerId, Money amount, String reference) {
+        return append(customerId, WalletTransaction.Type.TOP_UP, requirePositive(amount).getCents(), reference);
+    }
+
+    /**
+     * Takes the price of a purchase out of a customer's wallet.
+     *
+     * @param customerId The ID of the customer.
+     * @param amount     The amount to charge.
+     * @param reference  What was bought, such as the shopping cart.
+     * @return The new ledger entry.
+     * @throws BusinessLogicException  if the amount is not greater than 0 or the wallet holds less than the amount.
+     * @throws EntityNotFoundException if the customer is not found.
+     */
+    public WalletTransaction purchase(int customerId, Money amount, String reference) {
+        return append(customerId, WalletTransaction.Type.PURCHASE, -requirePositive(amount).getCents(), reference);
+    }
+
+    /**
+     * Returns the price of a purchase to a customer's wallet.
+     *
+     * @param customerId The ID of the customer.
+     * @param amount     The amount to return.
+     * @param reference  What is being refunded.
+     * @return The new ledger entry.
+     * @throws BusinessLogicException  if the amount is not greater than 0.
+     * @throws EntityNotFoundException if the customer is not found.
+     */
+    public WalletTransaction refund(int customerId, Money amount, String reference) {
+        return append(customerId, WalletTransaction.Type.REFUND, requirePositive(amount).getCents(), reference);
+    }
+
+    /**
+     * Lists a customer's ledger entries in the order they were applied.
+     *
+     * @param customerId The ID of the customer.
+     * @return The entries, oldest first.
+     */
+    public List<WalletTransaction> getTransactions(int customerId) {
+        List<WalletTransaction> transactions = new ArrayList<>(transactionRepository.find(Query.<WalletTransaction>where()
+                .eq("customerId", WalletTransaction::getCustomerId, customerId)));
+        transactions.sort(Comparator.comparingLong(WalletTransaction::getSequence));
+        return transactions;
+    }
+
+    /**
+     * Rebuilds a customer's balance from storage: the latest snapshot plus the entries after it.
+     * The cached balance is not used or changed.
+     *
+     * @param customerId The ID of the customer.
+     * @return The rebuilt balance.
+     * @throws EntityNotFoundException if the customer has no wallet history and does not exist.
+     */
+    public Money replay(int customerId) {
+        return Money.ofCents(load(customerId).cents());
+    }
+
+    /**
+     * Closes a deleted customer's wallet: removes its ledger entries, its snapshot and its cached
+     * balance. Writes to the wallet that are waiting their turn fail, and a customer later given
+     * the same ID starts from their own opening balance.
+     *
+     * @param customerId The ID of the deleted customer.
+     */
+    public void close(int customerId) {
+        AtomicReference<Balance> wallet = wallets.computeIfAbsent(customerId, id -> new AtomicReference<>());
+        synchronized (wallet) {
+            wallet.set(null);
+            List<Integer> transactionIds = new ArrayList<>();
+            for (WalletTransaction transaction : getTransactions(customerId)) {
+                transactionIds.add(transaction.getTransactionId());
+            }
+            transactionRepository.deleteAll(transactionIds);
+            if (snapshotRepository.get(customerId) != null) {
+                snapshotRepository.delete(customerId);
+            }
+            wallets.remove(customerId, wallet);
+        }
+    }
+
+    private WalletTransaction append(int customerId, WalletTransaction.Type type, long deltaCents, String reference) {
+        AtomicReference<Balance> wallet = wallet(customerId);
+        synchronized (wallet) {
+            Balance current = current(wallet);
+            long cents = Math.addExact(current.cents(), deltaCents);
+            if (cents < 0) {
+                throw new BusinessLogicException("Insufficient funds in your wallet.");
+            }
+            Balance next = new Balance(cents, current.sequence() + 1);
+            WalletTransaction transaction = new WalletTransaction(lastTransactionId.incrementAndGet(), customerId, next.sequence(),
+                    type, deltaCents, next.cents(), reference, Instant.now());
+            transactionRepository.create(transaction);
+            wallet.set(next);
+            if (next.sequence() % snapshotInterval == 0) {
+                snapshot(customerId, next);
+            }
+            return transaction;
+        }
+    }
+
+    /**
+     * Writes a snapshot unless a later one has been written already. Must be called with the
+     * wallet's turn held.
+     */
+    private void snapshot(int customerId, Balance balance) {
+        WalletSnapshot existing = snapshotRepository.get(customerId);
+        WalletSnapshot snapshot = new WalletSnapshot(customerId, balance.sequence(), balance.cents());
+        if (existing == null) {
+            snapshotRepository.create(snapshot);
+        } else if (existing.getSequence() < balance.sequence()) {
+            snapshotRepository.update(snapshot);
+        }
+    }
+
+    private static Balance current(AtomicReference<Balance> wallet) {
+        Balance balance = wallet.get();
+        if (balance == null) {
+            throw new EntityNotFoundException("Customer not found.");
+        }
+        return balance;
+    }
+
+    private AtomicReference<Balance> wallet(int customerId) {
+        AtomicReference<Balance> wallet = wallets.get(customerId);
+        if (wallet != null) {
+            return wallet;
+        }
+        return wallets.computeIfAbsent(customerId, id -> new AtomicReference<>(load(id)));
+    }
+
+    /**
+     * Rebuilds a wallet from its snapshot and the entries after it. A customer with no history
+     * starts from their opening balance.
+     */
+    private Balance load(int customerId) {
+        WalletSnapshot snapshot = snapshotRepository.get(customerId);
+        List<WalletTransaction> transactions = transactionRepository.find(Query.<WalletTransaction>where()
+                .eq("customerId", WalletTransaction::getCustomerId, customerId));
+        long cents;
+        long sequence;
+        if (snapshot != null) {
+            cents = snapshot.getBalance().getCents();
+            sequence = snapshot.getSequence();
+        } else {
+            Customer customer = customerRepository.get(customerId);
+            if (customer == null && transactions.isEmpty()) {
+                throw new EntityNotFoundException("Customer not found.");
+            }
+            cents = customer == null ? 0 : Money.of(customer.getFundWallet()).getCents();
+            sequence = 0;
+        }
+        long base = sequence;
+        for (WalletTransaction transaction : transactions) {
+            if (transaction.getSequence() > base) {
+                cents += transaction.getAmount().getCents();
+                sequence = Math.max(sequence, transaction.getSequence());
+            }
+        }
+        return new Balance(cents, sequence);
+    }
+
+    private static Money requirePositive(Money amount) {
+        if (amount == null || !amount.isPositive()) {
+            throw new BusinessLogicException("Amount must be greater than 0.");
+        }
+        return amount;
+    }
+}
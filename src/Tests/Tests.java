@@ -1,15 +1,56 @@
 package Tests;
 
+import Benchmark.LatencyHistogram;
+import Benchmark.MicroBenchmark;
+import Benchmark.ServiceBenchmark;
+import Benchmark.ZipfDistribution;
 import Model.*;
 import Service.*;
 import Exception.*;
+import Presentation.BatchDriver;
+import Presentation.StoreContext;
 import Repository.FileRepository;
+import Repository.IRepository;
+import Repository.InMemoryRepository;
+import Repository.IndexedRepository;
+import Repository.JournaledRepository;
+import Repository.WriteAheadJournal;
+import Repository.MetricsRepository;
+import Metrics.MetricsRegistry;
+import Metrics.RepositoryMetrics;
+import Metrics.SlowOperationLog;
+import Repository.Query;
+import Server.Json;
+import Tracing.Span;
+import Tracing.Tracer;
+import Tracing.ZipkinFileExporter;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectStreamClass;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 
 import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.ArrayList;
+import java.util.stream.Stream;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class Tests {
@@ -162,7 +203,9 @@ public class Tests {
         gameRepository.create(new Game(3, "Mystic Quest", "Solve magical mysteries", GameGenre.RPG, 39.99f, new ArrayList<>()));
         gameRepository.create(new Game(4, "Farm Builder", "Manage your farm", GameGenre.RPG, 19.99f, new ArrayList<>()));
         gameRepository.create(new Game(5, "Puzzle Challenge", "Solve mind-bending puzzles", GameGenre.PUZZLE, 9.99f, new ArrayList<>()));
-        CustomerService customerService = new CustomerService(gameRepository, userRepository, customerRepository, reviewRepository, paymentMethodRepository);
+        CustomerService customerService = new CustomerService(gameRepository, userRepository, customerRepository, reviewRepository, paymentMethodRepository,
+                new WalletLedger(new InMemoryRepository<>(), new InMemoryRepository<>(), customerRepository, WalletLedger.DEFAULT_SNAPSHOT_INTERVAL),
+                new PricingEngine(), null, null);
 
         List<Game> sortedByName = customerService.sortGamesByNameAscending();
         assertEquals("Cyber Adventure", sortedByName.get(0).getGameName());
@@ -183,4 +226,1197 @@ public class Tests {
         assertTrue(filteredByPriceRange.stream().allMatch(game -> game.getPrice() >= 10.0f && game.getPrice() <= 40.0f));
     }
 
+    @Test
+    public void TestBatchCRUDGame() {
+        FileRepository<Game> gameRepository = new FileRepository<>("gamesBatchTest.dat");
+        gameRepository.deleteAll(List.of(1, 2, 3));
+
+        gameRepository.createAll(List.of(
+                new Game(1, "First", "First game", GameGenre.ACTION, 10.0f, new ArrayList<>()),
+                new Game(2, "Second", "Second game", GameGenre.RPG, 20.0f, new ArrayList<>()),
+                new Game(3, "Third", "Third game", GameGenre.PUZZLE, 30.0f, new ArrayList<>())));
+        assertEquals(3, gameRepository.getAll().size());
+
+        List<Game> fetched = gameRepository.getAll(List.of(3, 1, 42));
+        assertEquals(2, fetched.size());
+        assertEquals("Third", fetched.get(0).getGameName());
+        assertEquals("First", fetched.get(1).getGameName());
+
+        gameRepository.updateAll(List.of(
+                new Game(1, "First Updated", "First game", GameGenre.ACTION, 15.0f, new ArrayList<>()),
+                new Game(2, "Second Updated", "Second game", GameGenre.RPG, 25.0f, new ArrayList<>())));
+        assertEquals("First Updated", gameRepository.get(1).getGameName());
+        assertEquals(25.0f, gameRepository.get(2).getPrice(), 0.01);
+
+        gameRepository.deleteAll(List.of(1, 2, 3));
+        assertTrue(gameRepository.getAll().isEmpty());
+    }
+
+    @Test
+    public void TestIndexedRepository() {
+        IndexedRepository<Game> gameRepository = new IndexedRepository<>(new InMemoryRepository<Game>())
+                .addIndex("gameGenre", Game::getGameGenre, false)
+                .addSortedIndex("price", Game::getPrice, false)
+                .addSortedIndex("gameName", Game::getGameName, true);
+        gameRepository.createAll(List.of(
+                new Game(1, "Cyber Adventure", "Explore a cyber city", GameGenre.ADVENTURE, 59.99f, new ArrayList<>()),
+                new Game(2, "Mystic Quest", "Solve magical mysteries", GameGenre.RPG, 39.99f, new ArrayList<>()),
+                new Game(3, "Farm Builder", "Manage your farm", GameGenre.RPG, 19.99f, new ArrayList<>())));
+
+        assertEquals(2, gameRepository.find(Query.<Game>where().eq("gameGenre", Game::getGameGenre, GameGenre.RPG)).size());
+        assertEquals(2, gameRepository.find(Query.<Game>where().range("price", Game::getPrice, 10.0f, 40.0f)).size());
+        assertEquals("Cyber Adventure", gameRepository.find(Query.<Game>where().prefix("gameName", Game::getGameName, "cy")).get(0).getGameName());
+
+        Game farm = gameRepository.get(3);
+        farm.setGameGenre(GameGenre.SIMULATION);
+        gameRepository.update(farm);
+        assertEquals(1, gameRepository.find(Query.<Game>where().eq("gameGenre", Game::getGameGenre, GameGenre.RPG)).size());
+
+        assertThrows(IllegalArgumentException.class, () ->
+                gameRepository.create(new Game(4, "Mystic Quest", "Duplicate", GameGenre.RPG, 9.99f, new ArrayList<>())));
+        // Two objects of one batch cannot claim the same unique key either.
+        assertThrows(IllegalArgumentException.class, () -> gameRepository.createAll(List.of(
+                new Game(4, "Space Warfare", "", GameGenre.SHOOTER, 49.99f, new ArrayList<>()),
+                new Game(9, "Space Warfare", "", GameGenre.SHOOTER, 29.99f, new ArrayList<>()))));
+        assertNull(gameRepository.get(4));
+        assertTrue(gameRepository.find(Query.<Game>where().eq("gameName", Game::getGameName, "Space Warfare")).isEmpty());
+
+        gameRepository.delete(2);
+        assertTrue(gameRepository.find(Query.<Game>where().eq("gameGenre", Game::getGameGenre, GameGenre.RPG)).isEmpty());
+        assertEquals(1.0, gameRepository.getHitRate(), 0.0001);
+
+        // Keys of any case match a prefix, whatever the case of the prefix.
+        gameRepository.createAll(List.of(
+                new Game(5, "Doom", "", GameGenre.SHOOTER, 19.99f, new ArrayList<>()),
+                new Game(6, "doom II", "", GameGenre.SHOOTER, 9.99f, new ArrayList<>()),
+                new Game(7, "DOOM Eternal", "", GameGenre.SHOOTER, 39.99f, new ArrayList<>()),
+                new Game(8, "Dominion", "", GameGenre.RPG, 29.99f, new ArrayList<>())));
+        for (String prefix : List.of("doom", "DOOM", "Doom", "do")) {
+            Query<Game> query = Query.<Game>where().prefix("gameName", Game::getGameName, prefix);
+            assertEquals(query.apply(gameRepository.getAll()).size(), gameRepository.find(query).size());
+        }
+        assertEquals(3, gameRepository.find(Query.<Game>where().prefix("gameName", Game::getGameName, "dOoM")).size());
+
+        // Only the index a query is answered from counts a hit.
+        Map<String, Long> before = new LinkedHashMap<>();
+        gameRepository.getIndexStats().forEach(stats -> before.put(stats.getField(), stats.getHits()));
+        gameRepository.find(Query.<Game>where()
+                .eq("gameGenre", Game::getGameGenre, GameGenre.SHOOTER)
+                .prefix("gameName", Game::getGameName, "doom e"));
+        long counted = 0;
+        for (IndexedRepository.IndexStats stats : gameRepository.getIndexStats()) {
+            counted += stats.getHits() - before.get(stats.getField());
+        }
+        assertEquals(1L, counted);
+    }
+
+    @Test
+    public void TestOptimisticUpdateCustomer() {
+        FileRepository<Customer> customerRepository = new FileRepository<>("customersVersionTest.dat");
+        customerRepository.delete(1);
+        customerRepository.create(new Customer(1, "Buyer", "buyer@gmail.com", "pass", "Customer", 50.0f, new ArrayList<>(), new ArrayList<>(), null));
+
+        Customer firstSession = customerRepository.get(1);
+        Customer secondSession = customerRepository.get(1);
+
+        firstSession.setFundWallet(firstSession.getFundWallet() + 10.0f);
+        assertTrue(customerRepository.compareAndUpdate(firstSession, 0));
+        assertEquals(1, customerRepository.get(1).getVersion());
+
+        secondSession.setFundWallet(secondSession.getFundWallet() - 20.0f);
+        assertFalse(customerRepository.compareAndUpdate(secondSession, secondSession.getVersion()));
+        assertEquals(60.0f, customerRepository.get(1).getFundWallet(), 0.01);
+
+        customerRepository.delete(1);
+
+        // A checkout that loses the race for the library retries on fresh data; the lost attempt
+        // leaves the stored customer as it was, so the games are added once.
+        boolean[] raced = {false};
+        IRepository<Customer> customers = new InMemoryRepository<>() {
+            @Override
+            public boolean compareAndUpdate(Customer obj, long expectedVersion) {
+                if (!raced[0]) {
+                    raced[0] = true;
+                    update(get(obj.getId()));
+                }
+                return super.compareAndUpdate(obj, expectedVersion);
+            }
+        };
+        IRepository<ShoppingCart> carts = new InMemoryRepository<>();
+        IRepository<Game> games = new InMemoryRepository<>();
+        IRepository<Order> orders = new InMemoryRepository<>();
+        Customer buyer = new Customer(1, "Buyer", "buyer@gmail.com", "pass", "Customer", 100.0f, new ArrayList<>(), new ArrayList<>(), null);
+        buyer.setShoppingCart(new ShoppingCart(1, buyer));
+        customers.create(buyer);
+        carts.create(buyer.getShoppingCart());
+        games.create(new Game(1, "Cyber Adventure", "", GameGenre.ADVENTURE, 59.99f, new ArrayList<>()));
+        ShoppingCartService service = new ShoppingCartService(carts, games, orders, customers,
+                new WalletLedger(new InMemoryRepository<>(), new InMemoryRepository<>(), customers, WalletLedger.DEFAULT_SNAPSHOT_INTERVAL),
+                new PricingEngine(), new OrderPipeline(10, 10, false).addStage("orders", orders::createAll),
+                new PurchaseEventStore(new InMemoryRepository<>(), Clock.systemUTC()));
+        service.addGameToCart(1, 1);
+        service.checkout(1);
+        assertTrue(raced[0]);
+        assertEquals(1, customers.get(1).getGamesLibrary().size());
+        assertEquals(1, orders.getAll().size());
+    }
+
+    @Test
+    public void TestConcurrentSessions() throws InterruptedException {
+        AccountService accountService = new AccountService(new InMemoryRepository<>(), new InMemoryRepository<>(),
+                new InMemoryRepository<>(), new InMemoryRepository<>(), new InMemoryRepository<>());
+        accountService.signUp("Alice", "alice@gmail.com", "alicepass");
+        accountService.signUp("Bob", "bob@gmail.com", "bobpass");
+
+        Session alice = accountService.logIn("alice@gmail.com", "alicepass");
+        Session bob = accountService.logIn("bob@gmail.com", "bobpass");
+        assertNotEquals(alice.getToken(), bob.getToken());
+        assertEquals("Alice", accountService.getSession(alice.getToken()).getCustomer().getUsername());
+        assertEquals("Bob", accountService.getSession(bob.getToken()).getCustomer().getUsername());
+
+        assertTrue(accountService.logOut(alice));
+        assertThrows(BusinessLogicException.class, () -> accountService.getSession(alice.getToken()));
+        assertEquals("Bob", accountService.getSession(bob.getToken()).getUser().getUsername());
+
+        // Concurrent sign-ups each get their own ID, and only one of those sharing an email succeeds.
+        new File("customersSignUpTest.dat").delete();
+        FileRepository<Customer> customers = new FileRepository<>("customersSignUpTest.dat");
+        AccountService concurrentAccounts = new AccountService(null, new InMemoryRepository<>(), new InMemoryRepository<>(),
+                customers, new InMemoryRepository<>());
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            String name = "User" + t;
+            workers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    concurrentAccounts.signUp(name, name.toLowerCase() + "@gmail.com", "pass");
+                    concurrentAccounts.signUp(name, "shared@gmail.com", "pass");
+                } catch (BusinessLogicException e) {
+                    rejected.incrementAndGet();
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : workers) {
+            thread.join(10_000);
+        }
+        assertEquals(List.of(), new ArrayList<>(failures));
+        assertEquals(7, rejected.get());
+        assertEquals(9, customers.getAll().size());
+        assertEquals(9, customers.getAll().stream().map(Customer::getId).distinct().count());
+        new File("customersSignUpTest.dat").delete();
+    }
+
+    @Test
+    public void TestJsonRequestParsing() {
+        Map<String, String> body = Json.parseObject("{\"email\": \"a\\\"b@gmail.com\", \"amount\": 12.5, \"note\": null}");
+        assertEquals("a\"b@gmail.com", body.get("email"));
+        assertEquals("12.5", body.get("amount"));
+        assertNull(body.get("note"));
+        assertTrue(Json.parseObject("").isEmpty());
+        assertThrows(ValidationException.class, () -> Json.parseObject("{\"games\": [1, 2]}"));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("ids", List.of(1, 2));
+        response.put("name", "Q\"");
+        assertEquals("{\"ids\":[1,2],\"name\":\"Q\\\"\"}", Json.write(response));
+    }
+
+    @Test
+    public void TestBatchDriverReplay() {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+
+        BatchDriver.Report report = new BatchDriver(context).run(List.of(
+                "# replayed session",
+                "signup Carol carol@gmail.com carolpass",
+                "login carol@gmail.com carolpass",
+                "fund visa 100",
+                "add 5",
+                "add 5",
+                "checkout",
+                "review 5 4"), null);
+
+        assertEquals(7, report.getCommandCount());
+        assertEquals(2, report.getStats().get("add").getCount());
+        assertEquals(1, report.getStats().get("add").getErrors());
+        assertEquals(1, report.getErrors().size());
+        assertEquals(1, context.getReviewController().getReviewsForGame(5).size());
+        assertThrows(ValidationException.class, () -> BatchDriver.parse(List.of("fly away")));
+    }
+
+    @Test
+    public void TestLoadTestDistributions() {
+        ZipfDistribution zipf = new ZipfDistribution(100, 1.0);
+        assertTrue(zipf.probability(0) > 50 * zipf.probability(99));
+        Random random = new Random(7);
+        int headHits = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int rank = zipf.sample(random);
+            assertTrue(rank >= 0 && rank < 100);
+            if (rank < 10) {
+                headHits++;
+            }
+        }
+        assertTrue(headHits > 5_000);
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_000, histogram.percentile(50), 500_000 * 0.04);
+        assertEquals(990_000, histogram.percentile(99), 990_000 * 0.04);
+        assertEquals(1_000_000, histogram.percentile(100));
+    }
+
+    @Test
+    public void TestMicroBenchmarkHarness() throws IOException {
+        MicroBenchmark bench = new MicroBenchmark(1, 2, 20, null);
+        InMemoryRepository<Game> gameRepository = new InMemoryRepository<>();
+        int[] setups = new int[1];
+
+        MicroBenchmark.Result result = bench.measure("create", Map.of("impl", "memory"), i -> {
+            gameRepository.create(new Game(i + 1, "Game " + i, "Bench", GameGenre.RPG, 1.0f, new ArrayList<>()));
+            return null;
+        }, 100, () -> setups[0]++, () -> gameRepository.deleteAll(List.of(gameRepository.getAll().stream().map(Game::getId).toArray(Integer[]::new))));
+
+        assertEquals(3, setups[0]);
+        assertTrue(result.getOpsPerSecond() > 0);
+        assertTrue(gameRepository.getAll().isEmpty());
+
+        Path file = Files.createTempFile("bench", ".json");
+        bench.writeJson("test", file);
+        String json = Files.readString(file);
+        assertTrue(json.contains("\"benchmark\":\"create\""));
+        assertTrue(json.contains("\"params\":{\"impl\":\"memory\"}"));
+        Files.delete(file);
+    }
+
+    @Test
+    public void TestServiceBenchmarkSuite() {
+        MicroBenchmark bench = new MicroBenchmark(0, 1, 10, null);
+        java.io.PrintStream out = System.out;
+        System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream()));
+        try {
+            ServiceBenchmark.run(bench, 200, 100);
+        } finally {
+            System.setOut(out);
+        }
+
+        List<String> names = new ArrayList<>();
+        for (MicroBenchmark.Result result : bench.getResults()) {
+            names.add(result.getName());
+            assertTrue(result.getOpsPerSecond() > 0);
+        }
+        assertEquals(List.of("sortGamesByNameAscending", "sortGamesByPriceDescending", "leaveReview", "logIn", "checkout"), names);
+    }
+
+    @Test
+    public void TestRepositoryMetrics() {
+        MetricsRegistry registry = new MetricsRegistry();
+        new File("gamesMetricsTest.dat").delete();
+        MetricsRepository<Game> fileGames = new MetricsRepository<>(new FileRepository<>("gamesMetricsTest.dat"), registry.repository("games"));
+        MetricsRepository<Game> memoryGames = new MetricsRepository<>(new InMemoryRepository<>(), registry.repository("memoryGames"));
+
+        Game game = new Game(1, "Cyber Adventure", "Explore a cyber city", GameGenre.ADVENTURE, 59.99f, new ArrayList<>());
+        fileGames.create(game);
+        fileGames.get(1);
+        fileGames.get(2);
+        assertEquals(1, fileGames.getAll().size());
+        memoryGames.create(game);
+        assertThrows(IllegalArgumentException.class, () -> memoryGames.createAll(List.of(game)));
+
+        RepositoryMetrics metrics = registry.repository("games");
+        assertEquals(1, metrics.get(RepositoryMetrics.Operation.CREATE).getCalls());
+        assertEquals(2, metrics.get(RepositoryMetrics.Operation.GET).getCalls());
+        assertEquals(1, metrics.get(RepositoryMetrics.Operation.GET_ALL).getResultItems());
+        assertTrue(metrics.getBytesRead() > 0);
+        assertTrue(metrics.getBytesWritten() > 0);
+        assertEquals(1, registry.repository("memoryGames").get(RepositoryMetrics.Operation.CREATE_ALL).getErrors());
+        assertTrue(registry.toPrometheus().contains("gamestore_repository_calls_total{repository=\"games\",operation=\"get\"} 2"));
+
+        // A batch holding a taken or repeated ID is rejected as a whole.
+        Game other = new Game(2, "Space Warfare", "A space-themed shooter", GameGenre.SHOOTER, 49.99f, new ArrayList<>());
+        assertThrows(IllegalArgumentException.class, () -> fileGames.createAll(List.of(other, game)));
+        assertThrows(IllegalArgumentException.class, () -> fileGames.createAll(List.of(other, other)));
+        assertNull(fileGames.get(2));
+
+        new File("gamesMetricsTest.dat").delete();
+    }
+
+    @Test
+    public void TestFlightRecorderEvents() throws IOException {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+        Path file = Files.createTempFile("gamestore", ".jfr");
+
+        try (jdk.jfr.Recording recording = new jdk.jfr.Recording()) {
+            recording.enable("gamestore.ControllerCall");
+            recording.enable("gamestore.RepositoryCall");
+            recording.start();
+            context.getGameController().getGameById(3);
+            context.getShoppingCartController().getAllGames();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<jdk.jfr.consumer.RecordedEvent> events = jdk.jfr.consumer.RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("gamestore.ControllerCall")
+                && e.getString("action").equals("getGameById") && e.getInt("entityId") == 3));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("gamestore.ControllerCall")
+                && e.getString("action").equals("getAllGames") && e.getInt("resultSize") == 5));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("gamestore.RepositoryCall")
+                && e.getString("repository").equals("games") && e.getString("operation").equals("get") && e.getInt("entityId") == 3));
+    }
+
+    @Test
+    public void TestRequestTracing() throws IOException {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+        context.getAccountController().signUp("Tracy", "tracy@gmail.com", "tracypass");
+        Session session = context.getAccountController().logIn("tracy@gmail.com", "tracypass");
+        context.getCustomerController().addFundsToWallet(session, "visa", 500);
+        int cartId = context.getCustomerController().getShoppingCartId(session);
+        context.getShoppingCartController().addGameToCart(cartId, 2);
+
+        List<Span> traces = new ArrayList<>();
+        Tracer.enable(traces::add);
+        try {
+            context.getShoppingCartController().checkout(cartId);
+        } finally {
+            Tracer.disable();
+        }
+
+        assertEquals(1, traces.size());
+        Span root = traces.get(0);
+        assertEquals("ShoppingCartController.checkout", root.getName());
+        List<String> names = new ArrayList<>();
+        for (Span span : root.flatten()) {
+            names.add(span.getName());
+            assertEquals(root.getTraceId(), span.getTraceId());
+        }
+        assertTrue(names.contains("shoppingCarts.get"));
+        assertTrue(names.contains("orders.createAll"));
+        Span attempt = root.getChildren().stream().filter(span -> span.getName().equals("optimisticRetry.attempt")).findFirst().orElseThrow();
+        assertEquals("customers.compareAndUpdate", attempt.getChildren().get(attempt.getChildren().size() - 1).getName());
+        assertEquals(root.flatten().size() - 1 - 1, root.getTags().get("repository.calls"));
+
+        Path file = Files.createTempFile("traces", ".json");
+        ZipkinFileExporter exporter = new ZipkinFileExporter(file, 1000);
+        exporter.export(root);
+        exporter.flush();
+        String json = Files.readString(file);
+        Files.delete(file);
+        assertEquals(root.flatten().size(), exporter.getSpanCount());
+        assertTrue(json.contains("\"parentId\":\"" + root.getSpanId() + "\""));
+    }
+
+    @Test
+    public void TestSlowOperationLog() throws IOException {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+        context.getAccountController().signUp("Sloane", "sloane@gmail.com", "sloanepass");
+        Session session = context.getAccountController().logIn("sloane@gmail.com", "sloanepass");
+        context.getCustomerController().addFundsToWallet(session, "visa", 500);
+        int cartId = context.getCustomerController().getShoppingCartId(session);
+        context.getShoppingCartController().addGameToCart(cartId, 2);
+
+        Path file = Files.createTempFile("slow", ".log");
+        SlowOperationLog slowLog = SlowOperationLog.enable(file,
+                SlowOperationLog.parseThresholds("service=60000,repository=60000,ShoppingCartController.checkout=0"), 1 << 20, 1);
+        try {
+            context.getShoppingCartController().getCartTotalPrice(cartId);
+            context.getShoppingCartController().checkout(cartId);
+
+            // Calls under their threshold must not allocate.
+            java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            int slot = SlowOperationLog.registerRepository("games");
+            for (int round = 0; round < 2; round++) {
+                long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                for (int i = 0; i < 10_000; i++) {
+                    slowLog.enterService();
+                    slowLog.recordRepository(slot, "games", "get", i, -1, false, 1_000);
+                    slowLog.exitService("Game", "getGameById", i, -1, false);
+                }
+                long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+                if (round == 1) {
+                    assertTrue(allocated < 1024);
+                }
+            }
+        } finally {
+            SlowOperationLog.disable();
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        Files.delete(file);
+        assertEquals(1, lines.size());
+        String line = lines.get(0);
+        assertTrue(line.contains("SLOW service ShoppingCartController.checkout"));
+        assertTrue(line.contains("id=" + cartId));
+        assertTrue(line.contains("customers: "));
+        assertTrue(line.contains("orders: "));
+    }
+
+    @Test
+    public void TestWalletLedger() throws InterruptedException {
+        IRepository<Customer> customerRepository = new InMemoryRepository<>();
+        customerRepository.create(new Customer(1, "Wally", "wally@gmail.com", "pass", "Customer", 10.0f, new ArrayList<>(), new ArrayList<>(), null));
+        IRepository<WalletTransaction> transactionRepository = new IndexedRepository<>(new InMemoryRepository<WalletTransaction>())
+                .addIndex("customerId", WalletTransaction::getCustomerId, false);
+        IRepository<WalletSnapshot> snapshotRepository = new InMemoryRepository<>();
+        WalletLedger ledger = new WalletLedger(transactionRepository, snapshotRepository, customerRepository, 50);
+
+        assertEquals(Money.ofCents(1000), ledger.getBalance(1));
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    ledger.topUp(1, Money.of(0.1f), "visa");
+                    ledger.purchase(1, Money.of(0.03f), "cart 1");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 4000 top-ups of 0.10 and 4000 purchases of 0.03 on top of 10.00, to the cent.
+        assertEquals(Money.ofCents(1000 + 4000 * 7), ledger.getBalance(1));
+        assertEquals(8000, ledger.getTransactions(1).size());
+        assertEquals(8000, snapshotRepository.get(1).getSequence());
+        assertEquals(ledger.getBalance(1), ledger.replay(1));
+        assertThrows(BusinessLogicException.class, () -> ledger.purchase(1, Money.ofCents(1000 + 4000 * 7 + 1), "cart 1"));
+        assertThrows(BusinessLogicException.class, () -> ledger.topUp(1, Money.ZERO, "visa"));
+
+        // A new ledger over the same storage starts from the snapshot.
+        WalletLedger reopened = new WalletLedger(transactionRepository, snapshotRepository, customerRepository, 50);
+        reopened.refund(1, Money.of(19.99f), "cart 1");
+        assertEquals(Money.ofCents(1000 + 4000 * 7 + 1999), reopened.getBalance(1));
+        assertEquals(8001, reopened.getTransactions(1).get(8000).getSequence());
+
+        // An entry that fails to persist leaves the balance where it was.
+        boolean[] failing = {true};
+        WalletLedger flaky = new WalletLedger(new InMemoryRepository<WalletTransaction>() {
+            @Override
+            public void create(WalletTransaction obj) {
+                if (failing[0]) {
+                    throw new UncheckedIOException(new IOException("disk full"));
+                }
+                super.create(obj);
+            }
+        }, new InMemoryRepository<>(), customerRepository, 50);
+        assertThrows(UncheckedIOException.class, () -> flaky.topUp(1, Money.ofCents(500), "visa"));
+        assertEquals(Money.ofCents(1000), flaky.getBalance(1));
+        failing[0] = false;
+        flaky.purchase(1, Money.ofCents(1000), "cart 1");
+        assertEquals(Money.ZERO, flaky.getBalance(1));
+        assertEquals(Money.ZERO, flaky.replay(1));
+
+        // A deleted customer's wallet is closed, so an account given the same ID starts empty.
+        StoreContext context = StoreContext.inMemory();
+        for (String name : List.of("Abe", "Bea", "Cal")) {
+            context.getAccountController().signUp(name, name.toLowerCase() + "@gmail.com", name + "pass");
+        }
+        Session abe = context.getAccountController().logIn("abe@gmail.com", "Abepass");
+        Session cal = context.getAccountController().logIn("cal@gmail.com", "Calpass");
+        context.getCustomerController().addFundsToWallet(cal, "visa", 40);
+        context.getAccountController().deleteAccount(abe);
+        context.getAccountController().deleteAccount(cal);
+        context.getAccountController().signUp("Dee", "dee@gmail.com", "Deepass");
+        Session dee = context.getAccountController().logIn("dee@gmail.com", "Deepass");
+        assertEquals(Integer.valueOf(3), dee.getCustomer().getId());
+        assertEquals(Money.ZERO, context.getCustomerController().getWalletBalance(dee));
+        assertTrue(context.getWalletLedger().getTransactions(3).isEmpty());
+        assertEquals(Money.ZERO, context.getWalletLedger().replay(3));
+    }
+
+    @Test
+    public void TestPricingEngineAppliesDiscountsEverywhere() {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+        context.getAccountController().signUp("Penny", "penny@gmail.com", "pennypass");
+        Session session = context.getAccountController().logIn("penny@gmail.com", "pennypass");
+        context.getCustomerController().addFundsToWallet(session, "visa", 100);
+        int cartId = context.getCustomerController().getShoppingCartId(session);
+        context.getShoppingCartController().addGameToCart(cartId, 1);
+        context.getShoppingCartController().addGameToCart(cartId, 5);
+        assertEquals(Money.ofCents(5999 + 999), context.getShoppingCartController().getCartTotalPrice(cartId));
+
+        Admin admin = new Admin(1, "Ada", "ada@adm.com", "adapass", "Admin");
+        context.getAdminService().applyDiscountToGame(admin, 1, 25);
+        // 59.99 * 0.75 = 44.9925, rounded to the cent once.
+        assertEquals(Money.ofCents(4499), context.getPricingEngine().getEffectivePrice(context.getGameRepository().get(1)));
+        assertEquals(Money.ofCents(4499 + 999), context.getShoppingCartController().getCartTotalPrice(cartId));
+        assertEquals(2, (int) context.getCustomerService().sortGamesByPriceDescending().get(0).getGameId());
+        assertEquals(List.of(1), context.getCustomerService().filterGamesByPriceRange(44.0f, 45.0f).stream().map(Game::getGameId).toList());
+
+        // A second discount replaces the first.
+        context.getAdminService().applyDiscountToGame(admin, 1, 50);
+        assertEquals(Money.ofCents(3000 + 999), context.getShoppingCartController().getCartTotalPrice(cartId));
+        assertThrows(BusinessLogicException.class, () -> context.getCustomerService().filterGamesByPriceRange(44.0f, 45.0f));
+        assertThrows(BusinessLogicException.class, () -> context.getAdminService().applyDiscountToGame(admin, 1, 120));
+
+        // A copy of a game read before a repricing keeps its own price, even when it is priced
+        // after the repricing, and does not change the price the stored game gets.
+        Game before = context.getGameRepository().get(5);
+        Game copy = new Game(5, before.getGameName(), before.getGameDescription(), before.getGameGenre(), before.getPrice(), new ArrayList<>());
+        context.getAdminService().applyDiscountToGame(admin, 5, 10);
+        assertEquals(Money.ofCents(999), context.getPricingEngine().getEffectivePrice(copy));
+        assertEquals(Money.ofCents(899), context.getPricingEngine().getEffectivePrice(context.getGameRepository().get(5)));
+        assertEquals(List.of(5), context.getCustomerService().filterGamesByPriceRange(8.5f, 9.0f).stream().map(Game::getGameId).toList());
+        assertEquals(Money.ofCents(3000 + 899), context.getShoppingCartController().getCartTotalPrice(cartId));
+
+        context.getShoppingCartController().checkout(cartId);
+        assertEquals(Money.ofCents(10000 - 3000 - 899), context.getCustomerController().getWalletBalance(session));
+    }
+
+    @Test
+    public void TestDiscountCampaignsActivateAndExpireOnTheTimerWheel() {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+        Instant[] now = {Instant.parse("2026-10-16T00:00:00Z")};
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now[0];
+            }
+        };
+        PricingEngine pricingEngine = context.getPricingEngine();
+        CampaignService campaigns = new CampaignService(context.getCampaignRepository(), context.getGameRepository(),
+                context.getDiscountRepository(), pricingEngine, clock, Duration.ofMinutes(1));
+        Admin admin = new Admin(1, "Ada", "ada@adm.com", "adapass", "Admin");
+        // Game 3 keeps its own larger discount; game 4 gets the campaign's.
+        context.getAdminService().applyDiscountToGame(admin, 3, 30);
+
+        DiscountCampaign weekend = campaigns.scheduleCampaign(admin, "RPG weekend", 20, Set.of(GameGenre.RPG), Set.of(5),
+                Instant.parse("2026-10-16T18:00:00Z"), Instant.parse("2026-10-18T23:59:00Z"));
+        assertThrows(ValidationException.class, () -> campaigns.scheduleCampaign(admin, "Empty", 20, Set.of(), Set.of(),
+                now[0], now[0].plusSeconds(60)));
+        assertThrows(BusinessLogicException.class, () -> campaigns.scheduleCampaign(null, "No admin", 20, Set.of(GameGenre.RPG),
+                Set.of(), now[0], now[0].plusSeconds(60)));
+        assertEquals(0, campaigns.runDueTimers());
+
+        now[0] = Instant.parse("2026-10-16T18:01:00Z");
+        assertEquals(1, campaigns.runDueTimers());
+        assertEquals(DiscountCampaign.Status.ACTIVE, weekend.getStatus());
+        assertEquals(Money.ofCents(1599), pricingEngine.getEffectivePrice(context.getGameRepository().get(4)));
+        assertEquals(Money.ofCents(799), pricingEngine.getEffectivePrice(context.getGameRepository().get(5)));
+        assertEquals(Money.ofCents(2799), pricingEngine.getEffectivePrice(context.getGameRepository().get(3)));
+        assertEquals(List.of(4), context.getCustomerService().filterGamesByPriceRange(15.0f, 16.0f).stream().map(Game::getGameId).toList());
+
+        now[0] = Instant.parse("2026-10-19T00:00:00Z");
+        assertEquals(1, campaigns.runDueTimers());
+        assertEquals(DiscountCampaign.Status.EXPIRED, weekend.getStatus());
+        assertEquals(Money.ofCents(1999), pricingEngine.getEffectivePrice(context.getGameRepository().get(4)));
+        assertEquals(Money.ofCents(2799), pricingEngine.getEffectivePrice(context.getGameRepository().get(3)));
+
+        // A cancelled campaign never starts.
+        DiscountCampaign cancelled = campaigns.scheduleCampaign(admin, "Puzzle day", 50, Set.of(GameGenre.PUZZLE), Set.of(),
+                now[0].plusSeconds(3600), now[0].plusSeconds(7200));
+        campaigns.cancelCampaign(admin, cancelled.getCampaignId());
+        now[0] = now[0].plusSeconds(3 * 3600);
+        assertEquals(0, campaigns.runDueTimers());
+        assertEquals(Money.ofCents(999), pricingEngine.getEffectivePrice(context.getGameRepository().get(5)));
+        assertThrows(BusinessLogicException.class, () -> campaigns.cancelCampaign(admin, cancelled.getCampaignId()));
+
+        // A task that throws does not keep the tasks due after it from running.
+        HashedTimerWheel wheel = new HashedTimerWheel(now[0], Duration.ofSeconds(1), 8);
+        List<String> ran = new ArrayList<>();
+        wheel.schedule(now[0].plusSeconds(1), () -> {
+            throw new IllegalStateException("boom");
+        });
+        wheel.schedule(now[0].plusSeconds(2), () -> ran.add("second"));
+        assertEquals(2, wheel.advanceTo(now[0].plusSeconds(3)));
+        assertEquals(List.of("second"), ran);
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    public void TestBulkDiscountCommitsOneBatchPerRepository() {
+        StoreContext context = StoreContext.inMemory();
+        List<Game> catalog = new ArrayList<>();
+        for (int i = 1; i <= 3000; i++) {
+            catalog.add(new Game(i, "Game " + i, "Bulk", i % 2 == 0 ? GameGenre.RPG : GameGenre.PUZZLE, 10.00f, new ArrayList<>()));
+        }
+        context.getGameRepository().createAll(catalog);
+        Admin admin = new Admin(1, "Ada", "ada@adm.com", "adapass", "Admin");
+        context.getAdminService().applyDiscountToGame(admin, 2, 50);
+        RepositoryMetrics games = context.getMetricsRegistry().repository("games");
+        RepositoryMetrics discounts = context.getMetricsRegistry().repository("discounts");
+        games.reset();
+        discounts.reset();
+
+        AtomicInteger lastReported = new AtomicInteger();
+        BulkDiscountResult result = context.getAdminService().applyBulkDiscount(admin, GameSelector.byGenre(GameGenre.RPG), 25,
+                (completed, total) -> lastReported.accumulateAndGet(completed, Math::max));
+        assertEquals(1500, result.getSelectedCount());
+        assertEquals(1500, result.getChangedCount());
+        assertEquals(1500, lastReported.get());
+        assertEquals(0, games.get(RepositoryMetrics.Operation.UPDATE).getCalls());
+        assertEquals(1, games.get(RepositoryMetrics.Operation.UPDATE_ALL).getCalls());
+        assertEquals(1, discounts.get(RepositoryMetrics.Operation.CREATE_ALL).getCalls());
+        assertEquals(1, discounts.get(RepositoryMetrics.Operation.UPDATE_ALL).getCalls());
+        assertEquals(0, discounts.get(RepositoryMetrics.Operation.CREATE).getCalls());
+        assertEquals(Money.ofCents(750), context.getPricingEngine().getEffectivePrice(context.getGameRepository().get(2)));
+        assertEquals(Money.ofCents(1000), context.getPricingEngine().getEffectivePrice(context.getGameRepository().get(3)));
+        assertEquals(1500, context.getCustomerService().filterGamesByPriceRange(7.0f, 8.0f).size());
+
+        // Games already at the requested discount are not written again.
+        assertEquals(0, context.getAdminService().applyBulkDiscount(admin, GameSelector.byPriceRange(7.0f, 8.0f), 25, null).getChangedCount());
+        BulkDiscountResult byIds = context.getAdminService().applyBulkDiscount(admin, GameSelector.byIds(Set.of(2, 3, 99999)), 25, null);
+        assertEquals(2, byIds.getSelectedCount());
+        assertEquals(1, byIds.getChangedCount());
+        assertThrows(BusinessLogicException.class, () -> context.getAdminService().applyBulkDiscount(admin, GameSelector.byDeveloper(42), 10, null));
+        assertThrows(BusinessLogicException.class, () -> context.getAdminService().applyBulkDiscount(null, GameSelector.byGenre(GameGenre.RPG), 10, null));
+    }
+
+    @Test
+    public void TestCartTotalsAreMaintainedIncrementally() {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+        context.getAccountController().signUp("Iris", "iris@gmail.com", "irispass");
+        context.getAccountController().signUp("Otto", "otto@gmail.com", "ottopass");
+        Session iris = context.getAccountController().logIn("iris@gmail.com", "irispass");
+        Session otto = context.getAccountController().logIn("otto@gmail.com", "ottopass");
+        context.getCustomerController().addFundsToWallet(iris, "visa", 100);
+        int irisCart = context.getCustomerController().getShoppingCartId(iris);
+        int ottoCart = context.getCustomerController().getShoppingCartId(otto);
+        ShoppingCartService carts = context.getShoppingCartService();
+        PricingEngine pricingEngine = context.getPricingEngine();
+
+        carts.addGameToCart(irisCart, 1);
+        carts.addGameToCart(irisCart, 3);
+        carts.addGameToCart(ottoCart, 5);
+        long lookups = pricingEngine.getHits() + pricingEngine.getMisses();
+        assertEquals(Money.ofCents(5999 + 3999), carts.getCartTotalPrice(irisCart));
+        assertEquals(Money.ofCents(5999 + 3999), carts.getCartSubtotalPrice(irisCart));
+        assertEquals(lookups, pricingEngine.getHits() + pricingEngine.getMisses());
+
+        // Only the carts holding a repriced game are recomputed.
+        Admin admin = new Admin(1, "Ada", "ada@adm.com", "adapass", "Admin");
+        context.getAdminService().applyDiscountToGame(admin, 3, 50);
+        assertEquals(Money.ofCents(999), carts.getCartTotalPrice(ottoCart));
+        assertEquals(Money.ofCents(5999 + 2000), carts.getCartTotalPrice(irisCart));
+        assertEquals(Money.ofCents(5999 + 3999), carts.getCartSubtotalPrice(irisCart));
+
+        carts.removeGameFromCart(irisCart, 1);
+        assertEquals(Money.ofCents(2000), carts.getCartTotalPrice(irisCart));
+        context.getAdminService().applyDiscountToGame(admin, 3, 25);
+        carts.checkout(irisCart);
+        assertEquals(Money.ofCents(10000 - 2999), context.getCustomerController().getWalletBalance(iris));
+        assertEquals(Money.ZERO, carts.getCartTotalPrice(irisCart));
+        assertEquals(Money.ZERO, carts.getCartSubtotalPrice(irisCart));
+    }
+
+    @Test
+    public void TestRemovingARepricedGameFromAFileBackedCart() throws IOException {
+        Path dir = Files.createTempDirectory("store");
+        StoreContext context = StoreContext.inFile(dir);
+        context.initializeGames();
+        context.getAccountController().signUp("Ivo", "ivo@gmail.com", "ivopass");
+        Session ivo = context.getAccountController().logIn("ivo@gmail.com", "ivopass");
+        context.getCustomerController().addFundsToWallet(ivo, "visa", 100);
+        int cartId = context.getCustomerController().getShoppingCartId(ivo);
+        ShoppingCartService carts = context.getShoppingCartService();
+
+        // The cart holds its own copies of the games, so a repriced game must be taken off at its new price.
+        carts.addGameToCart(cartId, 1);
+        carts.addGameToCart(cartId, 3);
+        context.getAdminService().applyDiscountToGame(new Admin(1, "Ada", "ada@adm.com", "adapass", "Admin"), 3, 50);
+        assertEquals(Money.ofCents(5999 + 2000), carts.getCartTotalPrice(cartId));
+        carts.removeGameFromCart(cartId, 3);
+        assertEquals(Money.ofCents(5999), carts.getCartTotalPrice(cartId));
+        assertEquals(Money.ofCents(5999), carts.getCartSubtotalPrice(cartId));
+        carts.checkout(cartId);
+        assertEquals(Money.ofCents(10000 - 5999), context.getCustomerController().getWalletBalance(ivo));
+
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void TestIdleCartsAreEvictedAndRestoredOnAccess() {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+        List<Session> sessions = new ArrayList<>();
+        for (String name : List.of("Ann", "Ben", "Cat")) {
+            context.getAccountController().signUp(name, name.toLowerCase() + "@gmail.com", name + "pass");
+            sessions.add(context.getAccountController().logIn(name.toLowerCase() + "@gmail.com", name + "pass"));
+        }
+        context.getCustomerController().addFundsToWallet(sessions.get(2), "visa", 100);
+        int annCart = context.getCustomerController().getShoppingCartId(sessions.get(0));
+        int benCart = context.getCustomerController().getShoppingCartId(sessions.get(1));
+        int catCart = context.getCustomerController().getShoppingCartId(sessions.get(2));
+        ShoppingCartService carts = context.getShoppingCartService();
+        carts.addGameToCart(annCart, 1);
+        carts.addGameToCart(annCart, 2);
+        carts.addGameToCart(catCart, 5);
+        carts.checkout(catCart);
+
+        for (ShoppingCart cart : context.getShoppingCartRepository().getAll()) {
+            cart.touch(Instant.now().minus(Duration.ofDays(8)));
+            context.getShoppingCartRepository().update(cart);
+        }
+        CartLifecycleManager lifecycle = context.getCartLifecycleManager();
+        assertEquals(3, lifecycle.evictIdleCarts());
+        assertEquals(0, context.getShoppingCartRepository().getAll().size());
+        assertEquals(List.of(annCart), context.getShoppingCartArchiveRepository().getAll().stream().map(ShoppingCart::getShoppingCartId).toList());
+        assertEquals(3, lifecycle.getEvictedCount());
+
+        // A repriced game is picked up when the archived cart comes back on the next access.
+        Admin admin = new Admin(1, "Ada", "ada@adm.com", "adapass", "Admin");
+        context.getAdminService().applyDiscountToGame(admin, 2, 50);
+        assertEquals(annCart, context.getCustomerController().getShoppingCartId(sessions.get(0)));
+        assertEquals(Money.ofCents(5999 + 2500), carts.getCartTotalPrice(annCart));
+        assertEquals(benCart, context.getCustomerController().getShoppingCartId(sessions.get(1)));
+        assertTrue(carts.getShoppingCart(benCart).getListOfGames().isEmpty());
+        assertEquals(1, lifecycle.getEvictedCount());
+        assertEquals(0, context.getShoppingCartArchiveRepository().getAll().size());
+        assertEquals(0, lifecycle.evictIdleCarts());
+
+        // Compaction purges archived carts past the retention; the customer then gets an empty cart.
+        CartLifecycleManager muchLater = new CartLifecycleManager(context.getShoppingCartRepository(), context.getShoppingCartArchiveRepository(),
+                context.getCustomerRepository(), carts, Clock.offset(Clock.systemUTC(), Duration.ofDays(100)),
+                CartLifecycleManager.DEFAULT_IDLE_TTL, Duration.ofDays(30));
+        assertEquals(3, muchLater.compact());
+        assertEquals(0, context.getShoppingCartArchiveRepository().getAll().size());
+        assertEquals(annCart, muchLater.ensureResident(sessions.get(0).getCustomer()));
+        assertEquals(Money.ZERO, carts.getCartTotalPrice(annCart));
+    }
+
+    @Test
+    public void TestCheckoutIsIdempotentPerRequestId() {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+        context.getAccountController().signUp("Rita", "rita@gmail.com", "ritapass");
+        context.getAccountController().signUp("Sam", "sam@gmail.com", "sampass");
+        Session rita = context.getAccountController().logIn("rita@gmail.com", "ritapass");
+        Session sam = context.getAccountController().logIn("sam@gmail.com", "sampass");
+        context.getCustomerController().addFundsToWallet(rita, "visa", 100);
+        int ritaCart = context.getCustomerController().getShoppingCartId(rita);
+        int samCart = context.getCustomerController().getShoppingCartId(sam);
+        context.getShoppingCartController().addGameToCart(ritaCart, 1);
+
+        Order first = context.getShoppingCartController().checkout(ritaCart, "req-1");
+        Order retry = context.getShoppingCartController().checkout(ritaCart, "req-1");
+        assertSame(first, retry);
+        assertEquals(1, context.getOrderRepository().getAll().size());
+        assertEquals(Money.ofCents(10000 - 5999), context.getCustomerController().getWalletBalance(rita));
+        assertThrows(BusinessLogicException.class, () -> context.getShoppingCartController().checkout(samCart, "req-1"));
+        // A failed checkout is not remembered.
+        assertThrows(BusinessLogicException.class, () -> context.getShoppingCartController().checkout(ritaCart, "req-2"));
+        context.getShoppingCartController().addGameToCart(ritaCart, 5);
+        assertEquals(first.getOrderId() + 1, context.getShoppingCartController().checkout(ritaCart, "req-2").getOrderId());
+
+        Instant[] now = {Instant.parse("2026-10-19T00:00:00Z")};
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now[0];
+            }
+        };
+        IdempotencyTable<String> table = new IdempotencyTable<>(2, Duration.ofMinutes(10), clock);
+        table.put("a", 1, "A");
+        table.put("b", 1, "B");
+        table.put("c", 1, "C");
+        assertNull(table.get("a", 1));
+        assertEquals("B", table.get("b", 1));
+        now[0] = now[0].plusSeconds(601);
+        assertNull(table.get("c", 1));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void TestOrderPipelinePersistsInBatchesOffTheCheckoutThread() throws InterruptedException {
+        IRepository<Order> orders = new InMemoryRepository<>();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger analyzed = new AtomicInteger();
+        OrderPipeline pipeline = new OrderPipeline(2, 10, true)
+                .addStage("orders", batch -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    batchSizes.add(batch.size());
+                    orders.createAll(batch);
+                })
+                .addStage("analytics", batch -> analyzed.addAndGet(batch.size()));
+        pipeline.start();
+        OrderService orderService = new OrderService(orders, pipeline, null, null);
+        Customer customer = new Customer(1, "Tom", "tom@gmail.com", "pass", "Customer", 0f,
+                new ArrayList<>(), new ArrayList<>(), null);
+        Game game = new Game(1, "Cyber Adventure", "", GameGenre.ADVENTURE, 59.99f, new ArrayList<>());
+
+        // The writer holds the first order; two more fill the queue and the fourth blocks.
+        pipeline.submit(new Order(1, customer, List.of(game)));
+        while (pipeline.getQueueDepth("orders") > 0) {
+            Thread.sleep(5);
+        }
+        pipeline.submit(new Order(2, customer, List.of(game)));
+        pipeline.submit(new Order(3, customer, List.of(game)));
+        Thread blocked = new Thread(() -> pipeline.submit(new Order(4, customer, List.of(game))));
+        blocked.start();
+        blocked.join(300);
+        assertTrue(blocked.isAlive());
+        assertEquals(0, orders.getAll().size());
+        assertEquals(4, orderService.getAllOrdersByCustomer(customer).size());
+        assertEquals(3, orderService.getOrderById(3).getOrderId());
+
+        release.countDown();
+        blocked.join();
+        pipeline.flush();
+        assertEquals(4, orders.getAll().size());
+        assertTrue(batchSizes.size() < 4);
+        assertEquals(0, pipeline.getInFlight().size());
+        assertEquals(4, orderService.getAllOrders().size());
+        assertEquals(4, analyzed.get());
+        pipeline.stop();
+        assertEquals(0, pipeline.getFailedBatches());
+
+        // A batch that keeps failing is parked and stays in flight until a retry writes it.
+        boolean[] failing = {true};
+        IRepository<Order> flaky = new InMemoryRepository<>();
+        OrderPipeline retrying = new OrderPipeline(8, 10, true).addStage("orders", batch -> {
+            if (failing[0]) {
+                throw new IllegalStateException("disk full");
+            }
+            flaky.createAll(batch);
+        });
+        retrying.start();
+        retrying.submit(new Order(5, customer, List.of(game)));
+        retrying.flush();
+        assertEquals(1, retrying.getFailedBatches());
+        assertEquals(1, retrying.getParkedCount());
+        assertEquals(List.of(5), retrying.getInFlight().stream().map(Order::getOrderId).toList());
+        failing[0] = false;
+        assertEquals(0, retrying.retryFailed());
+        assertEquals(1, flaky.getAll().size());
+        assertEquals(0, retrying.getInFlight().size());
+        retrying.stop();
+        // Once stopped, the pipeline writes on the submitting thread.
+        retrying.submit(new Order(6, customer, List.of(game)));
+        assertEquals(2, flaky.getAll().size());
+    }
+
+    @Test
+    public void TestWriteAheadJournalRecovery() throws Exception {
+        Path dir = Files.createTempDirectory("journal");
+        Path journalFile = dir.resolve("store.journal");
+        String customersFile = dir.resolve("customers.dat").toString();
+        String ordersFile = dir.resolve("orders.dat").toString();
+        WriteAheadJournal journal = new WriteAheadJournal(journalFile, 1000);
+        JournaledRepository<Customer> customers = new JournaledRepository<>("customers", new FileRepository<>(customersFile), journal);
+        JournaledRepository<Order> orders = new JournaledRepository<>("orders", new FileRepository<>(ordersFile), journal);
+        journal.recover();
+
+        Customer ann = new Customer(1, "Ann", "ann@gmail.com", "pass", "Customer", 10f, new ArrayList<>(), new ArrayList<>(), null);
+        customers.create(ann);
+        Game game = new Game(1, "Cyber Adventure", "", GameGenre.ADVENTURE, 59.99f, new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int first = t * 25 + 1;
+            threads.add(new Thread(() -> {
+                for (int id = first; id < first + 25; id++) {
+                    orders.create(new Order(id, ann, List.of(game)));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        ann.setFundWallet(5f);
+        customers.update(ann);
+        orders.delete(100);
+        assertTrue(journal.getSyncCount() <= 103);
+        // Nothing has been written to the repository files; the journal holds every write.
+        assertEquals(0, new FileRepository<Order>(ordersFile).getAll().size());
+
+        // Simulate a crash: reopen without a checkpoint, with a torn record at the end of the journal.
+        Files.write(journalFile, new byte[]{0, 0, 1, 0, 7}, StandardOpenOption.APPEND);
+        WriteAheadJournal reopened = new WriteAheadJournal(journalFile, 1000);
+        JournaledRepository<Customer> recoveredCustomers = new JournaledRepository<>("customers", new FileRepository<>(customersFile), reopened);
+        JournaledRepository<Order> recoveredOrders = new JournaledRepository<>("orders", new FileRepository<>(ordersFile), reopened);
+        assertEquals(103, reopened.recover());
+        assertEquals(99, recoveredOrders.getAll().size());
+        assertNull(recoveredOrders.get(100));
+        assertEquals(5f, recoveredCustomers.get(1).getFundWallet());
+
+        reopened.checkpoint();
+        assertEquals(0, Files.size(journalFile));
+        assertEquals(99, new FileRepository<Order>(ordersFile).getAll().size());
+        recoveredOrders.create(new Order(100, ann, List.of(game)));
+        reopened.close();
+        WriteAheadJournal restarted = new WriteAheadJournal(journalFile, 1000);
+        JournaledRepository<Order> restartedOrders = new JournaledRepository<>("orders", new FileRepository<>(ordersFile), restarted);
+        assertEquals(0, restarted.recover());
+        assertEquals(100, restartedOrders.getAll().size());
+
+        // Creating an existing ID fails, changes nothing and journals nothing; a batch holding a
+        // taken or repeated ID is rejected as a whole.
+        Order original = restartedOrders.get(1);
+        assertThrows(IllegalArgumentException.class, () -> restartedOrders.create(new Order(1, ann, List.of())));
+        assertThrows(IllegalArgumentException.class,
+                () -> restartedOrders.createAll(List.of(new Order(2, ann, List.of()), new Order(101, ann, List.of(game)))));
+        assertThrows(IllegalArgumentException.class,
+                () -> restartedOrders.createAll(List.of(new Order(101, ann, List.of(game)), new Order(101, ann, List.of()))));
+        assertSame(original, restartedOrders.get(1));
+        assertNull(restartedOrders.get(101));
+        assertEquals(0, restarted.getEntriesSinceCheckpoint());
+        restartedOrders.createAll(List.of(new Order(101, ann, List.of(game))));
+        assertEquals(1, restarted.getEntriesSinceCheckpoint());
+
+        // A snapshot that cannot be written fails the checkpoint and leaves the journal as it was.
+        Path blocker = Files.createDirectory(Path.of(ordersFile + ".tmp"));
+        Path blockerContent = Files.createFile(blocker.resolve("keep"));
+        assertThrows(UncheckedIOException.class, () -> restarted.checkpoint());
+        assertTrue(Files.size(journalFile) > 0);
+        assertEquals(100, new FileRepository<Order>(ordersFile).getAll().size());
+        WriteAheadJournal afterFailure = new WriteAheadJournal(journalFile, 1000);
+        JournaledRepository<Order> afterFailureOrders = new JournaledRepository<>("orders", new FileRepository<>(ordersFile), afterFailure);
+        assertEquals(1, afterFailure.recover());
+        assertEquals(101, afterFailureOrders.getAll().size());
+        Files.delete(blockerContent);
+        Files.delete(blocker);
+        restarted.close();
+        assertEquals(0, Files.size(journalFile));
+        assertEquals(101, new FileRepository<Order>(ordersFile).getAll().size());
+    }
+
+    @Test
+    public void TestPurchaseEventProjections() {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+        context.getAccountController().signUp("Uma", "uma@gmail.com", "umapass");
+        context.getAccountController().signUp("Vic", "vic@gmail.com", "vicpass");
+        Session uma = context.getAccountController().logIn("uma@gmail.com", "umapass");
+        Session vic = context.getAccountController().logIn("vic@gmail.com", "vicpass");
+        context.getCustomerController().addFundsToWallet(uma, "visa", 200);
+        context.getCustomerController().addFundsToWallet(vic, "visa", 200);
+        int umaCart = context.getCustomerController().getShoppingCartId(uma);
+        int vicCart = context.getCustomerController().getShoppingCartId(vic);
+        context.getShoppingCartController().addGameToCart(umaCart, 1);
+        context.getShoppingCartController().addGameToCart(umaCart, 5);
+        Order first = context.getShoppingCartController().checkout(umaCart);
+        context.getShoppingCartController().addGameToCart(umaCart, 3);
+        Order second = context.getShoppingCartController().checkout(umaCart);
+        context.getShoppingCartController().addGameToCart(vicCart, 1);
+        context.getShoppingCartController().checkout(vicCart);
+
+        PurchaseEventStore events = context.getPurchaseEventStore();
+        assertEquals(3, events.getEventCount());
+        assertEquals(Money.ofCents(5999 + 999), events.getEvents().get(0).getAmount());
+        assertEquals(List.of(first.getOrderId(), second.getOrderId()),
+                context.getOrderHistoryProjection().getOrderIds(uma.getCustomer().getId()));
+        assertEquals(2, context.getShoppingCartController().getAllOrdersByCustomer(uma.getCustomer()).size());
+        assertEquals(List.of(1, 5, 3), context.getLibraryProjection().getGameIds(uma.getCustomer().getId()));
+        assertEquals(3, context.getCustomerController().viewGamesLibrary(uma).size());
+        assertTrue(context.getLibraryProjection().owns(vic.getCustomer().getId(), 1));
+        SalesAnalytics sales = context.getSalesAnalytics();
+        assertEquals(2L, sales.getUnitsSold(1));
+        assertEquals(3L, sales.getOrderCount());
+
+        // A new schema version replaces the projection and is rebuilt from the full stream.
+        SalesAnalytics resized = new SalesAnalytics() {
+            @Override
+            public int getSchemaVersion() {
+                return 2;
+            }
+        };
+        events.register(resized);
+        assertEquals(2L, resized.getUnitsSold(1));
+        assertEquals(1L, resized.getUnitsSold(3));
+        assertThrows(IllegalArgumentException.class, () -> events.register(new SalesAnalytics()));
+        events.rebuildAll();
+        assertEquals(List.of(1, 5, 3), context.getLibraryProjection().getGameIds(uma.getCustomer().getId()));
+        assertEquals(3L, resized.getOrderCount());
+
+        // Orders placed before purchases were recorded are backfilled once.
+        PurchaseEventStore legacy = new PurchaseEventStore(new InMemoryRepository<>(), Clock.systemUTC());
+        OrderHistoryProjection history = new OrderHistoryProjection();
+        legacy.register(history);
+        assertEquals(2, legacy.backfill(List.of(second, first)));
+        assertEquals(List.of(first.getOrderId(), second.getOrderId()), history.getOrderIds(uma.getCustomer().getId()));
+        assertEquals(0, legacy.backfill(List.of(first)));
+
+        // The library is served from the projection, not from the stored customer.
+        Customer stored = context.getCustomerRepository().get(uma.getCustomer().getId());
+        stored.getGamesLibrary().add(context.getGameRepository().get(2));
+        context.getCustomerRepository().update(stored);
+        assertEquals(List.of(1, 5, 3), context.getCustomerController().viewGamesLibrary(uma).stream().map(Game::getGameId).toList());
+
+        // A projection shows nothing until it is first built, and a rebuild shows the last complete state until it is done.
+        CustomerLibraryProjection library = new CustomerLibraryProjection();
+        library.apply(events.getEvents().get(0));
+        assertFalse(library.isBuilt());
+        assertEquals(List.of(), library.getGameIds(uma.getCustomer().getId()));
+        library.rebuilt();
+        assertEquals(List.of(1, 5), library.getGameIds(uma.getCustomer().getId()));
+        library.reset();
+        library.apply(events.getEvents().get(2));
+        assertEquals(List.of(1, 5), library.getGameIds(uma.getCustomer().getId()));
+        library.rebuilt();
+        assertEquals(List.of(), library.getGameIds(uma.getCustomer().getId()));
+        assertTrue(library.owns(vic.getCustomer().getId(), 1));
+
+        // A deleted customer's history is dropped, also on a rebuild, so an account given the
+        // same ID starts empty. Sales still count the purchases.
+        int vicId = vic.getCustomer().getId();
+        context.getAccountController().deleteAccount(vic);
+        context.getAccountController().signUp("Wyn", "wyn@gmail.com", "wynpass");
+        Session wyn = context.getAccountController().logIn("wyn@gmail.com", "wynpass");
+        assertEquals(Integer.valueOf(vicId), wyn.getCustomer().getId());
+        assertEquals(PurchaseEvent.Type.ACCOUNT_DELETED, events.getEvents().get(3).getType());
+        events.rebuildAll();
+        assertEquals(List.of(), context.getOrderHistoryProjection().getOrderIds(vicId));
+        assertFalse(context.getLibraryProjection().owns(vicId, 1));
+        assertEquals(0, context.getShoppingCartController().getAllOrdersByCustomer(wyn.getCustomer()).size());
+        assertThrows(EntityNotFoundException.class, () -> context.getCustomerController().viewGamesLibrary(wyn));
+        assertEquals(3L, resized.getOrderCount());
+    }
+
+    @Test
+    public void TestStoredModelsKeepTheirSerialVersion() throws IOException {
+        // The values the classes computed before fields were added to them; data files written then must still load.
+        assertEquals(720522213217526978L, ObjectStreamClass.lookup(User.class).getSerialVersionUID());
+        assertEquals(-6786491475963033856L, ObjectStreamClass.lookup(Game.class).getSerialVersionUID());
+        assertEquals(4033850664897990396L, ObjectStreamClass.lookup(ShoppingCart.class).getSerialVersionUID());
+
+        Path file = Files.createTempFile("unreadable", ".dat");
+        Files.write(file, new byte[]{1, 2, 3});
+        FileRepository<Game> repository = new FileRepository<>(file.toString());
+        assertThrows(UncheckedIOException.class, () -> repository.getAll());
+        assertThrows(UncheckedIOException.class, () -> repository.create(new Game(1, "G", "", GameGenre.RPG, 1f, new ArrayList<>())));
+        assertEquals(3, Files.size(file));
+        Files.delete(file);
+        assertEquals(0, repository.getAll().size());
+    }
+
+    @Test
+    public void TestConcurrentCartOperationsConserveTotals() throws InterruptedException {
+        StoreContext context = StoreContext.inMemory();
+        context.initializeGames();
+        List<Session> sessions = new ArrayList<>();
+        List<Integer> cartIds = new ArrayList<>();
+        for (String name : List.of("Wes", "Xia", "Yan")) {
+            context.getAccountController().signUp(name, name.toLowerCase() + "@gmail.com", name + "pass");
+            Session session = context.getAccountController().logIn(name.toLowerCase() + "@gmail.com", name + "pass");
+            context.getCustomerController().addFundsToWallet(session, "visa", 1000);
+            sessions.add(session);
+            cartIds.add(context.getCustomerController().getShoppingCartId(session));
+        }
+        ShoppingCartService carts = context.getShoppingCartService();
+        // Every cart counts as idle, so eviction keeps taking batch locks across the carts in use.
+        CartLifecycleManager lifecycle = new CartLifecycleManager(context.getShoppingCartRepository(), context.getShoppingCartArchiveRepository(),
+                context.getCustomerRepository(), carts, Clock.offset(Clock.systemUTC(), Duration.ofDays(8)),
+                CartLifecycleManager.DEFAULT_IDLE_TTL, CartLifecycleManager.DEFAULT_ARCHIVE_RETENTION);
+
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Random random = new Random(t);
+            workers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 300; i++) {
+                        int c = random.nextInt(cartIds.size());
+                        int cartId = cartIds.get(c);
+                        int gameId = 1 + random.nextInt(5);
+                        try {
+                            int op = random.nextInt(10);
+                            if (op < 5) {
+                                carts.addGameToCart(cartId, gameId);
+                            } else if (op < 8) {
+                                carts.removeGameFromCart(cartId, gameId);
+                            } else {
+                                carts.checkout(cartId);
+                            }
+                        } catch (BusinessLogicException e) {
+                            // Already owned, not in the cart, or an empty cart: rejected, nothing changed.
+                        } catch (EntityNotFoundException e) {
+                            lifecycle.ensureResident(sessions.get(c).getCustomer());
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        Thread evictor = new Thread(() -> {
+            try {
+                start.await();
+                while (workers.stream().anyMatch(Thread::isAlive)) {
+                    lifecycle.evictIdleCarts();
+                }
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        });
+        workers.forEach(Thread::start);
+        evictor.start();
+        start.countDown();
+        long deadline = System.currentTimeMillis() + 60_000;
+        for (Thread thread : workers) {
+            thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+        evictor.join(Math.max(1, deadline - System.currentTimeMillis()));
+        assertTrue(workers.stream().noneMatch(Thread::isAlive) && !evictor.isAlive());
+        assertEquals(List.of(), new ArrayList<>(failures));
+
+        List<PurchaseEvent> events = context.getPurchaseEventStore().getEvents();
+        assertEquals(events.size(), context.getOrderRepository().getAll().size());
+        for (Session session : sessions) {
+            int customerId = session.getCustomer().getId();
+            Money spent = Money.ZERO;
+            List<Integer> bought = new ArrayList<>();
+            for (PurchaseEvent event : events) {
+                if (event.getCustomerId() == customerId) {
+                    spent = spent.plus(event.getAmount());
+                    bought.addAll(event.getGameIds());
+                }
+            }
+            assertEquals(Money.ofCents(100000).minus(spent), context.getCustomerController().getWalletBalance(session));
+            List<Integer> library = context.getCustomerRepository().get(customerId).getGamesLibrary().stream().map(Game::getGameId).sorted().toList();
+            assertEquals(bought.stream().sorted().toList(), library);
+            assertEquals(bought.size(), context.getOrderRepository().getAll().stream()
+                    .filter(order -> order.getCustomer().getId() == customerId)
+                    .mapToInt(order -> order.getPurchasedGames().size()).sum());
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package Tracing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One timed unit of work in a trace, such as a controller action or a repository call.
+ * Spans of the same request share a trace ID and form a tree through their parent IDs.
+ */
+public class Span {
+
+    /**
+     * The layer a span belongs to.
+     */
+    public enum Kind {
+        CONTROLLER, SERVICE, REPOSITORY
+    }
+
+    private final String traceId;
+    private final String spanId;
+    private final Span parent;
+    private final String name;
+    private final Kind kind;
+    private final long startEpochMicros;
+    private final long startNanos;
+    private final Map<String, Object> tags = new LinkedHashMap<>();
+    private final List<Span> children = new ArrayList<>();
+    private long durationNanos = -1;
+
+    Span(String traceId, String spanId, Span parent, String name, Kind kind) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parent = parent;
+        this.name = name;
+        this.kind = kind;
+        this.startEpochMicros = System.currentTimeMillis() * 1000;
+        this.startNanos = System.nanoTime();
+        if (parent != null) {
+            parent.children.add(this);
+        }
+    }
+
+    /**
+     * Attaches a tag to the span, such as the entity ID or the result size.
+     *
+     * @param key   The tag name.
+     * @param value The tag value.
+     * @return This span.
+     */
+    public Span tag(String key, Object value) {
+        tags.put(key, value);
+        return this;
+    }
+
+    void finish() {
+        durationNanos = System.nanoTime() - startNanos;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public Span getParent() {
+        return parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getStartEpochMicros() {
+        return startEpochMicros;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Map<String, Object> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    public List<Span> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Lists this span and all its descendants, parents before children.
+     *
+     * @return The spans of the subtree.
+     */
+    public List<Span> flatten() {
+        List<Span> spans = new ArrayList<>();
+        collect(this, spans);
+        return spans;
+    }
+
+    private static void collect(Span span, List<Span> spans) {
+        spans.add(span);
+        for (Span child : span.children) {
+            collect(child, spans);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + durationNanos / 1000 + " us)";
+    }
+}
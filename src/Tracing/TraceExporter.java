@@ -0,0 +1,15 @@
+package Tracing;
+
+/**
+ * Receives every finished trace.
+ */
+@FunctionalInterface
+public interface TraceExporter {
+
+    /**
+     * Exports a finished trace.
+     *
+     * @param root The root span; its descendants hold the rest of the trace.
+     */
+    void export(Span root);
+}
@@ -0,0 +1,150 @@
+package Tracing;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process request tracer. The first span opened on a thread starts a trace, and spans
+ * opened while it is active become its children. Controller, service and repository calls
+ * therefore form one tree per request. When the root span ends, the tree is passed to
+ * the exporter.
+ *
+ * Tracing is off by default. While it is off, starting a span returns null and nothing is
+ * allocated. Callers pass that null straight back to end().
+ */
+public final class Tracer {
+    /**
+     * System property naming the file traces are written to; tracing is enabled when it is set.
+     */
+    public static final String TRACE_FILE_PROPERTY = "gamestore.trace.file";
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+    private static volatile TraceExporter exporter;
+
+    private Tracer() {
+    }
+
+    /**
+     * Turns tracing on.
+     *
+     * @param traceExporter Receives every finished trace.
+     */
+    public static void enable(TraceExporter traceExporter) {
+        exporter = traceExporter;
+    }
+
+    /**
+     * Turns tracing off. Spans already open finish but are not exported.
+     */
+    public static void disable() {
+        exporter = null;
+    }
+
+    public static boolean isEnabled() {
+        return exporter != null;
+    }
+
+    /**
+     * Enables tracing to a Zipkin JSON file if the gamestore.trace.file system property is set.
+     * The file is written when the JVM exits. Does nothing if tracing is already on.
+     */
+    public static synchronized void configureFromSystemProperties() {
+        String file = System.getProperty(TRACE_FILE_PROPERTY);
+        if (file == null || file.isBlank() || isEnabled()) {
+            return;
+        }
+        ZipkinFileExporter fileExporter = new ZipkinFileExporter(Path.of(file), ZipkinFileExporter.DEFAULT_MAX_SPANS);
+        enable(fileExporter);
+        Runtime.getRuntime().addShutdownHook(new Thread(fileExporter::flush));
+    }
+
+    /**
+     * Opens a span as a child of the thread's current span, or as the root of a new trace.
+     *
+     * @param name The span name, such as "ShoppingCart.checkout" or "games.get".
+     * @param kind The layer the span belongs to.
+     * @return The span, or null if tracing is off.
+     */
+    public static Span start(String name, Span.Kind kind) {
+        if (exporter == null) {
+            return null;
+        }
+        Span parent = CURRENT.get();
+        String traceId = parent != null ? parent.getTraceId() : newId(32);
+        Span span = new Span(traceId, newId(16), parent, name, kind);
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Closes a span and makes its parent current again. Closing a root span exports the trace.
+     *
+     * @param span The span returned by start, or null.
+     */
+    public static void end(Span span) {
+        if (span == null) {
+            return;
+        }
+        span.finish();
+        Span parent = span.getParent();
+        if (parent != null) {
+            CURRENT.set(parent);
+            return;
+        }
+        CURRENT.remove();
+        TraceExporter current = exporter;
+        if (current != null) {
+            summarize(span);
+            current.export(span);
+        }
+    }
+
+    /**
+     * Gets the span open on the calling thread.
+     *
+     * @return The current span, or null.
+     */
+    public static Span current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Tags a root span with the number of repository calls in its trace and the number of
+     * reads that fetched an entity the trace had already read. A high count points at an
+     * N+1 pattern.
+     */
+    private static void summarize(Span root) {
+        int repositoryCalls = 0;
+        int redundantReads = 0;
+        Map<String, Integer> reads = new HashMap<>();
+        for (Span span : root.flatten()) {
+            if (span.getKind() != Span.Kind.REPOSITORY) {
+                continue;
+            }
+            repositoryCalls++;
+            Object id = span.getTags().get("entity.id");
+            if (span.getName().endsWith(".get") && id != null) {
+                if (reads.merge(span.getName() + "#" + id, 1, Integer::sum) > 1) {
+                    redundantReads++;
+                }
+            }
+        }
+        root.tag("repository.calls", repositoryCalls);
+        root.tag("repository.redundantReads", redundantReads);
+    }
+
+    private static String newId(int hexDigits) {
+        StringBuilder sb = new StringBuilder(hexDigits);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (sb.length() < hexDigits) {
+            String part = Long.toHexString(random.nextLong());
+            for (int i = part.length(); i < 16; i++) {
+                sb.append('0');
+            }
+            sb.append(part);
+        }
+        return sb.substring(0, hexDigits);
+    }
+}
@@ -0,0 +1,90 @@
+package Tracing;
+
+import Server.Json;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects finished traces and writes them to a file in the Zipkin v2 JSON format, which is
+ * an array of spans. Zipkin and Jaeger can import the file, and jq can query it. Spans are kept
+ * in memory until flush(). Once the span limit is reached, later traces are dropped.
+ */
+public class ZipkinFileExporter implements TraceExporter {
+    public static final int DEFAULT_MAX_SPANS = 100_000;
+    private static final String SERVICE_NAME = "gamestore";
+
+    private final Path file;
+    private final int maxSpans;
+    private final List<Map<String, Object>> spans = new ArrayList<>();
+    private int droppedTraces;
+
+    /**
+     * Constructs a ZipkinFileExporter.
+     *
+     * @param file     The file to write.
+     * @param maxSpans The most spans kept in memory.
+     */
+    public ZipkinFileExporter(Path file, int maxSpans) {
+        this.file = file;
+        this.maxSpans = maxSpans;
+    }
+
+    @Override
+    public synchronized void export(Span root) {
+        List<Span> trace = root.flatten();
+        if (spans.size() + trace.size() > maxSpans) {
+            droppedTraces++;
+            return;
+        }
+        for (Span span : trace) {
+            spans.add(toZipkin(span));
+        }
+    }
+
+    /**
+     * Writes every collected span to the file, replacing its contents.
+     */
+    public synchronized void flush() {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, Json.write(spans));
+        } catch (IOException e) {
+            System.err.println("Could not write traces to " + file + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized int getSpanCount() {
+        return spans.size();
+    }
+
+    public synchronized int getDroppedTraces() {
+        return droppedTraces;
+    }
+
+    private static Map<String, Object> toZipkin(Span span) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("traceId", span.getTraceId());
+        json.put("id", span.getSpanId());
+        if (span.getParent() != null) {
+            json.put("parentId", span.getParent().getSpanId());
+        }
+        json.put("name", span.getName());
+        json.put("timestamp", span.getStartEpochMicros());
+        json.put("duration", Math.max(1, span.getDurationNanos() / 1000));
+        json.put("localEndpoint", Map.of("serviceName", SERVICE_NAME));
+        Map<String, Object> tags = new LinkedHashMap<>();
+        tags.put("layer", span.getKind().name().toLowerCase());
+        // Zipkin tag values are strings.
+        span.getTags().forEach((key, value) -> tags.put(key, String.valueOf(value)));
+        json.put("tags", tags);
+        return json;
+    }
+}